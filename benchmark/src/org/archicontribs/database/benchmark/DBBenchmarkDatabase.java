@@ -0,0 +1,306 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+
+import org.archicontribs.database.DBDatabaseDriver;
+import org.archicontribs.database.DBDatabaseEntry;
+import org.archicontribs.database.DBException;
+import org.archicontribs.database.DBLogger;
+import org.archicontribs.database.connection.DBConnectionPool;
+import org.archicontribs.database.connection.DBDatabaseExportConnection;
+import org.archicontribs.database.connection.DBDatabaseImportConnection;
+import org.archicontribs.database.data.DBChecksum;
+import org.archicontribs.database.data.DBChecksumAlgorithm;
+import org.archicontribs.database.model.DBArchimateFactory;
+import org.archicontribs.database.model.DBArchimateModel;
+import org.archicontribs.database.model.DBMetadata.DATABASE_STATUS;
+import org.eclipse.emf.ecore.EObject;
+
+import com.archimatetool.editor.model.IArchiveManager;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IProfile;
+
+import lombok.Getter;
+
+/**
+ * Temporary SQLite database used by the benchmarks.<br>
+ * <br>
+ * The database is created in a temporary file and initialized without any interaction with the user. The export and import
+ * methods follow the same steps as the export and import dialogs, without the graphical interface, so that the benchmarks
+ * measure the same database requests as the users.<br>
+ * <br>
+ * The file is deleted when the database is closed.
+ */
+public class DBBenchmarkDatabase implements AutoCloseable {
+	private static final DBLogger logger = new DBLogger(DBBenchmarkDatabase.class);
+
+	@Getter private final File file;
+	@Getter private final DBDatabaseEntry databaseEntry;
+
+	/**
+	 * Checksum algorithm of the database, read when the database is created
+	 */
+	@Getter private DBChecksumAlgorithm checksumAlgorithm = DBChecksumAlgorithm.DEFAULT;
+
+	/**
+	 * Creates and initializes a new SQLite database in a temporary file
+	 * @throws IOException if the temporary file cannot be created
+	 * @throws SQLException if the database cannot be initialized
+	 * @throws DBException
+	 */
+	public DBBenchmarkDatabase() throws IOException, SQLException, DBException {
+		this.file = File.createTempFile("dbplugin-benchmark-", ".sqlite");
+
+		this.databaseEntry = new DBDatabaseEntry();
+		this.databaseEntry.setId(this.file.getName());
+		this.databaseEntry.setName("benchmark ("+this.file.getName()+")");
+		this.databaseEntry.setDriver(DBDatabaseDriver.SQLITE);
+		this.databaseEntry.setServer(this.file.getAbsolutePath());
+
+		if ( logger.isDebugEnabled() ) logger.debug("Creating benchmark database "+this.file.getAbsolutePath());
+		try ( DBDatabaseExportConnection connection = new DBDatabaseExportConnection(this.databaseEntry) ) {
+			connection.initializeDatabase();
+			connection.checkDatabase(null);
+			this.checksumAlgorithm = connection.getChecksumAlgorithm();
+		} catch (ClassNotFoundException err) {
+			throw new SQLException("Cannot load the SQLite JDBC driver.", err);
+		}
+	}
+
+	/**
+	 * Opens a new export connection to the database
+	 * @return the connection, that must be closed by the caller
+	 * @throws SQLException
+	 */
+	public DBDatabaseExportConnection getExportConnection() throws SQLException {
+		try {
+			return new DBDatabaseExportConnection(this.databaseEntry);
+		} catch (ClassNotFoundException err) {
+			throw new SQLException("Cannot load the SQLite JDBC driver.", err);
+		}
+	}
+
+	/**
+	 * Opens a new import connection to the database
+	 * @return the connection, that must be closed by the caller
+	 * @throws SQLException
+	 */
+	public DBDatabaseImportConnection getImportConnection() throws SQLException {
+		return new DBDatabaseImportConnection(this.databaseEntry);
+	}
+
+	/**
+	 * Exports a new version of a model to the database, the same way the export dialog does
+	 * @param model
+	 * @param releaseNote
+	 * @throws Exception
+	 */
+	public void exportModel(DBArchimateModel model, String releaseNote) throws Exception {
+		exportModel(model, releaseNote, null);
+	}
+
+	/**
+	 * Exports a new version of a model to the database, the same way the export dialog does
+	 * @param model
+	 * @param releaseNote
+	 * @param phases if not null, records the time and heap usage of the export phases
+	 * @throws Exception
+	 */
+	public void exportModel(DBArchimateModel model, String releaseNote, DBBenchmarkPhases phases) throws Exception {
+		startPhase(phases, "export: count and checksums");
+		model.countAllObjects(this.checksumAlgorithm);
+		model.getCurrentVersion().setChecksum(DBChecksum.calculateChecksum(model, releaseNote, this.checksumAlgorithm));
+
+		startPhase(phases, "export: open connection");
+		try ( DBDatabaseExportConnection connection = getExportConnection() ) {
+			// we compare the model to the database to know which components are new or updated
+			startPhase(phases, "export: compare to database");
+			connection.getAllVersionFromDatabase(model, null);
+
+			connection.setAutoCommit(false);
+			try {
+				startPhase(phases, "export: model");
+				connection.exportModel(model, releaseNote);
+
+				startPhase(phases, "export: specializations");
+				for ( IProfile profile: model.getProfiles() )
+					exportComponent(connection, model, profile);
+				startPhase(phases, "export: elements");
+				for ( EObject element: model.getAllElements().values() )
+					exportComponent(connection, model, element);
+				startPhase(phases, "export: relationships");
+				for ( EObject relationship: model.getAllRelationships().values() )
+					exportComponent(connection, model, relationship);
+				startPhase(phases, "export: folders");
+				for ( EObject folder: model.getAllFolders().values() )
+					exportComponent(connection, model, folder);
+				startPhase(phases, "export: views");
+				for ( EObject view: model.getAllViews().values() )
+					exportComponent(connection, model, view);
+				startPhase(phases, "export: view objects");
+				for ( EObject viewObject: model.getAllViewObjects().values() )
+					exportComponent(connection, model, viewObject);
+				startPhase(phases, "export: view connections");
+				for ( EObject viewConnection: model.getAllViewConnections().values() )
+					exportComponent(connection, model, viewConnection);
+
+				startPhase(phases, "export: images");
+				for ( String path: model.getAllImagePaths() )
+					connection.exportImage(path, model.getImage(path));
+
+				startPhase(phases, "export: commit");
+				connection.updateModelMemberships();
+				connection.flushBatches();
+				connection.updateLatestVersions();
+				connection.commit();
+			} catch (Exception err) {
+				connection.rollback();
+				throw err;
+			} finally {
+				connection.setAutoCommit(true);
+			}
+		} finally {
+			stopPhase(phases);
+		}
+	}
+
+	private static void exportComponent(DBDatabaseExportConnection connection, DBArchimateModel model, EObject component) throws Exception {
+		DATABASE_STATUS dbStatus = model.getDBMetadata(component).getDatabaseStatus();
+		if ( (dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL) || (dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL) )
+			connection.exportEObject(component);
+		connection.assignEObjectToModel(component);
+	}
+
+	/**
+	 * Imports the latest version of a model from the database, the same way the import dialog does.<br>
+	 * The model is not registered in Archi's model manager.
+	 * @param modelId
+	 * @return the imported model
+	 * @throws Exception
+	 */
+	public DBArchimateModel importModel(String modelId) throws Exception {
+		return importModel(modelId, null);
+	}
+
+	/**
+	 * Imports the latest version of a model from the database, the same way the import dialog does.<br>
+	 * The model is not registered in Archi's model manager.
+	 * @param modelId
+	 * @param phases if not null, records the time and heap usage of the import phases
+	 * @return the imported model
+	 * @throws Exception
+	 */
+	public DBArchimateModel importModel(String modelId, DBBenchmarkPhases phases) throws Exception {
+		DBArchimateModel model = (DBArchimateModel)DBArchimateFactory.eINSTANCE.createArchimateModel();
+		model.setId(modelId);
+		model.setAdapter(IArchiveManager.class, IArchiveManager.FACTORY.createArchiveManager(model));
+
+		startPhase(phases, "import: open connection");
+		try ( DBDatabaseImportConnection connection = getImportConnection() ) {
+			startPhase(phases, "import: model");
+			connection.importModel(model);
+
+			startPhase(phases, "import: specializations");
+			connection.prepareImportProfiles(model);
+			while ( connection.importProfiles(model) ) {
+				// each loop imports a profile
+			}
+
+			startPhase(phases, "import: folders");
+			connection.prepareImportFolders(model);
+			while ( connection.importFolders(model) ) {
+				// each loop imports a folder
+			}
+
+			startPhase(phases, "import: elements");
+			connection.prepareImportElements(model);
+			while ( connection.importElements(model) ) {
+				// each loop imports an element
+			}
+
+			startPhase(phases, "import: relationships");
+			connection.prepareImportRelationships(model);
+			while ( connection.importRelationships(model) ) {
+				// each loop imports a relationship
+			}
+			model.resolveSourceAndTargetRelationships();
+
+			startPhase(phases, "import: views");
+			connection.prepareImportViews(model);
+			while ( connection.importViews(model) ) {
+				// each loop imports a view
+			}
+
+			startPhase(phases, "import: view objects");
+			for ( IDiagramModel view: model.getAllViews().values() ) {
+				connection.prepareImportViewsObjects(view.getId(), model.getDBMetadata(view).getInitialVersion().getVersion());
+				while ( connection.importViewsObjects(model, view) ) {
+					// each loop imports a view object
+				}
+			}
+
+			startPhase(phases, "import: view connections");
+			for ( IDiagramModel view: model.getAllViews().values() ) {
+				connection.prepareImportViewsConnections(view.getId(), model.getDBMetadata(view).getInitialVersion().getVersion());
+				while ( connection.importViewsConnections(model) ) {
+					// each loop imports a view connection
+				}
+			}
+			model.resolveSourceAndTargetConnections();
+
+			startPhase(phases, "import: images");
+			for ( String path: connection.getAllImagePaths() )
+				connection.importImage(model, path);
+		} finally {
+			stopPhase(phases);
+		}
+
+		return model;
+	}
+
+	private static void startPhase(DBBenchmarkPhases phases, String phase) {
+		if ( phases != null )
+			phases.start(phase);
+	}
+
+	private static void stopPhase(DBBenchmarkPhases phases) {
+		if ( phases != null )
+			phases.stop();
+	}
+
+	/**
+	 * @param model
+	 * @return the number of components of a model that are exported to the database (the model itself is not counted)
+	 */
+	public static int countComponents(DBArchimateModel model) {
+		return model.getAllProfiles().size()
+				+ model.getAllFolders().size()
+				+ model.getAllElements().size()
+				+ model.getAllRelationships().size()
+				+ model.getAllViews().size()
+				+ model.getAllViewObjects().size()
+				+ model.getAllViewConnections().size();
+	}
+
+	/**
+	 * Closes the connections to the database and deletes its file
+	 */
+	@Override
+	public void close() {
+		DBConnectionPool.getPool(this.databaseEntry).clear();
+		try {
+			Files.deleteIfExists(this.file.toPath());
+		} catch (IOException err) {
+			logger.warn("Failed to delete benchmark database "+this.file.getAbsolutePath(), err);
+		}
+	}
+}
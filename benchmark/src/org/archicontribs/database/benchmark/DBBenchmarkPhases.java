@@ -0,0 +1,110 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import lombok.Getter;
+
+/**
+ * Measures the time and the peak heap usage of the successive phases of a process (like the export or the import of a model).<br>
+ * <br>
+ * The peak heap usage of a phase is the sum of the peak usage of the JVM heap memory pools between the start and the end of the phase.
+ * The phases that are started several times are summed up.
+ */
+public class DBBenchmarkPhases {
+	private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+
+	/**
+	 * Time spent in each phase, in nanoseconds, in the order the phases have been started
+	 */
+	private final Map<String, Long> phasesNanos = new LinkedHashMap<>();
+
+	/**
+	 * Peak heap usage of each phase, in bytes
+	 */
+	private final Map<String, Long> phasesPeakHeap = new LinkedHashMap<>();
+
+	private String currentPhase = null;
+	private long currentPhaseStart = 0;
+
+	@Getter private long peakHeap = 0;
+
+	/**
+	 * Creates a new phases recorder
+	 */
+	public DBBenchmarkPhases() {
+		for ( MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans() ) {
+			if ( pool.getType() == MemoryType.HEAP )
+				this.heapPools.add(pool);
+		}
+	}
+
+	/**
+	 * Ends the current phase, if any, and starts a new one
+	 * @param phase name of the phase
+	 */
+	public void start(String phase) {
+		stop();
+
+		for ( MemoryPoolMXBean pool: this.heapPools )
+			pool.resetPeakUsage();
+
+		this.currentPhase = phase;
+		this.currentPhaseStart = System.nanoTime();
+	}
+
+	/**
+	 * Ends the current phase, if any
+	 */
+	public void stop() {
+		if ( this.currentPhase == null )
+			return;
+
+		long nanos = System.nanoTime() - this.currentPhaseStart;
+
+		long heap = 0;
+		for ( MemoryPoolMXBean pool: this.heapPools )
+			heap += pool.getPeakUsage().getUsed();
+
+		this.phasesNanos.merge(this.currentPhase, nanos, Long::sum);
+		this.phasesPeakHeap.merge(this.currentPhase, heap, Long::max);
+		if ( heap > this.peakHeap )
+			this.peakHeap = heap;
+
+		this.currentPhase = null;
+	}
+
+	/**
+	 * @return the total time of all the phases, in nanoseconds
+	 */
+	public long getTotalNanos() {
+		long total = 0;
+		for ( long nanos: this.phasesNanos.values() )
+			total += nanos;
+		return total;
+	}
+
+	/**
+	 * @return the time and peak heap usage of all the phases, in a human readable table
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-40s %12s %16s", "phase", "ms", "peak heap (MB)"));
+		for ( Entry<String, Long> phase: this.phasesNanos.entrySet() )
+			report.append(String.format("%n%-40s %12.1f %16.1f", phase.getKey(), phase.getValue()/1000000.0, this.phasesPeakHeap.get(phase.getKey())/1048576.0));
+		report.append(String.format("%n%-40s %12.1f %16.1f", "total", getTotalNanos()/1000000.0, this.peakHeap/1048576.0));
+		return report.toString();
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.archicontribs.database.DBLogger;
+
+import lombok.Getter;
+
+/**
+ * Runs benchmarks of the plugin's hot paths and reports their timings.<br>
+ * <br>
+ * Each benchmark is run a number of warmup iterations, so that the JIT compiler has optimized the measured code, then a
+ * number of measured iterations. Each iteration returns the number of operations it did (checksums calculated, rows inserted,
+ * components imported, ...) so that the report shows the average time per operation as well as the time per iteration.
+ */
+public class DBBenchmarkRunner {
+	private static final DBLogger logger = new DBLogger(DBBenchmarkRunner.class);
+
+	/**
+	 * A benchmark of a hot path of the plugin
+	 */
+	public interface DBBenchmark {
+		/**
+		 * @return the name of the benchmark, as shown in the report
+		 */
+		String getName();
+
+		/**
+		 * Prepares the benchmark (generates the model, creates the database, ...). This is not measured.
+		 * @throws Exception
+		 */
+		default void setUp() throws Exception {
+			// nothing to prepare by default
+		}
+
+		/**
+		 * Runs one iteration of the benchmark
+		 * @return the number of operations done during the iteration
+		 * @throws Exception
+		 */
+		long run() throws Exception;
+
+		/**
+		 * Releases the resources of the benchmark. This is not measured.
+		 * @throws Exception
+		 */
+		default void tearDown() throws Exception {
+			// nothing to release by default
+		}
+	}
+
+	/**
+	 * Timings of a benchmark
+	 */
+	public static class DBBenchmarkResult {
+		@Getter private final String name;
+		@Getter private int iterations = 0;
+		@Getter private long operations = 0;
+		@Getter private long totalNanos = 0;
+		@Getter private long minNanos = Long.MAX_VALUE;
+		@Getter private long maxNanos = 0;
+
+		DBBenchmarkResult(String benchmarkName) {
+			this.name = benchmarkName;
+		}
+
+		void record(long nanos, long operationCount) {
+			++this.iterations;
+			this.operations += operationCount;
+			this.totalNanos += nanos;
+			if ( nanos < this.minNanos )
+				this.minNanos = nanos;
+			if ( nanos > this.maxNanos )
+				this.maxNanos = nanos;
+		}
+
+		/**
+		 * @return the average time of an iteration, in milliseconds
+		 */
+		public double getAverageMillis() {
+			return this.iterations == 0 ? 0 : this.totalNanos / 1000000.0 / this.iterations;
+		}
+
+		/**
+		 * @return the average time of an operation, in microseconds
+		 */
+		public double getMicrosPerOperation() {
+			return this.operations == 0 ? 0 : this.totalNanos / 1000.0 / this.operations;
+		}
+
+		/**
+		 * @return the number of operations per second
+		 */
+		public double getOperationsPerSecond() {
+			return this.totalNanos == 0 ? 0 : this.operations * 1000000000.0 / this.totalNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-40s %6d %12.3f %12.3f %12.3f %14.3f %14.1f", this.name, this.iterations, getAverageMillis(), this.minNanos/1000000.0, this.maxNanos/1000000.0, getMicrosPerOperation(), getOperationsPerSecond());
+		}
+	}
+
+	/**
+	 * Value computed by the benchmarks from the result of the measured code, so that the JIT compiler cannot consider this code as useless
+	 */
+	static volatile long sink = 0;
+
+	@Getter private final int warmupIterations;
+	@Getter private final int measuredIterations;
+	@Getter private final List<DBBenchmarkResult> results = new ArrayList<>();
+
+	/**
+	 * Creates a benchmark runner
+	 * @param warmup number of iterations that are run before the measure starts
+	 * @param measured number of iterations that are measured
+	 */
+	public DBBenchmarkRunner(int warmup, int measured) {
+		this.warmupIterations = Math.max(0, warmup);
+		this.measuredIterations = Math.max(1, measured);
+	}
+
+	/**
+	 * Runs a benchmark and adds its timings to the results
+	 * @param benchmark
+	 * @return the timings of the benchmark
+	 * @throws Exception
+	 */
+	public DBBenchmarkResult run(DBBenchmark benchmark) throws Exception {
+		DBBenchmarkResult result = new DBBenchmarkResult(benchmark.getName());
+
+		logger.info("Running benchmark \""+benchmark.getName()+"\" ("+this.warmupIterations+" warmup iterations, "+this.measuredIterations+" measured iterations)");
+		benchmark.setUp();
+		try {
+			for ( int i = 0 ; i < this.warmupIterations ; ++i )
+				benchmark.run();
+
+			// we avoid that the garbage of the warmup iterations is collected during the measure
+			System.gc();
+
+			for ( int i = 0 ; i < this.measuredIterations ; ++i ) {
+				long start = System.nanoTime();
+				long operations = benchmark.run();
+				result.record(System.nanoTime() - start, operations);
+			}
+		} finally {
+			benchmark.tearDown();
+		}
+
+		if ( logger.isDebugEnabled() ) logger.debug(result.toString());
+		this.results.add(result);
+		return result;
+	}
+
+	/**
+	 * @return the timings of all the benchmarks that have been run, in a human readable table
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-40s %6s %12s %12s %12s %14s %14s", "benchmark", "iter.", "avg ms", "min ms", "max ms", "us/operation", "operations/s"));
+		for ( DBBenchmarkResult result: this.results )
+			report.append(String.format("%n")).append(result.toString());
+		return report.toString();
+	}
+}
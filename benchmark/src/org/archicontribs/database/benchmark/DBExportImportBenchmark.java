@@ -0,0 +1,76 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.benchmark;
+
+import org.archicontribs.database.DBException;
+import org.archicontribs.database.DBLogger;
+import org.archicontribs.database.model.DBArchimateModel;
+
+import lombok.Getter;
+
+/**
+ * End to end benchmark of the export and import processes.<br>
+ * <br>
+ * A synthetic model is generated, exported to a temporary SQLite database through a DBDatabaseExportConnection, then imported
+ * again through a DBDatabaseImportConnection. The time and the peak heap usage of each phase are recorded, and the imported
+ * model is checked to contain the same number of components as the exported one.
+ */
+public class DBExportImportBenchmark {
+	private static final DBLogger logger = new DBLogger(DBExportImportBenchmark.class);
+
+	@Getter private final DBModelGenerator generator;
+	@Getter private final DBBenchmarkPhases phases = new DBBenchmarkPhases();
+
+	/**
+	 * @param modelGenerator generator of the model to export and import
+	 */
+	public DBExportImportBenchmark(DBModelGenerator modelGenerator) {
+		this.generator = modelGenerator;
+	}
+
+	/**
+	 * Runs the benchmark
+	 * @return the time and peak heap usage of all the phases, in a human readable table
+	 * @throws Exception
+	 */
+	public String run() throws Exception {
+		logger.info("Running export and import benchmark on generated model: "+this.generator.toString());
+
+		// the garbage of the previous processes must not be counted in the peak heap usage
+		System.gc();
+
+		this.phases.start("generate model");
+		DBArchimateModel exportedModel = this.generator.generate();
+
+		this.phases.start("create database");
+		try ( DBBenchmarkDatabase database = new DBBenchmarkDatabase() ) {
+			database.exportModel(exportedModel, "benchmark", this.phases);
+			int nbExported = DBBenchmarkDatabase.countComponents(exportedModel);
+
+			DBArchimateModel importedModel = database.importModel(exportedModel.getId(), this.phases);
+			int nbImported = DBBenchmarkDatabase.countComponents(importedModel);
+
+			this.phases.stop();
+			if ( nbImported != nbExported )
+				throw new DBException(nbExported+" components have been exported but "+nbImported+" have been imported.");
+
+			String report = String.format("%d components (%d elements, %d relationships, %d views, %d view objects, %d view connections, %d images)%n%s"
+					,nbExported
+					,exportedModel.getAllElements().size()
+					,exportedModel.getAllRelationships().size()
+					,exportedModel.getAllViews().size()
+					,exportedModel.getAllViewObjects().size()
+					,exportedModel.getAllViewConnections().size()
+					,exportedModel.getAllImagePaths().size()
+					,this.phases.getReport());
+			logger.info("Export and import benchmark results: "+report);
+			return report;
+		} finally {
+			this.phases.stop();
+		}
+	}
+}
@@ -0,0 +1,225 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.benchmark;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.archicontribs.database.benchmark.DBBenchmarkRunner.DBBenchmark;
+import org.archicontribs.database.connection.DBDatabaseExportConnection;
+import org.archicontribs.database.data.DBChecksum;
+import org.archicontribs.database.data.DBChecksumAlgorithm;
+import org.archicontribs.database.model.DBArchimateModel;
+
+import com.archimatetool.model.IArchimateElement;
+
+/**
+ * Benchmarks of the hot paths of the plugin:
+ * <ul>
+ * <li>the calculation of the elements checksum (DBChecksum.calculateChecksum)</li>
+ * <li>the count of the model's components, that also calculates all their checksums (DBArchimateModel.countAllObjects)</li>
+ * <li>the insertion of rows in the database, one by one and in batches (DBDatabaseConnection.insert)</li>
+ * <li>the import of a whole model from the database (the DBDatabaseImportConnection import loop)</li>
+ * </ul>
+ * The database benchmarks use a temporary SQLite database, so that they do not depend on the network nor on a database server.
+ */
+public class DBHotPathBenchmarks {
+	private static final String[] elementsColumns = {"id", "version", "class", "name", "type", "documentation", "profile", "created_by", "created_on", "properties", "features", "checksum"};
+
+	private final int modelSize;
+
+	/**
+	 * Algorithm of the benchmarked checksums, that is the algorithm of the new databases
+	 */
+	private final DBChecksumAlgorithm checksumAlgorithm = DBChecksumAlgorithm.fromPreferences();
+
+	/**
+	 * @param size number of elements of the generated models, and number of rows inserted per iteration
+	 */
+	public DBHotPathBenchmarks(int size) {
+		this.modelSize = Math.max(1, size);
+	}
+
+	/**
+	 * @return all the hot path benchmarks
+	 */
+	public List<DBBenchmark> getBenchmarks() {
+		List<DBBenchmark> benchmarks = new ArrayList<>();
+		benchmarks.add(checksumBenchmark());
+		benchmarks.add(countAllObjectsBenchmark());
+		benchmarks.add(insertBenchmark(false));
+		benchmarks.add(insertBenchmark(true));
+		benchmarks.add(importBenchmark());
+		return benchmarks;
+	}
+
+	/**
+	 * @return a benchmark of the checksum calculation of all the elements of a model
+	 */
+	public DBBenchmark checksumBenchmark() {
+		return new DBBenchmark() {
+			private DBArchimateModel model;
+
+			@Override
+			public String getName() {
+				return "checksum of "+DBHotPathBenchmarks.this.modelSize+" elements";
+			}
+
+			@Override
+			public void setUp() throws Exception {
+				this.model = createModel();
+			}
+
+			@Override
+			public long run() throws Exception {
+				long count = 0;
+				for ( IArchimateElement element: this.model.getAllElements().values() ) {
+					DBBenchmarkRunner.sink += DBChecksum.calculateChecksum(element, DBHotPathBenchmarks.this.checksumAlgorithm).length();
+					++count;
+				}
+				return count;
+			}
+		};
+	}
+
+	/**
+	 * @return a benchmark of the count of the model's components
+	 */
+	public DBBenchmark countAllObjectsBenchmark() {
+		return new DBBenchmark() {
+			private DBArchimateModel model;
+
+			@Override
+			public String getName() {
+				return "countAllObjects of "+DBHotPathBenchmarks.this.modelSize+" elements";
+			}
+
+			@Override
+			public void setUp() throws Exception {
+				this.model = createModel();
+			}
+
+			@Override
+			public long run() throws Exception {
+				this.model.countAllObjects(DBHotPathBenchmarks.this.checksumAlgorithm);
+				return DBBenchmarkDatabase.countComponents(this.model);
+			}
+		};
+	}
+
+	/**
+	 * @param isBatched true if the rows are sent to the database in batches (the batch size is the "exportBatchSize" preference), false if they are sent one by one
+	 * @return a benchmark of the insertion of elements rows in the database
+	 */
+	public DBBenchmark insertBenchmark(boolean isBatched) {
+		return new DBBenchmark() {
+			private DBBenchmarkDatabase database;
+			private DBDatabaseExportConnection connection;
+			private int rowNumber = 0;
+
+			@Override
+			public String getName() {
+				return "insert of "+DBHotPathBenchmarks.this.modelSize+" rows"+(isBatched ? " (batched)" : "");
+			}
+
+			@Override
+			public void setUp() throws Exception {
+				this.database = new DBBenchmarkDatabase();
+				this.connection = this.database.getExportConnection();
+				// setAutoCommit(false) sets the batch size from the preferences
+				this.connection.setAutoCommit(false);
+				if ( !isBatched )
+					this.connection.setBatchSize(0);
+			}
+
+			@Override
+			public long run() throws Exception {
+				Timestamp now = new Timestamp(System.currentTimeMillis());
+				for ( int i = 0 ; i < DBHotPathBenchmarks.this.modelSize ; ++i ) {
+					++this.rowNumber;
+					this.connection.insert(this.connection.getSchemaPrefix()+"elements", elementsColumns
+							,"id-"+this.rowNumber
+							,1
+							,"BusinessActor"
+							,"Business actor "+this.rowNumber
+							,null
+							,"Documentation of business actor "+this.rowNumber
+							,null
+							,"benchmark"
+							,now
+							,0
+							,0
+							,"checksum-"+this.rowNumber
+							);
+				}
+				this.connection.commit();
+				return DBHotPathBenchmarks.this.modelSize;
+			}
+
+			@Override
+			public void tearDown() throws Exception {
+				if ( this.connection != null ) {
+					this.connection.rollback();
+					this.connection.setAutoCommit(true);
+					this.connection.close();
+				}
+				if ( this.database != null )
+					this.database.close();
+			}
+		};
+	}
+
+	/**
+	 * @return a benchmark of the import of a whole model from the database
+	 */
+	public DBBenchmark importBenchmark() {
+		return new DBBenchmark() {
+			private DBBenchmarkDatabase database;
+			private String modelId;
+
+			@Override
+			public String getName() {
+				return "import of "+DBHotPathBenchmarks.this.modelSize+" elements model";
+			}
+
+			@Override
+			public void setUp() throws Exception {
+				this.database = new DBBenchmarkDatabase();
+				DBArchimateModel model = createModel();
+				this.database.exportModel(model, "benchmark");
+				this.modelId = model.getId();
+			}
+
+			@Override
+			public long run() throws Exception {
+				return DBBenchmarkDatabase.countComponents(this.database.importModel(this.modelId));
+			}
+
+			@Override
+			public void tearDown() throws Exception {
+				if ( this.database != null )
+					this.database.close();
+			}
+		};
+	}
+
+	/**
+	 * Generates a model of the benchmarks' size, with one relationship per element and views of 50 view objects
+	 * @return the model
+	 * @throws IOException
+	 */
+	DBArchimateModel createModel() throws IOException {
+		DBModelGenerator generator = new DBModelGenerator();
+		generator.setNbElements(this.modelSize);
+		generator.setNbRelationships(this.modelSize);
+		generator.setNbViews((this.modelSize + 49) / 50);
+		generator.setNbViewObjectsPerView(50);
+		return generator.generate();
+	}
+}
@@ -0,0 +1,293 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.archicontribs.database.DBException;
+import org.archicontribs.database.DBLogger;
+import org.archicontribs.database.model.DBArchimateFactory;
+import org.archicontribs.database.model.DBArchimateModel;
+import org.eclipse.emf.ecore.EClass;
+
+import com.archimatetool.editor.model.IArchiveManager;
+import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDiagramModelArchimateConnection;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IDiagramModelBendpoint;
+import com.archimatetool.model.IDiagramModelContainer;
+import com.archimatetool.model.IProperties;
+import com.archimatetool.model.IProperty;
+import com.archimatetool.model.util.UUIDFactory;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Generates synthetic models of a given size, to measure how the export and import processes scale.<br>
+ * <br>
+ * The generated model contains:
+ * <ul>
+ * <li>elements of various classes, with a documentation and properties</li>
+ * <li>association relationships between random elements, with properties</li>
+ * <li>views that show the source and target elements of the relationships, nested up to a given depth, and the relationships between them as connections with bendpoints</li>
+ * <li>PNG images shown by the first view object of each view</li>
+ * </ul>
+ * The structure of the model only depends on the generator's parameters and seed, so that the same model can be generated
+ * again to compare two versions of the plugin. Only the IDs of the components change.
+ */
+public class DBModelGenerator {
+	private static final DBLogger logger = new DBLogger(DBModelGenerator.class);
+
+	private static final EClass[] elementClasses = {
+			IArchimatePackage.eINSTANCE.getBusinessActor(),
+			IArchimatePackage.eINSTANCE.getBusinessProcess(),
+			IArchimatePackage.eINSTANCE.getApplicationComponent(),
+			IArchimatePackage.eINSTANCE.getApplicationService(),
+			IArchimatePackage.eINSTANCE.getDataObject(),
+			IArchimatePackage.eINSTANCE.getNode()
+	};
+
+	@Getter @Setter private int nbElements = 1000;
+	@Getter @Setter private int nbRelationships = 1000;
+	@Getter @Setter private int nbViews = 20;
+	@Getter @Setter private int nbViewObjectsPerView = 50;
+
+	/**
+	 * Number of levels of view objects nested in other view objects (0 means that all the view objects are directly in the view)
+	 */
+	@Getter @Setter private int nestingDepth = 1;
+	@Getter @Setter private int nbConnectionsPerView = 40;
+	@Getter @Setter private int nbBendpointsPerConnection = 1;
+
+	/**
+	 * Number of properties of each element, relationship and view
+	 */
+	@Getter @Setter private int nbProperties = 3;
+	@Getter @Setter private int nbImages = 5;
+
+	/**
+	 * Width and height of the images, in pixels
+	 */
+	@Getter @Setter private int imageSize = 64;
+	@Getter @Setter private long seed = 1;
+
+	/**
+	 * Creates a model generator with the default parameters
+	 */
+	public DBModelGenerator() {
+		// the parameters are set using the setters or the setParameters method
+	}
+
+	/**
+	 * Sets the generator's parameters from a specification like "elements=10000,relationships=20000,views=100"<br>
+	 * The parameters are elements, relationships, views, viewobjects (per view), depth, connections (per view), bendpoints (per connection),
+	 * properties (per component), images, imagesize and seed. The parameters that are not specified keep their value.
+	 * @param specification
+	 * @throws DBException if the specification is not valid
+	 */
+	public void setParameters(String specification) throws DBException {
+		if ( specification == null || specification.trim().isEmpty() || specification.trim().equalsIgnoreCase("default") )
+			return;
+
+		for ( String parameter: specification.split(",") ) {
+			String[] keyValue = parameter.split("=");
+			if ( keyValue.length != 2 )
+				throw new DBException("Invalid model generator parameter \""+parameter+"\" (should be name=value).");
+
+			long value;
+			try {
+				value = Long.parseLong(keyValue[1].trim());
+			} catch (@SuppressWarnings("unused") NumberFormatException err) {
+				throw new DBException("Invalid value for model generator parameter \""+keyValue[0].trim()+"\" (should be a number).");
+			}
+
+			switch ( keyValue[0].trim().toLowerCase() ) {
+				case "elements":		this.nbElements = (int)value; break;
+				case "relationships":	this.nbRelationships = (int)value; break;
+				case "views":			this.nbViews = (int)value; break;
+				case "viewobjects":		this.nbViewObjectsPerView = (int)value; break;
+				case "depth":			this.nestingDepth = (int)value; break;
+				case "connections":		this.nbConnectionsPerView = (int)value; break;
+				case "bendpoints":		this.nbBendpointsPerConnection = (int)value; break;
+				case "properties":		this.nbProperties = (int)value; break;
+				case "images":			this.nbImages = (int)value; break;
+				case "imagesize":		this.imageSize = (int)value; break;
+				case "seed":			this.seed = value; break;
+				default:				throw new DBException("Unknown model generator parameter \""+keyValue[0].trim()+"\".");
+			}
+		}
+	}
+
+	/**
+	 * Generates a new model
+	 * @return the model
+	 * @throws IOException if an image cannot be generated
+	 */
+	public DBArchimateModel generate() throws IOException {
+		if ( logger.isDebugEnabled() ) logger.debug("Generating model: "+toString());
+
+		Random random = new Random(this.seed);
+
+		DBArchimateModel model = (DBArchimateModel)DBArchimateFactory.eINSTANCE.createArchimateModel();
+		model.setId(UUIDFactory.createID(null));
+		model.setName("Generated model ("+toString()+")");
+		model.setDefaults();
+		model.setAdapter(IArchiveManager.class, IArchiveManager.FACTORY.createArchiveManager(model));
+
+		List<String> imagePaths = generateImages(model, random);
+
+		IArchimateElement[] elements = new IArchimateElement[Math.max(1, this.nbElements)];
+		for ( int i = 0 ; i < elements.length ; ++i ) {
+			IArchimateElement element = (IArchimateElement)IArchimateFactory.eINSTANCE.create(elementClasses[i % elementClasses.length]);
+			element.setId(UUIDFactory.createID(null));
+			element.setName(element.eClass().getName()+" "+i);
+			element.setDocumentation("Documentation of "+element.getName());
+			addProperties(element, element.getName());
+			model.getDefaultFolderForObject(element).getElements().add(element);
+			elements[i] = element;
+		}
+
+		IArchimateRelationship[] relationships = new IArchimateRelationship[this.nbRelationships];
+		for ( int i = 0 ; i < relationships.length ; ++i ) {
+			IArchimateRelationship relationship = IArchimateFactory.eINSTANCE.createAssociationRelationship();
+			relationship.setId(UUIDFactory.createID(null));
+			relationship.setName("Relationship "+i);
+			relationship.connect(elements[random.nextInt(elements.length)], elements[random.nextInt(elements.length)]);
+			addProperties(relationship, relationship.getName());
+			model.getDefaultFolderForObject(relationship).getElements().add(relationship);
+			relationships[i] = relationship;
+		}
+
+		// each view shows the source and target elements of consecutive relationships, and the relationships themselves
+		int relationshipIndex = 0;
+		for ( int v = 0 ; v < this.nbViews ; ++v ) {
+			IArchimateDiagramModel view = IArchimateFactory.eINSTANCE.createArchimateDiagramModel();
+			view.setId(UUIDFactory.createID(null));
+			view.setName("View "+v);
+			addProperties(view, view.getName());
+			model.getDefaultFolderForObject(view).getElements().add(view);
+
+			String imagePath = imagePaths.isEmpty() ? null : imagePaths.get(v % imagePaths.size());
+			Map<IArchimateElement, IDiagramModelArchimateObject> viewObjects = new HashMap<>();
+			List<IDiagramModelArchimateObject> viewObjectsList = new ArrayList<>();
+			int nbConnections = 0;
+			int nbTries = 0;
+			while ( (viewObjects.size() < this.nbViewObjectsPerView) && (relationships.length != 0) && (nbTries++ < 2*this.nbViewObjectsPerView) ) {
+				IArchimateRelationship relationship = relationships[relationshipIndex++ % relationships.length];
+				IDiagramModelArchimateObject source = getViewObject(view, viewObjects, viewObjectsList, (IArchimateElement)relationship.getSource(), imagePath);
+				IDiagramModelArchimateObject target = getViewObject(view, viewObjects, viewObjectsList, (IArchimateElement)relationship.getTarget(), imagePath);
+
+				if ( (nbConnections < this.nbConnectionsPerView) && (source != target) ) {
+					IDiagramModelArchimateConnection viewConnection = IArchimateFactory.eINSTANCE.createDiagramModelArchimateConnection();
+					viewConnection.setId(UUIDFactory.createID(null));
+					viewConnection.setArchimateRelationship(relationship);
+					viewConnection.connect(source, target);
+					for ( int b = 0 ; b < this.nbBendpointsPerConnection ; ++b ) {
+						IDiagramModelBendpoint bendpoint = IArchimateFactory.eINSTANCE.createDiagramModelBendpoint();
+						bendpoint.setStartX(10*(b+1));
+						bendpoint.setStartY(-10*(b+1));
+						bendpoint.setEndX(-10*(b+1));
+						bendpoint.setEndY(10*(b+1));
+						viewConnection.getBendpoints().add(bendpoint);
+					}
+					++nbConnections;
+				}
+			}
+
+			// we show the elements that have no relationship if the relationships were not sufficient to fill in the view
+			while ( viewObjects.size() < Math.min(this.nbViewObjectsPerView, elements.length) )
+				getViewObject(view, viewObjects, viewObjectsList, elements[random.nextInt(elements.length)], imagePath);
+		}
+
+		return model;
+	}
+
+	/**
+	 * Gets the view object that shows an element in a view, creating it if the view does not show the element yet.<br>
+	 * The new view object is nested in the latest view object created in the view if the nesting depth allows it.<br>
+	 * The first view object of the view shows the image (if any).
+	 */
+	private IDiagramModelArchimateObject getViewObject(IArchimateDiagramModel view, Map<IArchimateElement, IDiagramModelArchimateObject> viewObjects, List<IDiagramModelArchimateObject> viewObjectsList, IArchimateElement element, String imagePath) {
+		IDiagramModelArchimateObject viewObject = viewObjects.get(element);
+		if ( viewObject != null )
+			return viewObject;
+
+		int index = viewObjectsList.size();
+		int depth = index % (this.nestingDepth + 1);
+
+		viewObject = IArchimateFactory.eINSTANCE.createDiagramModelArchimateObject();
+		viewObject.setId(UUIDFactory.createID(null));
+		viewObject.setArchimateElement(element);
+		if ( depth == 0 )
+			viewObject.setBounds((index % 10) * 200, (index / 10) * 150, 180, 130);
+		else
+			viewObject.setBounds(10, 25, 180 - 20*depth, 130 - 30*depth);
+
+		if ( index == 0 )
+			viewObject.setImagePath(imagePath);
+
+		IDiagramModelContainer parent = (depth == 0) ? view : viewObjectsList.get(index - 1);
+		parent.getChildren().add(viewObject);
+
+		viewObjects.put(element, viewObject);
+		viewObjectsList.add(viewObject);
+		return viewObject;
+	}
+
+	private void addProperties(IProperties component, String name) {
+		for ( int p = 0 ; p < this.nbProperties ; ++p ) {
+			IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+			property.setKey("key "+p);
+			property.setValue("value "+p+" of "+name);
+			component.getProperties().add(property);
+		}
+	}
+
+	/**
+	 * Generates the PNG images and adds them to the model's archive
+	 * @return the paths of the images in the model's archive
+	 */
+	private List<String> generateImages(DBArchimateModel model, Random random) throws IOException {
+		List<String> imagePaths = new ArrayList<>();
+		IArchiveManager archiveMgr = (IArchiveManager)model.getAdapter(IArchiveManager.class);
+
+		for ( int i = 0 ; i < this.nbImages ; ++i ) {
+			BufferedImage image = new BufferedImage(this.imageSize, this.imageSize, BufferedImage.TYPE_INT_RGB);
+			for ( int x = 0 ; x < this.imageSize ; ++x )
+				for ( int y = 0 ; y < this.imageSize ; ++y )
+					image.setRGB(x, y, random.nextInt(0x1000000));
+
+			try ( ByteArrayOutputStream output = new ByteArrayOutputStream() ) {
+				ImageIO.write(image, "png", output);
+				imagePaths.add(archiveMgr.addByteContentEntry("images/generated-"+i+".png", output.toByteArray()));
+			}
+		}
+
+		return imagePaths;
+	}
+
+	@Override
+	public String toString() {
+		return "elements="+this.nbElements+",relationships="+this.nbRelationships+",views="+this.nbViews+",viewobjects="+this.nbViewObjectsPerView
+				+",depth="+this.nestingDepth+",connections="+this.nbConnectionsPerView+",bendpoints="+this.nbBendpointsPerConnection
+				+",properties="+this.nbProperties+",images="+this.nbImages+",imagesize="+this.imageSize+",seed="+this.seed;
+	}
+}
@@ -0,0 +1,147 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.commandline;
+
+import java.io.IOException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.archicontribs.database.benchmark.DBBenchmarkRunner;
+import org.archicontribs.database.benchmark.DBBenchmarkRunner.DBBenchmark;
+import org.archicontribs.database.benchmark.DBExportImportBenchmark;
+import org.archicontribs.database.benchmark.DBHotPathBenchmarks;
+import org.archicontribs.database.benchmark.DBModelGenerator;
+import com.archimatetool.commandline.AbstractCommandLineProvider;
+
+/**
+ * Command Line interface to run the benchmarks of the plugin's hot paths<br>
+ * It is registered by the org.archicontribs.database.benchmark fragment, which is not shipped with the plugin.
+ *
+ * Typical usage:
+ *    Archi [-consoleLog] -application com.archimatetool.commandline.app --db.benchmark "all" [--db.benchmark.size 1000] [--db.benchmark.warmup 5] [--db.benchmark.iterations 10]
+ *    Archi [-consoleLog] -application com.archimatetool.commandline.app --db.benchmark.exportimport "elements=10000,relationships=20000,views=200"
+ *
+ * The value of the db.benchmark option is either "all" or a part of the name of the benchmarks to run (like "checksum" or "insert").
+ * The value of the db.benchmark.exportimport option is either "default" or the parameters of the generated model (see DBModelGenerator.setParameters).
+ */
+public class DBBenchmarkProvider extends AbstractCommandLineProvider {
+	static final String OPTION_BENCHMARK = "db.benchmark";
+	static final String OPTION_BENCHMARK_SIZE = "db.benchmark.size";
+	static final String OPTION_BENCHMARK_WARMUP = "db.benchmark.warmup";
+	static final String OPTION_BENCHMARK_ITERATIONS = "db.benchmark.iterations";
+	static final String OPTION_BENCHMARK_EXPORT_IMPORT = "db.benchmark.exportimport";
+
+	/**
+	 *
+	 */
+	public DBBenchmarkProvider() {
+		// nothing to do
+	}
+
+	@Override
+    public void run(CommandLine commandLine) throws Exception {
+
+        if( commandLine.hasOption(OPTION_BENCHMARK) )
+        	runHotPathBenchmarks(commandLine);
+
+        if( commandLine.hasOption(OPTION_BENCHMARK_EXPORT_IMPORT) )
+        	runExportImportBenchmark(commandLine);
+	}
+
+	private void runHotPathBenchmarks(CommandLine commandLine) throws Exception {
+        String filter = commandLine.getOptionValue(OPTION_BENCHMARK);
+        int size = getIntOption(commandLine, OPTION_BENCHMARK_SIZE, 1000);
+        int warmup = getIntOption(commandLine, OPTION_BENCHMARK_WARMUP, 5);
+        int iterations = getIntOption(commandLine, OPTION_BENCHMARK_ITERATIONS, 10);
+
+        DBBenchmarkRunner runner = new DBBenchmarkRunner(warmup, iterations);
+        for ( DBBenchmark benchmark: new DBHotPathBenchmarks(size).getBenchmarks() ) {
+        	if ( "all".equalsIgnoreCase(filter) || benchmark.getName().toLowerCase().contains(filter.toLowerCase()) ) {
+        		logMessage(getLogPrefix()+": running \""+benchmark.getName()+"\" ...");
+        		runner.run(benchmark);
+        	}
+        }
+
+        if ( runner.getResults().isEmpty() )
+        	throw new IOException(getLogPrefix()+": No benchmark matches \""+filter+"\".");
+
+        logMessage(getLogPrefix()+": results of the benchmarks:\n"+runner.getReport());
+	}
+
+	private void runExportImportBenchmark(CommandLine commandLine) throws Exception {
+		DBModelGenerator generator = new DBModelGenerator();
+		generator.setParameters(commandLine.getOptionValue(OPTION_BENCHMARK_EXPORT_IMPORT));
+
+		logMessage(getLogPrefix()+": exporting and importing generated model ("+generator.toString()+") ...");
+		String report = new DBExportImportBenchmark(generator).run();
+		logMessage(getLogPrefix()+": results of the export and import benchmark:\n"+report);
+	}
+
+	private int getIntOption(CommandLine commandLine, String optionName, int defaultValue) throws IOException {
+		String value = commandLine.getOptionValue(optionName);
+		if ( value == null )
+			return defaultValue;
+		try {
+			return Integer.parseInt(value);
+		} catch (@SuppressWarnings("unused") NumberFormatException err) {
+			throw new IOException(getLogPrefix()+": The value of the \""+optionName+"\" option must be a number.");
+		}
+	}
+
+    @Override
+    public Options getOptions() {
+        Options options = new Options();
+
+        Option option = Option.builder()
+                .longOpt(OPTION_BENCHMARK)
+                .hasArg().argName("benchmark")
+                .desc("Runs the database plugin benchmarks whose name contains the value (\"all\" to run all of them)")
+                .build();
+        options.addOption(option);
+
+        option = Option.builder()
+                .longOpt(OPTION_BENCHMARK_SIZE)
+                .hasArg().argName("size")
+                .desc("Number of elements of the benchmark models and number of rows inserted per iteration (default 1000)")
+                .build();
+        options.addOption(option);
+
+        option = Option.builder()
+                .longOpt(OPTION_BENCHMARK_WARMUP)
+                .hasArg().argName("warmup")
+                .desc("Number of iterations run before the benchmarks are measured (default 5)")
+                .build();
+        options.addOption(option);
+
+        option = Option.builder()
+                .longOpt(OPTION_BENCHMARK_ITERATIONS)
+                .hasArg().argName("iterations")
+                .desc("Number of measured iterations of the benchmarks (default 10)")
+                .build();
+        options.addOption(option);
+
+        option = Option.builder()
+                .longOpt(OPTION_BENCHMARK_EXPORT_IMPORT)
+                .hasArg().argName("modelParameters")
+                .desc("Exports and imports a generated model to a temporary SQLite database and reports the time and peak heap of each phase. The value is \"default\" or the model parameters, like \"elements=10000,relationships=20000,views=200,viewobjects=50,depth=2,connections=40,bendpoints=2,properties=5,images=20,imagesize=256,seed=1\"")
+                .build();
+        options.addOption(option);
+
+        return options;
+    }
+
+    @Override
+    public int getPriority() {
+        return PRIORITY_REPORT_OR_EXPORT;
+    }
+
+    @Override
+    protected String getLogPrefix() {
+        return "DBPlugin Benchmark CommandLine";
+    }
+}
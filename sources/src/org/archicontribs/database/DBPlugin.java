@@ -12,6 +12,7 @@ import org.osgi.framework.Version;
 import java.util.Locale;
 
 import org.apache.log4j.Level;
+import org.archicontribs.database.connection.DBConnectionPool;
 import org.archicontribs.database.gui.DBGuiUtils;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.preferences.InstanceScope;
@@ -19,6 +20,7 @@ import org.eclipse.jface.preference.IPersistentPreferenceStore;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.eclipse.ui.preferences.ScopedPreferenceStore;
+import org.osgi.framework.BundleContext;
 
 import com.archimatetool.model.ModelVersion;
 
@@ -100,6 +102,33 @@ import lombok.Getter;
  *						update libraries dependencies
  *						Improve import and export from command line
  *						Add option to show real time numbers in import and export screens
+ *
+ * v4.9.8	18/10/2026	Send exported rows to the database in JDBC batches
+ *						Keep prepared statements in a cache per database connection
+ *						Read the properties and features of all the model components at once during import
+ *						Calculate the model components checksums in parallel
+ *						Calculate the checksums without building intermediate strings
+ *						Add xxHash64 as an alternative checksum algorithm, recorded in the database
+ *						Look up the components versions through a session temporary table instead of a variable IN list
+ *						Compare only the components that changed since the last comparison when nothing has been committed in the database since then
+ *						Create indexes on the *_in_model and *_in_view tables (database version 492)
+ *						Replace the MAX(version) subqueries by a join on the latest_versions table (database version 493)
+ *						Keep the closed database connections in a pool so that the next dialogs reuse them
+ *						Run the database requests of the import and export processes in a background thread so that the dialogs remain responsive
+ *						Refresh the progress bar and the counters of the import and export screens at most 10 times per second
+ *						Collect the number of calls, time, rows and BLOB bytes of each SQL request shape, shown in the debug window and logged after each import and export
+ *						Log the SQL requests that take longer than a threshold set in the preferences, with their parameters and phase
+ *						Add benchmarks of the checksum, count, insert and import hot paths, run through the Archi command line (--db.benchmark) from a separate fragment
+ *						Add a synthetic model generator and an export and import benchmark on SQLite reporting the time and peak heap of each phase (--db.benchmark.exportimport)
+ *						Count the components to import in a single UNION ALL request instead of one request per component type
+ *						Record the components counts and the images size of each model version at export time, so that they are not counted again at import time (database version 494)
+ *						Set the number of rows fetched at once depending on the database driver (streaming cursors on PostgreSQL), which may be overridden in the preferences
+ *						Send the rows of the high volume tables through the bulk load path of the database during export (COPY on PostgreSQL, multi-rows INSERT on MySQL and SQLite, bulk copy on SQL Server)
+ *						Record the components membership to the model versions as ranges, and optionally export only the changes of the membership (database version 495)
+ *						Store the properties and features as sets, identified by a SHA-256 content ID, shared by all the components and versions that have got the same ones, read once at import time (database version 496)
+ *						Store the images by SHA-256 content hash with a mapping of their paths, so that an image is uploaded once whatever the number of paths and models referencing it (database version 497)
+ *						Read the images and views screenshots from the database as streams, and calculate the views checksum without copying their screenshot in a String
+ *						Record the latest version of the view objects and view connections in the latest_versions table (database version 498)
  * 
  * -----------------------------------------------------------------------------------------
  * 
@@ -200,9 +229,17 @@ public class DBPlugin extends AbstractUIPlugin {
 		preferenceStore.setDefault("removeDirtyFlag",         false);
 		preferenceStore.setDefault("showIdInContextMenu",     false);
 		preferenceStore.setDefault("traceSQL",                true);
+		preferenceStore.setDefault("slowRequestThreshold",    1000);
 		preferenceStore.setDefault("checkMaxMemory",          true);
 		preferenceStore.setDefault("checkNotNullConstraints", true);
 		preferenceStore.setDefault("showRealTimeNumbers",     true);
+		preferenceStore.setDefault("exportBatchSize",         100);
+		preferenceStore.setDefault("fetchSize",               0);
+		preferenceStore.setDefault("checksumAlgorithm",       "MD5");
+		preferenceStore.setDefault("incrementalCompare",      true);
+		preferenceStore.setDefault("exportMembershipRanges",  false);
+		preferenceStore.setDefault("connectionPoolSize",      4);
+		preferenceStore.setDefault("connectionPoolIdleTimeout", 300);
 		preferenceStore.setDefault("copySuffix",              " (copy)");
 		preferenceStore.setDefault("defaultImportMode",       "template");
 		preferenceStore.setDefault("loggerMode",		      "disabled");
@@ -307,6 +344,15 @@ public class DBPlugin extends AbstractUIPlugin {
 		}
 	}
 
+	/**
+	 * Closes the idle database connections when the plugin is stopped
+	 */
+	@Override
+	public void stop(BundleContext context) throws Exception {
+		DBConnectionPool.closeAll();
+		super.stop(context);
+	}
+
 	@Override
 	public IPersistentPreferenceStore getPreferenceStore() {
 		if (preferenceStore == null) {
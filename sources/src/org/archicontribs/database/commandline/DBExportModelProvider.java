@@ -61,8 +61,12 @@ public class DBExportModelProvider extends AbstractCommandLineProvider {
     	if ( (guiExportModel.getComboDatabases().getItemCount() == 0) || !(databaseName.equals(guiExportModel.getComboDatabases().getItem(guiExportModel.getComboDatabases().getSelectionIndex()))) )
     		throw new IOException(getLogPrefix()+": Database \""+databaseName+"\" is unknown. You must declare it in the plugin preferences before using the commandline interface.");
     	
-    	// we count the model's components
-    	guiExportModel.getExportedModel().countAllObjects();
+    	// we check that the connection to the database succeeded
+    	if ( guiExportModel.getExportConnection() == null )
+    		throw new IOException(getLogPrefix()+": Cannot connect to the \""+databaseName+"\" database.");
+    	
+    	// we count the model's components, and calculate their checksums using the algorithm of the database
+    	guiExportModel.getExportedModel().countAllObjects(guiExportModel.getExportConnection().getChecksumAlgorithm());
     	
     	// we set the release note if provided
     	if ( releaseNote != null )
@@ -0,0 +1,77 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.archicontribs.database.DBLogger;
+
+import com.microsoft.sqlserver.jdbc.SQLServerConnection;
+
+/**
+ * Bulk writer that sends the rows to a SQL Server database through a JDBC batch that the driver converts to a bulk copy.<br>
+ * <br>
+ * The bulk copy is enabled on the connection only while the rows are sent, and the previous setting is restored afterwards, so that
+ * the other requests of the export and the next users of the pooled connection are not sent through the bulk copy API.
+ */
+public class DBBulkCopyBulkWriter extends DBBulkWriter {
+	private static final DBLogger logger = new DBLogger(DBBulkCopyBulkWriter.class);
+
+	private final String request;
+
+	/**
+	 * @param theDriverName
+	 * @param theConnection
+	 * @param theTable
+	 * @param theColumns
+	 * @param theCapacity
+	 */
+	public DBBulkCopyBulkWriter(String theDriverName, Connection theConnection, String theTable, String[] theColumns, int theCapacity) {
+		super(theDriverName, theConnection, theTable, theColumns, theCapacity);
+
+		StringBuilder values = new StringBuilder();
+		for ( int i = 0 ; i < theColumns.length ; ++i )
+			values.append(i == 0 ? "?" : ", ?");
+		this.request = "INSERT INTO "+theTable+" ("+getColumnList()+") VALUES ("+values.toString()+")";
+	}
+
+	/**
+	 * @param connection
+	 * @return true if the connection gives access to the SQL Server bulk copy API
+	 */
+	public static boolean isAvailable(Connection connection) {
+		try {
+			if ( !connection.isWrapperFor(SQLServerConnection.class) )
+				return false;
+			// the older drivers cannot send the JDBC batches through the bulk copy API
+			connection.unwrap(SQLServerConnection.class).getUseBulkCopyForBatchInsert();
+			return true;
+		} catch (SQLException | LinkageError err) {
+			logger.warn("The SQL Server bulk copy API is not available, the rows will be inserted through standard batches", err);
+			return false;
+		}
+	}
+
+	@Override
+	protected int write(List<Object[]> rowsToWrite) throws SQLException {
+		SQLServerConnection sqlServerConnection = this.connection.unwrap(SQLServerConnection.class);
+		boolean useBulkCopy = sqlServerConnection.getUseBulkCopyForBatchInsert();
+		
+		// the statement is prepared and executed while the bulk copy is enabled, as the driver may read the setting at either time
+		sqlServerConnection.setUseBulkCopyForBatchInsert(true);
+		try ( DBStatement insert = new DBStatement(this.driverName, this.connection, this.request, rowsToWrite.get(0)) ) {
+			insert.addBatch();
+			for ( int row = 1 ; row < rowsToWrite.size() ; ++row )
+				insert.addBatch(rowsToWrite.get(row));
+			return insert.executeBatch();
+		} finally {
+			sqlServerConnection.setUseBulkCopyForBatchInsert(useBulkCopy);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.archicontribs.database.DBDatabaseDriver;
+
+import lombok.Getter;
+
+/**
+ * Writes the rows of an INSERT request using the fastest bulk load path of the database.<br>
+ * <br>
+ * The export sends hundreds of thousands of rows to a few tables (view objects, properties, bendpoints, the *_in_model and *_in_view tables).
+ * JDBC batches still send one INSERT per row to the database server, whereas most databases have a dedicated bulk load path:
+ * <ul>
+ * <li>PostgreSQL: COPY FROM STDIN through the driver's CopyManager ({@link DBCopyBulkWriter})</li>
+ * <li>MySQL and SQLite: INSERT requests with several rows in their VALUES clause ({@link DBMultiRowBulkWriter})</li>
+ * <li>SQL Server: the driver sends the JDBC batches through its bulk copy API ({@link DBBulkCopyBulkWriter})</li>
+ * <li>Oracle: the driver already sends the JDBC batches as array binds</li>
+ * </ul>
+ * A bulk writer is dedicated to a table and to a list of columns, as the columns whose value is null are not part of the INSERT requests.
+ * The rows are accumulated and sent to the database when the writer is full or flushed.
+ */
+public abstract class DBBulkWriter {
+	/**
+	 * Tables that receive most of the rows of an export, and that are written through the bulk writers
+	 */
+	public static final Set<String> BULK_TABLES = new HashSet<>(Arrays.asList(
+			"views_objects", "views_objects_in_view", "views_connections", "views_connections_in_view", "properties", "features", "bendpoints",
+			"profiles_in_model", "folders_in_model", "elements_in_model", "relationships_in_model", "views_in_model"));
+
+	@Getter protected final String driverName;
+	@Getter protected final Connection connection;
+	@Getter protected final String table;
+	@Getter protected final String[] columns;
+	@Getter protected final int capacity;
+
+	/**
+	 * Rows that have been added and not yet sent to the database
+	 */
+	protected final List<Object[]> rows = new ArrayList<>();
+
+	protected DBBulkWriter(String theDriverName, Connection theConnection, String theTable, String[] theColumns, int theCapacity) {
+		this.driverName = theDriverName;
+		this.connection = theConnection;
+		this.table = theTable;
+		this.columns = theColumns;
+		this.capacity = theCapacity;
+	}
+
+	/**
+	 * Creates the bulk writer that suits the database driver
+	 * @param driver the database driver
+	 * @param driverName the name given to the database statements
+	 * @param connection the JDBC connection
+	 * @param table the table name, with its schema prefix
+	 * @param columns the columns of the rows
+	 * @param capacity the number of rows sent at once to the database
+	 * @return the bulk writer, or null if the rows must be sent through JDBC batches
+	 */
+	public static DBBulkWriter create(DBDatabaseDriver driver, String driverName, Connection connection, String table, String[] columns, int capacity) {
+		String tableName = table.substring(table.lastIndexOf('.') + 1).toLowerCase();
+		if ( !BULK_TABLES.contains(tableName) )
+			return null;
+
+		switch ( driver ) {
+			case POSTGRESQL:
+				return DBCopyBulkWriter.isAvailable(connection) ? new DBCopyBulkWriter(driverName, connection, table, columns, capacity) : null;
+			case MYSQL:
+				return new DBMultiRowBulkWriter(driverName, connection, table, columns, capacity, DBMultiRowBulkWriter.MYSQL_MAX_PARAMETERS);
+			case SQLITE:
+				return new DBMultiRowBulkWriter(driverName, connection, table, columns, capacity, DBMultiRowBulkWriter.SQLITE_MAX_PARAMETERS);
+			case MSSQL:
+				return DBBulkCopyBulkWriter.isAvailable(connection) ? new DBBulkCopyBulkWriter(driverName, connection, table, columns, capacity) : null;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Adds a row, and sends the pending rows to the database if the writer is full
+	 * @param values the values of the row, in the same order as the columns
+	 * @throws SQLException
+	 */
+	public void addRow(Object[] values) throws SQLException {
+		this.rows.add(values);
+		if ( this.rows.size() >= this.capacity )
+			flush();
+	}
+
+	/**
+	 * @return the number of rows that have been added and not yet sent to the database
+	 */
+	public int getRowCount() {
+		return this.rows.size();
+	}
+
+	/**
+	 * Sends the pending rows to the database
+	 * @return the number of inserted rows
+	 * @throws SQLException
+	 */
+	public int flush() throws SQLException {
+		if ( this.rows.isEmpty() )
+			return 0;
+
+		try {
+			return write(this.rows);
+		} finally {
+			this.rows.clear();
+		}
+	}
+
+	/**
+	 * Forgets the pending rows without sending them to the database
+	 */
+	public void discard() {
+		this.rows.clear();
+	}
+
+	/**
+	 * @return the list of the columns, separated by commas
+	 */
+	protected String getColumnList() {
+		return String.join(", ", this.columns);
+	}
+
+	/**
+	 * Sends rows to the database
+	 * @param rowsToWrite
+	 * @return the number of inserted rows
+	 * @throws SQLException
+	 */
+	protected abstract int write(List<Object[]> rowsToWrite) throws SQLException;
+}
@@ -0,0 +1,461 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.connection;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.archicontribs.database.DBDatabaseEntry;
+import org.archicontribs.database.DBLogger;
+import org.archicontribs.database.DBPlugin;
+import org.archicontribs.database.data.DBChecksumAlgorithm;
+import org.archicontribs.database.data.DBVersion;
+import org.archicontribs.database.model.DBArchimateModel;
+import org.archicontribs.database.model.DBMetadata;
+import org.eclipse.emf.ecore.EObject;
+
+import com.archimatetool.model.IDiagramModelComponent;
+
+import lombok.Getter;
+
+/**
+ * Local snapshot of the result of the last comparison between a model and a database.<br>
+ * <br>
+ * The snapshot keeps, for every component, the checksum it had during the comparison and the versions that have been
+ * read from the database. As long as nothing has been committed in the database since the snapshot has been taken,
+ * the versions of the components whose checksum did not change are restored from the snapshot and only the other
+ * components need to be compared to the database.<br>
+ * <br>
+ * The snapshots are stored in the plugin's state location, one file per model and database.
+ */
+public class DBCompareSnapshot {
+	private static final DBLogger logger = new DBLogger(DBCompareSnapshot.class);
+
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Kinds of components that are kept in the snapshot
+	 */
+	public enum Kind { PROFILE, ELEMENT, RELATIONSHIP, FOLDER, VIEW, VIEW_OBJECT, VIEW_CONNECTION }
+
+	/**
+	 * Versions of a component, as they were at the end of the comparison
+	 */
+	static class Entry {
+		Kind kind;
+		String id;
+		String checksum;
+		String containerId;
+		int currentVersion;
+		DBVersion initialVersion;
+		DBVersion databaseVersion;
+		DBVersion latestDatabaseVersion;
+
+		Entry(Kind kind, String id, DBMetadata metadata, String containerId) {
+			this.kind = kind;
+			this.id = id;
+			this.checksum = metadata.getCurrentVersion().getChecksum();
+			this.containerId = containerId;
+			this.currentVersion = metadata.getCurrentVersion().getVersion();
+			this.initialVersion = new DBVersion(metadata.getInitialVersion());
+			this.databaseVersion = new DBVersion(metadata.getDatabaseVersion());
+			this.latestDatabaseVersion = new DBVersion(metadata.getLatestDatabaseVersion());
+		}
+
+		Entry() {
+			// used when the entry is read from the snapshot file
+		}
+
+		void restore(DBMetadata metadata) {
+			metadata.getCurrentVersion().setVersion(this.currentVersion);
+			metadata.getInitialVersion().set(this.initialVersion);
+			metadata.getDatabaseVersion().set(this.databaseVersion);
+			metadata.getLatestDatabaseVersion().set(this.latestDatabaseVersion);
+		}
+	}
+
+	private final String modelId;
+	private final String databaseLocation;
+	private final File file;
+
+	@Getter private int modelInitialVersion;
+	@Getter private int modelDatabaseVersion;
+	@Getter private String checksumAlgorithm;
+	@Getter private String databaseMarker;
+
+	/**
+	 * Components of the model
+	 */
+	private final Map<String, Entry> components = new LinkedHashMap<>();
+
+	/**
+	 * Components that are in the database version of the model but not in the model (kept in the comparison order)
+	 */
+	private final Map<String, Entry> componentsNotInModel = new LinkedHashMap<>();
+
+	/**
+	 * Image paths of the model that have been checked against the database
+	 */
+	@Getter private final Set<String> imagePaths = new HashSet<>();
+
+	/**
+	 * Image paths that are used by the database version of the model
+	 */
+	@Getter private final Set<String> imagesInDatabaseModel = new HashSet<>();
+
+	/**
+	 * Image paths of the model that are not in the database
+	 */
+	@Getter private final Set<String> imagesNotInDatabase = new HashSet<>();
+
+	/**
+	 * Creates an empty snapshot for a model and a database
+	 * @param databaseEntry
+	 * @param theModelId
+	 */
+	public DBCompareSnapshot(DBDatabaseEntry databaseEntry, String theModelId) {
+		this.modelId = theModelId;
+		this.databaseLocation = getDatabaseLocation(databaseEntry);
+		this.file = getFile(databaseEntry, theModelId);
+	}
+
+	/**
+	 * Loads the snapshot of a model and a database
+	 * @param databaseEntry
+	 * @param theModelId
+	 * @return the snapshot, or null if there is no snapshot or if it cannot be read
+	 */
+	public static DBCompareSnapshot load(DBDatabaseEntry databaseEntry, String theModelId) {
+		DBCompareSnapshot snapshot = new DBCompareSnapshot(databaseEntry, theModelId);
+		if ( snapshot.file == null || !snapshot.file.exists() )
+			return null;
+
+		try ( DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(snapshot.file)))) ) {
+			if ( in.readInt() != FORMAT_VERSION )
+				return null;
+			if ( !DBPlugin.areEqual(in.readUTF(), snapshot.modelId) || !DBPlugin.areEqual(in.readUTF(), snapshot.databaseLocation) )
+				return null;
+
+			snapshot.modelInitialVersion = in.readInt();
+			snapshot.modelDatabaseVersion = in.readInt();
+			snapshot.checksumAlgorithm = readString(in);
+			snapshot.databaseMarker = readString(in);
+
+			readEntries(in, snapshot.components);
+			readEntries(in, snapshot.componentsNotInModel);
+			readStrings(in, snapshot.imagePaths);
+			readStrings(in, snapshot.imagesInDatabaseModel);
+			readStrings(in, snapshot.imagesNotInDatabase);
+		} catch (IOException | RuntimeException err) {
+			logger.warn("Failed to read the comparison snapshot "+snapshot.file, err);
+			return null;
+		}
+
+		if ( logger.isDebugEnabled() ) logger.debug("Loaded comparison snapshot with "+snapshot.components.size()+" components from "+snapshot.file);
+		return snapshot;
+	}
+
+	/**
+	 * Saves the snapshot in the plugin's state location.<br>
+	 * A failure is logged but not thrown as the snapshot is only used to speed up the next comparison.
+	 */
+	public void save() {
+		if ( this.file == null )
+			return;
+
+		try {
+			File folder = this.file.getParentFile();
+			if ( !folder.exists() )
+				folder.mkdirs();
+
+			try ( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(this.file)))) ) {
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(this.modelId);
+				out.writeUTF(this.databaseLocation);
+				out.writeInt(this.modelInitialVersion);
+				out.writeInt(this.modelDatabaseVersion);
+				writeString(out, this.checksumAlgorithm);
+				writeString(out, this.databaseMarker);
+
+				writeEntries(out, this.components);
+				writeEntries(out, this.componentsNotInModel);
+				writeStrings(out, this.imagePaths);
+				writeStrings(out, this.imagesInDatabaseModel);
+				writeStrings(out, this.imagesNotInDatabase);
+			}
+			if ( logger.isDebugEnabled() ) logger.debug("Saved comparison snapshot with "+this.components.size()+" components to "+this.file);
+		} catch (IOException | RuntimeException err) {
+			logger.warn("Failed to save the comparison snapshot "+this.file, err);
+			this.file.delete();
+		}
+	}
+
+	/**
+	 * Checks if the snapshot can be used to compare the model to the database
+	 * @param model the model, whose initial and database versions have already been read from the database
+	 * @param currentChecksumAlgorithm checksum algorithm of the database
+	 * @param currentDatabaseMarker value that changes each time something is committed in the database
+	 * @return true if the snapshot can be used
+	 */
+	public boolean isValidFor(DBArchimateModel model, DBChecksumAlgorithm currentChecksumAlgorithm, String currentDatabaseMarker) {
+		return (this.modelInitialVersion == model.getInitialVersion().getVersion())
+				&& (this.modelDatabaseVersion == model.getDatabaseVersion().getVersion())
+				&& DBPlugin.areEqual(this.checksumAlgorithm, currentChecksumAlgorithm.name())
+				&& DBPlugin.areEqual(this.databaseMarker, currentDatabaseMarker);
+	}
+
+	/**
+	 * Sets the model and database state the snapshot corresponds to
+	 * @param model
+	 * @param currentChecksumAlgorithm
+	 * @param currentDatabaseMarker
+	 */
+	public void setState(DBArchimateModel model, DBChecksumAlgorithm currentChecksumAlgorithm, String currentDatabaseMarker) {
+		this.modelInitialVersion = model.getInitialVersion().getVersion();
+		this.modelDatabaseVersion = model.getDatabaseVersion().getVersion();
+		this.checksumAlgorithm = currentChecksumAlgorithm.name();
+		this.databaseMarker = currentDatabaseMarker;
+	}
+
+	/**
+	 * Adds the versions of a model component to the snapshot
+	 * @param kind
+	 * @param metadata
+	 * @param containerId id of the view for view objects and view connections, else null
+	 */
+	public void addComponent(Kind kind, DBMetadata metadata, String containerId) {
+		this.components.put(metadata.getId(), new Entry(kind, metadata.getId(), metadata, containerId));
+	}
+
+	/**
+	 * Adds the versions of a component that is in the database but not in the model to the snapshot
+	 * @param kind
+	 * @param metadata
+	 * @param containerId id of the view for view objects and view connections, else null
+	 */
+	public void addComponentNotInModel(Kind kind, DBMetadata metadata, String containerId) {
+		this.componentsNotInModel.put(metadata.getId(), new Entry(kind, metadata.getId(), metadata, containerId));
+	}
+
+	/**
+	 * Restores the versions of the components whose checksum did not change since the snapshot, and the components that
+	 * are in the database but not in the model
+	 * @param kind kind of the components
+	 * @param modelComponents components of the model
+	 * @param model
+	 * @param notInModel map where the components that are in the database but not in the model are restored
+	 * @return the ids of the components that must be compared to the database
+	 */
+	public Set<String> restoreComponents(Kind kind, Map<String, ? extends EObject> modelComponents, DBArchimateModel model, Map<String, DBMetadata> notInModel) {
+		Set<String> changedIds = new HashSet<>();
+
+		for ( Map.Entry<String, ? extends EObject> component: modelComponents.entrySet() ) {
+			DBMetadata metadata = model.getDBMetadata(component.getValue());
+			Entry entry = this.components.get(component.getKey());
+			if ( entry == null || entry.kind != kind || !DBPlugin.areEqual(entry.checksum, metadata.getCurrentVersion().getChecksum()) )
+				changedIds.add(component.getKey());
+			else
+				entry.restore(metadata);
+		}
+
+		// components that have been removed from the model since the snapshot
+		for ( Entry entry: this.components.values() ) {
+			if ( entry.kind == kind && !modelComponents.containsKey(entry.id) )
+				changedIds.add(entry.id);
+		}
+
+		for ( Entry entry: this.componentsNotInModel.values() ) {
+			if ( entry.kind == kind && !changedIds.contains(entry.id) ) {
+				if ( modelComponents.containsKey(entry.id) )
+					changedIds.add(entry.id);
+				else
+					notInModel.put(entry.id, restoreNotInModel(entry));
+			}
+		}
+
+		if ( logger.isDebugEnabled() ) logger.debug(changedIds.size()+" "+kind+" components must be compared to the database, the others have been restored from the snapshot");
+		return changedIds;
+	}
+
+	/**
+	 * Adds to a set the ids of the views that contain view objects or view connections that changed since the snapshot
+	 * @param kind kind of the components (VIEW_OBJECT or VIEW_CONNECTION)
+	 * @param modelComponents view objects or view connections of the model
+	 * @param model
+	 * @param changedViews set that gets the ids of the views that must be compared to the database
+	 */
+	public void addChangedViews(Kind kind, Map<String, ? extends IDiagramModelComponent> modelComponents, DBArchimateModel model, Set<String> changedViews) {
+		for ( Map.Entry<String, ? extends IDiagramModelComponent> component: modelComponents.entrySet() ) {
+			Entry entry = this.components.get(component.getKey());
+			String viewId = component.getValue().getDiagramModel().getId();
+			if ( entry == null || entry.kind != kind || !DBPlugin.areEqual(entry.containerId, viewId) || !DBPlugin.areEqual(entry.checksum, model.getDBMetadata(component.getValue()).getCurrentVersion().getChecksum()) ) {
+				changedViews.add(viewId);
+				if ( entry != null && entry.containerId != null )
+					changedViews.add(entry.containerId);
+			}
+		}
+
+		// components that have been removed from the model or that have been added to the model since the snapshot
+		for ( Entry entry: this.components.values() ) {
+			if ( entry.kind == kind && !modelComponents.containsKey(entry.id) )
+				changedViews.add(entry.containerId);
+		}
+		for ( Entry entry: this.componentsNotInModel.values() ) {
+			if ( entry.kind == kind && modelComponents.containsKey(entry.id) )
+				changedViews.add(entry.containerId);
+		}
+	}
+
+	/**
+	 * Restores the versions of the view objects or view connections of the model that are not in a changed view
+	 * @param modelComponents view objects or view connections of the model
+	 * @param model
+	 * @param changedViews ids of the views that must be compared to the database
+	 */
+	public void restoreViewComponents(Map<String, ? extends IDiagramModelComponent> modelComponents, DBArchimateModel model, Set<String> changedViews) {
+		for ( Map.Entry<String, ? extends IDiagramModelComponent> component: modelComponents.entrySet() ) {
+			if ( !changedViews.contains(component.getValue().getDiagramModel().getId()) )
+				this.components.get(component.getKey()).restore(model.getDBMetadata(component.getValue()));
+		}
+	}
+
+	/**
+	 * Restores the view objects or view connections of a view that are in the database but not in the model
+	 * @param kind kind of the components (VIEW_OBJECT or VIEW_CONNECTION)
+	 * @param viewId
+	 * @param notInModel map where the components are restored
+	 * @param viewIds map where the view id of the restored components is stored
+	 */
+	public void restoreViewComponentsNotInModel(Kind kind, String viewId, Map<String, DBMetadata> notInModel, Map<String, String> viewIds) {
+		for ( Entry entry: getComponentsNotInModelByView().getOrDefault(viewId, new ArrayList<>()) ) {
+			if ( entry.kind == kind ) {
+				notInModel.put(entry.id, restoreNotInModel(entry));
+				viewIds.put(entry.id, viewId);
+			}
+		}
+	}
+
+	private Map<String, List<Entry>> componentsNotInModelByView = null;
+
+	private Map<String, List<Entry>> getComponentsNotInModelByView() {
+		if ( this.componentsNotInModelByView == null ) {
+			this.componentsNotInModelByView = new HashMap<>();
+			for ( Entry entry: this.componentsNotInModel.values() ) {
+				if ( entry.containerId != null )
+					this.componentsNotInModelByView.computeIfAbsent(entry.containerId, key -> new ArrayList<>()).add(entry);
+			}
+		}
+		return this.componentsNotInModelByView;
+	}
+
+	private static DBMetadata restoreNotInModel(Entry entry) {
+		DBMetadata metadata = new DBMetadata(entry.id);
+		entry.restore(metadata);
+		return metadata;
+	}
+
+	private static String getDatabaseLocation(DBDatabaseEntry databaseEntry) {
+		return databaseEntry.getDriver()+"://"+databaseEntry.getServer()+":"+databaseEntry.getPort()+"/"+databaseEntry.getDatabase()+"/"+databaseEntry.getSchema();
+	}
+
+	private static File getFile(DBDatabaseEntry databaseEntry, String theModelId) {
+		if ( DBPlugin.INSTANCE == null )
+			return null;
+
+		String databaseId = databaseEntry.getId().isEmpty() ? databaseEntry.getName() : databaseEntry.getId();
+		String filename = (theModelId+"@"+databaseId).replaceAll("[^A-Za-z0-9._@-]", "_")+".snapshot";
+		return DBPlugin.INSTANCE.getStateLocation().append("snapshots").append(filename).toFile();
+	}
+
+	private static void writeEntries(DataOutputStream out, Map<String, Entry> entries) throws IOException {
+		out.writeInt(entries.size());
+		for ( Entry entry: entries.values() ) {
+			out.writeByte(entry.kind.ordinal());
+			out.writeUTF(entry.id);
+			writeString(out, entry.checksum);
+			writeString(out, entry.containerId);
+			out.writeInt(entry.currentVersion);
+			writeVersion(out, entry.initialVersion);
+			writeVersion(out, entry.databaseVersion);
+			writeVersion(out, entry.latestDatabaseVersion);
+		}
+	}
+
+	private static void readEntries(DataInputStream in, Map<String, Entry> entries) throws IOException {
+		Kind[] kinds = Kind.values();
+		int size = in.readInt();
+		for ( int i = 0; i < size; ++i ) {
+			Entry entry = new Entry();
+			entry.kind = kinds[in.readByte()];
+			entry.id = in.readUTF();
+			entry.checksum = readString(in);
+			entry.containerId = readString(in);
+			entry.currentVersion = in.readInt();
+			entry.initialVersion = readVersion(in);
+			entry.databaseVersion = readVersion(in);
+			entry.latestDatabaseVersion = readVersion(in);
+			entries.put(entry.id, entry);
+		}
+	}
+
+	private static void writeVersion(DataOutputStream out, DBVersion version) throws IOException {
+		out.writeInt(version.getVersion());
+		writeString(out, version.getContainerChecksum());
+		writeString(out, version.getChecksum());
+		out.writeLong(version.getTimestamp().getTime());
+		writeString(out, version.getUsername());
+	}
+
+	private static DBVersion readVersion(DataInputStream in) throws IOException {
+		int version = in.readInt();
+		String containerChecksum = readString(in);
+		String checksum = readString(in);
+		Timestamp timestamp = new Timestamp(in.readLong());
+		String username = readString(in);
+		return new DBVersion(version, containerChecksum, checksum, timestamp, username);
+	}
+
+	private static void writeStrings(DataOutputStream out, Set<String> strings) throws IOException {
+		out.writeInt(strings.size());
+		Iterator<String> iterator = strings.iterator();
+		while ( iterator.hasNext() )
+			out.writeUTF(iterator.next());
+	}
+
+	private static void readStrings(DataInputStream in, Set<String> strings) throws IOException {
+		int size = in.readInt();
+		for ( int i = 0; i < size; ++i )
+			strings.add(in.readUTF());
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if ( value != null )
+			out.writeUTF(value);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
@@ -0,0 +1,252 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.archicontribs.database.DBDatabaseEntry;
+import org.archicontribs.database.DBLogger;
+import org.archicontribs.database.DBPlugin;
+import org.archicontribs.database.data.DBChecksumAlgorithm;
+
+/**
+ * Small pool of the idle JDBC connections of a database.<br>
+ * <br>
+ * Opening a JDBC connection requires a full handshake with the database server, which may take several seconds on a remote
+ * server. When a {@link DBDatabaseConnection} is closed, its JDBC connection is kept idle in the pool of its database so that
+ * the next dialog or script that connects to the same database reuses it.<br>
+ * <br>
+ * The pool is bounded by the "connectionPoolSize" preference (0 disables the pool). The idle connections are validated
+ * before being reused and are closed when they stay idle longer than the "connectionPoolIdleTimeout" preference (in seconds).
+ */
+public class DBConnectionPool {
+	private static final DBLogger logger = new DBLogger(DBConnectionPool.class);
+
+	/**
+	 * Number of seconds the JDBC driver is allowed to validate a connection
+	 */
+	private static final int VALIDATION_TIMEOUT = 5;
+
+	/**
+	 * Pools indexed by the JDBC connection string, the username and the schema of the database<br>
+	 * The schema is part of the key as the JDBC connection string does not contain it, and each schema must be checked on its own.
+	 */
+	private static final Map<String, DBConnectionPool> pools = new HashMap<>();
+
+	/**
+	 * Timer that closes the connections that stayed idle too long
+	 */
+	private static Timer evictionTimer = null;
+
+	/**
+	 * Idle connections, the most recently used first
+	 */
+	private final Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+
+	/**
+	 * Checksum algorithm of the database, once the database has been checked through one of the pool's connections
+	 */
+	private DBChecksumAlgorithm checkedChecksumAlgorithm = null;
+
+	private final String name;
+
+	private DBConnectionPool(String poolName) {
+		this.name = poolName;
+	}
+
+	private static class IdleConnection {
+		final Connection connection;
+		final long idleSince;
+
+		IdleConnection(Connection theConnection) {
+			this.connection = theConnection;
+			this.idleSince = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Gets the pool of a database, creating it if it does not exist yet
+	 * @param databaseEntry
+	 * @return the pool of the database
+	 */
+	public static DBConnectionPool getPool(DBDatabaseEntry databaseEntry) {
+		return getPool(databaseEntry, databaseEntry.getJdbcConnectionString());
+	}
+
+	/**
+	 * Gets the pool of a database, creating it if it does not exist yet
+	 * @param databaseEntry
+	 * @param jdbcConnectionString the JDBC connection string of the database, when it has already been calculated
+	 * @return the pool of the database
+	 */
+	public static DBConnectionPool getPool(DBDatabaseEntry databaseEntry, String jdbcConnectionString) {
+		String key = jdbcConnectionString+"\t"+databaseEntry.getUsername()+"\t"+databaseEntry.getSchema();
+		synchronized (pools) {
+			DBConnectionPool pool = pools.get(key);
+			if ( pool == null ) {
+				pool = new DBConnectionPool(databaseEntry.getName());
+				pools.put(key, pool);
+			}
+			return pool;
+		}
+	}
+
+	/**
+	 * Gets an idle connection from the pool.<br>
+	 * The connections that are no longer valid are closed and discarded.
+	 * @return a valid connection, or null if the pool has no valid idle connection
+	 */
+	public synchronized Connection borrow() {
+		evictIdleConnections();
+
+		IdleConnection idleConnection;
+		while ( (idleConnection = this.idleConnections.pollFirst()) != null ) {
+			Connection connection = idleConnection.connection;
+			try {
+				if ( connection.isValid(VALIDATION_TIMEOUT) && connection.getAutoCommit() ) {
+					if ( logger.isDebugEnabled() ) logger.debug("Reusing an idle connection to database "+this.name+" ("+this.idleConnections.size()+" idle connection"+(this.idleConnections.size()>1?"s":"")+" left)");
+					return connection;
+				}
+			} catch (@SuppressWarnings("unused") SQLException|AbstractMethodError err) {
+				// the connection is considered as invalid if the driver is unable to validate it
+			}
+			if ( logger.isDebugEnabled() ) logger.debug("Discarding an invalid idle connection to database "+this.name);
+			closeConnection(connection);
+		}
+		return null;
+	}
+
+	/**
+	 * Gives back a connection to the pool, or closes it if the pool is full or disabled.<br>
+	 * The connection must not have any pending transaction.
+	 * @param connection
+	 */
+	public void release(Connection connection) {
+		int poolSize = DBPlugin.INSTANCE.getPreferenceStore().getInt("connectionPoolSize");
+
+		try {
+			if ( connection.isClosed() ) {
+				// the connection has been closed by the database or the driver, its prepared statements are forgotten
+				DBStatementCache.release(connection);
+				return;
+			}
+
+			if ( connection.getAutoCommit() ) {
+				boolean isKept = false;
+				synchronized (this) {
+					if ( this.idleConnections.size() < poolSize ) {
+						if ( logger.isDebugEnabled() ) logger.debug("Keeping the connection to database "+this.name+" in the pool of idle connections");
+						this.idleConnections.addFirst(new IdleConnection(connection));
+						isKept = true;
+					}
+				}
+				// the timer is started outside of the pool lock as it locks all the pools
+				if ( isKept ) {
+					startEvictionTimer();
+					return;
+				}
+			}
+		} catch (SQLException err) {
+			logger.warn("Failed to check the connection to database "+this.name+", closing it.", err);
+		}
+
+		closeConnection(connection);
+	}
+
+	/**
+	 * @return the checksum algorithm of the database if it has already been checked through one of the pool's connections, null if not
+	 */
+	public synchronized DBChecksumAlgorithm getCheckedChecksumAlgorithm() {
+		return this.checkedChecksumAlgorithm;
+	}
+
+	/**
+	 * Remembers that the database has been checked, so that the next connections do not need to check it again
+	 * @param checksumAlgorithm checksum algorithm of the database
+	 */
+	public synchronized void setCheckedChecksumAlgorithm(DBChecksumAlgorithm checksumAlgorithm) {
+		this.checkedChecksumAlgorithm = checksumAlgorithm;
+	}
+
+	/**
+	 * Closes the connections that stayed idle longer than the "connectionPoolIdleTimeout" preference
+	 */
+	synchronized void evictIdleConnections() {
+		long oldestAllowed = System.currentTimeMillis() - DBPlugin.INSTANCE.getPreferenceStore().getInt("connectionPoolIdleTimeout") * 1000L;
+
+		Iterator<IdleConnection> iterator = this.idleConnections.iterator();
+		while ( iterator.hasNext() ) {
+			IdleConnection idleConnection = iterator.next();
+			if ( idleConnection.idleSince < oldestAllowed ) {
+				if ( logger.isDebugEnabled() ) logger.debug("Closing a connection to database "+this.name+" that stayed idle too long");
+				iterator.remove();
+				closeConnection(idleConnection.connection);
+			}
+		}
+	}
+
+	/**
+	 * Closes all the idle connections of the pool and forgets that the database has been checked
+	 */
+	public synchronized void clear() {
+		for ( IdleConnection idleConnection: this.idleConnections )
+			closeConnection(idleConnection.connection);
+		this.idleConnections.clear();
+		this.checkedChecksumAlgorithm = null;
+	}
+
+	/**
+	 * Closes all the idle connections of all the pools
+	 */
+	public static void closeAll() {
+		synchronized (pools) {
+			for ( DBConnectionPool pool: pools.values() )
+				pool.clear();
+			pools.clear();
+
+			if ( evictionTimer != null ) {
+				evictionTimer.cancel();
+				evictionTimer = null;
+			}
+		}
+	}
+
+	private static void startEvictionTimer() {
+		synchronized (pools) {
+			if ( evictionTimer != null )
+				return;
+
+			evictionTimer = new Timer("DBConnectionPool eviction", true);
+			evictionTimer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					synchronized (pools) {
+						for ( DBConnectionPool pool: pools.values() )
+							pool.evictIdleConnections();
+					}
+				}
+			}, 60000, 60000);
+		}
+	}
+
+	private static void closeConnection(Connection connection) {
+		DBStatementCache.release(connection);
+		try {
+			connection.close();
+		} catch (SQLException err) {
+			logger.warn("Failed to close the database connection.", err);
+		}
+	}
+}
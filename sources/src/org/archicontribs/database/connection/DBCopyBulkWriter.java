@@ -0,0 +1,105 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.connection;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.archicontribs.database.DBLogger;
+import org.postgresql.PGConnection;
+
+/**
+ * Bulk writer that sends the rows to a PostgreSQL database through a COPY FROM STDIN request, in CSV format.<br>
+ * <br>
+ * The values are formatted the way PostgreSQL parses them:
+ * <ul>
+ * <li>null values are empty unquoted fields, and empty strings are quoted</li>
+ * <li>booleans are written as 1 or 0, as the boolean columns are created as INT2</li>
+ * <li>byte arrays are written in the hexadecimal format of the BYTEA columns</li>
+ * </ul>
+ */
+public class DBCopyBulkWriter extends DBBulkWriter {
+	private static final DBLogger logger = new DBLogger(DBCopyBulkWriter.class);
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final String request;
+	private final DBStatementStatistics statistics;
+
+	/**
+	 * @param theDriverName
+	 * @param theConnection
+	 * @param theTable
+	 * @param theColumns
+	 * @param theCapacity
+	 */
+	public DBCopyBulkWriter(String theDriverName, Connection theConnection, String theTable, String[] theColumns, int theCapacity) {
+		super(theDriverName, theConnection, theTable, theColumns, theCapacity);
+		this.request = "COPY "+theTable+" ("+getColumnList()+") FROM STDIN WITH (FORMAT csv)";
+		this.statistics = DBStatementStatistics.get(this.request);
+	}
+
+	/**
+	 * @param connection
+	 * @return true if the connection gives access to the PostgreSQL CopyManager
+	 */
+	public static boolean isAvailable(Connection connection) {
+		try {
+			return connection.isWrapperFor(PGConnection.class);
+		} catch (SQLException | LinkageError err) {
+			logger.warn("The PostgreSQL COPY API is not available, the rows will be inserted through standard batches", err);
+			return false;
+		}
+	}
+
+	@Override
+	protected int write(List<Object[]> rowsToWrite) throws SQLException {
+		StringBuilder csv = new StringBuilder();
+		long blobBytes = 0;
+		for ( Object[] row: rowsToWrite ) {
+			for ( int i = 0 ; i < row.length ; ++i ) {
+				if ( i != 0 )
+					csv.append(',');
+				Object value = row[i];
+				if ( value == null )
+					continue;
+				if ( value instanceof String ) {
+					csv.append('"').append(((String)value).replace("\"", "\"\"")).append('"');
+				} else if ( value instanceof Boolean ) {
+					csv.append((Boolean)value ? '1' : '0');
+				} else if ( value instanceof byte[] ) {
+					byte[] bytes = (byte[])value;
+					blobBytes += bytes.length;
+					csv.append("\\x");
+					for ( byte b: bytes )
+						csv.append(HEX_DIGITS[(b >> 4) & 0x0f]).append(HEX_DIGITS[b & 0x0f]);
+				} else
+					// integers and timestamps are written the way PostgreSQL parses them
+					csv.append(value);
+			}
+			csv.append('\n');
+		}
+
+		if ( logger.isTraceSQLEnabled() ) logger.trace("      --> copying "+rowsToWrite.size()+" rows: "+this.request);
+
+		long startTime = System.nanoTime();
+		long rowCount;
+		try {
+			rowCount = this.connection.unwrap(PGConnection.class).getCopyAPI().copyIn(this.request, new StringReader(csv.toString()));
+		} catch (IOException err) {
+			throw new SQLException("Failed to copy "+rowsToWrite.size()+" rows into "+this.table, err);
+		}
+		this.statistics.recordCall(System.nanoTime() - startTime, rowCount);
+		if ( blobBytes != 0 )
+			this.statistics.recordBlobBytes(blobBytes);
+
+		return (int)rowCount;
+	}
+}
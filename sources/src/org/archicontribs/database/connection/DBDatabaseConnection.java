@@ -15,9 +15,13 @@ import java.sql.SQLException;
 import java.sql.Savepoint;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.apache.log4j.Level;
 import org.archicontribs.database.DBColumn;
@@ -29,6 +33,7 @@ import org.archicontribs.database.DBLogger;
 import org.archicontribs.database.DBPlugin;
 import org.archicontribs.database.DBTable;
 import org.archicontribs.database.data.DBChecksum;
+import org.archicontribs.database.data.DBChecksumAlgorithm;
 import org.archicontribs.database.data.DBDatabase;
 import org.archicontribs.database.data.DBImportMode;
 import org.archicontribs.database.gui.DBGui;
@@ -57,7 +62,7 @@ public class DBDatabaseConnection implements AutoCloseable {
 	 * Version of the expected database model.<br>
 	 * If the value found into the columns version of the table "database_version", then the plugin will try to upgrade the datamodel.
 	 */
-	public static final int DATABASE_VERSION = 490;
+	public static final int DATABASE_VERSION = 498;
 
 	/**
 	 * the databaseEntry corresponding to the connection
@@ -78,6 +83,34 @@ public class DBDatabaseConnection implements AutoCloseable {
 	 * Connection to the database
 	 */
 	@Getter protected Connection connection = null;
+	
+	/**
+	 * Number of rows that are accumulated per INSERT request before being sent to the database.<br>
+	 * A value lower than 2 means that the rows are inserted one by one.
+	 */
+	@Getter protected int batchSize = 0;
+
+	/**
+	 * Algorithm used to calculate the checksums of the components stored in the database<br>
+	 * It is read from the database when it is checked, so that the connections to different databases may use different algorithms.
+	 */
+	protected DBChecksumAlgorithm checksumAlgorithm = null;
+
+	/**
+	 * Pool of the idle connections of the database<br>
+	 * It is resolved once when the connection is opened, as calculating the JDBC connection string may require to decrypt the password.
+	 */
+	protected DBConnectionPool connectionPool = null;
+	
+	/**
+	 * INSERT requests that have been batched and not yet sent to the database, indexed by their SQL request
+	 */
+	private LinkedHashMap<String, DBStatement> batchedStatements = new LinkedHashMap<>();
+
+	/**
+	 * Bulk writers of the INSERT requests of the high volume tables, indexed by their SQL request (null if the database has got no bulk writer for the request)
+	 */
+	private LinkedHashMap<String, DBBulkWriter> bulkWriters = new LinkedHashMap<>();
 
 
 	/**
@@ -86,6 +119,39 @@ public class DBDatabaseConnection implements AutoCloseable {
 	@Getter private List<DBColumn> databaseVersionColumns = null;
 	@Getter private List<String> databaseVersionPrimaryKeys = null;
 
+	/**
+	 * Columns of the models table that record, at export time, the number of components of each type and the size of the images of the model version
+	 */
+	public static final String[] modelsCountColumns = {"nb_profiles", "nb_folders", "nb_elements", "nb_relationships", "nb_views", "nb_view_objects", "nb_view_connections", "nb_images", "images_size"};
+
+	/**
+	 * Tables that record the membership of the components to the model versions, with their primary key and the prefix of their component columns.<br>
+	 * Each row is valid for the range of model versions from its model_version column to its model_version_to column.
+	 */
+	public static final String[][] modelMembershipTables = {
+			{"profiles_in_model",      "pim_id", "profile"},
+			{"folders_in_model",       "fim_id", "folder"},
+			{"elements_in_model",      "eim_id", "element"},
+			{"relationships_in_model", "rim_id", "relationship"},
+			{"views_in_model",         "vim_id", "view"}
+	};
+
+	/**
+	 * Value of the model_version_to column of the membership rows that are still valid in the latest version of the model
+	 */
+	public static final int OPEN_MODEL_VERSION = Integer.MAX_VALUE;
+
+	/**
+	 * Tables whose components reference a properties set and a features set
+	 */
+	public static final String[] setsReferencingTables = {"models", "folders", "elements", "relationships", "views", "views_objects", "views_connections"};
+
+	/**
+	 * Value of the parent_version column of the rows of the properties and features sets, whose parent_id column is the set ID<br>
+	 * The rows of the components exported before the sets were introduced keep the component ID and version in these columns.
+	 */
+	public static final int SETS_PARENT_VERSION = 0;
+
 	@Getter private List<DBColumn> modelsColumns = null;
 	@Getter private List<String> modelsPrimaryKeys = null;
 
@@ -140,6 +206,12 @@ public class DBDatabaseConnection implements AutoCloseable {
 	@Getter private List<DBColumn> imagesColumns = null;
 	@Getter private List<String> imagesPrimaryKeys = null;
 
+	@Getter private List<DBColumn> imagePathsColumns = null;
+	@Getter private List<String> imagePathsPrimaryKeys = null;
+
+	@Getter private List<DBColumn> latestVersionsColumns = null;
+	@Getter private List<String> latestVersionsPrimaryKeys = null;
+
 	@Getter private List<DBTable> databaseTables = null;
 
 	/**
@@ -177,6 +249,12 @@ public class DBDatabaseConnection implements AutoCloseable {
 		
 		this.schema = this.databaseEntry.getSchema();
 		this.schemaPrefix = this.databaseEntry.getSchemaPrefix();
+		
+		// we reuse an idle connection to the same database if there is one
+		this.connectionPool = DBConnectionPool.getPool(this.databaseEntry, connectionString);
+		this.connection = this.connectionPool.borrow();
+		if ( this.connection != null )
+			return;
 
 		try {
 			// we load the jdbc class
@@ -250,19 +328,32 @@ public class DBDatabaseConnection implements AutoCloseable {
 	 */
 	@Override
 	public void close() throws SQLException {
+		discardBatches();
+
 		if ( this.connection == null || this.connection.isClosed() ) {
 			if ( logger.isDebugEnabled() ) logger.debug("The database connection is already closed.");
+			if ( this.connection != null )
+				DBStatementCache.release(this.connection);
 		} else {
+			// the connection is kept in the pool of idle connections (it is closed if the pool is full)
 			if ( logger.isDebugEnabled() ) logger.debug("Closing the database connection.");
-			this.connection.close();
+			getConnectionPool().release(this.connection);
 		}
 
 		this.connection = null;
+		this.connectionPool = null;
 		this.databaseEntry = null;
 		this.schema = "";
 		this.schemaPrefix = "";
 	}
 
+	/**
+	 * @return the cache of the prepared statements of the connection, with its hits and misses counters
+	 */
+	public DBStatementCache getStatementCache() {
+		return DBStatementCache.getCache(this.connection);
+	}
+
 	/**
 	 * Gets the status of the database connection. You may also be interested in {@link #isConnected()}
 	 * @return true if the connection is connected, false if the connection is closed
@@ -281,6 +372,27 @@ public class DBDatabaseConnection implements AutoCloseable {
 		return (this.connection == null) || this.connection.isClosed();
 	}
 	
+	/**
+	 * @return the algorithm used to calculate the checksums of the components stored in the database
+	 */
+	public DBChecksumAlgorithm getChecksumAlgorithm() {
+		if ( this.checksumAlgorithm != null )
+			return this.checksumAlgorithm;
+
+		// the connection has not been checked, but the database may have been checked through another connection of the pool
+		DBChecksumAlgorithm checkedChecksumAlgorithm = getConnectionPool().getCheckedChecksumAlgorithm();
+		return (checkedChecksumAlgorithm != null) ? checkedChecksumAlgorithm : DBChecksumAlgorithm.DEFAULT;
+	}
+
+	/**
+	 * @return the pool of the idle connections of the database
+	 */
+	protected DBConnectionPool getConnectionPool() {
+		if ( this.connectionPool == null )
+			this.connectionPool = DBConnectionPool.getPool(this.databaseEntry);
+		return this.connectionPool;
+	}
+
 	/**
 	 * Checks the content of the "database_version" table
 	 * @param dbGui the dialog that holds the graphical interface
@@ -293,9 +405,19 @@ public class DBDatabaseConnection implements AutoCloseable {
 	 * @returns true if the database version is correct, generates an Exception if not
 	 */
 	public boolean checkDatabase(DBGui dbGui) throws SQLException, DBException {
-		// No tables to be checked in Neo4J databases
-		if ( this.databaseEntry.getDriver().equals(DBDatabaseDriver.NEO4J) )
+		// No tables to be checked in Neo4J databases, that always use the default checksum algorithm
+		if ( this.databaseEntry.getDriver().equals(DBDatabaseDriver.NEO4J) ) {
+			this.checksumAlgorithm = DBChecksumAlgorithm.DEFAULT;
 			return true;
+		}
+		
+		// the database does not need to be checked again if it has already been checked through a connection of the pool
+		DBConnectionPool pool = getConnectionPool();
+		DBChecksumAlgorithm checkedChecksumAlgorithm = pool.getCheckedChecksumAlgorithm();
+		if ( checkedChecksumAlgorithm != null ) {
+			this.checksumAlgorithm = checkedChecksumAlgorithm;
+			return true;
+		}
 		
 		if ( logger.isTraceEnabled() ) logger.trace("Checking \""+this.schemaPrefix+"database_version\" table");
 
@@ -315,6 +437,17 @@ public class DBDatabaseConnection implements AutoCloseable {
 		if ( (currentVersion < 200) || (currentVersion > DATABASE_VERSION) )
 			throw new SQLException("The database has got an unknown model version (is "+currentVersion+" but should be between 200 and "+DATABASE_VERSION+")");
 
+		// the checksum algorithm is recorded in the database since version 491, older databases use the default one
+		DBChecksumAlgorithm checksumAlgorithm = DBChecksumAlgorithm.DEFAULT;
+		if ( currentVersion >= 491 ) {
+			try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT checksum_algorithm FROM "+this.schemaPrefix+"database_version WHERE archi_plugin = ?", DBPlugin.PLUGIN_NAME) ) {
+				if ( result.next() )
+					checksumAlgorithm = DBChecksumAlgorithm.fromName(result.getString("checksum_algorithm"));
+			}
+		}
+		if ( logger.isDebugEnabled() ) logger.debug("Using "+checksumAlgorithm.name()+" checksum algorithm");
+		this.checksumAlgorithm = checksumAlgorithm;
+
 		if ( currentVersion != DATABASE_VERSION ) {
 			if ( DBGuiUtils.question("The database needs to be upgraded. You will not loose any data during this operation.\n\nDo you wish to upgrade your database ?") ) {
 				upgradeDatabase(currentVersion);
@@ -324,6 +457,7 @@ public class DBDatabaseConnection implements AutoCloseable {
 				throw new SQLException("The database needs to be upgraded.");
 		}
 		
+		pool.setCheckedChecksumAlgorithm(checksumAlgorithm);
 		return true;
 	}
 
@@ -506,15 +640,32 @@ public class DBDatabaseConnection implements AutoCloseable {
 	 * @throws SQLException 
 	 */
 	private void createTables(DBGui dbGui) throws SQLException {
-		//final String[] databaseVersionColumns = {"id", "archi_plugin", "version"};
-
 		try {
-
 			if ( dbGui != null )
 				dbGui.setMessage("Creating necessary database tables ...");
 			else
 				DBGuiUtils.showPopupMessage("Creating necessary database tables ...");
 
+			initializeDatabase();
+
+			DBGuiUtils.popup(Level.INFO,"The database has been successfully initialized.");
+		} finally {
+			if ( dbGui != null )
+				dbGui.closeMessage();
+			else
+				DBGuiUtils.closePopupMessage();
+		}
+	}
+
+	/**
+	 * Creates the tables, indexes, sequences and triggers in an empty database, without any interaction with the user.<br>
+	 * This is used by {@link #createTables(DBGui)} and by the command line tools that work on a newly created database (like the benchmarks).
+	 * @throws SQLException 
+	 */
+	public void initializeDatabase() throws SQLException {
+		//final String[] databaseVersionColumns = {"id", "archi_plugin", "version"};
+
+		try {
 			if ( !isConnected() )
 				openConnection();
 
@@ -528,8 +679,14 @@ public class DBDatabaseConnection implements AutoCloseable {
 				executeRequest(table.generateCreateStatement());
 			}
 			
+			createIndexes();
+			createModelVersionRangeIndexes();
+			createIndex("idx_ipath_hash", "image_paths", "image_hash");
+			
 			// we fill in the database_version table 
-			insert(this.schemaPrefix+"database_version", DBColumn.getColumnNames(this.databaseVersionColumns), UUIDFactory.createID(null), DBPlugin.PLUGIN_NAME, DATABASE_VERSION);
+			// new databases use the checksum algorithm chosen in the preferences
+			DBChecksumAlgorithm checksumAlgorithm = DBChecksumAlgorithm.fromPreferences();
+			insert(this.schemaPrefix+"database_version", DBColumn.getColumnNames(this.databaseVersionColumns), UUIDFactory.createID(null), DBPlugin.PLUGIN_NAME, DATABASE_VERSION, checksumAlgorithm.name());
 			
 			// Oracle do not implement AUTO_INCREMENT columns, so we have to manually create sequences and triggers
 			if ( this.databaseEntry.getDriver().equals(DBDatabaseDriver.ORACLE) ) {
@@ -620,20 +777,84 @@ public class DBDatabaseConnection implements AutoCloseable {
 
 			commit();
 			setAutoCommit(true);
-
-			DBGuiUtils.popup(Level.INFO,"The database has been successfully initialized.");
-
 		} catch (SQLException err) {
 			rollback();
 			setAutoCommit(true);
 			throw err;
-		} finally {
-			if ( dbGui != null )
-				dbGui.closeMessage();
-			else
-				DBGuiUtils.closePopupMessage();
 		}
+	}
+
+	/**
+	 * Creates the secondary indexes of the *_in_model and *_in_view tables.<br>
+	 * The primary keys of these tables are technical IDs, so without these indexes, the requests that get the components of a
+	 * model version (or of a view version) and the requests that get the model versions of a component need a full table scan.
+	 * @throws SQLException
+	 */
+	private void createIndexes() throws SQLException {
+		createIndex("idx_pim_model",     "profiles_in_model",         "model_id", "model_version");
+		createIndex("idx_pim_profile",   "profiles_in_model",         "profile_id", "profile_version");
+		createIndex("idx_fim_model",     "folders_in_model",          "model_id", "model_version");
+		createIndex("idx_fim_folder",    "folders_in_model",          "folder_id", "folder_version");
+		createIndex("idx_eim_model",     "elements_in_model",         "model_id", "model_version");
+		createIndex("idx_eim_element",   "elements_in_model",         "element_id", "element_version");
+		createIndex("idx_rim_model",     "relationships_in_model",    "model_id", "model_version");
+		createIndex("idx_rim_rel",       "relationships_in_model",    "relationship_id", "relationship_version");
+		createIndex("idx_vim_model",     "views_in_model",            "model_id", "model_version");
+		createIndex("idx_vim_view",      "views_in_model",            "view_id", "view_version");
+		createIndex("idx_oiv_view",      "views_objects_in_view",     "view_id", "view_version");
+		createIndex("idx_oiv_object",    "views_objects_in_view",     "object_id", "object_version");
+		createIndex("idx_civ_view",      "views_connections_in_view", "view_id", "view_version");
+		createIndex("idx_civ_connection","views_connections_in_view", "connection_id", "connection_version");
+	}
 
+	/**
+	 * Creates the indexes on the end of the model versions range of the *_in_model tables.<br>
+	 * They allow to find the membership rows that are still valid in the latest version of a model without scanning all the model's history.
+	 * @throws SQLException
+	 */
+	private void createModelVersionRangeIndexes() throws SQLException {
+		createIndex("idx_pim_model_to",  "profiles_in_model",         "model_id", "model_version_to");
+		createIndex("idx_fim_model_to",  "folders_in_model",          "model_id", "model_version_to");
+		createIndex("idx_eim_model_to",  "elements_in_model",         "model_id", "model_version_to");
+		createIndex("idx_rim_model_to",  "relationships_in_model",    "model_id", "model_version_to");
+		createIndex("idx_vim_model_to",  "views_in_model",            "model_id", "model_version_to");
+	}
+
+	/**
+	 * Creates an index on a table
+	 * @param indexName name of the index (must be unique in the schema)
+	 * @param tableName name of the table, without the schema prefix
+	 * @param columnNames columns of the index
+	 * @throws SQLException
+	 */
+	public void createIndex(String indexName, String tableName, String... columnNames) throws SQLException {
+		if ( logger.isDebugEnabled() ) logger.debug("Creating index "+indexName+" on table "+this.schemaPrefix+tableName);
+
+		StringBuilder requestString = new StringBuilder("CREATE INDEX ");
+		switch ( this.databaseEntry.getDriver() ) {
+			case NEO4J:
+				// there is no table in Neo4J databases
+				return;
+			case ORACLE:
+				// Oracle indexes belong to a schema
+				requestString.append(this.schemaPrefix+indexName+" ON "+this.schemaPrefix+tableName);
+				break;
+			case SQLITE:
+				// SQLite expects the schema on the index name and not on the table name
+				requestString.append(this.schemaPrefix+indexName+" ON "+tableName);
+				break;
+			case MSSQL:
+			case MYSQL:
+			case POSTGRESQL:
+			default:
+				// the index is created in the schema of its table
+				requestString.append(indexName+" ON "+this.schemaPrefix+tableName);
+		}
+		requestString.append(" (");
+		requestString.append(String.join(", ", columnNames));
+		requestString.append(")");
+
+		executeRequest(requestString.toString());
 	}
 
 	/**
@@ -886,7 +1107,7 @@ public class DBDatabaseConnection implements AutoCloseable {
 					DBChecksum.append(checksumBuilder, result.getString("note"));
 					String checksum;
 					try {
-						checksum = DBChecksum.calculateChecksum(checksumBuilder);
+						checksum = DBChecksum.calculateChecksum(checksumBuilder, getChecksumAlgorithm());
 					} catch (Exception err) {
 						DBGuiUtils.popup(Level.FATAL, "Failed to calculate models checksum.", err);
 						rollback();
@@ -921,7 +1142,7 @@ public class DBDatabaseConnection implements AutoCloseable {
 
 						view = command.getImported();
 
-						executeRequest("UPDATE "+this.schemaPrefix+"views SET container_checksum = ? WHERE id = ? AND version = ?", DBChecksum.calculateChecksum(view), result.getString("id"), result.getInt("version"));
+						executeRequest("UPDATE "+this.schemaPrefix+"views SET container_checksum = ? WHERE id = ? AND version = ?", DBChecksum.calculateChecksum(view, getChecksumAlgorithm()), result.getString("id"), result.getInt("version"));
 					}
 				}
 			}
@@ -1299,14 +1520,210 @@ public class DBDatabaseConnection implements AutoCloseable {
 			
 			dbVersion = 490;
 		}
+		
+		// convert from version 490 to 491
+		//      - add checksum_algorithm column in database_version table
+		if ( dbVersion == 490 ) {
+			addColumn(this.schemaPrefix+"database_version", "checksum_algorithm", objectIDColumn.getType());
+			executeRequest("UPDATE "+this.schemaPrefix+"database_version SET checksum_algorithm = '"+DBChecksumAlgorithm.DEFAULT.name()+"' WHERE archi_plugin = '"+DBPlugin.PLUGIN_NAME+"'");
+			
+			dbVersion = 491;
+		}
+		
+		// convert from version 491 to 492
+		//      - create indexes on the *_in_model and *_in_view tables
+		if ( dbVersion == 491 ) {
+			createIndexes();
+			
+			dbVersion = 492;
+		}
+		
+		// convert from version 492 to 493
+		//      - create the latest_versions table and fill it with the latest version of the existing components
+		if ( dbVersion == 492 ) {
+			for ( int i = 0 ; i < this.databaseTables.size() ; ++i ) {
+				DBTable table = this.databaseTables.get(i);
+				if ( table.getName().equals("latest_versions") ) {
+					if ( logger.isDebugEnabled() ) logger.debug("Creating latest_versions table");
+					executeRequest(table.generateCreateStatement());
+				}
+			}
+			
+			for ( String componentTable: new String[] {"models", "profiles", "folders", "elements", "relationships", "views"} ) {
+				if ( logger.isDebugEnabled() ) logger.debug("Filling latest_versions table with the latest version of the "+componentTable);
+				executeRequest("INSERT INTO "+this.schemaPrefix+"latest_versions (component_type, component_id, latest_version) SELECT '"+componentTable+"', id, MAX(version) FROM "+this.schemaPrefix+componentTable+" GROUP BY id");
+			}
+			
+			dbVersion = 493;
+		}
+
+		// convert from version 493 to 494
+		//      - add the components counts and the images size columns in the models table
+		//        (they are left empty for the existing model versions, whose components are counted in the database)
+		if ( dbVersion == 493 ) {
+			for ( String countColumn: modelsCountColumns )
+				addColumn(this.schemaPrefix+"models", countColumn, integerColumn.getType());
+			
+			dbVersion = 494;
+		}
+
+		// convert from version 494 to 495
+		//      - add the model_version_to column in the *_in_model tables, so that each row is valid for a range of model versions
+		//      - merge the rows of the consecutive model versions into ranges, only if the user exports the changes of the membership
+		//        (else, each existing row stays valid for its own model version only)
+		if ( dbVersion == 494 ) {
+			boolean mergeRanges = DBPlugin.INSTANCE.getPreferenceStore().getBoolean("exportMembershipRanges");
+			for ( String[] membershipTable: modelMembershipTables ) {
+				// the profiles_in_model table already has got the column if it has been created by the upgrade from version 213
+				if ( (version > 213) || !membershipTable[0].equals("profiles_in_model") )
+					addColumn(this.schemaPrefix+membershipTable[0], "model_version_to", integerColumn.getType());
+				executeRequest("UPDATE "+this.schemaPrefix+membershipTable[0]+" SET model_version_to = model_version");
+				if ( mergeRanges )
+					mergeModelVersionRanges(membershipTable[0], membershipTable[1], membershipTable[2]);
+			}
+			createModelVersionRangeIndexes();
+			
+			dbVersion = 495;
+		}
+
+		// convert from version 495 to 496
+		//      - add the properties_set and features_set columns in the components tables, so that the components reference the properties and features sets they share
+		//        (they are left empty for the existing component versions, whose properties and features are kept under their ID and version)
+		if ( dbVersion == 495 ) {
+			for ( String componentTable: setsReferencingTables ) {
+				addColumn(this.schemaPrefix+componentTable, "properties_set", objectIDColumn.getType());
+				addColumn(this.schemaPrefix+componentTable, "features_set", objectIDColumn.getType());
+			}
+			
+			dbVersion = 496;
+		}
+
+		// convert from version 496 to 497
+		//      - create the image_paths table, so that the images are stored under the hash of their content and shared by all their paths
+		//        (the existing images are kept under their path)
+		if ( dbVersion == 496 ) {
+			for ( int i = 0 ; i < this.databaseTables.size() ; ++i ) {
+				DBTable table = this.databaseTables.get(i);
+				if ( table.getName().equals("image_paths") ) {
+					if ( logger.isDebugEnabled() ) logger.debug("Creating image_paths table");
+					executeRequest(table.generateCreateStatement());
+				}
+			}
+			createIndex("idx_ipath_hash", "image_paths", "image_hash");
+			
+			dbVersion = 497;
+		}
 
-		if ( logger.isTraceEnabled() ) logger.trace("Updating database version to 490");
+		// convert from version 497 to 498
+		//      - fill the latest_versions table with the latest version of the existing view objects and view connections
+		if ( dbVersion == 497 ) {
+			for ( String componentTable: new String[] {"views_objects", "views_connections"} ) {
+				if ( logger.isDebugEnabled() ) logger.debug("Filling latest_versions table with the latest version of the "+componentTable);
+				executeRequest("INSERT INTO "+this.schemaPrefix+"latest_versions (component_type, component_id, latest_version) SELECT '"+componentTable+"', id, MAX(version) FROM "+this.schemaPrefix+componentTable+" GROUP BY id");
+			}
+			
+			dbVersion = 498;
+		}
+
+		if ( logger.isTraceEnabled() ) logger.trace("Updating database version to "+dbVersion);
 		executeRequest("UPDATE "+this.schemaPrefix+"database_version SET version = "+dbVersion+" WHERE archi_plugin = '"+DBPlugin.PLUGIN_NAME+"'");
 		commit();
 
 		setAutoCommit(true);
 	}
 
+	/**
+	 * Merges the rows of a *_in_model table that record the same membership (same version of the component in the same parent folder at the same position)
+	 * in consecutive versions of a model into a single row, whose model_version and model_version_to columns hold the range of model versions.
+	 * @param table name of the table, without the schema prefix
+	 * @param primaryKey name of the table's primary key
+	 * @param component prefix of the component columns (profile, folder, element, ...)
+	 * @throws SQLException
+	 */
+	private void mergeModelVersionRanges(String table, String primaryKey, String component) throws SQLException {
+		String parentFolderColumn = table.equals("profiles_in_model") ? "" : ", parent_folder_id";
+
+		if ( logger.isDebugEnabled() ) logger.debug("Merging the consecutive model versions of the "+table+" table into ranges");
+
+		// the primary keys are integers, so a bit set is the most compact way to remember the rows to delete
+		BitSet rowsToDelete = new BitSet();
+		Map<Integer, Integer> rangesToExtend = new LinkedHashMap<>();
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT "+primaryKey+", model_id, "+component+"_id, "+component+"_version"+parentFolderColumn+", model_version, pos FROM "+this.schemaPrefix+table+" ORDER BY model_id, "+component+"_id, model_version") ) {
+			int rangeKey = 0;
+			String rangeMembership = null;
+			int rangeEnd = 0;
+			while ( result.next() ) {
+				String membership = result.getString("model_id")+"/"+result.getString(component+"_id")+"/"+result.getInt(component+"_version")+(parentFolderColumn.isEmpty() ? "" : "/"+result.getString("parent_folder_id"))+"/"+result.getInt("pos");
+				int modelVersion = result.getInt("model_version");
+				if ( membership.equals(rangeMembership) && (modelVersion <= rangeEnd + 1) ) {
+					// the row continues the current range
+					rowsToDelete.set(result.getInt(primaryKey));
+					rangeEnd = modelVersion;
+					rangesToExtend.put(rangeKey, rangeEnd);
+				} else {
+					rangeKey = result.getInt(primaryKey);
+					rangeMembership = membership;
+					rangeEnd = modelVersion;
+				}
+			}
+		}
+
+		if ( logger.isDebugEnabled() ) logger.debug("   "+rangesToExtend.size()+" ranges replace "+(rangesToExtend.size()+rowsToDelete.cardinality())+" rows");
+
+		if ( !rangesToExtend.isEmpty() ) {
+			try ( DBStatement updateStatement = new DBStatement(this.databaseEntry.getName(), this.connection, "UPDATE "+this.schemaPrefix+table+" SET model_version_to = ? WHERE "+primaryKey+" = ?", 0, 0) ) {
+				for ( Entry<Integer, Integer> range: rangesToExtend.entrySet() ) {
+					updateStatement.addBatch(range.getValue(), range.getKey());
+					if ( updateStatement.getBatchCount() >= 1000 )
+						updateStatement.executeBatch();
+				}
+				updateStatement.executeBatch();
+			}
+
+			try ( DBStatement deleteStatement = new DBStatement(this.databaseEntry.getName(), this.connection, "DELETE FROM "+this.schemaPrefix+table+" WHERE "+primaryKey+" = ?", 0) ) {
+				for ( int key = rowsToDelete.nextSetBit(0) ; key >= 0 ; key = rowsToDelete.nextSetBit(key + 1) ) {
+					deleteStatement.addBatch(key);
+					if ( deleteStatement.getBatchCount() >= 1000 )
+						deleteStatement.executeBatch();
+				}
+				deleteStatement.executeBatch();
+			}
+		}
+	}
+
+	/**
+	 * Gets the request that reads the content of an image from its path, the path being passed twice as parameter<br>
+	 * The images exported since database version 497 are stored under the hash of their content, that the image_paths table gives for each path.
+	 * The images exported before are stored under their path.
+	 * @return the request
+	 */
+	public String getImageContentRequest() {
+		return "SELECT image FROM "+this.schemaPrefix+"images WHERE path = COALESCE((SELECT image_hash FROM "+this.schemaPrefix+"image_paths WHERE path = ?), ?)";
+	}
+
+	/**
+	 * Gets the parent_id and parent_version values of the properties or features rows of a component version
+	 * @param id ID of the component
+	 * @param version version of the component
+	 * @param setId ID of the properties or features set referenced by the component version, or null if the rows are under the component ID and version
+	 * @return the parent_id and parent_version values, to be used as request parameters
+	 */
+	public static Object[] getSetParent(String id, int version, String setId) {
+		if ( setId == null )
+			return new Object[] {id, version};
+		return new Object[] {setId, SETS_PARENT_VERSION};
+	}
+
+	/**
+	 * @param result a row of a *_in_model table, with its model_version and model_version_to columns
+	 * @param modelVersion
+	 * @return true if the row is valid in the model version
+	 * @throws SQLException
+	 */
+	protected static boolean isInModelVersion(DBSelect result, int modelVersion) throws SQLException {
+		return (result.getInt("model_version") <= modelVersion) && (modelVersion <= result.getInt("model_version_to"));
+	}
+
 	private void updateChecksum(IDiagramModelObject obj) throws SQLException {
 		DBMetadata dbMetadata = DBMetadata.getDBMetadata(obj);
 
@@ -1353,14 +1770,124 @@ public class DBDatabaseConnection implements AutoCloseable {
 		if ( (cols.length() == 0) || (values.length() == 0) )
 			throw new SQLException("SQL request cannot have all its parameters null.");
 
+		String requestString = "INSERT INTO "+table+" ("+cols.toString()+") VALUES ("+values.toString()+")";
+
+		// in batch mode, the row is sent to the database with the other rows of the same request
+		if ( this.batchSize > 1 ) {
+			DBBulkWriter bulkWriter = getBulkWriter(table, requestString, cols.toString());
+			if ( bulkWriter != null )
+				bulkWriter.addRow(newParameters.toArray());
+			else
+				addToBatch(requestString, newParameters.toArray());
+			return 1;
+		}
+
 		@SuppressWarnings("resource")
-		DBRequest request = new DBRequest(this.databaseEntry.getName(), this.connection, "INSERT INTO "+table+" ("+cols.toString()+") VALUES ("+values.toString()+")", newParameters.toArray());
+		DBRequest request = new DBRequest(this.databaseEntry.getName(), this.connection, requestString, newParameters.toArray());
 		int rowCount = request.getRowCount();
 		request.close();
 
 		return rowCount;
 	}
 
+	/**
+	 * Sets the number of rows that are accumulated per INSERT request before being sent to the database.<br>
+	 * The pending rows are sent to the database before the batch size is changed.
+	 * @param newBatchSize number of rows (a value lower than 2 means that the rows are inserted one by one)
+	 * @throws SQLException
+	 */
+	public void setBatchSize(int newBatchSize) throws SQLException {
+		flushBatches();
+		this.batchSize = newBatchSize;
+		if ( logger.isDebugEnabled() ) logger.debug("Setting database batch size to "+this.batchSize);
+	}
+
+	/**
+	 * Gets the bulk writer of an INSERT request, creating it if needed
+	 * @param table
+	 * @param request
+	 * @param columns the columns of the request, separated by commas
+	 * @return the bulk writer, or null if the rows of the request must be sent through JDBC batches
+	 */
+	private DBBulkWriter getBulkWriter(String table, String request, String columns) {
+		// a null value means that there is no bulk writer for the request
+		if ( this.bulkWriters.containsKey(request) )
+			return this.bulkWriters.get(request);
+
+		DBBulkWriter bulkWriter = DBBulkWriter.create(this.databaseEntry.getDriver(), this.databaseEntry.getName(), this.connection, table, columns.split(", "), this.batchSize);
+		if ( (bulkWriter != null) && logger.isDebugEnabled() ) logger.debug("Writing the rows of "+table+" through a "+bulkWriter.getClass().getSimpleName());
+		this.bulkWriters.put(request, bulkWriter);
+		return bulkWriter;
+	}
+
+	/**
+	 * Adds a row to the batch of the INSERT request, and sends the batch to the database if it is full
+	 * @param request
+	 * @param parameters
+	 * @throws SQLException
+	 */
+	private void addToBatch(String request, Object[] parameters) throws SQLException {
+		DBStatement statement = this.batchedStatements.get(request);
+
+		if ( statement == null ) {
+			// the constructor sets the parameters on the preparedStatement
+			statement = new DBStatement(this.databaseEntry.getName(), this.connection, request, parameters);
+			this.batchedStatements.put(request, statement);
+			statement.addBatch();
+		} else
+			statement.addBatch(parameters);
+
+		if ( statement.getBatchCount() >= this.batchSize )
+			statement.executeBatch();
+	}
+
+	/**
+	 * Sends all the pending batched rows to the database.<br>
+	 * This method must be called before the transaction is committed.
+	 * @throws SQLException
+	 */
+	public void flushBatches() throws SQLException {
+		if ( this.batchedStatements.isEmpty() && this.bulkWriters.isEmpty() )
+			return;
+
+		if ( logger.isDebugEnabled() ) logger.debug("Sending pending batched rows to the database.");
+		try {
+			for ( DBStatement statement: this.batchedStatements.values() )
+				statement.executeBatch();
+			for ( DBBulkWriter bulkWriter: this.bulkWriters.values() ) {
+				if ( bulkWriter != null )
+					bulkWriter.flush();
+			}
+		} finally {
+			discardBatches();
+		}
+	}
+
+	/**
+	 * Discards all the pending batched rows without sending them to the database
+	 */
+	public void discardBatches() {
+		for ( DBStatement statement: this.batchedStatements.values() )
+			statement.close();
+		this.batchedStatements.clear();
+		for ( DBBulkWriter bulkWriter: this.bulkWriters.values() ) {
+			if ( bulkWriter != null )
+				bulkWriter.discard();
+		}
+		this.bulkWriters.clear();
+	}
+
+	/**
+	 * Generates the JOIN clause that gives, in the "latest_versions.latest_version" column, the latest version of a component.<br>
+	 * The latest_versions table is kept up to date by the export transaction, so the latest version is got without a MAX(version) subquery.
+	 * @param componentType name of the component table (models, profiles, folders, elements, relationships, views, views_objects or views_connections)
+	 * @param idColumn column that contains the ID of the component
+	 * @return the JOIN clause
+	 */
+	public String getLatestVersionJoin(String componentType, String idColumn) {
+		return " JOIN "+this.schemaPrefix+"latest_versions ON latest_versions.component_type = '"+componentType+"' AND latest_versions.component_id = "+idColumn;
+	}
+
 	/**
 	 * Gets the list of models in the current database
 	 * @param filter (use "%" as wildcard) 
@@ -1378,9 +1905,9 @@ public class DBDatabaseConnection implements AutoCloseable {
 		try {
 			// We do not use a GROUP BY because it does not give the expected result on PostGresSQL ...   
 			if ( filter==null || filter.length()==0 )
-				result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, name, version, created_on FROM "+this.schemaPrefix+"models m WHERE version = (SELECT MAX(version) FROM "+this.schemaPrefix+"models WHERE id = m.id) ORDER BY name");
+				result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, name, version, created_on FROM "+this.schemaPrefix+"models m"+getLatestVersionJoin("models", "m.id")+" AND latest_versions.latest_version = m.version ORDER BY name");
 			else
-				result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, name, version, created_on FROM "+this.schemaPrefix+"models m WHERE version = (SELECT MAX(version) FROM "+this.schemaPrefix+"models WHERE id = m.id) AND UPPER(name) like UPPER(?) ORDER BY name", filter);
+				result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, name, version, created_on FROM "+this.schemaPrefix+"models m"+getLatestVersionJoin("models", "m.id")+" AND latest_versions.latest_version = m.version WHERE UPPER(name) like UPPER(?) ORDER BY name", filter);
 
 			while ( result.next() && result.getString("id") != null ) {
 				if (logger.isTraceEnabled() ) logger.trace("Found model \""+result.getString("name")+"\"");
@@ -1421,13 +1948,13 @@ public class DBDatabaseConnection implements AutoCloseable {
 	 * Gets the list of versions on a model in the current database
 	 * @param id the id of the model 
 	 * @throws Exception
-	 * @return a list of Hashtables, each containing the version, created_on, created_by, name, note and purpose of one version of the model
+	 * @return a list of Hashtables, each containing the version, created_on, created_by, name, note and purpose of one version of the model, and its components counts when they have been recorded at export time
 	 * @throws SQLException 
 	 */
 	public List<Hashtable<String, Object>> getModelVersions(String id) throws SQLException {
 		ArrayList<Hashtable<String, Object>> list = new ArrayList<>();
 
-		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT version, created_by, created_on, name, note, purpose, checksum FROM "+this.schemaPrefix+"models WHERE id = ? ORDER BY version DESC", id) ) {
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT version, created_by, created_on, name, note, purpose, checksum, "+String.join(", ", modelsCountColumns)+" FROM "+this.schemaPrefix+"models WHERE id = ? ORDER BY version DESC", id) ) {
 			while ( result.next() ) {
 				if (logger.isTraceEnabled() ) logger.trace("Found model \""+result.getString("name")+"\" version \""+result.getString("version")+"\" checksum=\""+result.getString("checksum")+"\"");
 				Hashtable<String, Object> table = new Hashtable<>();
@@ -1437,6 +1964,11 @@ public class DBDatabaseConnection implements AutoCloseable {
 				table.put("name", result.getString("name"));
 				table.put("note", result.getString("note") == null ? "" : result.getString("note"));
 				table.put("purpose", result.getString("purpose") == null ? "" : result.getString("purpose"));
+				// the counts are only known for the model versions exported since the database version 494
+				for ( String countColumn: modelsCountColumns ) {
+					if ( result.getObject(countColumn) != null )
+						table.put(countColumn, result.getInt(countColumn));
+				}
 				list.add(table);
 			}
 		}       
@@ -1459,6 +1991,7 @@ public class DBDatabaseConnection implements AutoCloseable {
 	 * @throws SQLException 
 	 */
 	public void commit() throws SQLException {
+		flushBatches();
 		if ( logger.isDebugEnabled() ) logger.debug("Committing database transaction.");
 		this.connection.commit();
 	}
@@ -1469,6 +2002,10 @@ public class DBDatabaseConnection implements AutoCloseable {
 	 * @throws SQLException 
 	 */
 	public void rollback(Savepoint savepoint) throws SQLException {
+		// the batched rows that have not been sent yet are part of the rolled back transaction
+		if ( savepoint == null )
+			discardBatches();
+
 		if ( this.connection == null ) {
 			logger.warn("Cannot rollback as there is no database connection opened.");
 		} else {
@@ -1516,6 +2053,7 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.databaseVersionColumns.add(new DBColumn("id", this.databaseEntry, DBColumnType.OBJECTID, true));
 		this.databaseVersionColumns.add(new DBColumn("archi_plugin", this.databaseEntry, DBColumnType.OBJECTID, true));
 		this.databaseVersionColumns.add(new DBColumn("version", this.databaseEntry, DBColumnType.INTEGER, true));
+		this.databaseVersionColumns.add(new DBColumn("checksum_algorithm", this.databaseEntry, DBColumnType.OBJECTID, false));
 
 		this.modelsColumns = new ArrayList<>();
 		this.modelsColumns.add(new DBColumn("id", this.databaseEntry, DBColumnType.OBJECTID, true));
@@ -1531,7 +2069,11 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.modelsColumns.add(new DBColumn("deleted_on", this.databaseEntry, DBColumnType.DATETIME, false));
 		this.modelsColumns.add(new DBColumn("properties", this.databaseEntry, DBColumnType.INTEGER, false));
 		this.modelsColumns.add(new DBColumn("features", this.databaseEntry, DBColumnType.INTEGER, false));
+		this.modelsColumns.add(new DBColumn("properties_set", this.databaseEntry, DBColumnType.OBJECTID, false));
+		this.modelsColumns.add(new DBColumn("features_set", this.databaseEntry, DBColumnType.OBJECTID, false));
 		this.modelsColumns.add(new DBColumn("checksum", this.databaseEntry, DBColumnType.OBJECTID, true));
+		for ( String countColumn: modelsCountColumns )
+			this.modelsColumns.add(new DBColumn(countColumn, this.databaseEntry, DBColumnType.INTEGER, false));
 
 		this.modelsPrimaryKeys = new ArrayList<>();
 		this.modelsPrimaryKeys.add("id");
@@ -1553,6 +2095,8 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.foldersColumns.add(new DBColumn("deleted_on", this.databaseEntry, DBColumnType.DATETIME, false));
 		this.foldersColumns.add(new DBColumn("properties", this.databaseEntry, DBColumnType.INTEGER, false));
 		this.foldersColumns.add(new DBColumn("features", this.databaseEntry, DBColumnType.INTEGER, false));
+		this.foldersColumns.add(new DBColumn("properties_set", this.databaseEntry, DBColumnType.OBJECTID, false));
+		this.foldersColumns.add(new DBColumn("features_set", this.databaseEntry, DBColumnType.OBJECTID, false));
 		this.foldersColumns.add(new DBColumn("checksum", this.databaseEntry, DBColumnType.OBJECTID, true));
 
 		this.foldersPrimaryKeys = new ArrayList<>();
@@ -1567,6 +2111,7 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.foldersInModelColumns.add(new DBColumn("parent_folder_id", this.databaseEntry, DBColumnType.OBJECTID, false));
 		this.foldersInModelColumns.add(new DBColumn("model_id", this.databaseEntry, DBColumnType.OBJECTID, true));
 		this.foldersInModelColumns.add(new DBColumn("model_version", this.databaseEntry, DBColumnType.INTEGER, true));
+		this.foldersInModelColumns.add(new DBColumn("model_version_to", this.databaseEntry, DBColumnType.INTEGER, true));
 		this.foldersInModelColumns.add(new DBColumn("pos", this.databaseEntry, DBColumnType.INTEGER, true));
 
 		this.foldersInModelPrimaryKeys = new ArrayList<>();
@@ -1589,6 +2134,8 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.elementsColumns.add(new DBColumn("deleted_on", this.databaseEntry, DBColumnType.DATETIME, false));
 		this.elementsColumns.add(new DBColumn("properties", this.databaseEntry, DBColumnType.INTEGER, false));
 		this.elementsColumns.add(new DBColumn("features", this.databaseEntry, DBColumnType.INTEGER, false));
+		this.elementsColumns.add(new DBColumn("properties_set", this.databaseEntry, DBColumnType.OBJECTID, false));
+		this.elementsColumns.add(new DBColumn("features_set", this.databaseEntry, DBColumnType.OBJECTID, false));
 		this.elementsColumns.add(new DBColumn("checksum", this.databaseEntry, DBColumnType.OBJECTID, true));
 
 		this.elementsPrimaryKeys = new ArrayList<>();
@@ -1603,6 +2150,7 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.elementsInModelColumns.add(new DBColumn("parent_folder_id", this.databaseEntry, DBColumnType.OBJECTID, true));
 		this.elementsInModelColumns.add(new DBColumn("model_id", this.databaseEntry, DBColumnType.OBJECTID, true));
 		this.elementsInModelColumns.add(new DBColumn("model_version", this.databaseEntry, DBColumnType.INTEGER, true));
+		this.elementsInModelColumns.add(new DBColumn("model_version_to", this.databaseEntry, DBColumnType.INTEGER, true));
 		this.elementsInModelColumns.add(new DBColumn("pos", this.databaseEntry, DBColumnType.INTEGER, true));
 
 		this.elementsInModelPrimaryKeys = new ArrayList<>();
@@ -1629,6 +2177,8 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.relationshipsColumns.add(new DBColumn("deleted_on", this.databaseEntry, DBColumnType.DATETIME, false));
 		this.relationshipsColumns.add(new DBColumn("properties", this.databaseEntry, DBColumnType.INTEGER, false));
 		this.relationshipsColumns.add(new DBColumn("features", this.databaseEntry, DBColumnType.INTEGER, false));
+		this.relationshipsColumns.add(new DBColumn("properties_set", this.databaseEntry, DBColumnType.OBJECTID, false));
+		this.relationshipsColumns.add(new DBColumn("features_set", this.databaseEntry, DBColumnType.OBJECTID, false));
 		this.relationshipsColumns.add(new DBColumn("checksum", this.databaseEntry, DBColumnType.OBJECTID, true));
 
 		this.relationshipsPrimaryKeys = new ArrayList<>();
@@ -1643,6 +2193,7 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.relationshipsInModelColumns.add(new DBColumn("parent_folder_id", this.databaseEntry, DBColumnType.OBJECTID, true));
 		this.relationshipsInModelColumns.add(new DBColumn("model_id", this.databaseEntry, DBColumnType.OBJECTID, true));
 		this.relationshipsInModelColumns.add(new DBColumn("model_version", this.databaseEntry, DBColumnType.INTEGER, true));
+		this.relationshipsInModelColumns.add(new DBColumn("model_version_to", this.databaseEntry, DBColumnType.INTEGER, true));
 		this.relationshipsInModelColumns.add(new DBColumn("pos", this.databaseEntry, DBColumnType.INTEGER, true));
 
 		this.relationshipsInModelPrimaryKeys = new ArrayList<>();
@@ -1669,6 +2220,8 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.viewsColumns.add(new DBColumn("deleted_on", this.databaseEntry, DBColumnType.DATETIME, false));
 		this.viewsColumns.add(new DBColumn("properties", this.databaseEntry, DBColumnType.INTEGER, false));
 		this.viewsColumns.add(new DBColumn("features", this.databaseEntry, DBColumnType.INTEGER, false));
+		this.viewsColumns.add(new DBColumn("properties_set", this.databaseEntry, DBColumnType.OBJECTID, false));
+		this.viewsColumns.add(new DBColumn("features_set", this.databaseEntry, DBColumnType.OBJECTID, false));
 		this.viewsColumns.add(new DBColumn("checksum", this.databaseEntry, DBColumnType.OBJECTID, true));
 		this.viewsColumns.add(new DBColumn("container_checksum", this.databaseEntry, DBColumnType.OBJECTID, true));
 
@@ -1684,6 +2237,7 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.viewsInModelColumns.add(new DBColumn("parent_folder_id", this.databaseEntry, DBColumnType.OBJECTID, true));
 		this.viewsInModelColumns.add(new DBColumn("model_id", this.databaseEntry, DBColumnType.OBJECTID, true));
 		this.viewsInModelColumns.add(new DBColumn("model_version", this.databaseEntry, DBColumnType.INTEGER, true));
+		this.viewsInModelColumns.add(new DBColumn("model_version_to", this.databaseEntry, DBColumnType.INTEGER, true));
 		this.viewsInModelColumns.add(new DBColumn("pos", this.databaseEntry, DBColumnType.INTEGER, true));
 
 		this.viewsInModelPrimaryKeys =  new ArrayList<>();
@@ -1728,6 +2282,8 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.viewsObjectsColumns.add(new DBColumn("deleted_on", this.databaseEntry, DBColumnType.DATETIME, false));
 		this.viewsObjectsColumns.add(new DBColumn("properties", this.databaseEntry, DBColumnType.INTEGER, false));
 		this.viewsObjectsColumns.add(new DBColumn("features", this.databaseEntry, DBColumnType.INTEGER, false));
+		this.viewsObjectsColumns.add(new DBColumn("properties_set", this.databaseEntry, DBColumnType.OBJECTID, false));
+		this.viewsObjectsColumns.add(new DBColumn("features_set", this.databaseEntry, DBColumnType.OBJECTID, false));
 		this.viewsObjectsColumns.add(new DBColumn("checksum", this.databaseEntry, DBColumnType.OBJECTID, true));
 
 		this.viewsObjectsPrimaryKeys = new ArrayList<>();
@@ -1762,6 +2318,8 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.viewsConnectionsColumns.add(new DBColumn("bendpoints", this.databaseEntry, DBColumnType.INTEGER, false));
 		this.viewsConnectionsColumns.add(new DBColumn("properties", this.databaseEntry, DBColumnType.INTEGER, false));
 		this.viewsConnectionsColumns.add(new DBColumn("features", this.databaseEntry, DBColumnType.INTEGER, false));
+		this.viewsConnectionsColumns.add(new DBColumn("properties_set", this.databaseEntry, DBColumnType.OBJECTID, false));
+		this.viewsConnectionsColumns.add(new DBColumn("features_set", this.databaseEntry, DBColumnType.OBJECTID, false));
 		this.viewsConnectionsColumns.add(new DBColumn("checksum", this.databaseEntry, DBColumnType.OBJECTID, true));
 
 		this.viewsConnectionsPrimaryKeys = new ArrayList<>();
@@ -1821,6 +2379,7 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.profilesInModelColumns.add(new DBColumn("profile_version", this.databaseEntry, DBColumnType.INTEGER, true));
 		this.profilesInModelColumns.add(new DBColumn("model_id", this.databaseEntry, DBColumnType.OBJECTID, true));
 		this.profilesInModelColumns.add(new DBColumn("model_version", this.databaseEntry, DBColumnType.INTEGER, true));
+		this.profilesInModelColumns.add(new DBColumn("model_version_to", this.databaseEntry, DBColumnType.INTEGER, true));
 		this.profilesInModelColumns.add(new DBColumn("pos", this.databaseEntry, DBColumnType.INTEGER, true));
 
 		this.profilesInModelPrimaryKeys = new ArrayList<>();
@@ -1858,6 +2417,24 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.imagesColumns = new ArrayList<>();
 		this.imagesColumns.add(new DBColumn("path", this.databaseEntry, DBColumnType.OBJECTID, true));
 		this.imagesColumns.add(new DBColumn("image", this.databaseEntry, DBColumnType.IMAGE, true));
+
+		// ImagePaths table (hash of the content of the images, that is the path column of the images table, per archive path)
+		this.imagePathsColumns = new ArrayList<>();
+		this.imagePathsColumns.add(new DBColumn("path", this.databaseEntry, DBColumnType.OBJECTID, true));
+		this.imagePathsColumns.add(new DBColumn("image_hash", this.databaseEntry, DBColumnType.OBJECTID, true));
+
+		this.imagePathsPrimaryKeys = new ArrayList<>();
+		this.imagePathsPrimaryKeys.add("path");
+		
+		// LatestVersions table (latest version of each model, profile, folder, element, relationship and view, updated at each export)
+		this.latestVersionsColumns = new ArrayList<>();
+		this.latestVersionsColumns.add(new DBColumn("component_type", this.databaseEntry, DBColumnType.OBJECTID, true));
+		this.latestVersionsColumns.add(new DBColumn("component_id", this.databaseEntry, DBColumnType.OBJECTID, true));
+		this.latestVersionsColumns.add(new DBColumn("latest_version", this.databaseEntry, DBColumnType.INTEGER, true));
+
+		this.latestVersionsPrimaryKeys = new ArrayList<>();
+		this.latestVersionsPrimaryKeys.add("component_type");
+		this.latestVersionsPrimaryKeys.add("component_id");
 		
 		// ViewsObjectsInView table
 		this.viewsObjectsInViewColumns = new ArrayList<>();
@@ -1907,5 +2484,7 @@ public class DBDatabaseConnection implements AutoCloseable {
 		this.databaseTables.add(new DBTable(this.schema, "bendpoints", this.bendpointsColumns, this.bendpointsPrimaryKeys));
 		this.databaseTables.add(new DBTable(this.schema, "metadata", this.metadataColumns, this.metadataPrimaryKeys));
 		this.databaseTables.add(new DBTable(this.schema, "images", this.imagesColumns, this.imagesPrimaryKeys));
+		this.databaseTables.add(new DBTable(this.schema, "image_paths", this.imagePathsColumns, this.imagePathsPrimaryKeys));
+		this.databaseTables.add(new DBTable(this.schema, "latest_versions", this.latestVersionsColumns, this.latestVersionsPrimaryKeys));
 	}
 }
\ No newline at end of file
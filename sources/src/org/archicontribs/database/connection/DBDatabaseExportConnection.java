@@ -7,19 +7,26 @@
 package org.archicontribs.database.connection;
 
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.archicontribs.database.DBDatabaseDriver;
 import org.archicontribs.database.DBDatabaseEntry;
+import org.archicontribs.database.DBException;
 import org.archicontribs.database.DBLogger;
 import org.archicontribs.database.DBPlugin;
+import org.archicontribs.database.connection.DBCompareSnapshot.Kind;
+import org.archicontribs.database.data.DBChecksum;
 import org.archicontribs.database.data.DBVersion;
 import org.archicontribs.database.gui.DBGui;
 import org.archicontribs.database.model.DBArchimateModel;
@@ -61,6 +68,12 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * max number of IN values in a SQL select request
 	 */
 	private static int maxValuesInSQLRequest = 1000;
+	
+	/**
+	 * Name of the session temporary table used to hold the IDs of the components to search for in the database.<br>
+	 * null if the table has not been created yet, empty if the database does not support session temporary tables.
+	 */
+	private String idsTemporaryTable = null;
 
 	private boolean isconnectionDuplicate = false;
 
@@ -70,6 +83,58 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * This way, all requests in a transaction will have the same timestamp.
 	 */
 	private Timestamp lastTransactionTimestamp = null;
+	
+	/**
+	 * Versions exported in the current transaction, indexed by component type then by component ID<br>
+	 * They are written in the latest_versions table by the updateLatestVersions() method, before the transaction is committed.
+	 */
+	private Map<String, Map<String, Integer>> exportedLatestVersions = new LinkedHashMap<>();
+
+	/**
+	 * ID and version of the model exported in the current transaction, or null if no model has been exported
+	 */
+	private String exportedModelId = null;
+	private int exportedModelVersion = 0;
+
+	/**
+	 * True if only the changes of the components membership to the model are written in the *_in_model tables (see the "exportMembershipRanges" preference)
+	 */
+	private boolean isMembershipRangesExport = false;
+
+	/**
+	 * Memberships of the components to the exported model version, indexed by *_in_model table then by component ID<br>
+	 * They are compared to the memberships of the previous model version by the updateModelMemberships() method, when only the changes are exported.
+	 */
+	private Map<String, Map<String, Object[]>> exportedMemberships = new LinkedHashMap<>();
+	private Map<String, String[]> exportedMembershipsColumns = new HashMap<>();
+
+	/**
+	 * Properties and features sets that are known to be in the database or to be written in the current transaction, indexed by table (properties or features)
+	 */
+	private Map<String, Set<String>> exportedSets = new HashMap<>();
+
+	/**
+	 * Properties and features sets that have not been written yet, indexed by table then by set ID<br>
+	 * They are written by the writePendingSets() method, that gets with a single request which ones are already in the database.
+	 */
+	private Map<String, Map<String, List<String[]>>> pendingSets = new HashMap<>();
+
+	/**
+	 * Images that have not been written yet, indexed by path, and the total size of their content<br>
+	 * They are written by the writePendingImages() method when their number or size reaches a limit, or when the batches are flushed.
+	 */
+	private Map<String, byte[]> pendingImages = new LinkedHashMap<>();
+	private long pendingImagesSize = 0;
+
+	/**
+	 * Size of the pending images above which they are written in the database
+	 */
+	private static final long maxPendingImagesSize = 16 * 1024 * 1024;
+
+	/**
+	 * Hashes of the images contents written in the current transaction
+	 */
+	private Set<String> exportedImageHashes = new HashSet<>();
 
 
 
@@ -94,6 +159,8 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		super.schema = importConnection.schema;
 		super.schemaPrefix = importConnection.schemaPrefix;
 		super.connection = importConnection.connection;
+		super.checksumAlgorithm = importConnection.checksumAlgorithm;
+		super.connectionPool = importConnection.connectionPool;
 		this.isconnectionDuplicate = true;
 	}
 
@@ -108,6 +175,8 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		super.schema = databaseConnection.schema;
 		super.schemaPrefix = databaseConnection.schemaPrefix;
 		super.connection = databaseConnection.connection;
+		super.checksumAlgorithm = databaseConnection.checksumAlgorithm;
+		super.connectionPool = databaseConnection.connectionPool;
 		this.isconnectionDuplicate = true;
 	}
 
@@ -120,6 +189,11 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	@Getter private HashMap<String, DBMetadata> viewConnectionsNotInModel = new LinkedHashMap<>();	// must keep the order
 	@Getter private HashMap<String, DBMetadata> imagesNotInModel = new HashMap<>();
 	@Getter private HashMap<String, DBMetadata> imagesNotInDatabase = new HashMap<>();
+	
+	/**
+	 * Views of the view objects and view connections that are in the database but not in the model
+	 */
+	private HashMap<String, String> viewIdOfComponentsNotInModel = new HashMap<>();
 
 	/**
 	 * Gets the version of the model from the database
@@ -132,7 +206,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 		if ( logger.isDebugEnabled() ) logger.debug("Getting versions of the model from the database");
 		// model.getCurrentVersion().reset();
-		try ( DBSelect resultLatestVersion = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT version, checksum, created_on FROM "+this.schemaPrefix+"models WHERE id = ? AND version = (SELECT MAX(version) FROM "+this.schemaPrefix+"models WHERE id = ?)", modelId, modelId) ) {
+		try ( DBSelect resultLatestVersion = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT version, checksum, created_on FROM "+this.schemaPrefix+"models m"+getLatestVersionJoin("models", "m.id")+" AND latest_versions.latest_version = m.version WHERE id = ?", modelId) ) {
 			// we get the latest model version from the database
 			if ( resultLatestVersion.next() && (resultLatestVersion.getObject("version") != null) ) {
 				// if the version is found, then the model exists in the database
@@ -191,7 +265,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		}
 
 		if ( component instanceof DBArchimateModel )  {
-			request = "select id, name, version, checksum, created_on, created_by, id AS model_id, version AS model_version"
+			request = "select id, name, version, checksum, created_on, created_by, id AS model_id, version AS model_version, version AS model_version_to"
 					+ " FROM "+this.schemaPrefix+" models"
 					+ " WHERE id = ?"
 					+ " ORDER BY version";
@@ -201,7 +275,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 			modelDatabaseVersion = model.getDatabaseVersion().getVersion();
 		}
 		else if ( component instanceof IArchimateElement )  {
-			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version"
+			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version, model_version_to"
 					+ " FROM "+this.schemaPrefix+"elements"
 					+ " LEFT JOIN "+this.schemaPrefix+"elements_in_model ON element_id = id AND element_version = version"
 					+ " WHERE id = ?"
@@ -212,7 +286,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 			modelDatabaseVersion = model.getDatabaseVersion().getVersion();
 		}
 		else if ( component instanceof IArchimateRelationship ) {
-			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version"
+			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version, model_version_to"
 					+ " FROM "+this.schemaPrefix+"relationships"
 					+ " LEFT JOIN "+this.schemaPrefix+"relationships_in_model ON relationship_id = id AND relationship_version = version"
 					+ " WHERE id = ?"
@@ -223,7 +297,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 			modelDatabaseVersion = model.getDatabaseVersion().getVersion();
 		}
 		else if ( component instanceof IFolder ) {
-			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version"
+			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version, model_version_to"
 					+ " FROM "+this.schemaPrefix+"folders"
 					+ " LEFT JOIN "+this.schemaPrefix+"folders_in_model ON folder_id = id AND folder_version = version"
 					+ " WHERE id = ?"
@@ -234,7 +308,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 			modelDatabaseVersion = model.getDatabaseVersion().getVersion();
 		}
 		else if ( component instanceof IDiagramModel ) {
-			request = "SELECT id, name, version, checksum, container_checksum, created_on, created_by, model_id, model_version"
+			request = "SELECT id, name, version, checksum, container_checksum, created_on, created_by, model_id, model_version, model_version_to"
 					+ " FROM "+this.schemaPrefix+"views"
 					+ " LEFT JOIN "+this.schemaPrefix+"views_in_model ON view_id = id AND view_version = version"
 					+ " WHERE id = ?"
@@ -245,7 +319,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 			modelDatabaseVersion = model.getDatabaseVersion().getVersion();
 		}
 		else if ( component instanceof IDiagramModelObject  ) {
-			request = "SELECT id, name, version, checksum, created_on, created_by, view_id as model_id, view_version as model_version"		// for convenience, we rename view_id to model_id and view_version to model_version
+			request = "SELECT id, name, version, checksum, created_on, created_by, view_id as model_id, view_version as model_version, view_version as model_version_to"		// for convenience, we rename view_id to model_id and view_version to model_version and model_version_to
 					+ " FROM "+this.schemaPrefix+"views_objects"
 					+ " LEFT JOIN "+this.schemaPrefix+"views_objects_in_view ON object_id = id AND object_version = version"
 					+ " WHERE id = ?"
@@ -257,7 +331,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 			modelDatabaseVersion = dbMetadata.getDatabaseVersion().getVersion();
 		}
 		else if ( component instanceof IDiagramModelConnection  ) {
-			request = "SELECT id, name, version, checksum, created_on, created_by, view_id as model_id, view_version as model_version"		// for convenience, we rename view_id to model_id and view_version to model_version
+			request = "SELECT id, name, version, checksum, created_on, created_by, view_id as model_id, view_version as model_version, view_version as model_version_to"		// for convenience, we rename view_id to model_id and view_version to model_version and model_version_to
 					+ " FROM "+this.schemaPrefix+"views_connections"
 					+ " LEFT JOIN "+this.schemaPrefix+"views_connections_in_view ON connection_id = id AND connection_version = version"
 					+ " WHERE id = ?"
@@ -296,7 +370,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 						metadata.getInitialVersion().set(version, containerChecksum, checksum, createdOn, createdBy);
 						metadata.getCurrentVersion().setVersion(version);
 					}
-					if ( result.getInt("model_version") == modelDatabaseVersion )
+					if ( isInModelVersion(result, modelDatabaseVersion) )
 						metadata.getDatabaseVersion().set(version, containerChecksum, checksum, createdOn, createdBy);
 				}
 
@@ -340,7 +414,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		if ( component instanceof IArchimateElement )  {
 			if ( logger.isTraceEnabled() )
 				logger.trace("   Searching for "+componentHashMap.size()+" elements from the database.");
-			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version"
+			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version, model_version_to"
 					+ " FROM "+this.schemaPrefix+"elements"
 					+ " LEFT JOIN "+this.schemaPrefix+"elements_in_model ON element_id = id AND element_version = version"
 					+ " WHERE id in (";
@@ -352,7 +426,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		else if ( component instanceof IArchimateRelationship ) {
 			if ( logger.isTraceEnabled() )
 				logger.trace("   Searching for "+componentHashMap.size()+" relationships from the database.");
-			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version"
+			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version, model_version_to"
 					+ " FROM "+this.schemaPrefix+"relationships"
 					+ " LEFT JOIN "+this.schemaPrefix+"relationships_in_model ON relationship_id = id AND relationship_version = version"
 					+ " WHERE id in (";
@@ -364,7 +438,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		else if ( component instanceof IFolder ) {
 			if ( logger.isTraceEnabled() )
 				logger.trace("   Searching for "+componentHashMap.size()+" folders from the database.");
-			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version"
+			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version, model_version_to"
 					+ " FROM "+this.schemaPrefix+"folders"
 					+ " LEFT JOIN "+this.schemaPrefix+"folders_in_model ON folder_id = id AND folder_version = version"
 					+ " WHERE id in (";
@@ -376,7 +450,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		else if ( component instanceof IDiagramModel ) {
 			if ( logger.isTraceEnabled() )
 				logger.trace("   Searching for "+componentHashMap.size()+" views from the database.");
-			request = "SELECT id, name, version, checksum, container_checksum, created_on, created_by, model_id, model_version"
+			request = "SELECT id, name, version, checksum, container_checksum, created_on, created_by, model_id, model_version, model_version_to"
 					+ " FROM "+this.schemaPrefix+"views"
 					+ " LEFT JOIN "+this.schemaPrefix+"views_in_model ON view_id = id AND view_version = version"
 					+ " WHERE id in (";
@@ -388,7 +462,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		else if ( component instanceof IDiagramModelObject  ) {
 			if ( logger.isTraceEnabled() )
 				logger.trace("   Searching for "+componentHashMap.size()+" view objects from the database.");
-			request = "SELECT id, name, version, checksum, created_on, created_by, view_id as model_id, view_version as model_version"		// for convenience, we rename view_id to model_id and view_version to model_version
+			request = "SELECT id, name, version, checksum, created_on, created_by, view_id as model_id, view_version as model_version, view_version as model_version_to"		// for convenience, we rename view_id to model_id and view_version to model_version and model_version_to
 					+ " FROM "+this.schemaPrefix+"views_objects"
 					+ " LEFT JOIN "+this.schemaPrefix+"views_objects_in_view ON object_id = id AND object_version = version"
 					+ " WHERE id in (";
@@ -401,7 +475,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		else if ( component instanceof IDiagramModelConnection  ) {
 			if ( logger.isTraceEnabled() )
 				logger.trace("   Searching for "+componentHashMap.size()+" view connections from the database.");
-			request = "SELECT id, name, version, checksum, created_on, created_by, view_id as model_id, view_version as model_version"		// for convenience, we rename view_id to model_id and view_version to model_version
+			request = "SELECT id, name, version, checksum, created_on, created_by, view_id as model_id, view_version as model_version, view_version as model_version_to"		// for convenience, we rename view_id to model_id and view_version to model_version and model_version_to
 					+ " FROM "+this.schemaPrefix+"views_connections"
 					+ " LEFT JOIN "+this.schemaPrefix+"views_connections_in_view ON connection_id = id AND connection_version = version"
 					+ " WHERE id in (";
@@ -414,7 +488,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		else if ( component instanceof IProfile ) {
 			if ( logger.isTraceEnabled() )
 				logger.trace("   Searching for "+componentHashMap.size()+" specializations from the database.");
-			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version"
+			request = "SELECT id, name, version, checksum, created_on, created_by, model_id, model_version, model_version_to"
 					+ " FROM "+this.schemaPrefix+"profiles"
 					+ " LEFT JOIN "+this.schemaPrefix+"profiles_in_model ON profile_id = id AND profile_version = version"
 					+ " WHERE id in (";
@@ -426,8 +500,6 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		else
 			throw new SQLException("Do not know how to get a "+component.getClass().getSimpleName()+" from the database.");
 
-		// we construct the IN string
-		StringBuilder questionMarks = new StringBuilder();
 		ArrayList<String> idList = new ArrayList<>();
 
 		Iterator<Entry<String, IIdentifier>> iterator = componentHashMap.entrySet().iterator();
@@ -441,14 +513,31 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 			dbMetadata.getDatabaseVersion().reset();
 			dbMetadata.getLatestDatabaseVersion().reset();
 
-			if ( questionMarks.length() != 0 )
-				questionMarks.append(", ");
-
-			questionMarks.append("?");
 			idList.add(component.getId());
 		}
+		
+		// the IDs are inserted in a temporary table when possible, else they are passed as parameters in an IN clause
+		// in both cases, the request text does not depend on the number of IDs so the database can reuse its execution plan
+		Object[] parameters;
+		if ( fillIdsTemporaryTable(idList) ) {
+			request += "SELECT id FROM "+this.idsTemporaryTable+")";
+			parameters = new Object[0];
+		} else {
+			// we complete the list with null values (that never match any ID) up to the max number of values
+			while ( idList.size() < DBDatabaseExportConnection.maxValuesInSQLRequest )
+				idList.add(null);
+			
+			StringBuilder questionMarks = new StringBuilder();
+			for ( int i = 0; i < idList.size(); ++i ) {
+				if ( i != 0 )
+					questionMarks.append(", ");
+				questionMarks.append("?");
+			}
+			request += questionMarks+")";
+			parameters = new Object[] {idList};
+		}
 
-		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, request+questionMarks+")"+orderByRequest, idList) ) {
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, request+orderByRequest, parameters) ) {
 			int version = 0;
 			String checksum = null;
 			String containerChecksum = null;
@@ -493,7 +582,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 						dbMetadata.getInitialVersion().set(version, containerChecksum, checksum, createdOn, createdBy);
 						dbMetadata.getCurrentVersion().setVersion(version);
 					}
-					if ( result.getInt("model_version") == modelDatabaseVersion )
+					if ( isInModelVersion(result, modelDatabaseVersion) )
 						dbMetadata.getDatabaseVersion().set(version, containerChecksum, checksum, createdOn, createdBy);
 				}
 
@@ -517,6 +606,61 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		}
 	}
 
+	/**
+	 * Fills in the session temporary table with a list of IDs, creating the table if needed.
+	 * @param idList the IDs to insert in the table
+	 * @return true if the table has been filled in, false if the database does not support session temporary tables
+	 * @throws SQLException
+	 */
+	private boolean fillIdsTemporaryTable(List<String> idList) throws SQLException {
+		if ( this.idsTemporaryTable == null ) {
+			String createRequest;
+			switch ( this.databaseEntry.getDriver() ) {
+				case POSTGRESQL:
+				case MYSQL:
+					this.idsTemporaryTable = "archi_ids_to_check";
+					createRequest = "CREATE TEMPORARY TABLE IF NOT EXISTS "+this.idsTemporaryTable+" (id VARCHAR(50) NOT NULL)";
+					break;
+				case SQLITE:
+					this.idsTemporaryTable = "archi_ids_to_check";
+					createRequest = "CREATE TEMP TABLE IF NOT EXISTS "+this.idsTemporaryTable+" (id VARCHAR(50) NOT NULL)";
+					break;
+				case MSSQL:
+					this.idsTemporaryTable = "#archi_ids_to_check";
+					createRequest = "IF OBJECT_ID('tempdb.."+this.idsTemporaryTable+"') IS NULL CREATE TABLE "+this.idsTemporaryTable+" (id VARCHAR(50) NOT NULL)";
+					break;
+				default:
+					// Oracle temporary tables are permanent objects that we do not want to create in the user's schema
+					this.idsTemporaryTable = "";
+					return false;
+			}
+			
+			try {
+				executeRequest(createRequest);
+			} catch (SQLException err) {
+				logger.warn("Failed to create the temporary table, the IDs will be passed as request parameters.", err);
+				this.idsTemporaryTable = "";
+				return false;
+			}
+		}
+		
+		if ( this.idsTemporaryTable.isEmpty() )
+			return false;
+		
+		executeRequest("DELETE FROM "+this.idsTemporaryTable);
+		
+		if ( !idList.isEmpty() ) {
+			try ( DBStatement statement = new DBStatement(this.databaseEntry.getName(), this.connection, "INSERT INTO "+this.idsTemporaryTable+" (id) VALUES (?)", idList.get(0)) ) {
+				statement.addBatch();
+				for ( int i = 1; i < idList.size(); ++i )
+					statement.addBatch(idList.get(i));
+				statement.executeBatch();
+			}
+		}
+		
+		return true;
+	}
+
 	/**
 	 * Gets the version of all the model's components, and checks as well for the components that are in the latest model's version in the database but that are not in the model.
 	 * Those components are stored in the << not in model >> hashmaps:
@@ -550,6 +694,8 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		this.imagesNotInModel.clear();
 		this.imagesNotInDatabase.clear();
 
+		this.viewIdOfComponentsNotInModel.clear();
+
 		getModelVersionFromDatabase(model);
 		if ( gui != null ) gui.increaseProgressBar();
 
@@ -558,24 +704,36 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		int modelDatabaseVersion = model.getDatabaseVersion().getVersion();
 		HashMap<String, IIdentifier> componentHashMap = new HashMap<>();
 		
+		// if nothing has been committed in the database since the last comparison, we only compare the components that changed since then
+		String databaseMarker = getDatabaseMarker();
+		DBCompareSnapshot snapshot = getCompareSnapshot(model, databaseMarker);
+		Set<String> idsToCompare;
+		String idsFilter;
+		
 		
 		//////////////////// PROFILES
 		if ( logger.isDebugEnabled() ) logger.debug("Getting versions of the profiles from the database");
 
 		// we reset the version of all the profiles in the model
+		// (unless they are restored from the snapshot)
+		idsToCompare = (snapshot == null) ? null : snapshot.restoreComponents(Kind.PROFILE, model.getAllProfiles(), model, this.profilesNotInModel);
+		idsFilter = getIdsFilter(idsToCompare);
 		Iterator<Map.Entry<String, IProfile>> itp = model.getAllProfiles().entrySet().iterator();
 		while (itp.hasNext()) {
 			DBMetadata dbMetadata = model.getDBMetadata(itp.next().getValue());
-			dbMetadata.getCurrentVersion().setVersion(0);
-			dbMetadata.getInitialVersion().reset();
-			dbMetadata.getDatabaseVersion().reset();
-			dbMetadata.getLatestDatabaseVersion().reset();
+			if ( idsToCompare == null || idsToCompare.contains(dbMetadata.getId()) ) {
+				dbMetadata.getCurrentVersion().setVersion(0);
+				dbMetadata.getInitialVersion().reset();
+				dbMetadata.getDatabaseVersion().reset();
+				dbMetadata.getLatestDatabaseVersion().reset();
+			}
 		}
 		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, 
-				"SELECT id, name, version, checksum, created_on, created_by, model_id, model_version, pos"
+				"SELECT id, name, version, checksum, created_on, created_by, model_id, model_version, model_version_to, pos"
 						+ " FROM "+this.schemaPrefix+"profiles"
 						+ " LEFT JOIN "+this.schemaPrefix+"profiles_in_model ON profile_id = id AND profile_version = version"
-						+ " WHERE id IN (SELECT id FROM "+this.schemaPrefix+"profiles JOIN "+this.schemaPrefix+"profiles_in_model ON profile_id = id AND profile_version = version WHERE model_id = ? AND model_version = ?)"
+						+ " WHERE id IN (SELECT id FROM "+this.schemaPrefix+"profiles JOIN "+this.schemaPrefix+"profiles_in_model ON profile_id = id AND profile_version = version WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to)"
+						+ idsFilter
 						+ " ORDER BY id, version, model_version"
 						,modelId
 						,modelDatabaseVersion
@@ -619,11 +777,11 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 				if ( DBPlugin.areEqual(result.getString("model_id"), modelId) ) {
 					// if the component is part of the model, we compare with the model's version
-					if ( result.getInt("model_version") == modelInitialVersion || checksum.equals(currentComponent.getCurrentVersion().getChecksum()) ) {
+					if ( isInModelVersion(result, modelInitialVersion) || checksum.equals(currentComponent.getCurrentVersion().getChecksum()) ) {
 						currentComponent.getInitialVersion().set(version, checksum, createdOn, createdBy);
 						currentComponent.getCurrentVersion().setVersion(version);
 					}
-					if ( result.getInt("model_version") == modelDatabaseVersion )
+					if ( isInModelVersion(result, modelDatabaseVersion) )
 						currentComponent.getDatabaseVersion().set(version, checksum, createdOn, createdBy);
 				}
 
@@ -652,7 +810,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		itp = model.getAllProfiles().entrySet().iterator();
 		while (itp.hasNext()) {
 			DBMetadata dbMetadata = model.getDBMetadata(itp.next().getValue());
-			if ( dbMetadata.getInitialVersion().getVersion() == 0 )
+			if ( (idsToCompare == null || idsToCompare.contains(dbMetadata.getId())) && dbMetadata.getInitialVersion().getVersion() == 0 )
 				componentHashMap.put(dbMetadata.getId(), (IIdentifier)dbMetadata.getComponent());
 
 			if ( componentHashMap.size() == DBDatabaseExportConnection.maxValuesInSQLRequest ) {
@@ -671,23 +829,29 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		if ( logger.isDebugEnabled() ) logger.debug("Getting versions of the elements from the database");
 
 		// we reset the version of all the elements in the model
+		// (unless they are restored from the snapshot)
+		idsToCompare = (snapshot == null) ? null : snapshot.restoreComponents(Kind.ELEMENT, model.getAllElements(), model, this.elementsNotInModel);
+		idsFilter = getIdsFilter(idsToCompare);
 		Iterator<Map.Entry<String, IArchimateElement>> ite = model.getAllElements().entrySet().iterator();
 		while (ite.hasNext()) {
 			DBMetadata dbMetadata = model.getDBMetadata(ite.next().getValue());
-			dbMetadata.getCurrentVersion().setVersion(0);
-			dbMetadata.getInitialVersion().reset();
-			dbMetadata.getDatabaseVersion().reset();
-			dbMetadata.getLatestDatabaseVersion().reset();
+			if ( idsToCompare == null || idsToCompare.contains(dbMetadata.getId()) ) {
+				dbMetadata.getCurrentVersion().setVersion(0);
+				dbMetadata.getInitialVersion().reset();
+				dbMetadata.getDatabaseVersion().reset();
+				dbMetadata.getLatestDatabaseVersion().reset();
+			}
 		}
 
 		// we get all the elements that are part of the latest version of the model in the database and compare them to the actual model
 		// we do not use max(version) in the SQL request as all database brands do not support it
 		// so we get all the version (sorted by the version) and determine the latest version of each element when the ID changes or when we read the latest element
 		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, 
-				"SELECT id, name, version, checksum, created_on, created_by, model_id, model_version"
+				"SELECT id, name, version, checksum, created_on, created_by, model_id, model_version, model_version_to"
 						+ " FROM "+this.schemaPrefix+"elements"
 						+ " LEFT JOIN "+this.schemaPrefix+"elements_in_model ON element_id = id AND element_version = version"
-						+ " WHERE id IN (SELECT id FROM "+this.schemaPrefix+"elements JOIN "+this.schemaPrefix+"elements_in_model ON element_id = id AND element_version = version WHERE model_id = ? AND model_version = ?)"
+						+ " WHERE id IN (SELECT id FROM "+this.schemaPrefix+"elements JOIN "+this.schemaPrefix+"elements_in_model ON element_id = id AND element_version = version WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to)"
+						+ idsFilter
 						+ " ORDER BY id, version, model_version"
 						,modelId
 						,modelDatabaseVersion
@@ -741,11 +905,11 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 				if ( DBPlugin.areEqual(result.getString("model_id"), modelId) ) {
 					// if the component is part of the model, we compare with the model's version
 					//if ( modelInitialVersion == 0 || result.getInt("model_version") == modelInitialVersion ) {
-					if ( result.getInt("model_version") == modelInitialVersion || checksum.equals(currentComponent.getCurrentVersion().getChecksum()) ) {
+					if ( isInModelVersion(result, modelInitialVersion) || checksum.equals(currentComponent.getCurrentVersion().getChecksum()) ) {
 						currentComponent.getInitialVersion().set(version, checksum, createdOn, createdBy);
 						currentComponent.getCurrentVersion().setVersion(version);
 					}
-					if ( result.getInt("model_version") == modelDatabaseVersion )
+					if ( isInModelVersion(result, modelDatabaseVersion) )
 						currentComponent.getDatabaseVersion().set(version, checksum, createdOn, createdBy);
 				}
 
@@ -775,7 +939,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		ite = model.getAllElements().entrySet().iterator();
 		while (ite.hasNext()) {
 			DBMetadata dbMetadata = model.getDBMetadata(ite.next().getValue());
-			if ( dbMetadata.getInitialVersion().getVersion() == 0 )
+			if ( (idsToCompare == null || idsToCompare.contains(dbMetadata.getId())) && dbMetadata.getInitialVersion().getVersion() == 0 )
 				componentHashMap.put(dbMetadata.getId(), (IIdentifier)dbMetadata.getComponent());
 
 			if ( componentHashMap.size() == DBDatabaseExportConnection.maxValuesInSQLRequest ) {
@@ -794,20 +958,26 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		if ( logger.isDebugEnabled() ) logger.debug("Getting versions of the relationships from the database");
 
 		// we reset the version of all the relationships in the model
+		// (unless they are restored from the snapshot)
+		idsToCompare = (snapshot == null) ? null : snapshot.restoreComponents(Kind.RELATIONSHIP, model.getAllRelationships(), model, this.relationshipsNotInModel);
+		idsFilter = getIdsFilter(idsToCompare);
 		Iterator<Map.Entry<String, IArchimateRelationship>> itr = model.getAllRelationships().entrySet().iterator();
 		while (itr.hasNext()) {
 			DBMetadata dbMetadata = model.getDBMetadata(itr.next().getValue());
-			dbMetadata.getCurrentVersion().setVersion(0);
-			dbMetadata.getInitialVersion().reset();
-			dbMetadata.getDatabaseVersion().reset();
-			dbMetadata.getLatestDatabaseVersion().reset();
+			if ( idsToCompare == null || idsToCompare.contains(dbMetadata.getId()) ) {
+				dbMetadata.getCurrentVersion().setVersion(0);
+				dbMetadata.getInitialVersion().reset();
+				dbMetadata.getDatabaseVersion().reset();
+				dbMetadata.getLatestDatabaseVersion().reset();
+			}
 		}
 
 		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, 
-				"SELECT id, name, version, checksum, created_on, created_by, model_id, model_version"
+				"SELECT id, name, version, checksum, created_on, created_by, model_id, model_version, model_version_to"
 						+ " FROM "+this.schemaPrefix+"relationships"
 						+ " LEFT JOIN "+this.schemaPrefix+"relationships_in_model ON relationship_id = id AND relationship_version = version"
-						+ " WHERE id IN (SELECT id FROM "+this.schemaPrefix+"relationships JOIN "+this.schemaPrefix+"relationships_in_model ON relationship_id = id AND relationship_version = version WHERE model_id = ? AND model_version = ?)"
+						+ " WHERE id IN (SELECT id FROM "+this.schemaPrefix+"relationships JOIN "+this.schemaPrefix+"relationships_in_model ON relationship_id = id AND relationship_version = version WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to)"
+						+ idsFilter
 						+ " ORDER BY id, version, model_version"
 						,modelId
 						,modelDatabaseVersion
@@ -851,11 +1021,11 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 				if ( DBPlugin.areEqual(result.getString("model_id"), modelId) ) {
 					// if the component is part of the model, we compare with the model's version
-					if ( result.getInt("model_version") == modelInitialVersion || checksum.equals(currentComponent.getCurrentVersion().getChecksum()) ) {
+					if ( isInModelVersion(result, modelInitialVersion) || checksum.equals(currentComponent.getCurrentVersion().getChecksum()) ) {
 						currentComponent.getInitialVersion().set(version, checksum, createdOn, createdBy);
 						currentComponent.getCurrentVersion().setVersion(version);
 					}
-					if ( result.getInt("model_version") == modelDatabaseVersion )
+					if ( isInModelVersion(result, modelDatabaseVersion) )
 						currentComponent.getDatabaseVersion().set(version, checksum, createdOn, createdBy);
 				}
 
@@ -884,7 +1054,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		itr = model.getAllRelationships().entrySet().iterator();
 		while (itr.hasNext()) {
 			DBMetadata dbMetadata = model.getDBMetadata(itr.next().getValue());
-			if ( dbMetadata.getInitialVersion().getVersion() == 0 )
+			if ( (idsToCompare == null || idsToCompare.contains(dbMetadata.getId())) && dbMetadata.getInitialVersion().getVersion() == 0 )
 				componentHashMap.put(dbMetadata.getId(), (IIdentifier)dbMetadata.getComponent());
 
 			if ( componentHashMap.size() == DBDatabaseExportConnection.maxValuesInSQLRequest ) {
@@ -903,19 +1073,25 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		if ( logger.isDebugEnabled() ) logger.debug("Getting versions of the folders from the database");
 
 		// we reset the version of all the folders in the model
+		// (unless they are restored from the snapshot)
+		idsToCompare = (snapshot == null) ? null : snapshot.restoreComponents(Kind.FOLDER, model.getAllFolders(), model, this.foldersNotInModel);
+		idsFilter = getIdsFilter(idsToCompare);
 		Iterator<Map.Entry<String, IFolder>> itf = model.getAllFolders().entrySet().iterator();
 		while (itf.hasNext()) {
 			DBMetadata dbMetadata = model.getDBMetadata(itf.next().getValue());
-			dbMetadata.getCurrentVersion().setVersion(0);
-			dbMetadata.getInitialVersion().reset();
-			dbMetadata.getDatabaseVersion().reset();
-			dbMetadata.getLatestDatabaseVersion().reset();
+			if ( idsToCompare == null || idsToCompare.contains(dbMetadata.getId()) ) {
+				dbMetadata.getCurrentVersion().setVersion(0);
+				dbMetadata.getInitialVersion().reset();
+				dbMetadata.getDatabaseVersion().reset();
+				dbMetadata.getLatestDatabaseVersion().reset();
+			}
 		}
 		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, 
-				"SELECT id, name, version, checksum, created_on, created_by, model_id, model_version"
+				"SELECT id, name, version, checksum, created_on, created_by, model_id, model_version, model_version_to"
 						+ " FROM "+this.schemaPrefix+"folders"
 						+ " LEFT JOIN "+this.schemaPrefix+"folders_in_model ON folder_id = id AND folder_version = version"
-						+ " WHERE id IN (SELECT id FROM "+this.schemaPrefix+"folders JOIN "+this.schemaPrefix+"folders_in_model ON folder_id = id AND folder_version = version WHERE model_id = ? AND model_version = ?)"
+						+ " WHERE id IN (SELECT id FROM "+this.schemaPrefix+"folders JOIN "+this.schemaPrefix+"folders_in_model ON folder_id = id AND folder_version = version WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to)"
+						+ idsFilter
 						+ " ORDER BY id, version, model_version"
 						,modelId
 						,modelDatabaseVersion
@@ -959,11 +1135,11 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 				if ( DBPlugin.areEqual(result.getString("model_id"), modelId) ) {
 					// if the component is part of the model, we compare with the model's version
-					if ( result.getInt("model_version") == modelInitialVersion || checksum.equals(currentComponent.getCurrentVersion().getChecksum()) ) {
+					if ( isInModelVersion(result, modelInitialVersion) || checksum.equals(currentComponent.getCurrentVersion().getChecksum()) ) {
 						currentComponent.getInitialVersion().set(version, checksum, createdOn, createdBy);
 						currentComponent.getCurrentVersion().setVersion(version);
 					}
-					if ( result.getInt("model_version") == modelDatabaseVersion )
+					if ( isInModelVersion(result, modelDatabaseVersion) )
 						currentComponent.getDatabaseVersion().set(version, checksum, createdOn, createdBy);
 				}
 
@@ -992,7 +1168,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		itf = model.getAllFolders().entrySet().iterator();
 		while (itf.hasNext()) {
 			DBMetadata dbMetadata = model.getDBMetadata(itf.next().getValue());
-			if ( dbMetadata.getInitialVersion().getVersion() == 0 )
+			if ( (idsToCompare == null || idsToCompare.contains(dbMetadata.getId())) && dbMetadata.getInitialVersion().getVersion() == 0 )
 				componentHashMap.put(dbMetadata.getId(), (IIdentifier)dbMetadata.getComponent());
 
 			if ( componentHashMap.size() == DBDatabaseExportConnection.maxValuesInSQLRequest ) {
@@ -1012,19 +1188,25 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		if ( logger.isDebugEnabled() ) logger.debug("Getting versions of the views from the database");
 
 		// we reset the version of all the views in the model
+		// (unless they are restored from the snapshot)
+		idsToCompare = (snapshot == null) ? null : snapshot.restoreComponents(Kind.VIEW, model.getAllViews(), model, this.viewsNotInModel);
+		idsFilter = getIdsFilter(idsToCompare);
 		Iterator<Map.Entry<String, IDiagramModel>> itv = model.getAllViews().entrySet().iterator();
 		while (itv.hasNext()) {
 			DBMetadata dbMetadata = model.getDBMetadata(itv.next().getValue());
-			dbMetadata.getCurrentVersion().setVersion(0);
-			dbMetadata.getInitialVersion().reset();
-			dbMetadata.getDatabaseVersion().reset();
-			dbMetadata.getLatestDatabaseVersion().reset();
+			if ( idsToCompare == null || idsToCompare.contains(dbMetadata.getId()) ) {
+				dbMetadata.getCurrentVersion().setVersion(0);
+				dbMetadata.getInitialVersion().reset();
+				dbMetadata.getDatabaseVersion().reset();
+				dbMetadata.getLatestDatabaseVersion().reset();
+			}
 		}
 		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, 
-				"SELECT id, name, version, checksum, container_checksum, created_on, created_by, model_id, model_version"
+				"SELECT id, name, version, checksum, container_checksum, created_on, created_by, model_id, model_version, model_version_to"
 						+ " FROM "+this.schemaPrefix+"views"
 						+ " LEFT JOIN "+this.schemaPrefix+"views_in_model ON view_id = id AND view_version = version"
-						+ " WHERE id IN (SELECT id FROM "+this.schemaPrefix+"views JOIN "+this.schemaPrefix+"views_in_model ON view_id = id AND view_version = version WHERE model_id = ? AND model_version = ?)"
+						+ " WHERE id IN (SELECT id FROM "+this.schemaPrefix+"views JOIN "+this.schemaPrefix+"views_in_model ON view_id = id AND view_version = version WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to)"
+						+ idsFilter
 						+ " ORDER BY id, version, model_version"
 						,modelId
 						,modelDatabaseVersion
@@ -1069,11 +1251,11 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 				if ( DBPlugin.areEqual(result.getString("model_id"), modelId) ) {
 					// if the component is part of the model, we compare with the model's version
-					if ( result.getInt("model_version") == modelInitialVersion || checksum.equals(currentComponent.getCurrentVersion().getChecksum()) ) {
+					if ( isInModelVersion(result, modelInitialVersion) || checksum.equals(currentComponent.getCurrentVersion().getChecksum()) ) {
 						currentComponent.getInitialVersion().set(version, containerChecksum, checksum, createdOn, createdBy);
 						currentComponent.getCurrentVersion().setVersion(version);
 					}
-					if ( result.getInt("model_version") == modelDatabaseVersion )
+					if ( isInModelVersion(result, modelDatabaseVersion) )
 						currentComponent.getDatabaseVersion().set(version,  containerChecksum, checksum, createdOn, createdBy);
 				}
 
@@ -1102,7 +1284,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		itv = model.getAllViews().entrySet().iterator();
 		while (itv.hasNext()) {
 			DBMetadata dbMetadata = model.getDBMetadata(itv.next().getValue());
-			if ( dbMetadata.getInitialVersion().getVersion() == 0 )
+			if ( (idsToCompare == null || idsToCompare.contains(dbMetadata.getId())) && dbMetadata.getInitialVersion().getVersion() == 0 )
 				componentHashMap.put(dbMetadata.getId(), (IIdentifier)dbMetadata.getComponent());
 
 			if ( componentHashMap.size() == DBDatabaseExportConnection.maxValuesInSQLRequest ) {
@@ -1120,30 +1302,49 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 		// we check if the latest version of the model has got images that are not in the model
 		if ( logger.isDebugEnabled() ) logger.debug("Checking missing images from the database");
-		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT DISTINCT image_path FROM "+this.schemaPrefix+"views_objects "
-				+ "JOIN "+this.schemaPrefix+"views_objects_in_view ON views_objects_in_view.object_id = views_objects.id AND views_objects_in_view.object_version = views_objects.version "
-				+ "JOIN "+this.schemaPrefix+"views_in_model ON views_in_model.view_id = views_objects_in_view.view_id AND views_in_model.view_version = views_objects_in_view.view_version "
-				+ "WHERE image_path IS NOT NULL AND views_in_model.model_id = ? AND views_in_model.model_version = ?"
-				,model.getId()
-				,model.getDatabaseVersion().getVersion()
-				) ) {
-			while ( result.next() ) {
-				if ( !model.getAllImagePaths().contains(result.getString("image_path")) ) {
-					this.imagesNotInModel.put(result.getString("image_path"), new DBMetadata());
-				}
-				if ( gui != null ) gui.increaseProgressBar();
+		Set<String> imagesInDatabaseModel;
+		if ( snapshot != null )
+			imagesInDatabaseModel = snapshot.getImagesInDatabaseModel();
+		else {
+			imagesInDatabaseModel = new HashSet<>();
+			try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT DISTINCT image_path FROM "+this.schemaPrefix+"views_objects "
+					+ "JOIN "+this.schemaPrefix+"views_objects_in_view ON views_objects_in_view.object_id = views_objects.id AND views_objects_in_view.object_version = views_objects.version "
+					+ "JOIN "+this.schemaPrefix+"views_in_model ON views_in_model.view_id = views_objects_in_view.view_id AND views_in_model.view_version = views_objects_in_view.view_version "
+					+ "WHERE image_path IS NOT NULL AND views_in_model.model_id = ? AND ? BETWEEN views_in_model.model_version AND views_in_model.model_version_to"
+					,model.getId()
+					,model.getDatabaseVersion().getVersion()
+					) ) {
+				while ( result.next() )
+					imagesInDatabaseModel.add(result.getString("image_path"));
 			}
 		}
+		for ( String path: imagesInDatabaseModel ) {
+			if ( !model.getAllImagePaths().contains(path) ) {
+				this.imagesNotInModel.put(path, new DBMetadata());
+			}
+			if ( gui != null ) gui.increaseProgressBar();
+		}
+		
+		// the objects and connections of the views are compared view by view, so we determine the views that contain components that changed since the snapshot
+		Set<String> viewsToCompare = null;
+		if ( snapshot != null ) {
+			viewsToCompare = new HashSet<>(idsToCompare);
+			snapshot.addChangedViews(Kind.VIEW_OBJECT, model.getAllViewObjects(), model, viewsToCompare);
+			snapshot.addChangedViews(Kind.VIEW_CONNECTION, model.getAllViewConnections(), model, viewsToCompare);
+			snapshot.restoreViewComponents(model.getAllViewObjects(), model, viewsToCompare);
+			snapshot.restoreViewComponents(model.getAllViewConnections(), model, viewsToCompare);
+			if ( logger.isDebugEnabled() ) logger.debug(viewsToCompare.size()+" views contain objects or connections that must be compared to the database, the others have been restored from the snapshot");
+		}
 
 		// we compare the objects and connections of existing views
 		Iterator<Entry<String, IDiagramModel>> viewsIterator = model.getAllViews().entrySet().iterator();
 		while ( viewsIterator.hasNext() )
-			getViewObjectsAndConnectionsVersionsFromDatabase(model, model.getDBMetadata(viewsIterator.next().getValue()), gui);
+			getViewObjectsAndConnectionsVersionsFromDatabase(model, model.getDBMetadata(viewsIterator.next().getValue()), snapshot, viewsToCompare, gui);
 
 		// we also need to compare the objects and connections that are in the views that will be imported into the model
 		Iterator<Entry<String, DBMetadata>> viewsNotInModelIterator = this.viewsNotInModel.entrySet().iterator();
 		while ( viewsNotInModelIterator.hasNext() )
-			getViewObjectsAndConnectionsVersionsFromDatabase(model, viewsNotInModelIterator.next().getValue(), gui);
+			getViewObjectsAndConnectionsVersionsFromDatabase(model, viewsNotInModelIterator.next().getValue(), snapshot, viewsToCompare, gui);
 		
 		
 		
@@ -1151,8 +1352,9 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		// so we check if they are completely new or if they exist in another model
 		Iterator<Map.Entry<String, IDiagramModelObject>> itvo = model.getAllViewObjects().entrySet().iterator();
 		while (itvo.hasNext()) {
-			DBMetadata dbMetadata = model.getDBMetadata(itvo.next().getValue());
-			if ( dbMetadata.getInitialVersion().getVersion() == 0 )
+			IDiagramModelObject component = itvo.next().getValue();
+			DBMetadata dbMetadata = model.getDBMetadata(component);
+			if ( (viewsToCompare == null || viewsToCompare.contains(component.getDiagramModel().getId())) && dbMetadata.getInitialVersion().getVersion() == 0 )
 				componentHashMap.put(dbMetadata.getId(), (IIdentifier)dbMetadata.getComponent());
 
 			if ( componentHashMap.size() == DBDatabaseExportConnection.maxValuesInSQLRequest ) {
@@ -1169,8 +1371,9 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		// so we check if they are completely new or if they exist in another model
 		Iterator<Map.Entry<String, IDiagramModelConnection>> itvc = model.getAllViewConnections().entrySet().iterator();
 		while (itvc.hasNext()) {
-			DBMetadata dbMetadata = model.getDBMetadata(itvc.next().getValue());
-			if ( dbMetadata.getInitialVersion().getVersion() == 0 )
+			IDiagramModelConnection component = itvc.next().getValue();
+			DBMetadata dbMetadata = model.getDBMetadata(component);
+			if ( (viewsToCompare == null || viewsToCompare.contains(component.getDiagramModel().getId())) && dbMetadata.getInitialVersion().getVersion() == 0 )
 				componentHashMap.put(dbMetadata.getId(), (IIdentifier)dbMetadata.getComponent());
 
 			if ( componentHashMap.size() == DBDatabaseExportConnection.maxValuesInSQLRequest ) {
@@ -1193,20 +1396,142 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		// at last, we check if all the images in the model are in the database
 		// we did not know them before now, so do not increase the progress bar !
 		if ( logger.isDebugEnabled() ) logger.debug("Checking if the images exist in the database");
+		ArrayList<String> pathsToCheck = new ArrayList<>();
 		for ( String path: model.getAllImagePaths() ) {
-			try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT path from "+this.schemaPrefix+"images where path = ?", path) ) {
-				if ( result.next() && result.getObject("path") != null ) {
-					// the image is in the database
-				} else {
-					// the image is not in the database
+			if ( snapshot != null && snapshot.getImagePaths().contains(path) ) {
+				// the image has already been checked when the snapshot has been taken
+				if ( snapshot.getImagesNotInDatabase().contains(path) )
 					this.imagesNotInDatabase.put(path, new DBMetadata());
-				}
+				continue;
+			}
+			pathsToCheck.add(path);
+		}
+		// the paths are checked by groups, using a single request per group
+		for ( int first = 0 ; first < pathsToCheck.size() ; first += maxValuesInSQLRequest ) {
+			List<String> paths = pathsToCheck.subList(first, Math.min(first + maxValuesInSQLRequest, pathsToCheck.size()));
+			for ( String path: paths )
+				this.imagesNotInDatabase.put(path, new DBMetadata());
+			for ( String path: getImagePathsInDatabase(paths) )
+				this.imagesNotInDatabase.remove(path);
+		}
+		
+		saveCompareSnapshot(model, databaseMarker, imagesInDatabaseModel);
+	}
+	
+	/**
+	 * Gets a value that changes each time a model version or a component version is committed in (or deleted from) the database<br>
+	 * The components versions are taken from the latest_versions table, as some components versions are exported without any new model version (see DBGuiComponentHistory).
+	 * @return the number of model versions and the date of the latest one, and the number and the sum of the latest versions of all the components
+	 * @throws SQLException
+	 */
+	private String getDatabaseMarker() throws SQLException {
+		String modelsMarker = null;
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT COUNT(*) AS nb_versions, MAX(created_on) AS last_created_on FROM "+this.schemaPrefix+"models") ) {
+			if ( result.next() ) {
+				Timestamp lastCreatedOn = result.getTimestamp("last_created_on");
+				modelsMarker = result.getInt("nb_versions")+"/"+(lastCreatedOn == null ? 0 : lastCreatedOn.getTime());
 			}
 		}
+		if ( modelsMarker == null )
+			return null;
+
+		// a new version of a component increases the sum of the latest versions, and a new component increases their number
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT COUNT(*) AS nb_components, SUM(latest_version) AS sum_versions FROM "+this.schemaPrefix+"latest_versions") ) {
+			if ( result.next() )
+				return modelsMarker+"/"+result.getInt("nb_components")+"/"+result.getObject("sum_versions");
+		}
+		return null;
+	}
+	
+	/**
+	 * Gets the snapshot of the last comparison of the model to the database, if it can be used to compare the model incrementally
+	 * @param model
+	 * @param databaseMarker
+	 * @return the snapshot, or null if the model must be fully compared to the database
+	 * @throws SQLException
+	 */
+	private DBCompareSnapshot getCompareSnapshot(DBArchimateModel model, String databaseMarker) throws SQLException {
+		if ( !DBPlugin.INSTANCE.getPreferenceStore().getBoolean("incrementalCompare") || (databaseMarker == null) )
+			return null;
+		
+		DBCompareSnapshot snapshot = DBCompareSnapshot.load(this.databaseEntry, model.getId());
+		if ( snapshot == null ) {
+			if ( logger.isDebugEnabled() ) logger.debug("No comparison snapshot found, comparing the whole model to the database");
+			return null;
+		}
+		
+		if ( !snapshot.isValidFor(model, getChecksumAlgorithm(), databaseMarker) ) {
+			if ( logger.isDebugEnabled() ) logger.debug("The database or the model version changed since the last comparison, comparing the whole model to the database");
+			return null;
+		}
+		
+		// the changed components are compared using the temporary table
+		if ( !fillIdsTemporaryTable(new ArrayList<String>()) ) {
+			if ( logger.isDebugEnabled() ) logger.debug("The database does not support temporary tables, comparing the whole model to the database");
+			return null;
+		}
+		
+		if ( logger.isDebugEnabled() ) logger.debug("Nothing has been committed in the database since the last comparison, comparing only the components that changed since then");
+		return snapshot;
+	}
+	
+	/**
+	 * Gets the condition that restricts the components versions requests to some IDs
+	 * @param idsToCompare the IDs, or null if all the components must be compared
+	 * @return the condition to add to the request
+	 * @throws SQLException
+	 */
+	private String getIdsFilter(Set<String> idsToCompare) throws SQLException {
+		if ( idsToCompare == null )
+			return "";
+		fillIdsTemporaryTable(new ArrayList<>(idsToCompare));
+		return " AND id IN (SELECT id FROM "+this.idsTemporaryTable+")";
+	}
+	
+	/**
+	 * Saves the versions that have been got from the database so that the next comparison can be incremental
+	 * @param model
+	 * @param databaseMarker
+	 * @param imagesInDatabaseModel
+	 */
+	private void saveCompareSnapshot(DBArchimateModel model, String databaseMarker, Set<String> imagesInDatabaseModel) {
+		if ( !DBPlugin.INSTANCE.getPreferenceStore().getBoolean("incrementalCompare") || (databaseMarker == null) )
+			return;
+		
+		DBCompareSnapshot snapshot = new DBCompareSnapshot(this.databaseEntry, model.getId());
+		snapshot.setState(model, getChecksumAlgorithm(), databaseMarker);
+		
+		addToCompareSnapshot(snapshot, Kind.PROFILE, model.getAllProfiles(), model, this.profilesNotInModel);
+		addToCompareSnapshot(snapshot, Kind.ELEMENT, model.getAllElements(), model, this.elementsNotInModel);
+		addToCompareSnapshot(snapshot, Kind.RELATIONSHIP, model.getAllRelationships(), model, this.relationshipsNotInModel);
+		addToCompareSnapshot(snapshot, Kind.FOLDER, model.getAllFolders(), model, this.foldersNotInModel);
+		addToCompareSnapshot(snapshot, Kind.VIEW, model.getAllViews(), model, this.viewsNotInModel);
+		addToCompareSnapshot(snapshot, Kind.VIEW_OBJECT, model.getAllViewObjects(), model, this.viewObjectsNotInModel);
+		addToCompareSnapshot(snapshot, Kind.VIEW_CONNECTION, model.getAllViewConnections(), model, this.viewConnectionsNotInModel);
+		
+		snapshot.getImagePaths().addAll(model.getAllImagePaths());
+		snapshot.getImagesInDatabaseModel().addAll(imagesInDatabaseModel);
+		snapshot.getImagesNotInDatabase().addAll(this.imagesNotInDatabase.keySet());
+		
+		snapshot.save();
+	}
+	
+	private void addToCompareSnapshot(DBCompareSnapshot snapshot, Kind kind, Map<String, ? extends EObject> modelComponents, DBArchimateModel model, Map<String, DBMetadata> notInModel) {
+		for ( EObject component: modelComponents.values() )
+			snapshot.addComponent(kind, model.getDBMetadata(component), (component instanceof IDiagramModelComponent) ? ((IDiagramModelComponent)component).getDiagramModel().getId() : null);
+		for ( DBMetadata metadata: notInModel.values() )
+			snapshot.addComponentNotInModel(kind, metadata, this.viewIdOfComponentsNotInModel.get(metadata.getId()));
 	}
 
-	private void getViewObjectsAndConnectionsVersionsFromDatabase(DBArchimateModel model, DBMetadata viewMetadata, DBGui gui) throws SQLException, RuntimeException {
+	private void getViewObjectsAndConnectionsVersionsFromDatabase(DBArchimateModel model, DBMetadata viewMetadata, DBCompareSnapshot snapshot, Set<String> viewsToCompare, DBGui gui) throws SQLException, RuntimeException {
 		String viewId = viewMetadata.getId();
+		
+		// if the view did not change since the snapshot, its objects and connections have already been restored from the snapshot
+		if ( (snapshot != null) && !viewsToCompare.contains(viewId) ) {
+			snapshot.restoreViewComponentsNotInModel(Kind.VIEW_OBJECT, viewId, this.viewObjectsNotInModel, this.viewIdOfComponentsNotInModel);
+			snapshot.restoreViewComponentsNotInModel(Kind.VIEW_CONNECTION, viewId, this.viewConnectionsNotInModel, this.viewIdOfComponentsNotInModel);
+			return;
+		}
 
 		int viewInitialVersion = viewMetadata.getInitialVersion().getVersion();
 		int viewDatabaseVersion = viewMetadata.getLatestDatabaseVersion().getVersion();
@@ -1265,6 +1590,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 					if ( currentComponent == null ) {
 						currentComponent = new DBMetadata(currentId);
 						this.viewObjectsNotInModel.put(currentId, currentComponent);
+						this.viewIdOfComponentsNotInModel.put(currentId, viewId);
 						logger.trace("   Getting version of "+currentComponent.getDebugName()+" (is in the database, but not in the model)");
 					} else
 						logger.trace("   Getting version of "+currentComponent.getDebugName()+" (is in the database and in the model)");
@@ -1357,6 +1683,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 					if ( currentComponent == null ) {
 						currentComponent = new DBMetadata(currentId);
 						this.viewConnectionsNotInModel.put(currentId, currentComponent);
+						this.viewIdOfComponentsNotInModel.put(currentId, viewId);
 						logger.trace("   Getting version of "+currentComponent.getDebugName()+" (is in the database, but not in the model)");
 					} else
 						logger.trace("   Getting version of "+currentComponent.getDebugName()+" (is in the database and in the model)");
@@ -1411,7 +1738,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * @throws Exception 
 	 */
 	public void exportModel(DBArchimateModel model, String releaseNote) throws Exception {
-		final String[] modelsColumns = {"id", "version", "name", "note", "purpose", "created_by", "created_on", "properties", "features", "checksum"};
+		final String[] modelsColumns = {"id", "version", "name", "note", "purpose", "created_by", "created_on", "properties", "features", "properties_set", "features_set", "checksum", "nb_profiles", "nb_folders", "nb_elements", "nb_relationships", "nb_views", "nb_view_objects", "nb_view_connections", "nb_images", "images_size"};
 
 		if ( (model.getName() == null) || (model.getName().equals("")) )
 			throw new RuntimeException("Model name cannot be empty.");
@@ -1429,6 +1756,26 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 		int nbProperties = metadata.getNumberOfProperties();
 		int nbFeatures = metadata.getNumberOfFeatures();
+		String propertiesSet = (nbProperties == 0) ? null : getPropertiesSet(model);
+		String featuresSet = (nbFeatures == 0) ? null : getFeaturesSet(model);
+
+		// we record the images that are referenced by the view objects and the specializations, as they are the ones that will be imported
+		Set<String> imagePaths = new HashSet<>();
+		for ( IDiagramModelObject viewObject: model.getAllViewObjects().values() ) {
+			String imagePath = DBMetadata.getDBMetadata(viewObject).getImagePath();
+			if ( imagePath != null )
+				imagePaths.add(imagePath);
+		}
+		for ( IProfile profile: model.getProfiles() ) {
+			if ( profile.getImagePath() != null )
+				imagePaths.add(profile.getImagePath());
+		}
+		long imagesSize = 0;
+		for ( String imagePath: imagePaths ) {
+			byte[] image = model.getImage(imagePath);
+			if ( image != null )
+				imagesSize += image.length;
+		}
 
 		insert(this.schemaPrefix+"models", modelsColumns
 				,model.getId()
@@ -1440,14 +1787,32 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 				,model.getCurrentVersion().getTimestamp()
 				,nbProperties
 				,nbFeatures
+				,propertiesSet
+				,featuresSet
 				,model.getCurrentVersion().getChecksum()
+				,model.getProfiles().size()
+				,model.getAllFolders().size()
+				,model.getAllElements().size()
+				,model.getAllRelationships().size()
+				,model.getAllViews().size()
+				,model.getAllViewObjects().size()
+				,model.getAllViewConnections().size()
+				,imagePaths.size()
+				,(int)Math.min(imagesSize, Integer.MAX_VALUE)		// the column is an integer
 				);
 
+		registerLatestVersion("models", model.getId(), model.getCurrentVersion().getVersion());
+
+		this.exportedModelId = model.getId();
+		this.exportedModelVersion = model.getCurrentVersion().getVersion();
+		this.isMembershipRangesExport = DBPlugin.INSTANCE.getPreferenceStore().getBoolean("exportMembershipRanges");
+		this.exportedMemberships.clear();
+
 		if ( nbProperties != 0 )
-			exportProperties(model);
+			exportProperties(model, propertiesSet);
 
 		if ( nbFeatures != 0 )
-			exportFeatures(model);
+			exportFeatures(model, featuresSet);
 
 		exportMetadata(model);
 	}
@@ -1491,7 +1856,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * @throws Exception 
 	 */
 	private void exportElement(IArchimateElement element) throws Exception {
-		final String[] elementsColumns = {"id", "version", "class", "name", "type", "documentation", "profile", "created_by", "created_on", "properties", "features", "checksum"};
+		final String[] elementsColumns = {"id", "version", "class", "name", "type", "documentation", "profile", "created_by", "created_on", "properties", "features", "properties_set", "features_set", "checksum"};
 		DBArchimateModel model = (DBArchimateModel)element.getArchimateModel();
 		DBMetadata dbMetadata = model.getDBMetadata(element);
 
@@ -1502,6 +1867,8 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 		int nbProperties = (element.getProperties() == null) ? 0 : element.getProperties().size();
 		int nbFeatures = (element.getFeatures() == null) ? 0 : element.getFeatures().size();
+		String propertiesSet = (nbProperties == 0) ? null : getPropertiesSet(element);
+		String featuresSet = (nbFeatures == 0) ? null : getFeaturesSet(element);
 
 		if ( this.databaseEntry.getDriver().equals(DBDatabaseDriver.NEO4J) ) {
 			// TODO: USE MERGE instead to replace existing nodes
@@ -1528,15 +1895,19 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 					,model.getCurrentVersion().getTimestamp()
 					,nbProperties
 					,nbFeatures
+					,propertiesSet
+					,featuresSet
 					,dbMetadata.getCurrentVersion().getChecksum()
 					);
 		}
 
+		registerLatestVersion("elements", element.getId(), dbMetadata.getCurrentVersion().getVersion());
+
 		if ( nbProperties != 0 )
-			exportProperties(element);
+			exportProperties(element, propertiesSet);
 
 		if ( nbFeatures != 0)
-			exportFeatures(element);
+			exportFeatures(element, featuresSet);
 	}
 
 	/**
@@ -1551,18 +1922,19 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * @throws Exception 
 	 */
 	private void assignElementToModel(IArchimateElement element) throws Exception {
-		final String[] elementsInModelColumns = {"element_id", "element_version", "parent_folder_id", "model_id", "model_version", "pos"};
+		final String[] elementsInModelColumns = {"element_id", "element_version", "parent_folder_id", "model_id", "model_version", "model_version_to", "pos"};
 		DBArchimateModel model = (DBArchimateModel)element.getArchimateModel();
 		DBMetadata dbMetadata = model.getDBMetadata(element);
 
 		if ( logger.isTraceEnabled() ) logger.trace("   Assigning element to model");
 
-		insert(this.schemaPrefix+"elements_in_model", elementsInModelColumns
+		assignToModel("elements_in_model", elementsInModelColumns
 				,element.getId()
 				,dbMetadata.getCurrentVersion().getVersion()   // we use currentVersion as it has been set in exportElement()
 				,((IFolder)element.eContainer()).getId()
 				,model.getId()
 				,model.getCurrentVersion().getVersion()
+				,model.getCurrentVersion().getVersion()   // end of the range of model versions, see assignToModel()
 				,++this.elementPos
 				);
 	}
@@ -1573,7 +1945,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * @throws Exception 
 	 */
 	private void exportRelationship(IArchimateRelationship relationship) throws Exception {
-		final String[] relationshipsColumns = {"id", "version", "class", "name", "documentation", "source_id", "target_id", "strength", "access_type", "is_directed", "profile", "created_by", "created_on", "properties", "features", "checksum"};
+		final String[] relationshipsColumns = {"id", "version", "class", "name", "documentation", "source_id", "target_id", "strength", "access_type", "is_directed", "profile", "created_by", "created_on", "properties", "features", "properties_set", "features_set", "checksum"};
 		DBArchimateModel model = (DBArchimateModel)relationship.getArchimateModel();
 		DBMetadata dbMetadata = model.getDBMetadata(relationship);
 
@@ -1584,6 +1956,8 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 		int nbProperties = (relationship.getProperties() == null) ? 0 : relationship.getProperties().size();
 		int nbFeatures = (relationship.getFeatures() == null) ? 0 : relationship.getFeatures().size();
+		String propertiesSet = (nbProperties == 0) ? null : getPropertiesSet(relationship);
+		String featuresSet = (nbFeatures == 0) ? null : getFeaturesSet(relationship);
 
 		if ( this.databaseEntry.getDriver().equals(DBDatabaseDriver.NEO4J) ) {
 			String relationshipType = (this.databaseEntry.isNeo4jTypedRelationship() ? (relationship.getClass().getSimpleName()+"s") : "relationships");
@@ -1646,15 +2020,19 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 					,model.getCurrentVersion().getTimestamp()
 					,nbProperties
 					,nbFeatures
+					,propertiesSet
+					,featuresSet
 					,dbMetadata.getCurrentVersion().getChecksum()
 					);
 		}
 
+		registerLatestVersion("relationships", relationship.getId(), dbMetadata.getCurrentVersion().getVersion());
+
 		if ( nbProperties != 0 )
-			exportProperties(relationship);
+			exportProperties(relationship, propertiesSet);
 
 		if ( nbFeatures != 0 )
-			exportFeatures(relationship);
+			exportFeatures(relationship, featuresSet);
 	}
 
 	/**
@@ -1669,18 +2047,19 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * @throws Exception 
 	 */
 	private void assignRelationshipToModel(IArchimateRelationship relationship) throws Exception {
-		final String[] relationshipsInModelColumns = {"relationship_id", "relationship_version", "parent_folder_id", "model_id", "model_version", "pos"};
+		final String[] relationshipsInModelColumns = {"relationship_id", "relationship_version", "parent_folder_id", "model_id", "model_version", "model_version_to", "pos"};
 		DBArchimateModel model = (DBArchimateModel)relationship.getArchimateModel();
 		DBMetadata dbMetadata = model.getDBMetadata(relationship);
 
 		if ( logger.isTraceEnabled() ) logger.trace("   Assigning relationship to model");
 
-		insert(this.schemaPrefix+"relationships_in_model", relationshipsInModelColumns
+		assignToModel("relationships_in_model", relationshipsInModelColumns
 				,relationship.getId()
 				,dbMetadata.getCurrentVersion().getVersion()
 				,((IFolder)relationship.eContainer()).getId()
 				,model.getId()
 				,model.getCurrentVersion().getVersion()
+				,model.getCurrentVersion().getVersion()   // end of the range of model versions, see assignToModel()
 				,++this.relationshipPos
 				);
 	}
@@ -1691,7 +2070,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * @throws Exception 
 	 */
 	private void exportFolder(IFolder folder) throws Exception {
-		final String[] foldersColumns = {"id", "version", "type", "root_type", "name", "documentation", "created_by", "created_on", "properties", "features", "checksum"};
+		final String[] foldersColumns = {"id", "version", "type", "root_type", "name", "documentation", "created_by", "created_on", "properties", "features", "properties_set", "features_set", "checksum"};
 		DBArchimateModel model = (DBArchimateModel)folder.getArchimateModel();
 		DBMetadata dbMetadata = model.getDBMetadata(folder);
 
@@ -1702,6 +2081,8 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 		int nbProperties = (folder.getProperties() == null) ? 0 : folder.getProperties().size();
 		int nbFeatures = (folder.getFeatures() == null) ? 0 : folder.getFeatures().size();
+		String propertiesSet = (nbProperties == 0) ? null : getPropertiesSet(folder);
+		String featuresSet = (nbFeatures == 0) ? null : getFeaturesSet(folder);
 
 		insert(this.schemaPrefix+"folders", foldersColumns
 				,folder.getId()
@@ -1714,14 +2095,18 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 				,model.getCurrentVersion().getTimestamp()
 				,nbProperties
 				,nbFeatures
+				,propertiesSet
+				,featuresSet
 				,dbMetadata.getCurrentVersion().getChecksum()
 				);
 
+		registerLatestVersion("folders", folder.getId(), dbMetadata.getCurrentVersion().getVersion());
+
 		if ( nbProperties != 0 )
-			exportProperties(folder);
+			exportProperties(folder, propertiesSet);
 
 		if ( nbFeatures != 0 )
-			exportFeatures(folder);
+			exportFeatures(folder, featuresSet);
 	}
 
 	/**
@@ -1736,18 +2121,19 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * @throws Exception 
 	 */
 	private void assignFolderToModel(IFolder folder) throws Exception {
-		final String[] foldersInModelColumns = {"folder_id", "folder_version", "parent_folder_id", "model_id", "model_version", "pos"};
+		final String[] foldersInModelColumns = {"folder_id", "folder_version", "parent_folder_id", "model_id", "model_version", "model_version_to", "pos"};
 		DBArchimateModel model = (DBArchimateModel)folder.getArchimateModel();
 		DBMetadata dbMetadata = model.getDBMetadata(folder);
 
 		if ( logger.isTraceEnabled() ) logger.trace("   Assigning folder to model");
 
-		insert(this.schemaPrefix+"folders_in_model", foldersInModelColumns
+		assignToModel("folders_in_model", foldersInModelColumns
 				,folder.getId()
 				,dbMetadata.getCurrentVersion().getVersion()
 				,(((IIdentifier)((Folder)folder).eContainer()).getId().equals(model.getId()) ? null : ((IIdentifier)((Folder)folder).eContainer()).getId())
 				,model.getId()
 				,model.getCurrentVersion().getVersion()
+				,model.getCurrentVersion().getVersion()   // end of the range of model versions, see assignToModel()
 				,++this.folderPos
 				);
 	}
@@ -1758,7 +2144,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * @throws Exception 
 	 */
 	private void exportView(IDiagramModel view) throws Exception {
-		final String[] viewsColumns = {"id", "version", "class", "created_by", "created_on", "name", "connection_router_type", "documentation", "viewpoint", "background", "screenshot", "screenshot_scale_factor", "screenshot_border_width", "properties", "features", "checksum", "container_checksum"};
+		final String[] viewsColumns = {"id", "version", "class", "created_by", "created_on", "name", "connection_router_type", "documentation", "viewpoint", "background", "screenshot", "screenshot_scale_factor", "screenshot_border_width", "properties", "features", "properties_set", "features_set", "checksum", "container_checksum"};
 		DBArchimateModel model = (DBArchimateModel)view.getArchimateModel();
 		DBMetadata dbMetadata = model.getDBMetadata(view);
 
@@ -1769,6 +2155,8 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 		int nbProperties = (view.getProperties() == null) ? 0 : view.getProperties().size();
 		int nbFeatures = (view.getFeatures() == null) ? 0 : view.getFeatures().size();
+		String propertiesSet = (nbProperties == 0) ? null : getPropertiesSet(view);
+		String featuresSet = (nbFeatures == 0) ? null : getFeaturesSet(view);
 
 		insert(this.schemaPrefix+"views", viewsColumns
 				,view.getId()
@@ -1786,15 +2174,19 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 				,dbMetadata.getScreenshot().getBodrderWidth()
 				,nbProperties
 				,nbFeatures
+				,propertiesSet
+				,featuresSet
 				,dbMetadata.getCurrentVersion().getChecksum()
 				,dbMetadata.getCurrentVersion().getContainerChecksum()
 				);
 
+		registerLatestVersion("views", view.getId(), dbMetadata.getCurrentVersion().getVersion());
+
 		if ( nbProperties != 0 )
-			exportProperties(view);
+			exportProperties(view, propertiesSet);
 
 		if ( nbFeatures != 0 )
-			exportFeatures(view);
+			exportFeatures(view, featuresSet);
 	}
 
 	/**
@@ -1809,18 +2201,19 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * @throws Exception 
 	 */
 	private void assignViewToModel(IDiagramModel view) throws Exception {
-		final String[] viewsInModelColumns = {"view_id", "view_version", "parent_folder_id", "model_id", "model_version", "pos"};
+		final String[] viewsInModelColumns = {"view_id", "view_version", "parent_folder_id", "model_id", "model_version", "model_version_to", "pos"};
 		DBArchimateModel model = (DBArchimateModel)view.getArchimateModel();
 		DBMetadata dbMetadata = model.getDBMetadata(view);
 
 		if ( logger.isTraceEnabled() ) logger.trace("   Assigning view to model");
 
-		insert(this.schemaPrefix+"views_in_model", viewsInModelColumns
+		assignToModel("views_in_model", viewsInModelColumns
 				,view.getId()
 				,dbMetadata.getCurrentVersion().getVersion()
 				,((IFolder)view.eContainer()).getId()
 				,model.getId()
 				,model.getCurrentVersion().getVersion()
+				,model.getCurrentVersion().getVersion()   // end of the range of model versions, see assignToModel()
 				,++this.viewPos
 				);
 	}
@@ -1838,7 +2231,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * @throws Exception 
 	 */
 	private void exportViewObject(IDiagramModelComponent viewObject) throws Exception {
-		final String[] viewsObjectsColumns = {"id", "version", "class", "container_id", "element_id", "diagram_ref_id", "type", "border_color", "border_type", "content", "documentation", "is_locked", "image_path", "image_position", "line_color", "line_width", "fill_color", "alpha", "font", "font_color", "name", "notes", "text_alignment", "text_position", "x", "y", "width", "height", "created_by", "created_on", "properties", "features", "checksum"};
+		final String[] viewsObjectsColumns = {"id", "version", "class", "container_id", "element_id", "diagram_ref_id", "type", "border_color", "border_type", "content", "documentation", "is_locked", "image_path", "image_position", "line_color", "line_width", "fill_color", "alpha", "font", "font_color", "name", "notes", "text_alignment", "text_position", "x", "y", "width", "height", "created_by", "created_on", "properties", "features", "properties_set", "features_set", "checksum"};
 		DBArchimateModel model = (DBArchimateModel)viewObject.getArchimateModel();
 		DBMetadata dbMetadata = model.getDBMetadata(viewObject);
 
@@ -1849,6 +2242,8 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 		int nbProperties = (!(viewObject instanceof IProperties) || !(viewObject instanceof IDiagramModelArchimateComponent) || (((IProperties)viewObject).getProperties() == null)) ? 0 : ((IProperties)viewObject).getProperties().size();
 		int nbFeatures = (viewObject.getFeatures() == null) ? 0 : viewObject.getFeatures().size();
+		String propertiesSet = (nbProperties == 0) ? null : getPropertiesSet((IProperties)viewObject);
+		String featuresSet = (nbFeatures == 0) ? null : getFeaturesSet(viewObject);
 
 		insert(this.schemaPrefix+"views_objects", viewsObjectsColumns
 				,((IIdentifier)viewObject).getId()
@@ -1883,14 +2278,18 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 				,model.getCurrentVersion().getTimestamp()
 				,nbProperties
 				,nbFeatures
+				,propertiesSet
+				,featuresSet
 				,dbMetadata.getCurrentVersion().getChecksum()
 				);
 
+		registerLatestVersion("views_objects", ((IIdentifier)viewObject).getId(), dbMetadata.getCurrentVersion().getVersion());
+
 		if ( nbProperties != 0 )
-			exportProperties((IProperties)viewObject);
+			exportProperties((IProperties)viewObject, propertiesSet);
 
 		if ( nbFeatures != 0 )
-			exportFeatures(viewObject);
+			exportFeatures(viewObject, featuresSet);
 	}
 
 	/**
@@ -1931,7 +2330,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * @throws Exception 
 	 */
 	private void exportViewConnection(IDiagramModelConnection viewConnection) throws Exception {
-		final String[] viewsConnectionsColumns = {"id", "version", "class", "container_id", "name", "documentation", "is_locked", "line_color", "line_width", "font", "font_color", "relationship_id", "source_object_id", "target_object_id", "text_position", "type", "created_by", "created_on", "properties", "features", "bendpoints", "checksum"};
+		final String[] viewsConnectionsColumns = {"id", "version", "class", "container_id", "name", "documentation", "is_locked", "line_color", "line_width", "font", "font_color", "relationship_id", "source_object_id", "target_object_id", "text_position", "type", "created_by", "created_on", "properties", "features", "properties_set", "features_set", "bendpoints", "checksum"};
 		DBArchimateModel model = (DBArchimateModel)viewConnection.getArchimateModel();
 		DBMetadata dbMetadata = model.getDBMetadata(viewConnection);
 
@@ -1942,6 +2341,8 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 		int nbProperties = (viewConnection.getProperties() == null) ? 0 : viewConnection.getProperties().size();
 		int nbFeatures = (viewConnection.getFeatures() == null) ? 0 : viewConnection.getFeatures().size();
+		String propertiesSet = (nbProperties == 0) ? null : getPropertiesSet(viewConnection);
+		String featuresSet = (nbFeatures == 0) ? null : getFeaturesSet(viewConnection);
 		int nbBendpoints = (viewConnection.getBendpoints() == null) ? 0 : viewConnection.getBendpoints().size();
 
 		insert(this.schemaPrefix+"views_connections", viewsConnectionsColumns
@@ -1965,15 +2366,19 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 				,((DBArchimateModel)viewConnection.getDiagramModel().getArchimateModel()).getCurrentVersion().getTimestamp()
 				,nbProperties
 				,nbFeatures
+				,propertiesSet
+				,featuresSet
 				,nbBendpoints
 				,dbMetadata.getCurrentVersion().getChecksum()
 				);
 
+		registerLatestVersion("views_connections", ((IIdentifier)viewConnection).getId(), dbMetadata.getCurrentVersion().getVersion());
+
 		if ( nbProperties != 0 )
-			exportProperties(viewConnection);
+			exportProperties(viewConnection, propertiesSet);
 
 		if ( nbFeatures != 0 )
-			exportFeatures(viewConnection);
+			exportFeatures(viewConnection, featuresSet);
 
 		if ( nbBendpoints != 0 )
 			exportBendpoints(viewConnection);
@@ -2004,14 +2409,52 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	}
 
 	/**
-	 * Export properties to the database
+	 * Gets the ID of the properties set of a component<br>
+	 * The set is identified by the checksum of the properties, so the components and the component versions that have got the same properties share the same rows in the properties table.
 	 * @param parent 
+	 * @return the ID of the properties set, or null if the properties are exported under the component ID and version (Neo4J databases)
+	 * @throws DBException 
+	 */
+	private String getPropertiesSet(IProperties parent) throws DBException {
+		if ( this.databaseEntry.getDriver().equals(DBDatabaseDriver.NEO4J) )
+			return null;
+		return DBChecksum.calculatePropertiesChecksum(parent);
+	}
+
+	/**
+	 * Gets the ID of the features set of a component<br>
+	 * The set is identified by the checksum of the features, so the components and the component versions that have got the same features share the same rows in the features table.
+	 * @param parent 
+	 * @return the ID of the features set, or null if the features are exported under the component ID and version (Neo4J databases)
+	 * @throws DBException 
+	 */
+	private String getFeaturesSet(IFeatures parent) throws DBException {
+		if ( this.databaseEntry.getDriver().equals(DBDatabaseDriver.NEO4J) )
+			return null;
+		return DBChecksum.calculateFeaturesChecksum(parent);
+	}
+
+	/**
+	 * Export properties to the database<br>
+	 * When the properties have got a set ID, they are written only if the set is not already in the database.
+	 * @param parent 
+	 * @param propertiesSet ID of the properties set, or null to export the properties under the component ID and version
 	 * @throws SQLException 
 	 */
-	private void exportProperties(IProperties parent) throws SQLException {
+	private void exportProperties(IProperties parent, String propertiesSet) throws SQLException {
 		final String[] propertiesColumns = {"parent_id", "parent_version", "pos", "name", "value"};
 
 		if ( parent.getProperties() != null ) {
+			if ( propertiesSet != null ) {
+				List<String[]> properties = new ArrayList<>();
+				for ( IProperty prop: parent.getProperties() ) {
+					if ( (prop != null) && (prop.getKey() != null) && (prop.getValue() != null) )
+						properties.add(new String[] {prop.getKey(), prop.getValue()});
+				}
+				exportSet("properties", propertiesSet, properties);
+				return;
+			}
+
 			logger.debug("   Exporting "+parent.getProperties().size()+" properties");
 
 			String parentId = ((IIdentifier)parent).getId();
@@ -2049,14 +2492,26 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	}
 
 	/**
-	 * Export features to the database
+	 * Export features to the database<br>
+	 * When the features have got a set ID, they are written only if the set is not already in the database.
 	 * @param parent 
+	 * @param featuresSet ID of the features set, or null to export the features under the component ID and version
 	 * @throws SQLException 
 	 */
-	private void exportFeatures(IFeatures parent) throws SQLException {
+	private void exportFeatures(IFeatures parent, String featuresSet) throws SQLException {
 		final String[] featuresColumns = {"parent_id", "parent_version", "pos", "name", "value"};
 
 		if ( parent.getFeatures() != null ) {
+			if ( featuresSet != null ) {
+				List<String[]> features = new ArrayList<>();
+				for ( IFeature feature: parent.getFeatures() ) {
+					if ( (feature != null) && (feature.getName() != null) && (feature.getValue() != null) )
+						features.add(new String[] {feature.getName(), feature.getValue()});
+				}
+				exportSet("features", featuresSet, features);
+				return;
+			}
+
 			logger.debug("   Exporting "+parent.getFeatures().size()+" features");
 
 			String parentId = ((IIdentifier)parent).getId();
@@ -2064,7 +2519,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 
 			int pos = 0;
 			for ( int p = 0 ; p < parent.getFeatures().size(); ++p) {
-				IFeature feature = parent.getFeatures().get(pos);
+				IFeature feature = parent.getFeatures().get(p);
 				if ( feature != null ) {
 					String name = feature.getName();
 					String value = feature.getValue();
@@ -2093,6 +2548,135 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		}
 	}
 	
+	/**
+	 * Registers a properties or features set, that is written in the database unless it is already there
+	 * @param table properties or features
+	 * @param setId ID of the set
+	 * @param values name and value of the rows of the set
+	 * @throws SQLException
+	 */
+	private void exportSet(String table, String setId, List<String[]> values) throws SQLException {
+		Set<String> exported = this.exportedSets.computeIfAbsent(table, k -> new HashSet<>());
+		if ( exported.contains(setId) ) {
+			if ( logger.isTraceEnabled() ) logger.trace("   The "+table+" set "+setId+" is already exported");
+			return;
+		}
+
+		Map<String, List<String[]>> pending = this.pendingSets.computeIfAbsent(table, k -> new LinkedHashMap<>());
+		pending.put(setId, values);
+
+		// the sets are checked by groups, unless the rows are inserted one by one
+		if ( (pending.size() >= maxValuesInSQLRequest) || (this.batchSize < 2) )
+			writePendingSets(table);
+	}
+
+	/**
+	 * Writes the pending properties or features sets that are not in the database yet.<br>
+	 * A single request gets the sets that are already in the database, by looking for their first row. The sets that are written
+	 * by another export between this request and the INSERT requests are ignored.
+	 * @param table properties or features
+	 * @throws SQLException
+	 */
+	private void writePendingSets(String table) throws SQLException {
+		final String[] setsColumns = {"parent_id", "parent_version", "pos", "name", "value"};
+
+		Map<String, List<String[]>> pending = this.pendingSets.get(table);
+		if ( (pending == null) || pending.isEmpty() )
+			return;
+
+		this.exportedSets.computeIfAbsent(table, k -> new HashSet<>()).addAll(pending.keySet());
+
+		ArrayList<String> setIds = getInParameters(new ArrayList<>(pending.keySet()));
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT parent_id FROM "+this.schemaPrefix+table+" WHERE parent_version = ? AND pos = 1 AND parent_id IN ("+getQuestionMarks(setIds.size())+")", SETS_PARENT_VERSION, setIds) ) {
+			while ( result.next() )
+				pending.remove(result.getString("parent_id"));
+		}
+
+		if ( pending.isEmpty() )
+			return;
+
+		if ( logger.isDebugEnabled() ) logger.debug("   Exporting "+pending.size()+" new "+table+" sets");
+		try {
+			// a set that has been written by another export in the meantime is ignored, as its ID guarantees that its content is the same
+			List<Object[]> rows = new ArrayList<>();
+			for ( Entry<String, List<String[]>> set: pending.entrySet() ) {
+				int pos = 0;
+				for ( String[] value: set.getValue() )
+					rows.add(new Object[] {set.getKey(), SETS_PARENT_VERSION, ++pos, value[0], value[1]});
+			}
+			insertIgnoringDuplicates(this.schemaPrefix+table, setsColumns, rows, table+" sets");
+		} finally {
+			pending.clear();
+		}
+	}
+
+	/**
+	 * Inserts rows that another export may have written in the meantime, the rows that are already in the database being ignored.<br>
+	 * In batch mode, the rows are sent in a savepoint. If some of them are already in the database, the savepoint is rolled back and the rows are written one by one.
+	 * Inside a transaction, each row is then written in its own savepoint, as some databases (like PostgreSQL) abort the whole transaction on a duplicate key.
+	 * @param table name of the table, with the schema prefix
+	 * @param columns the columns of the table
+	 * @param rows the values of the columns of each row
+	 * @param description description of the rows, for the debug log
+	 * @throws SQLException
+	 */
+	private void insertIgnoringDuplicates(String table, String[] columns, List<Object[]> rows, String description) throws SQLException {
+		if ( rows.isEmpty() )
+			return;
+
+		if ( this.batchSize > 1 ) {
+			super.flushBatches();
+			Savepoint savepoint = this.connection.setSavepoint();
+			try {
+				for ( Object[] row: rows )
+					insert(table, columns, row);
+				super.flushBatches();
+				this.connection.releaseSavepoint(savepoint);
+				return;
+			} catch (SQLException err) {
+				if ( !isDuplicateKey(err) )
+					throw err;
+				if ( logger.isDebugEnabled() ) logger.debug("   Some "+description+" have been written by another export, writing them one by one");
+				this.connection.rollback(savepoint);
+			}
+		}
+
+		String request = "INSERT INTO "+table+" ("+String.join(", ", columns)+") VALUES ("+getQuestionMarks(columns.length)+")";
+		boolean inTransaction = !this.connection.getAutoCommit();
+		int duplicates = 0;
+		for ( Object[] row: rows ) {
+			Savepoint savepoint = inTransaction ? this.connection.setSavepoint() : null;
+			try {
+				@SuppressWarnings("resource")
+				DBRequest dbRequest = new DBRequest(this.databaseEntry.getName(), this.connection, request, row);
+				dbRequest.close();
+				if ( savepoint != null )
+					this.connection.releaseSavepoint(savepoint);
+			} catch (SQLException err) {
+				if ( !isDuplicateKey(err) )
+					throw err;
+				++duplicates;
+				if ( savepoint != null )
+					this.connection.rollback(savepoint);
+			}
+		}
+		if ( logger.isDebugEnabled() ) logger.debug("   "+duplicates+" "+description+" rows had been written by another export");
+	}
+
+	/**
+	 * Checks if an exception has been raised because a row with the same primary key is already in the database
+	 * @param err
+	 * @return true if the exception, or one of the exceptions chained to it, is an integrity constraint violation
+	 */
+	private boolean isDuplicateKey(SQLException err) {
+		for ( SQLException e = err; e != null; e = e.getNextException() ) {
+			// SQLite does not provide a SQL state but the SQLITE_CONSTRAINT result code
+			if ( ((e.getSQLState() != null) && e.getSQLState().startsWith("23")) || (this.databaseEntry.getDriver().equals(DBDatabaseDriver.SQLITE) && (e.getErrorCode() == 19)) )
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Export model profiles to the database. Please note that the profiles images are not exported using this method. 
 	 * @param profile 
@@ -2132,6 +2716,8 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 				,dbMetadata.getCurrentVersion().getChecksum()
 				);
 		}
+
+		registerLatestVersion("profiles", profile.getId(), dbMetadata.getCurrentVersion().getVersion());
 	}
 	
 	/**
@@ -2146,17 +2732,18 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	 * @throws Exception 
 	 */
 	private void assignProfileToModel(IProfile profile) throws Exception {
-		final String[] profilesInModelColumns = {"profile_id", "profile_version", "model_id", "model_version", "pos"};
+		final String[] profilesInModelColumns = {"profile_id", "profile_version", "model_id", "model_version", "model_version_to", "pos"};
 		DBArchimateModel model = (DBArchimateModel)profile.getArchimateModel();
 		DBMetadata dbMetadata = model.getDBMetadata(profile);
 
 		if ( logger.isTraceEnabled() ) logger.trace("   Assigning profile to model");
 
-		insert(this.schemaPrefix+"profiles_in_model", profilesInModelColumns
+		assignToModel("profiles_in_model", profilesInModelColumns
 				,profile.getId()
 				,dbMetadata.getCurrentVersion().getVersion()   // we use currentVersion as it has been set in exportProfile()
 				,model.getId()
 				,model.getCurrentVersion().getVersion()
+				,model.getCurrentVersion().getVersion()   // end of the range of model versions, see assignToModel()
 				,++this.profilePos
 				);
 	}
@@ -2227,10 +2814,12 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	}
 
 	/**
-	 * Exports an image to the database
+	 * Exports an image to the database<br>
+	 * Only the images that the comparison to the database has found missing are exported (see getAllVersionFromDatabase()).
+	 * They are registered and written by groups by the writePendingImages() method, that uploads only the contents the database does not have yet.
 	 * @param path
 	 * @param image
-	 * @return
+	 * @return true if the image is exported, false if it is already in the database
 	 * @throws SQLException
 	 */
 	public boolean exportImage(String path, byte[] image) throws SQLException {
@@ -2238,15 +2827,117 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		if ( image == null ) 
 			return false;
 
-		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT path FROM "+this.schemaPrefix+"images WHERE path = ?", path) ) {
-			if ( !result.next() ) {
-				// if the image is not yet in the db, we insert it
-				String[] databaseColumns = {"path", "image"};
-				insert(this.schemaPrefix+"images", databaseColumns, path, image);
-				return true;
+		if ( !this.imagesNotInDatabase.containsKey(path) || this.pendingImages.containsKey(path) )
+			return false;
+
+		this.pendingImages.put(path, image);
+		this.pendingImagesSize += image.length;
+
+		// the images are written by groups, unless the rows are inserted one by one
+		if ( (this.pendingImages.size() >= maxValuesInSQLRequest) || (this.pendingImagesSize >= maxPendingImagesSize) || (this.batchSize < 2) )
+			writePendingImages();
+		return true;
+	}
+
+	/**
+	 * Gets the paths that are already in the database, in the image_paths table or stored under their path in the images table
+	 * @param paths the paths to check (at most maxValuesInSQLRequest)
+	 * @return the paths that are in the database
+	 * @throws SQLException
+	 */
+	private Set<String> getImagePathsInDatabase(List<String> paths) throws SQLException {
+		Set<String> pathsInDatabase = new HashSet<>();
+		ArrayList<String> parameters = getInParameters(paths);
+		String questionMarks = getQuestionMarks(parameters.size());
+
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT path FROM "+this.schemaPrefix+"image_paths WHERE path IN ("+questionMarks+")"
+				+ " UNION SELECT path FROM "+this.schemaPrefix+"images WHERE path IN ("+questionMarks+")"
+				,parameters
+				,parameters
+				) ) {
+			while ( result.next() )
+				pathsInDatabase.add(result.getString("path"));
+		}
+		return pathsInDatabase;
+	}
+
+	/**
+	 * Writes the pending images in the database.<br>
+	 * The images are stored under the hash of their content, so an image that is referenced by several paths is stored once.
+	 * A single request gets the contents that are already in the database, and only the missing ones are uploaded.
+	 * @throws SQLException
+	 */
+	private void writePendingImages() throws SQLException {
+		final String[] imagesColumns = {"path", "image"};
+		final String[] imagePathsColumns = {"path", "image_hash"};
+
+		if ( this.pendingImages.isEmpty() )
+			return;
+
+		try {
+			// hash of each path, and content of each hash that has not been exported in the current transaction
+			Map<String, String> imageHashes = new LinkedHashMap<>();
+			Map<String, byte[]> contents = new LinkedHashMap<>();
+			for ( Entry<String, byte[]> image: this.pendingImages.entrySet() ) {
+				String hash = DBChecksum.calculateContentId(image.getValue());
+				imageHashes.put(image.getKey(), hash);
+				if ( !this.exportedImageHashes.contains(hash) )
+					contents.put(hash, image.getValue());
+			}
+
+			if ( !contents.isEmpty() ) {
+				ArrayList<String> parameters = getInParameters(new ArrayList<>(contents.keySet()));
+				try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT path FROM "+this.schemaPrefix+"images WHERE path IN ("+getQuestionMarks(parameters.size())+")", parameters) ) {
+					while ( result.next() )
+						contents.remove(result.getString("path"));
+				}
 			}
+
+			if ( logger.isDebugEnabled() ) logger.debug("   Exporting "+imageHashes.size()+" images paths and "+contents.size()+" new images contents");
+
+			// an image or a path that has been written by another export in the meantime is ignored, as the hash guarantees that the content is the same
+			List<Object[]> imagesRows = new ArrayList<>();
+			for ( Entry<String, byte[]> content: contents.entrySet() )
+				imagesRows.add(new Object[] {content.getKey(), content.getValue()});
+			insertIgnoringDuplicates(this.schemaPrefix+"images", imagesColumns, imagesRows, "images");
+
+			List<Object[]> imagePathsRows = new ArrayList<>();
+			for ( Entry<String, String> imageHash: imageHashes.entrySet() )
+				imagePathsRows.add(new Object[] {imageHash.getKey(), imageHash.getValue()});
+			insertIgnoringDuplicates(this.schemaPrefix+"image_paths", imagePathsColumns, imagePathsRows, "images paths");
+
+			this.exportedImageHashes.addAll(imageHashes.values());
+		} catch (DBException err) {
+			throw new SQLException("Failed to calculate the hash of the images", err);
+		} finally {
+			this.pendingImages.clear();
+			this.pendingImagesSize = 0;
 		}
-		return false;
+	}
+
+	/**
+	 * @param values the values of an IN clause (at most maxValuesInSQLRequest)
+	 * @return the values completed with null values (that never match any value) up to maxValuesInSQLRequest, so the request text does not depend on the number of values
+	 */
+	private static ArrayList<String> getInParameters(List<String> values) {
+		ArrayList<String> parameters = new ArrayList<>(values);
+		while ( parameters.size() < maxValuesInSQLRequest )
+			parameters.add(null);
+		return parameters;
+	}
+
+	/**
+	 * @param count
+	 * @return count question marks separated by commas
+	 */
+	private static String getQuestionMarks(int count) {
+		StringBuilder questionMarks = new StringBuilder();
+		for ( int i = 0; i < count; ++i ) {
+			if ( i != 0 )
+				questionMarks.append(", ");
+			questionMarks.append("?");
+		}
+		return questionMarks.toString();
 	}
 
 	/**
@@ -2263,18 +2954,219 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		return target.toString();
 	}
 
+	/**
+	 * Registers the version of a component that has just been exported, as it becomes the latest version of the component in the database
+	 * @param componentType name of the component table (models, profiles, folders, elements, relationships, views, views_objects or views_connections)
+	 * @param id ID of the component
+	 * @param version exported version of the component
+	 */
+	private void registerLatestVersion(String componentType, String id, int version) {
+		if ( this.databaseEntry.getDriver().equals(DBDatabaseDriver.NEO4J) )
+			return;
+
+		Map<String, Integer> versions = this.exportedLatestVersions.get(componentType);
+		if ( versions == null ) {
+			versions = new LinkedHashMap<>();
+			this.exportedLatestVersions.put(componentType, versions);
+		}
+		versions.put(id, version);
+	}
+
+	/**
+	 * Writes the versions that have been exported in the current transaction in the latest_versions table.<br>
+	 * This method must be called in the export transaction, before it is committed, so that the latest_versions table stays coherent with the components tables.
+	 * @throws SQLException
+	 */
+	public void updateLatestVersions() throws SQLException {
+		if ( this.exportedLatestVersions.isEmpty() )
+			return;
+
+		// the pending batched rows are sent first, so that the latest_versions table is updated after the components tables
+		flushBatches();
+
+		for ( Entry<String, Map<String, Integer>> versions: this.exportedLatestVersions.entrySet() ) {
+			String componentType = versions.getKey();
+			if ( logger.isDebugEnabled() ) logger.debug("Updating the latest version of "+versions.getValue().size()+" "+componentType);
+
+			DBStatement deleteStatement = null;
+			DBStatement insertStatement = null;
+			try {
+				for ( Entry<String, Integer> version: versions.getValue().entrySet() ) {
+					if ( deleteStatement == null ) {
+						// the constructors set the parameters on the preparedStatements
+						deleteStatement = new DBStatement(this.databaseEntry.getName(), this.connection, "DELETE FROM "+this.schemaPrefix+"latest_versions WHERE component_type = ? AND component_id = ?", componentType, version.getKey());
+						deleteStatement.addBatch();
+						insertStatement = new DBStatement(this.databaseEntry.getName(), this.connection, "INSERT INTO "+this.schemaPrefix+"latest_versions (component_type, component_id, latest_version) VALUES (?, ?, ?)", componentType, version.getKey(), version.getValue());
+						insertStatement.addBatch();
+					} else {
+						deleteStatement.addBatch(componentType, version.getKey());
+						insertStatement.addBatch(componentType, version.getKey(), version.getValue());
+					}
+				}
+				deleteStatement.executeBatch();
+				insertStatement.executeBatch();
+			} finally {
+				if ( deleteStatement != null )
+					deleteStatement.close();
+				if ( insertStatement != null )
+					insertStatement.close();
+			}
+		}
+
+		this.exportedLatestVersions.clear();
+	}
+
+	/**
+	 * Assigns a component to the exported model version.<br>
+	 * The row is written in the *_in_model table, valid for the exported model version only, unless only the changes are exported.
+	 * In this case, the row is kept until the updateModelMemberships() method compares it to the memberships of the previous model version.
+	 * @param table name of the *_in_model table, without the schema prefix
+	 * @param columns the columns of the table, the component ID being the first one and model_version_to the one before last
+	 * @param values the values of the columns
+	 * @throws SQLException
+	 */
+	private void assignToModel(String table, String[] columns, Object... values) throws SQLException {
+		if ( !this.isMembershipRangesExport ) {
+			insert(this.schemaPrefix+table, columns, values);
+			return;
+		}
+
+		Map<String, Object[]> memberships = this.exportedMemberships.get(table);
+		if ( memberships == null ) {
+			memberships = new LinkedHashMap<>();
+			this.exportedMemberships.put(table, memberships);
+			this.exportedMembershipsColumns.put(table, columns);
+		}
+		memberships.put((String)values[0], values);
+	}
+
+	/**
+	 * Completes the membership of the components to the exported model version in the *_in_model tables.<br>
+	 * <br>
+	 * When only the changes are exported, the memberships of the exported model version are compared to those of the previous model version:
+	 * <ul>
+	 * <li>the range of the unchanged memberships (same component version, parent folder and position) is left open, so that it includes the exported model version</li>
+	 * <li>the range of the changed and removed memberships is closed at the previous model version</li>
+	 * <li>the changed and new memberships are inserted with an open range</li>
+	 * </ul>
+	 * Else, all the memberships have been written for the exported model version only, and the ranges left open by a previous export are closed at the previous model version.<br>
+	 * <br>
+	 * This method must be called in the export transaction, after all the components have been assigned to the model.
+	 * @throws SQLException
+	 */
+	public void updateModelMemberships() throws SQLException {
+		if ( this.exportedModelId == null )
+			return;
+
+		int previousModelVersion = this.exportedModelVersion - 1;
+
+		if ( this.isMembershipRangesExport ) {
+			for ( String[] membershipTable: modelMembershipTables )
+				updateModelMembershipRanges(membershipTable[0], membershipTable[1], membershipTable[2], previousModelVersion);
+		} else if ( previousModelVersion > 0 ) {
+			for ( String[] membershipTable: modelMembershipTables )
+				executeRequest("UPDATE "+this.schemaPrefix+membershipTable[0]+" SET model_version_to = ? WHERE model_id = ? AND model_version_to = ?", previousModelVersion, this.exportedModelId, OPEN_MODEL_VERSION);
+		}
+
+		flushBatches();
+
+		this.exportedMemberships.clear();
+		this.exportedModelId = null;
+	}
+
+	/**
+	 * Compares the memberships of the exported model version to those of the previous model version, and writes only the differences in a *_in_model table
+	 * @param table name of the *_in_model table, without the schema prefix
+	 * @param primaryKey name of the table's primary key
+	 * @param component prefix of the component columns (profile, folder, element, ...)
+	 * @param previousModelVersion
+	 * @throws SQLException
+	 */
+	private void updateModelMembershipRanges(String table, String primaryKey, String component, int previousModelVersion) throws SQLException {
+		Map<String, Object[]> memberships = this.exportedMemberships.get(table);
+		if ( memberships == null )
+			memberships = new LinkedHashMap<>();
+		boolean hasParentFolder = !table.equals("profiles_in_model");
+		int posIndex = this.exportedMembershipsColumns.containsKey(table) ? this.exportedMembershipsColumns.get(table).length - 1 : 0;
+
+		List<Integer> rangesToClose = new ArrayList<>();
+		List<Integer> rangesToReopen = new ArrayList<>();
+		if ( previousModelVersion > 0 ) {
+			// the rows of the exported model version are not written yet, so the rows valid in the previous model version are the ones whose range ends at or after it
+			try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT "+primaryKey+", "+component+"_id, "+component+"_version"+(hasParentFolder ? ", parent_folder_id" : "")+", model_version_to, pos FROM "+this.schemaPrefix+table+" WHERE model_id = ? AND model_version_to >= ?", this.exportedModelId, previousModelVersion) ) {
+				while ( result.next() ) {
+					boolean isOpen = (result.getInt("model_version_to") == OPEN_MODEL_VERSION);
+					Object[] membership = memberships.get(result.getString(component+"_id"));
+					if ( (membership != null)
+							&& ((Integer)membership[1] == result.getInt(component+"_version"))
+							&& (!hasParentFolder || DBPlugin.areEqual((String)membership[2], result.getString("parent_folder_id")))
+							&& ((Integer)membership[posIndex] == result.getInt("pos")) ) {
+						// the membership did not change (including the position, as the components are imported in that order), so there is nothing to write, except if the range has been closed by an export of all the memberships
+						memberships.remove(result.getString(component+"_id"));
+						if ( !isOpen )
+							rangesToReopen.add(result.getInt(primaryKey));
+					} else if ( isOpen )
+						rangesToClose.add(result.getInt(primaryKey));
+				}
+			}
+		}
+
+		if ( logger.isDebugEnabled() ) logger.debug("Updating "+table+": "+rangesToClose.size()+" ranges closed, "+rangesToReopen.size()+" ranges reopened, "+memberships.size()+" ranges created");
+
+		updateModelVersionRangeEnd(table, primaryKey, rangesToClose, previousModelVersion);
+		updateModelVersionRangeEnd(table, primaryKey, rangesToReopen, OPEN_MODEL_VERSION);
+
+		String[] columns = this.exportedMembershipsColumns.get(table);
+		for ( Object[] membership: memberships.values() ) {
+			membership[columns.length - 2] = OPEN_MODEL_VERSION;
+			insert(this.schemaPrefix+table, columns, membership);
+		}
+	}
+
+	/**
+	 * Sets the end of the model versions range of rows of a *_in_model table
+	 * @param table name of the *_in_model table, without the schema prefix
+	 * @param primaryKey name of the table's primary key
+	 * @param keys primary keys of the rows to update
+	 * @param modelVersionTo the new end of the range
+	 * @throws SQLException
+	 */
+	private void updateModelVersionRangeEnd(String table, String primaryKey, List<Integer> keys, int modelVersionTo) throws SQLException {
+		if ( keys.isEmpty() )
+			return;
+
+		try ( DBStatement updateStatement = new DBStatement(this.databaseEntry.getName(), this.connection, "UPDATE "+this.schemaPrefix+table+" SET model_version_to = ? WHERE "+primaryKey+" = ?", modelVersionTo, keys.get(0)) ) {
+			updateStatement.addBatch();
+			for ( int i = 1 ; i < keys.size() ; ++i ) {
+				updateStatement.addBatch(modelVersionTo, keys.get(i));
+				if ( updateStatement.getBatchCount() >= maxValuesInSQLRequest )
+					updateStatement.executeBatch();
+			}
+			updateStatement.executeBatch();
+		}
+	}
+
 	/**
 	 * Sets the auto-commit mode of the database
 	 * @throws SQLException
 	 */
 	@Override
 	public void setAutoCommit(boolean autoCommit) throws SQLException {
+		// the pending batched rows must be sent before the transaction is committed by the auto-commit mode
+		if ( autoCommit )
+			setBatchSize(0);
+
 		super.setAutoCommit(autoCommit);
 
 		if ( autoCommit )
 			this.lastTransactionTimestamp = null;                                                         // all the request will have their own timestamp
-		else
+		else {
 			this.lastTransactionTimestamp = new Timestamp(Calendar.getInstance().getTime().getTime());    // all the requests will have the same timestamp
+			
+			// the rows are batched only inside a transaction, so that the commit and rollback apply to the whole batch
+			if ( !this.databaseEntry.getDriver().equals(DBDatabaseDriver.NEO4J) )
+				setBatchSize(DBPlugin.INSTANCE.getPreferenceStore().getInt("exportBatchSize"));
+		}
 	}
 
 	/**
@@ -2287,6 +3179,41 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		this.lastTransactionTimestamp = new Timestamp(Calendar.getInstance().getTime().getTime());
 	}
 
+	/**
+	 * Sends all the pending batched rows to the database, including the rows of the properties and features sets and of the images that are not in the database yet
+	 * @throws SQLException
+	 */
+	@Override
+	public void flushBatches() throws SQLException {
+		writePendingSets("properties");
+		writePendingSets("features");
+		writePendingImages();
+		super.flushBatches();
+	}
+
+	/**
+	 * Rollbacks the current transaction
+	 * @param savepoint 
+	 * @throws SQLException 
+	 */
+	@Override
+	public void rollback(Savepoint savepoint) throws SQLException {
+		super.rollback(savepoint);
+
+		// the properties and features sets and the images written in the transaction are not in the database anymore,
+		// and the latest versions and the memberships registered in the transaction must not be written by a later transaction
+		if ( savepoint == null ) {
+			this.exportedLatestVersions.clear();
+			this.exportedMemberships.clear();
+			this.exportedMembershipsColumns.clear();
+			this.exportedSets.clear();
+			this.pendingSets.clear();
+			this.exportedImageHashes.clear();
+			this.pendingImages.clear();
+			this.pendingImagesSize = 0;
+		}
+	}
+
 	/**
 	 * Reset the counters
 	 */
@@ -2306,6 +3233,9 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 		this.viewsNotInModel.clear();
 		this.imagesNotInModel.clear();
 		this.imagesNotInDatabase.clear();
+		this.exportedLatestVersions.clear();
+		this.exportedMemberships.clear();
+		this.exportedModelId = null;
 	}
 
 	/**
@@ -2315,6 +3245,7 @@ public class DBDatabaseExportConnection extends DBDatabaseConnection {
 	@Override
 	public void close() throws SQLException {
 		reset();
+		discardBatches();
 
 		if ( !this.isconnectionDuplicate )
 			super.close();
@@ -6,7 +6,8 @@
 
 package org.archicontribs.database.connection;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
@@ -99,6 +100,8 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 		super.schema = exportConnection.schema;
 		super.schemaPrefix = exportConnection.schemaPrefix;
 		super.connection = exportConnection.connection;
+		super.checksumAlgorithm = exportConnection.checksumAlgorithm;
+		super.connectionPool = exportConnection.connectionPool;
 		this.isExportConnectionDuplicate = true;
 		
 		boolean isOracle = this.databaseEntry.getDriver().equals(DBDatabaseDriver.ORACLE);
@@ -122,6 +125,8 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
         super.schema = databaseConnection.schema;
         super.schemaPrefix = databaseConnection.schemaPrefix;
         super.connection = databaseConnection.connection;
+        super.checksumAlgorithm = databaseConnection.checksumAlgorithm;
+        super.connectionPool = databaseConnection.connectionPool;
         this.isExportConnectionDuplicate = true;
         
         boolean isOracle = this.databaseEntry.getDriver().equals(DBDatabaseDriver.ORACLE);
@@ -191,27 +196,28 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 		try {
 			if ( version == 0 ) {
 				// because of PostGreSQL, we need to split the request in two
+				// the latest version of the component is given by the latest_versions table
 				switch ( clazz ) {
 					case "IArchimateModel":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, 'ArchimateModel' as class, name, note, purpose, created_by, created_on, properties, features, checksum FROM "+this.schemaPrefix+"models m WHERE id = ? AND version = (SELECT MAX(version) FROM "+this.schemaPrefix+"models WHERE id = m.id)", id);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, 'ArchimateModel' as class, name, note, purpose, created_by, created_on, properties, features, properties_set, features_set, checksum FROM "+this.schemaPrefix+"models m"+getLatestVersionJoin("models", "m.id")+" AND latest_versions.latest_version = m.version WHERE id = ?", id);
 						break;
 					case "IArchimateElement":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, name, documentation, type, profile, created_by, created_on, properties, features, checksum FROM "+this.schemaPrefix+"elements e WHERE id = ? AND version = (SELECT MAX(version) FROM "+this.schemaPrefix+"elements WHERE id = e.id)", id);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, name, documentation, type, profile, created_by, created_on, properties, features, properties_set, features_set, checksum FROM "+this.schemaPrefix+"elements e"+getLatestVersionJoin("elements", "e.id")+" AND latest_versions.latest_version = e.version WHERE id = ?", id);
 						break;
 					case "IArchimateRelationship":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, name, documentation, source_id, target_id, strength, access_type, profile, created_by, created_on, properties, features, checksum FROM "+this.schemaPrefix+"relationships r WHERE id = ? AND version = (SELECT MAX(version) FROM "+this.schemaPrefix+"relationships WHERE id = r.id)", id);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, name, documentation, source_id, target_id, strength, access_type, profile, created_by, created_on, properties, features, properties_set, features_set, checksum FROM "+this.schemaPrefix+"relationships r"+getLatestVersionJoin("relationships", "r.id")+" AND latest_versions.latest_version = r.version WHERE id = ?", id);
 						break;
 					case "IFolder":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, 'Folder' as class, type, root_type, name, documentation, created_by, created_on, properties, features, checksum FROM "+this.schemaPrefix+"folders f WHERE id = ? AND version = (SELECT MAX(version) FROM "+this.schemaPrefix+"folders WHERE id = f.id)", id);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, 'Folder' as class, type, root_type, name, documentation, created_by, created_on, properties, features, properties_set, features_set, checksum FROM "+this.schemaPrefix+"folders f"+getLatestVersionJoin("folders", "f.id")+" AND latest_versions.latest_version = f.version WHERE id = ?", id);
 						break;
 					case "IDiagramModel":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, name, documentation, created_by, created_on, background, connection_router_type, viewpoint, properties, features, checksum, container_checksum FROM "+this.schemaPrefix+"views v WHERE id = ? AND version = (SELECT MAX(version) FROM "+this.schemaPrefix+"views WHERE id = v.id)", id);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, name, documentation, created_by, created_on, background, connection_router_type, viewpoint, properties, features, properties_set, features_set, checksum, container_checksum FROM "+this.schemaPrefix+"views v"+getLatestVersionJoin("views", "v.id")+" AND latest_versions.latest_version = v.version WHERE id = ?", id);
 						break;
 					case "IDiagramModelObject":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, container_id, element_id, diagram_ref_id, border_color, border_type, content, documentation, is_locked, image_path, image_position, line_color, line_width, fill_color, alpha, font, font_color, name, notes, text_alignment, text_position, type, x, y, width, height, created_by, created_on, properties, features, checksum FROM "+this.schemaPrefix+"views_objects v WHERE id = ? AND version = (SELECT MAX(version) FROM "+this.schemaPrefix+"views_objects WHERE id = v.id)", id);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, container_id, element_id, diagram_ref_id, border_color, border_type, content, documentation, is_locked, image_path, image_position, line_color, line_width, fill_color, alpha, font, font_color, name, notes, text_alignment, text_position, type, x, y, width, height, created_by, created_on, properties, features, properties_set, features_set, checksum FROM "+this.schemaPrefix+"views_objects v"+getLatestVersionJoin("views_objects", "v.id")+" AND latest_versions.latest_version = v.version WHERE id = ?", id);
 						break;
 					case "IDiagramModelConnection":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, container_id, name, documentation, is_locked, line_color, line_width, font, font_color, relationship_id, relationship_version, source_object_id, target_object_id, text_position, type, created_by, created_on, properties, features, bendpoints, checksum FROM "+this.schemaPrefix+"views_connections v WHERE id = ? AND version = (SELECT MAX(version) FROM "+this.schemaPrefix+"views_connections WHERE id = v.id)", id);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, container_id, name, documentation, is_locked, line_color, line_width, font, font_color, relationship_id, relationship_version, source_object_id, target_object_id, text_position, type, created_by, created_on, properties, features, properties_set, features_set, bendpoints, checksum FROM "+this.schemaPrefix+"views_connections v"+getLatestVersionJoin("views_connections", "v.id")+" AND latest_versions.latest_version = v.version WHERE id = ?", id);
 						break;
 					default:
 						throw new DBException("Do not know how to get a "+clazz+" from the database.");
@@ -219,25 +225,25 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 			} else {
 				switch ( clazz ) {
 					case "IArchimateModel":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, 'ArchimateModel' as class, name, note, purpose, created_by, created_on, properties, features, checksum FROM "+this.schemaPrefix+"models m WHERE id = ? AND version = ?", id, version);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, 'ArchimateModel' as class, name, note, purpose, created_by, created_on, properties, features, properties_set, features_set, checksum FROM "+this.schemaPrefix+"models m WHERE id = ? AND version = ?", id, version);
 						break;
 					case "IArchimateElement":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, name, documentation, type, profile, created_by, created_on, properties, features, checksum FROM "+this.schemaPrefix+"elements WHERE id = ? AND version = ?", id, version);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, name, documentation, type, profile, created_by, created_on, properties, features, properties_set, features_set, checksum FROM "+this.schemaPrefix+"elements WHERE id = ? AND version = ?", id, version);
 						break;
 					case "IArchimateRelationship":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, name, documentation, source_id, target_id, strength, access_type, profile, created_by, created_on, properties, features, checksum FROM "+this.schemaPrefix+"relationships WHERE id = ? AND version = ?", id, version);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, name, documentation, source_id, target_id, strength, access_type, profile, created_by, created_on, properties, features, properties_set, features_set, checksum FROM "+this.schemaPrefix+"relationships WHERE id = ? AND version = ?", id, version);
 						break;
 					case "IFolder":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, 'Folder' as class, type, root_type, name, documentation, created_by, created_on, properties, features, checksum FROM "+this.schemaPrefix+"folders WHERE id = ? AND version = ?", id, version);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, 'Folder' as class, type, root_type, name, documentation, created_by, created_on, properties, features, properties_set, features_set, checksum FROM "+this.schemaPrefix+"folders WHERE id = ? AND version = ?", id, version);
 						break;
 					case "IDiagramModel":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, name, documentation, created_by, created_on, background, connection_router_type, viewpoint, properties, features, checksum, container_checksum FROM "+this.schemaPrefix+"views WHERE id = ? AND version = ?", id, version);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, name, documentation, created_by, created_on, background, connection_router_type, viewpoint, properties, features, properties_set, features_set, checksum, container_checksum FROM "+this.schemaPrefix+"views WHERE id = ? AND version = ?", id, version);
 						break;
 					case "IDiagramModelObject":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, container_id, element_id, diagram_ref_id, border_color, border_type, content, documentation, is_locked, image_path, image_position, line_color, line_width, fill_color, alpha, font, font_color, name, notes, text_alignment, text_position, type, x, y, width, height, properties, features, checksum FROM "+this.schemaPrefix+"views_objects WHERE id = ? AND version = ?", id, version);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, container_id, element_id, diagram_ref_id, border_color, border_type, content, documentation, is_locked, image_path, image_position, line_color, line_width, fill_color, alpha, font, font_color, name, notes, text_alignment, text_position, type, x, y, width, height, properties, features, properties_set, features_set, checksum FROM "+this.schemaPrefix+"views_objects WHERE id = ? AND version = ?", id, version);
 						break;
 					case "IDiagramModelConnection":
-						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, container_id, name, documentation, is_locked, line_color, line_width, font, font_color, relationship_id, relationship_version, source_object_id, target_object_id, text_position, type, created_by, created_on, properties, features, bendpoints, checksum FROM "+this.schemaPrefix+"views_connections v WHERE id = ? AND version = ?", id, version);
+						result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT id, version, class, container_id, name, documentation, is_locked, line_color, line_width, font, font_color, relationship_id, relationship_version, source_object_id, target_object_id, text_position, type, created_by, created_on, properties, features, properties_set, features_set, bendpoints, checksum FROM "+this.schemaPrefix+"views_connections v WHERE id = ? AND version = ?", id, version);
 						break;
 				default:
 					throw new DBException("Do not know how to get a "+clazz+" from the database.");
@@ -252,7 +258,7 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 				// properties
 				ArrayList<DBProperty> databaseProperties = new ArrayList<>();
 				if ( result.getInt("properties") != 0 ) {
-					try ( DBSelect resultProperties = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT name, value FROM "+this.schemaPrefix+"properties WHERE parent_id = ? AND parent_version = ? ORDER BY POS", id, version) ) {
+					try ( DBSelect resultProperties = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT name, value FROM "+this.schemaPrefix+"properties WHERE parent_id = ? AND parent_version = ? ORDER BY POS", getSetParent(id, version, result.getString("properties_set"))) ) {
 						while ( resultProperties.next() )
 							databaseProperties.add(new DBProperty(resultProperties.getString("name"), resultProperties.getString("value")));
 					}
@@ -262,7 +268,7 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 				// features
 				ArrayList<DBProperty> databaseFeatures = new ArrayList<>();
 				if ( result.getInt("features") != 0 ) {
-					try ( DBSelect resultFeatures = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT name, value FROM "+this.schemaPrefix+"features WHERE parent_id = ? AND parent_version = ? ORDER BY POS", id, version) ) {
+					try ( DBSelect resultFeatures = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT name, value FROM "+this.schemaPrefix+"features WHERE parent_id = ? AND parent_version = ? ORDER BY POS", getSetParent(id, version, result.getString("features_set"))) ) {
 						while ( resultFeatures.next() )
 							databaseFeatures.add(new DBProperty(resultFeatures.getString("name"), resultFeatures.getString("value")));
 					}
@@ -284,7 +290,7 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 				// profiles
 				if ( DBPlugin.areEqual(clazz,  "IArchimateModel") ) {
 					ArrayList<DBProfile> databaseProfiles = new ArrayList<>();
-					try ( DBSelect resultProfiles = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT name, concept_type, is_specialization, image_path FROM "+this.schemaPrefix+"profiles JOIN "+this.schemaPrefix+"profiles_in_model pim WHERE profiles.id = pim.profile_id AND profiles.version = pim.profile_version AND pim.model_ID = ? AND pim.model_version = ? ORDER BY POS", id, version) ) {
+					try ( DBSelect resultProfiles = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT name, concept_type, is_specialization, image_path FROM "+this.schemaPrefix+"profiles JOIN "+this.schemaPrefix+"profiles_in_model pim WHERE profiles.id = pim.profile_id AND profiles.version = pim.profile_version AND pim.model_ID = ? AND ? BETWEEN pim.model_version AND pim.model_version_to ORDER BY POS", id, version) ) {
 						while ( resultProfiles.next() )
 							databaseProfiles.add(new DBProfile(resultProfiles.getString("name"), resultProfiles.getString("concept_type"), DBPlugin.getBooleanValue(resultProfiles.getObject("is_specialization")), resultProfiles.getString("image_path")));
 					}
@@ -362,6 +368,58 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 	private String importElementsRequest;
 	private String importRelationshipsRequest;
 	private String importViewsRequest;
+	
+	/**
+	 * Requests that select the components of the model, without ORDER BY clause so that they can be used as sub-requests
+	 */
+	private String selectFoldersRequest;
+	private String selectViewsRequest;
+	private String selectViewsObjectsRequest;
+	private String selectViewsConnectionsRequest;
+	
+	/**
+	 * Properties and features of the components of the model that have been read in advance, indexed by "id/version" of their parent
+	 */
+	private HashMap<String, List<DBProperty>> prefetchedProperties = new HashMap<>();
+	private HashMap<String, List<DBProperty>> prefetchedFeatures = new HashMap<>();
+
+	/**
+	 * Components counts recorded in the models table when the model version has been exported, in the same order as DBDatabaseConnection.modelsCountColumns<br>
+	 * Null if the model version has been exported before the counts were recorded.
+	 */
+	private int[] modelComponentsCounts = null;
+	private String modelComponentsCountsKey = null;
+
+	/**
+	 * True if the auto-commit mode has been switched off by {@link #setStreamingMode(boolean)}
+	 */
+	private boolean isStreamingMode = false;
+
+	/**
+	 * The PostgreSQL JDBC driver reads the whole result set in memory, unless the auto-commit mode is off, in which case it uses a cursor
+	 * and reads the rows by chunks of the fetch size. This method switches the auto-commit mode off on PostgreSQL databases for the duration
+	 * of an import, that only reads the database, and restores it at the end of the import.<br>
+	 * A failed request does not prevent the next ones from being sent in the transaction, as {@link DBSelect} sends them in a savepoint.<br>
+	 * The connection is left untouched if it is already part of a transaction.
+	 * @param isStreaming true at the beginning of the import, false at the end
+	 * @throws SQLException
+	 */
+	public void setStreamingMode(boolean isStreaming) throws SQLException {
+		if ( !this.databaseEntry.getDriver().equals(DBDatabaseDriver.POSTGRESQL) )
+			return;
+
+		if ( isStreaming ) {
+			if ( !this.isStreamingMode && this.connection.getAutoCommit() ) {
+				setAutoCommit(false);
+				this.isStreamingMode = true;
+			}
+		} else if ( this.isStreamingMode ) {
+			// nothing has been written, so the read only transaction is rolled back
+			this.isStreamingMode = false;
+			rollback();
+			setAutoCommit(true);
+		}
+	}
 
 	/**
 	 * Import the model metadata from the database
@@ -384,18 +442,28 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 			}
 		}
 
-		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT name, purpose, created_on, properties, features, checksum FROM "+this.schemaPrefix+"models WHERE id = ? AND version = ?", model.getId(), model.getInitialVersion().getVersion()) ) {
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT name, purpose, created_on, properties, features, properties_set, features_set, checksum, "+String.join(", ", modelsCountColumns)+" FROM "+this.schemaPrefix+"models WHERE id = ? AND version = ?", model.getId(), model.getInitialVersion().getVersion()) ) {
 			result.next();
 			model.setName(result.getString("name"));
 			model.setPurpose(result.getString("purpose"));
 			model.getInitialVersion().setTimestamp(result.getTimestamp("created_on"));
 			model.getInitialVersion().setChecksum(result.getString("checksum"));
 			
+			// all the counts are recorded together, so they are all null for the model versions exported before they were recorded
+			this.modelComponentsCounts = null;
+			this.modelComponentsCountsKey = null;
+			if ( result.getObject("nb_elements") != null ) {
+				this.modelComponentsCounts = new int[modelsCountColumns.length];
+				for ( int i = 0 ; i < modelsCountColumns.length ; ++i )
+					this.modelComponentsCounts[i] = result.getInt(modelsCountColumns[i]);
+				this.modelComponentsCountsKey = model.getId()+"/"+model.getInitialVersion().getVersion();
+			}
+			
 			if ( result.getInt("properties") != 0 )
-				importProperties(model, model.getId(), model.getInitialVersion().getVersion());
+				importProperties(model, model.getId(), model.getInitialVersion().getVersion(), result.getString("properties_set"));
 
 			if ( result.getInt("features") != 0 )
-				importFeatures(model, model.getId(), model.getInitialVersion().getVersion());
+				importFeatures(model, model.getId(), model.getInitialVersion().getVersion(), result.getString("features_set"));
 			
 			importMetadata(model);
 		}
@@ -417,126 +485,152 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 	    this.toCharStrength = isOracle ? "TO_CHAR(strength)" : "strength";
 		this.toCharStrengthAsStrength = isOracle ? "TO_CHAR(strength) AS strength" : "strength";
 
-		String profilesVersionToImport = model.isLatestVersionImported() ? "(SELECT MAX(version) FROM "+this.schemaPrefix+"profiles WHERE profiles.id = profiles_in_model.profile_id)" : "profiles_in_model.profile_version";
+		// when the latest version is imported, the latest_versions table gives the version to join with
+		String profilesLatestVersionJoin = model.isLatestVersionImported() ? getLatestVersionJoin("profiles", "profiles_in_model.profile_id") : "";
+		String profilesVersionToImport = model.isLatestVersionImported() ? "latest_versions.latest_version" : "profiles_in_model.profile_version";
 		String selectProfilesRequest = "SELECT DISTINCT profile_id, profile_version, name, is_specialization, image_path, concept_type, created_on, checksum, pos"
 				+ " FROM "+this.schemaPrefix+"profiles_in_model"
+				+ profilesLatestVersionJoin
 				+ " JOIN "+this.schemaPrefix+"profiles ON profiles.id = profiles_in_model.profile_id AND profiles.version = "+profilesVersionToImport
-				+ " WHERE model_id = ? AND model_version = ?";
-		try ( DBSelect resultProfiles = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT COUNT(*) AS countProfiles FROM ("+selectProfilesRequest+") pldrs", model.getId(), model.getInitialVersion().getVersion()) ) {
-			resultProfiles.next();
-			this.countProfilesToImport = resultProfiles.getInt("countProfiles");
-			this.countProfilesImported = 0;
-		}
+				+ " WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to";
 		this.importProfilesRequest = selectProfilesRequest + " ORDER BY pos";				// we need to put aside the ORDER BY from the SELECT FROM SELECT because of SQL Server
 		
-		String foldersVersionToImport = model.isLatestVersionImported() ? "(SELECT MAX(version) FROM "+this.schemaPrefix+"folders WHERE folders.id = folders_in_model.folder_id)" : "folders_in_model.folder_version";
-		String selectFoldersRequest = "SELECT DISTINCT folder_id, folder_version, parent_folder_id, type, root_type, name, "+this.toCharDocumentationAsDocumentation+", created_on, properties, features, checksum, pos"
+		String foldersVersionToImport = model.isLatestVersionImported() ? "latest_versions.latest_version" : "folders_in_model.folder_version";
+		String selectFoldersRequest = "SELECT DISTINCT folder_id, folder_version, parent_folder_id, type, root_type, name, "+this.toCharDocumentationAsDocumentation+", created_on, properties, features, properties_set, features_set, checksum, pos"
 				+ " FROM "+this.schemaPrefix+"folders_in_model"
+				+ (model.isLatestVersionImported() ? getLatestVersionJoin("folders", "folders_in_model.folder_id") : "")
 				+ " JOIN "+this.schemaPrefix+"folders ON folders.id = folders_in_model.folder_id AND folders.version = "+foldersVersionToImport
-				+ " WHERE model_id = ? AND model_version = ?";
-		try ( DBSelect resultFolders = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT COUNT(*) AS countFolders FROM ("+selectFoldersRequest+") fldrs", model.getId(), model.getInitialVersion().getVersion()) ) {
-			resultFolders.next();
-			this.countFoldersToImport = resultFolders.getInt("countFolders");
-			this.countFoldersImported = 0;
-		}
+				+ " WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to";
 		this.importFoldersRequest = selectFoldersRequest + " ORDER BY pos";				// we need to put aside the ORDER BY from the SELECT FROM SELECT because of SQL Server
+		this.selectFoldersRequest = selectFoldersRequest;
 		
-		String elementsVersionToImport = model.isLatestVersionImported() ? "(SELECT MAX(version) FROM "+this.schemaPrefix+"elements WHERE id = element_id)" : "element_version";
-		this.importElementsRequest = "SELECT DISTINCT element_id, parent_folder_id, version, class, name, type, "+this.toCharDocumentationAsDocumentation+", profile, created_on, properties, features, checksum"
+		String elementsVersionToImport = model.isLatestVersionImported() ? "latest_versions.latest_version" : "element_version";
+		this.importElementsRequest = "SELECT DISTINCT element_id, parent_folder_id, version, class, name, type, "+this.toCharDocumentationAsDocumentation+", profile, created_on, properties, features, properties_set, features_set, checksum"
 				+ " FROM "+this.schemaPrefix+"elements_in_model"
+				+ (model.isLatestVersionImported() ? getLatestVersionJoin("elements", "elements_in_model.element_id") : "")
 				+ " JOIN "+this.schemaPrefix+"elements ON elements.id = element_id AND version = "+elementsVersionToImport
-				+ " WHERE model_id = ? AND model_version = ?"
-				+ " GROUP BY element_id, parent_folder_id, version, class, name, type, "+this.toCharDocumentation+", profile, created_on, properties, features, checksum";
-		try (DBSelect resultElements = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT COUNT(*) AS countElements FROM ("+this.importElementsRequest+") elts", model.getId(), model.getInitialVersion().getVersion()) ) {
-			resultElements.next();
-			this.countElementsToImport = resultElements.getInt("countElements");
-			this.countElementsImported = 0;
-		}
+				+ " WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to"
+				+ " GROUP BY element_id, parent_folder_id, version, class, name, type, "+this.toCharDocumentation+", profile, created_on, properties, features, properties_set, features_set, checksum";
 
-
-		String relationshipsVersionToImport = model.isLatestVersionImported() ? "(SELECT MAX(version) FROM "+this.schemaPrefix+"relationships WHERE id = relationship_id)" : "relationship_version";
-		this.importRelationshipsRequest = "SELECT DISTINCT relationship_id, parent_folder_id, version, class, name, "+this.toCharDocumentationAsDocumentation+", source_id, target_id, "+this.toCharStrengthAsStrength+", access_type, is_directed, profile, created_on, properties, features, checksum"
+		String relationshipsVersionToImport = model.isLatestVersionImported() ? "latest_versions.latest_version" : "relationship_version";
+		this.importRelationshipsRequest = "SELECT DISTINCT relationship_id, parent_folder_id, version, class, name, "+this.toCharDocumentationAsDocumentation+", source_id, target_id, "+this.toCharStrengthAsStrength+", access_type, is_directed, profile, created_on, properties, features, properties_set, features_set, checksum"
 				+ " FROM "+this.schemaPrefix+"relationships_in_model"
+				+ (model.isLatestVersionImported() ? getLatestVersionJoin("relationships", "relationships_in_model.relationship_id") : "")
 				+ " INNER JOIN "+this.schemaPrefix+"relationships ON id = relationship_id AND version = "+relationshipsVersionToImport
-				+ " WHERE model_id = ? AND model_version = ?"
-				+ " GROUP BY relationship_id, parent_folder_id, version, class, name, "+this.toCharDocumentation+", source_id, target_id, "+this.toCharStrength+", access_type, is_directed, profile, created_on, properties, features, checksum";
-		try ( DBSelect resultRelationships = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT COUNT(*) AS countRelationships FROM ("+this.importRelationshipsRequest+") relts"
-				,model.getId()
-				,model.getInitialVersion().getVersion()
-				) ) {
-			resultRelationships.next();
-			this.countRelationshipsToImport = resultRelationships.getInt("countRelationships");
-			this.countRelationshipsImported = 0;
-		}
+				+ " WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to"
+				+ " GROUP BY relationship_id, parent_folder_id, version, class, name, "+this.toCharDocumentation+", source_id, target_id, "+this.toCharStrength+", access_type, is_directed, profile, created_on, properties, features, properties_set, features_set, checksum";
 
-		String viewsVersionToImport = model.isLatestVersionImported() ? "(select max(version) from "+this.schemaPrefix+"views where views.id = views_in_model.view_id)" : "views_in_model.view_version";
-		String selectViewsRequest = "SELECT DISTINCT id, version, parent_folder_id, class, name, "+this.toCharDocumentationAsDocumentation+", background, connection_router_type, viewpoint, created_on, properties, features, checksum, container_checksum, pos"
+		String viewsLatestVersionJoin = model.isLatestVersionImported() ? getLatestVersionJoin("views", "views_in_model.view_id") : "";
+		String viewsVersionToImport = model.isLatestVersionImported() ? "latest_versions.latest_version" : "views_in_model.view_version";
+		String selectViewsRequest = "SELECT DISTINCT id, version, parent_folder_id, class, name, "+this.toCharDocumentationAsDocumentation+", background, connection_router_type, viewpoint, created_on, properties, features, properties_set, features_set, checksum, container_checksum, pos"
 				+ " FROM "+this.schemaPrefix+"views_in_model"
+				+ viewsLatestVersionJoin
 				+ " JOIN "+this.schemaPrefix+"views ON views.id = views_in_model.view_id AND views.version = "+viewsVersionToImport
-				+ " WHERE model_id = ? AND model_version = ?";
-		try ( DBSelect resultViews = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT COUNT(*) AS countViews FROM ("+selectViewsRequest+") vws", model.getId(), model.getInitialVersion().getVersion()) ) {
-			resultViews.next();
-			this.countViewsToImport = resultViews.getInt("countViews");
-			this.countViewsImported = 0;
-		}
+				+ " WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to";
 		this.importViewsRequest = selectViewsRequest + " ORDER BY pos";				// we need to put aside the ORDER BY from the SELECT FROM SELECT because of SQL Server
+		this.selectViewsRequest = selectViewsRequest;
 
 		// versionToImport is same as for views
-		String selectViewsObjectsRequest = "SELECT DISTINCT id, version, class, container_id, element_id, diagram_ref_id, border_color, border_type, "+this.toCharContentAsContent+", "+this.toCharDocumentationAsDocumentation+", is_locked, image_path, image_position, line_color, line_width, fill_color, alpha, font, font_color, name, "+this.toCharNotesAsNotes+", text_alignment, text_position, type, x, y, width, height, properties, features, checksum"
+		String selectViewsObjectsRequest = "SELECT DISTINCT id, version, class, container_id, element_id, diagram_ref_id, border_color, border_type, "+this.toCharContentAsContent+", "+this.toCharDocumentationAsDocumentation+", is_locked, image_path, image_position, line_color, line_width, fill_color, alpha, font, font_color, name, "+this.toCharNotesAsNotes+", text_alignment, text_position, type, x, y, width, height, properties, features, properties_set, features_set, checksum"
 				+ " FROM "+this.schemaPrefix+"views_objects"
 				+ " JOIN "+this.schemaPrefix+"views_objects_in_view ON views_objects_in_view.object_id = views_objects.id AND views_objects_in_view.object_version = views_objects.version"
-				+ " JOIN "+this.schemaPrefix+"views_in_model ON views_objects_in_view.view_id = views_in_model.view_id AND views_objects_in_view.view_version = "+viewsVersionToImport
-				+ " WHERE model_id = ? AND model_version = ?";
-		try ( DBSelect resultViewObjects = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT COUNT(*) AS countViewsObjects FROM ("+selectViewsObjectsRequest+") vobjs", model.getId(), model.getInitialVersion().getVersion()) ) {
-			resultViewObjects.next();
-			this.countViewObjectsToImport = resultViewObjects.getInt("countViewsObjects");
-			this.countViewObjectsImported = 0;
-		}
+				+ " JOIN "+this.schemaPrefix+"views_in_model ON views_objects_in_view.view_id = views_in_model.view_id"+viewsLatestVersionJoin+" AND views_objects_in_view.view_version = "+viewsVersionToImport
+				+ " WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to";
 		// (unused) this.importViewsObjectsRequest = this.selectViewsObjectsRequest + " ORDER BY views_objects.pos";				// we need to put aside the ORDER BY from the SELECT FROM SELECT because of SQL Server
+		this.selectViewsObjectsRequest = selectViewsObjectsRequest;
 
 		// versionToImport is same as for views
-		String selectViewsConnectionsRequest = "SELECT DISTINCT id, version, class, container_id, name, "+this.toCharDocumentationAsDocumentation+", is_locked, line_color, line_width, font, font_color, relationship_id, source_object_id, target_object_id, text_position, type, properties, features, checksum "
+		String selectViewsConnectionsRequest = "SELECT DISTINCT id, version, class, container_id, name, "+this.toCharDocumentationAsDocumentation+", is_locked, line_color, line_width, font, font_color, relationship_id, source_object_id, target_object_id, text_position, type, properties, features, properties_set, features_set, checksum "
 				+ " FROM "+this.schemaPrefix+"views_connections"
 				+ " JOIN "+this.schemaPrefix+"views_connections_in_view ON views_connections_in_view.connection_id = views_connections.id AND views_connections_in_view.connection_version = views_connections.version"
-				+ " JOIN "+this.schemaPrefix+"views_in_model ON views_connections_in_view.view_id = views_in_model.view_id AND views_connections_in_view.view_version = "+viewsVersionToImport
-				+ " WHERE model_id = ? AND model_version = ?";
-		try ( DBSelect resultViewConnections = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT COUNT(*) AS countViewsConnections FROM ("+selectViewsConnectionsRequest+") vcons", model.getId(), model.getInitialVersion().getVersion()) ) {
-			resultViewConnections.next();
-			this.countViewConnectionsToImport = resultViewConnections.getInt("countViewsConnections");
-			this.countViewConnectionsImported = 0;
-		}
+				+ " JOIN "+this.schemaPrefix+"views_in_model ON views_connections_in_view.view_id = views_in_model.view_id"+viewsLatestVersionJoin+" AND views_connections_in_view.view_version = "+viewsVersionToImport
+				+ " WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to";
 		// (unused) this.importViewsConnectionsRequest = this.selectViewsConnectionsRequest + " ORDER BY views_connections.pos";				// we need to put aside the ORDER BY from the SELECT FROM SELECT because of SQL Server
+		this.selectViewsConnectionsRequest = selectViewsConnectionsRequest;
 
 		
 		
-		//try ( DBSelect resultProfiles = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT COUNT(DISTINCT image_path) AS countImages FROM ("+selectProfilesRequest+" AND image_path IS NOT null) pldr", model.getId(), model.getInitialVersion().getVersion()) ) {
-		//	resultProfiles.next();
-		//	this.countImagesToImport = resultProfiles.getInt("countImages");
-		//}
-		
 		// images can be found in views and in profiles
-		try ( DBSelect resultImages = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT COUNT(*) AS countImages FROM ("+
-				" SELECT DISTINCT image_path FROM "+this.schemaPrefix+"views_in_model"+
+		String selectImagesRequest = " SELECT DISTINCT image_path FROM "+this.schemaPrefix+"views_in_model"+
 				" INNER JOIN "+this.schemaPrefix+"views ON views_in_model.view_id = views.id AND views_in_model.view_version = views.version"+
 				" INNER JOIN "+this.schemaPrefix+"views_objects_in_view ON views_objects_in_view.view_id = views.id AND views_objects_in_view.view_version = views.version"+
 				" INNER JOIN "+this.schemaPrefix+"views_objects ON views_objects.id = views_objects_in_view.object_id AND views_objects.version = views_objects_in_view.object_version"+
-				" WHERE model_id = ? AND model_version = ? AND image_path IS NOT NULL"+
+				" WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to AND image_path IS NOT NULL"+
 				" UNION "+
 				" SELECT DISTINCT image_path FROM "+this.schemaPrefix+"profiles_in_model"+
+				profilesLatestVersionJoin+
 				" JOIN "+this.schemaPrefix+"profiles ON profiles.id = profiles_in_model.profile_id AND profiles.version = "+profilesVersionToImport+
-				" WHERE model_id = ? AND model_version = ? AND image_path IS NOT NULL"+
-				") pldr"
-				,model.getId()
-				,model.getInitialVersion().getVersion()
-				,model.getId()
-				,model.getInitialVersion().getVersion()
-				))
-		{
-			resultImages.next();
-			this.countImagesToImport += resultImages.getInt("countImages");		// we add the value to the number of images in the profiles
-			this.countImagesImported = 0;
+				" WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to AND image_path IS NOT NULL";
+
+		// the components counts recorded when the model version has been exported avoid counting the components in the database
+		// but when the latest version of the components is imported, the view objects, view connections and images may come from
+		// more recent versions of the views or specializations, so they still need to be counted in the database
+		boolean areCountsRecorded = (this.modelComponentsCounts != null) && DBPlugin.areEqual(this.modelComponentsCountsKey, model.getId()+"/"+model.getInitialVersion().getVersion());
+		boolean areViewsContentCountsRecorded = areCountsRecorded && !model.isLatestVersionImported();
+
+		// the remaining component types are counted in a single round trip to the database
+		// the first column identifies the component type as the rows of a UNION ALL are not guaranteed to be returned in order
+		StringBuilder countRequest = new StringBuilder();
+		int nbParameters = 0;
+		if ( areCountsRecorded ) {
+			this.countProfilesToImport = this.modelComponentsCounts[0];
+			this.countFoldersToImport = this.modelComponentsCounts[1];
+			this.countElementsToImport = this.modelComponentsCounts[2];
+			this.countRelationshipsToImport = this.modelComponentsCounts[3];
+			this.countViewsToImport = this.modelComponentsCounts[4];
+		} else {
+			appendCountRequest(countRequest, 1, selectProfilesRequest, "pldrs");
+			appendCountRequest(countRequest, 2, selectFoldersRequest, "fldrs");
+			appendCountRequest(countRequest, 3, this.importElementsRequest, "elts");
+			appendCountRequest(countRequest, 4, this.importRelationshipsRequest, "relts");
+			appendCountRequest(countRequest, 5, selectViewsRequest, "vws");
+			nbParameters += 10;
+		}
+		if ( areViewsContentCountsRecorded ) {
+			this.countViewObjectsToImport = this.modelComponentsCounts[5];
+			this.countViewConnectionsToImport = this.modelComponentsCounts[6];
+			this.countImagesToImport = this.modelComponentsCounts[7];
+		} else {
+			appendCountRequest(countRequest, 6, selectViewsObjectsRequest, "vobjs");
+			appendCountRequest(countRequest, 7, selectViewsConnectionsRequest, "vcons");
+			appendCountRequest(countRequest, 8, selectImagesRequest, "imgs");
+			nbParameters += 8;
 		}
 
+		if ( countRequest.length() != 0 ) {
+			// the model ID and version are needed by each of the component requests, and twice by the images request
+			Object[] countParameters = new Object[nbParameters];
+			for ( int i = 0 ; i < countParameters.length ; i += 2 ) {
+				countParameters[i] = model.getId();
+				countParameters[i+1] = model.getInitialVersion().getVersion();
+			}
+
+			try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, countRequest.toString(), countParameters) ) {
+				while ( result.next() ) {
+					int count = result.getInt("nb");
+					switch ( result.getInt("component_type") ) {
+						case 1: this.countProfilesToImport = count; break;
+						case 2: this.countFoldersToImport = count; break;
+						case 3: this.countElementsToImport = count; break;
+						case 4: this.countRelationshipsToImport = count; break;
+						case 5: this.countViewsToImport = count; break;
+						case 6: this.countViewObjectsToImport = count; break;
+						case 7: this.countViewConnectionsToImport = count; break;
+						case 8: this.countImagesToImport = count; break;
+						default: break;
+					}
+				}
+			}
+		}
+		this.countProfilesImported = 0;
+		this.countFoldersImported = 0;
+		this.countElementsImported = 0;
+		this.countRelationshipsImported = 0;
+		this.countViewsImported = 0;
+		this.countViewObjectsImported = 0;
+		this.countViewConnectionsImported = 0;
+		this.countImagesImported = 0;
+
 		if ( logger.isDebugEnabled() ) logger.debug("Importing "+this.countElementsToImport+" elements, "+this.countRelationshipsToImport+" relationships, "+this.countFoldersToImport+" folders, "+this.countViewsToImport+" views, "+this.countViewObjectsToImport+" views objects, "+this.countViewConnectionsToImport+" views connections, and "+this.countImagesToImport+" images.");
 
 		// initializing the HashMaps that will be used to reference imported objects
@@ -546,6 +640,12 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 	}
 	
 	
+	private static void appendCountRequest(StringBuilder countRequest, int componentType, String selectRequest, String alias) {
+		if ( countRequest.length() != 0 )
+			countRequest.append(" UNION ALL ");
+		countRequest.append("SELECT "+componentType+" AS component_type, COUNT(*) AS nb FROM ("+selectRequest+") "+alias);
+	}
+	
 	/**
 	 * Prepare the import of the profiles from the database
 	 * @param model 
@@ -624,6 +724,7 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 				,model.getId()
 				,model.getInitialVersion().getVersion()
 				);
+		prefetchPropertiesAndFeatures(model, this.selectFoldersRequest, "folder_id", "folder_version");
 	}
 
 
@@ -671,10 +772,10 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 				}
 
 				if ( this.currentResultSetFolders.getInt("properties") != 0 )
-					importProperties(folder, folder.getId(), dbMetadata.getInitialVersion().getVersion());
+					importProperties(folder, folder.getId(), dbMetadata.getInitialVersion().getVersion(), this.currentResultSetFolders.getString("properties_set"));
 				
 				if ( this.currentResultSetFolders.getInt("features") != 0)
-					importFeatures(folder, folder.getId(), dbMetadata.getInitialVersion().getVersion());
+					importFeatures(folder, folder.getId(), dbMetadata.getInitialVersion().getVersion(), this.currentResultSetFolders.getString("features_set"));
 
 				// we reference this folder for future use (storing sub-folders or components into it ...)
 				model.countObject(folder, false);
@@ -698,6 +799,7 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 				,model.getId()
 				,model.getInitialVersion().getVersion()
 				);
+		prefetchPropertiesAndFeatures(model, this.importElementsRequest, "element_id", "version");
 
 	}
 
@@ -743,10 +845,10 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 				dbMetadata.addProfileId(this.currentResultSetElements.getString("profile"));
 				
 				if ( this.currentResultSetElements.getInt("properties") != 0 )
-					importProperties(element, element.getId(), dbMetadata.getInitialVersion().getVersion());
+					importProperties(element, element.getId(), dbMetadata.getInitialVersion().getVersion(), this.currentResultSetElements.getString("properties_set"));
 				
 				if ( this.currentResultSetElements.getInt("features") != 0 )
-					importFeatures(element, element.getId(), dbMetadata.getInitialVersion().getVersion());
+					importFeatures(element, element.getId(), dbMetadata.getInitialVersion().getVersion(), this.currentResultSetElements.getString("features_set"));
 
 				// we reference the element for future use (establishing relationships, creating views objects, ...)
 				model.countObject(element, false);
@@ -770,6 +872,7 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 				,model.getId()
 				,model.getInitialVersion().getVersion()
 				);
+		prefetchPropertiesAndFeatures(model, this.importRelationshipsRequest, "relationship_id", "version");
 	}
 
 	/**
@@ -838,10 +941,10 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 
 				
 				if ( this.currentResultSetRelationships.getInt("properties") != 0 )
-					importProperties(relationship, relationship.getId(), dbMetadata.getInitialVersion().getVersion());
+					importProperties(relationship, relationship.getId(), dbMetadata.getInitialVersion().getVersion(), this.currentResultSetRelationships.getString("properties_set"));
 				
 				if ( this.currentResultSetRelationships.getInt("features") != 0 )
-					importFeatures(relationship, relationship.getId(), dbMetadata.getInitialVersion().getVersion());
+					importFeatures(relationship, relationship.getId(), dbMetadata.getInitialVersion().getVersion(), this.currentResultSetRelationships.getString("features_set"));
 
 				model.countObject(relationship, false);
 
@@ -865,6 +968,10 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 				model.getId(),
 				model.getInitialVersion().getVersion()
 				);
+		prefetchPropertiesAndFeatures(model, this.selectViewsRequest, "id", "version");
+		// the views objects and views connections are imported view per view, so we read their properties and features for the whole model now
+		prefetchPropertiesAndFeatures(model, this.selectViewsObjectsRequest, "id", "version");
+		prefetchPropertiesAndFeatures(model, this.selectViewsConnectionsRequest, "id", "version");
 	}
 
 	/**
@@ -904,10 +1011,10 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 				model.getAllFolders().get(this.currentResultSetViews.getString("parent_folder_id")).getElements().add(view);
 
 				if ( this.currentResultSetViews.getInt("properties") != 0 )
-					importProperties(view, view.getId(), dbMetadata.getInitialVersion().getVersion());
+					importProperties(view, view.getId(), dbMetadata.getInitialVersion().getVersion(), this.currentResultSetViews.getString("properties_set"));
 				
 				if ( this.currentResultSetViews.getInt("features") != 0 )
-					importFeatures(view, view.getId(), dbMetadata.getInitialVersion().getVersion());
+					importFeatures(view, view.getId(), dbMetadata.getInitialVersion().getVersion(), this.currentResultSetViews.getString("features_set"));
 
 				// we reference the view for future use
 				model.countObject(view, false);
@@ -928,7 +1035,7 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 	 */
 	public void prepareImportViewsObjects(String id, int version) throws SQLException {
 		if ( logger.isDebugEnabled() ) logger.debug("   Preparing to import views objects for view "+id+" version "+version);
-		this.currentResultSetViewsObjects = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT DISTINCT id, version, class, container_id, element_id, diagram_ref_id, border_color, border_type, "+this.toCharContentAsContent+", "+this.toCharDocumentationAsDocumentation+", is_locked, image_path, image_position, line_color, line_width, fill_color, alpha, font, font_color, name, "+this.toCharNotesAsNotes+", text_alignment, text_position, type, x, y, width, height, properties, features, checksum, created_on, pos"
+		this.currentResultSetViewsObjects = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT DISTINCT id, version, class, container_id, element_id, diagram_ref_id, border_color, border_type, "+this.toCharContentAsContent+", "+this.toCharDocumentationAsDocumentation+", is_locked, image_path, image_position, line_color, line_width, fill_color, alpha, font, font_color, name, "+this.toCharNotesAsNotes+", text_alignment, text_position, type, x, y, width, height, properties, features, properties_set, features_set, checksum, created_on, pos"
 				+" FROM "+this.schemaPrefix+"views_objects"
 				+" JOIN "+this.schemaPrefix+"views_objects_in_view ON views_objects_in_view.object_id = views_objects.id AND views_objects_in_view.object_version = views_objects.version"
 				+" WHERE view_id = ? AND view_version = ?"
@@ -1015,10 +1122,10 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 
 				// If the object has got properties but does not have a linked element, then it may have distinct properties
 				if ( eObject instanceof IProperties && this.currentResultSetViewsObjects.getString("element_id")==null && (this.currentResultSetViewsObjects.getInt("properties") != 0) )
-					importProperties((IProperties)eObject, ((IIdentifier)eObject).getId(), dbMetadata.getInitialVersion().getVersion());
+					importProperties((IProperties)eObject, ((IIdentifier)eObject).getId(), dbMetadata.getInitialVersion().getVersion(), this.currentResultSetViewsObjects.getString("properties_set"));
 				
 				if ( this.currentResultSetViewsObjects.getInt("features") != 0 )
-					importFeatures((IFeatures)eObject, ((IIdentifier)eObject).getId(), dbMetadata.getInitialVersion().getVersion());
+					importFeatures((IFeatures)eObject, ((IIdentifier)eObject).getId(), dbMetadata.getInitialVersion().getVersion(), this.currentResultSetViewsObjects.getString("features_set"));
 
 				// we reference the view for future use
 				model.countObject(eObject, false);
@@ -1044,7 +1151,7 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 	 */
 	public void prepareImportViewsConnections(String id, int version) throws SQLException {
 		if ( logger.isDebugEnabled() ) logger.debug("   Preparing to import views connections for view "+id+" version "+version);
-		this.currentResultSetViewsConnections = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT DISTINCT id, version, class, container_id, name, "+this.toCharDocumentationAsDocumentation+", is_locked, line_color, line_width, font, font_color, relationship_id, source_object_id, target_object_id, text_position, type, properties, features, bendpoints, checksum, pos"
+		this.currentResultSetViewsConnections = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT DISTINCT id, version, class, container_id, name, "+this.toCharDocumentationAsDocumentation+", is_locked, line_color, line_width, font, font_color, relationship_id, source_object_id, target_object_id, text_position, type, properties, features, properties_set, features_set, bendpoints, checksum, pos"
 				+" FROM "+this.schemaPrefix+"views_connections"
 				+" JOIN "+this.schemaPrefix+"views_connections_in_view ON views_connections_in_view.connection_id = views_connections.id AND views_connections_in_view.connection_version = views_connections.version"
 				+" WHERE view_id = ? AND view_version = ?"
@@ -1132,11 +1239,11 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 
 				// If the connection has got properties but does not have a linked relationship, then it may have distinct properties
 				if ( eObject instanceof IProperties && this.currentResultSetViewsConnections.getString("relationship_id")==null && (this.currentResultSetViewsConnections.getInt("properties") != 0) )
-						importProperties((IProperties)eObject, ((IIdentifier)eObject).getId(), dbMetadata.getInitialVersion().getVersion());
+						importProperties((IProperties)eObject, ((IIdentifier)eObject).getId(), dbMetadata.getInitialVersion().getVersion(), this.currentResultSetViewsConnections.getString("properties_set"));
 				
 				// connections have got their own features
 				if ( this.currentResultSetViewsConnections.getInt("features") != 0 )
-					importFeatures((IFeatures)eObject, ((IIdentifier)eObject).getId(), dbMetadata.getInitialVersion().getVersion());
+					importFeatures((IFeatures)eObject, ((IIdentifier)eObject).getId(), dbMetadata.getInitialVersion().getVersion(), this.currentResultSetViewsConnections.getString("features_set"));
 
 				if ( (eObject instanceof IDiagramModelConnection) && (this.currentResultSetViewsConnections.getInt("bendpoints") != 0) ) {
 					importBendpoints((IDiagramModelConnection)eObject, ((IIdentifier)eObject).getId(), dbMetadata.getInitialVersion().getVersion());
@@ -1155,19 +1262,23 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 	}
 
 	/**
-	 * import the views from the database
+	 * import the views from the database<br>
+	 * The image is read from the database as a stream, as the archive manager only accepts the image content as a byte array.
 	 * @param model 
 	 * @param path 
 	 * @throws SQLException
 	 * @throws DBException 
 	 */
 	public void importImage(DBArchimateModel model, String path) throws SQLException, DBException {
-		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT image FROM "+this.schemaPrefix+"images WHERE path = ?", path) ) {
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, getImageContentRequest(), path, path) ) {
 			if (result.next() ) {
 				IArchiveManager archiveMgr = (IArchiveManager)model.getAdapter(IArchiveManager.class);
 				try {
 					String imagePath;
-					byte[] imageContent = result.getBytes("image");
+					byte[] imageContent;
+					try ( InputStream imageStream = result.getBinaryStream("image") ) {
+						imageContent = (imageStream == null) ? new byte[0] : imageStream.readAllBytes();
+					}
 
 					if ( logger.isDebugEnabled() ) {
 						if ( (imageContent.length/1024)/2014 > 1 )
@@ -1191,17 +1302,23 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 	}
 
 	/**
-	 * import an image from the database
+	 * import an image from the database<br>
+	 * The image is decoded while it is read from the database, without loading its content in memory first.
 	 * @param path 
 	 * @return 
 	 * @throws SQLException 
 	 */
 	public Image getImageFromDatabase(String path) throws SQLException {
-		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT image FROM "+this.schemaPrefix+"images WHERE path = ?", path) ) {
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, getImageContentRequest(), path, path) ) {
 			if ( result.next() ) {
-				byte[] imageContent = result.getBytes("image");
-				if ( logger.isDebugEnabled() ) logger.debug( "Importing "+path+" with "+imageContent.length/1024+" Ko of data");
-				return new Image(Display.getDefault(), new ImageData(new ByteArrayInputStream(imageContent)));
+				try ( InputStream imageStream = result.getBinaryStream("image") ) {
+					if ( imageStream == null )
+						return null;
+					if ( logger.isDebugEnabled() ) logger.debug( "Importing "+path);
+					return new Image(Display.getDefault(), new ImageData(imageStream));
+				} catch (IOException err) {
+					throw new SQLException("Failed to read image "+path, err);
+				}
 			}
 		}
 		return null;
@@ -1214,7 +1331,9 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 	 */
 	public List<String> getImageListFromDatabase() throws SQLException {
 		List<String> list = new ArrayList<>();
-		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT path FROM "+this.schemaPrefix+"images") ) {
+		// the images exported since database version 497 are listed by their path in the image_paths table, the others are stored under their path in the images table
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT path FROM "+this.schemaPrefix+"image_paths"
+				+ " UNION SELECT i.path FROM "+this.schemaPrefix+"images i LEFT JOIN "+this.schemaPrefix+"image_paths p ON p.image_hash = i.path WHERE p.image_hash IS NULL") ) {
 			while ( result.next() ) {
 				list.add(result.getString("path"));
 			}
@@ -1233,21 +1352,112 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 		if ( logger.isDebugEnabled() ) logger.debug(this.countImagesImported+" images imported.");
 	}
 
+	/**
+	 * Reads in advance the properties and features of the components selected by a request, using one database request for the properties and one for the features<br>
+	 * The {@link #importProperties(IProperties, String, int, String)} and {@link #importFeatures(IFeatures, String, int, String)} methods then use them instead of querying the database for every component.
+	 * @param model model that is imported
+	 * @param componentsRequest request that selects the components, with the model ID and model version as parameters (and without ORDER BY clause)
+	 * @param idColumn column of the request that contains the components' ID
+	 * @param versionColumn column of the request that contains the components' version
+	 * @throws SQLException
+	 */
+	private void prefetchPropertiesAndFeatures(DBArchimateModel model, String componentsRequest, String idColumn, String versionColumn) throws SQLException {
+		prefetch(this.prefetchedProperties, "properties", getParentsSubRequest(componentsRequest, idColumn, versionColumn, "properties_set"), model);
+		prefetch(this.prefetchedFeatures, "features", getParentsSubRequest(componentsRequest, idColumn, versionColumn, "features_set"), model);
+	}
+
+	/**
+	 * Gets the sub request that selects the parent_id and parent_version of the properties or features rows of the components selected by a request<br>
+	 * The components that reference a set are replaced by their set, so each set is read only once whatever the number of components that share it.
+	 * @param componentsRequest request that selects the components
+	 * @param idColumn column of the request that contains the components' ID
+	 * @param versionColumn column of the request that contains the components' version
+	 * @param setColumn column of the request that contains the ID of the set referenced by the components
+	 * @return the sub request, aliased as "c"
+	 */
+	private static String getParentsSubRequest(String componentsRequest, String idColumn, String versionColumn, String setColumn) {
+		return "(SELECT DISTINCT"
+				+ " CASE WHEN "+setColumn+" IS NULL THEN "+idColumn+" ELSE "+setColumn+" END AS parent_id,"
+				+ " CASE WHEN "+setColumn+" IS NULL THEN "+versionColumn+" ELSE "+SETS_PARENT_VERSION+" END AS parent_version"
+				+ " FROM ("+componentsRequest+") cmpts) c";
+	}
+
+	private void prefetch(HashMap<String, List<DBProperty>> prefetched, String table, String parentsSubRequest, DBArchimateModel model) throws SQLException {
+		int count = 0;
+		
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection, "SELECT t.parent_id, t.parent_version, name, value FROM "+this.schemaPrefix+table+" t"
+				+ " JOIN "+parentsSubRequest+" ON t.parent_id = c.parent_id AND t.parent_version = c.parent_version"
+				+ " ORDER BY t.parent_id, t.parent_version, pos"
+				,model.getId()
+				,model.getInitialVersion().getVersion()
+				) ) {
+			String key = null;
+			List<DBProperty> list = null;
+			while ( result.next() ) {
+				String name = result.getString("name");
+				String value = result.getString("value");
+				String parentKey = result.getString("parent_id")+"/"+result.getInt("parent_version");
+				
+				// the rows are sorted by parent, so we just need to detect when the parent changes
+				if ( !parentKey.equals(key) ) {
+					key = parentKey;
+					list = prefetched.computeIfAbsent(key, k -> new ArrayList<>());
+				}
+				if ( (name != null) && (value != null) ) {
+					list.add(new DBProperty(name, value));
+					++count;
+				}
+			}
+		}
+		
+		if ( logger.isDebugEnabled() ) logger.debug("      "+count+" "+table+" read in advance");
+	}
+
+	/**
+	 * Gets the properties or features of a component that have been read in advance
+	 * @param prefetched properties or features read in advance
+	 * @param id ID of the component
+	 * @param version version of the component
+	 * @param setId ID of the set referenced by the component, or null
+	 * @return the properties or features, or null if they have not been read in advance
+	 */
+	private static List<DBProperty> getPrefetched(HashMap<String, List<DBProperty>> prefetched, String id, int version, String setId) {
+		if ( setId == null )
+			return prefetched.remove(id+"/"+version);
+		
+		// the sets are shared by several components, so they are kept until the end of the import
+		return prefetched.get(setId+"/"+SETS_PARENT_VERSION);
+	}
+
 	/**
 	 * Imports the properties of an Archi component
 	 * @param parent 
 	 * @param id 
 	 * @param version 
+	 * @param propertiesSet ID of the properties set referenced by the component, or null if the properties are under the component ID and version
 	 * @throws SQLException 
 	 */
-	public void importProperties(IProperties parent, String id, int version) throws SQLException {
+	public void importProperties(IProperties parent, String id, int version, String propertiesSet) throws SQLException {
 		if ( logger.isDebugEnabled() ) logger.debug("      Importing properties");
 
 		// first, we delete all existing properties
 		parent.getProperties().clear();
 
-		// then, we import the properties from the database 
-		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT name, value FROM "+this.schemaPrefix+"properties WHERE parent_id = ? AND parent_version = ? ORDER BY pos", id, version)) {
+		// if the properties have been read in advance, we do not need to query the database
+		List<DBProperty> properties = getPrefetched(this.prefetchedProperties, id, version, propertiesSet);
+		if ( properties != null ) {
+			for ( DBProperty property: properties ) {
+				IProperty prop = IArchimateFactory.eINSTANCE.createProperty();
+				prop.setKey(property.getKey());
+				prop.setValue(property.getValue());
+				parent.getProperties().add(prop);
+				if ( logger.isTraceEnabled() ) logger.debug("         Property added : key = \""+property.getKey()+"\"    value = \""+property.getValue()+"\"");
+			}
+			return;
+		}
+
+		// else, we import the properties from the database 
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT name, value FROM "+this.schemaPrefix+"properties WHERE parent_id = ? AND parent_version = ? ORDER BY pos", getSetParent(id, version, propertiesSet))) {
 			while ( result.next() ) {
 				String name = result.getString("name");
 				String value = result.getString("value");
@@ -1268,16 +1478,30 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 	 * @param parent 
 	 * @param id 
 	 * @param version 
+	 * @param featuresSet ID of the features set referenced by the component, or null if the features are under the component ID and version
 	 * @throws SQLException 
 	 */
-	public void importFeatures(IFeatures parent, String id, int version) throws SQLException {
+	public void importFeatures(IFeatures parent, String id, int version, String featuresSet) throws SQLException {
 		if ( logger.isDebugEnabled() ) logger.debug("      Importing features");
 
 		// first, we delete all existing properties
 		parent.getFeatures().clear();
 
-		// then, we import the properties from the database 
-		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT name, value FROM "+this.schemaPrefix+"features WHERE parent_id = ? AND parent_version = ? ORDER BY pos", id, version)) {
+		// if the features have been read in advance, we do not need to query the database
+		List<DBProperty> features = getPrefetched(this.prefetchedFeatures, id, version, featuresSet);
+		if ( features != null ) {
+			for ( DBProperty property: features ) {
+				IFeature feature = IArchimateFactory.eINSTANCE.createFeature();
+				feature.setName(property.getKey());
+				feature.setValue(property.getValue());
+				parent.getFeatures().add(feature);
+				if ( logger.isTraceEnabled() ) logger.debug("         Feature added : key = \""+property.getKey()+"\"    value = \""+property.getValue()+"\"");
+			}
+			return;
+		}
+
+		// else, we import the features from the database 
+		try ( DBSelect result = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT name, value FROM "+this.schemaPrefix+"features WHERE parent_id = ? AND parent_version = ? ORDER BY pos", getSetParent(id, version, featuresSet))) {
 			while ( result.next() ) {
 				String name = result.getString("name");
 				String value = result.getString("value");
@@ -1307,7 +1531,7 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 		parent.getProfiles().clear();
 
 		// then, we import the profiles from the database
-		try ( DBSelect result1 = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT profile_id, profile_version FROM "+this.schemaPrefix+"profiles_in_model WHERE model_id = ? AND model_version = ? ORDER BY pos", id, version)) {
+		try ( DBSelect result1 = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT profile_id, profile_version FROM "+this.schemaPrefix+"profiles_in_model WHERE model_id = ? AND ? BETWEEN model_version AND model_version_to ORDER BY pos", id, version)) {
 			String profileId = result1.getString("profile_id");
 			int profileVersion = result1.getInt("profile_version");
 			try ( DBSelect result2 = new DBSelect(this.databaseEntry.getName(), this.connection,"SELECT name, is_specialization, image_path, concept_type FROM "+this.schemaPrefix+"profiles WHERE profile_id = ? AND profile_version = ? ORDER BY pos", profileId, profileVersion)) {
@@ -1444,8 +1668,10 @@ public class DBDatabaseImportConnection extends DBDatabaseConnection {
 		this.countImagesToImport = 0;
 		this.countImagesImported = 0;
 
-		// we empty the hashmap
+		// we empty the hashmaps
 		this.allImagePaths.clear();
+		this.prefetchedProperties.clear();
+		this.prefetchedFeatures.clear();
 	}
 
 	@Override
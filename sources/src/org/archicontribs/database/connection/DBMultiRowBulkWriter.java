@@ -0,0 +1,70 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Bulk writer that sends the rows through INSERT requests with several rows in their VALUES clause, for the MySQL and SQLite databases.<br>
+ * <br>
+ * The number of rows per request is limited by the maximum number of parameters of a request.
+ */
+public class DBMultiRowBulkWriter extends DBBulkWriter {
+	/**
+	 * Maximum number of parameters of a MySQL request
+	 */
+	public static final int MYSQL_MAX_PARAMETERS = 65535;
+
+	/**
+	 * Maximum number of parameters of a SQLite request (the limit of the SQLite versions before 3.32)
+	 */
+	public static final int SQLITE_MAX_PARAMETERS = 999;
+
+	private final int maxRowsPerRequest;
+
+	/**
+	 * @param theDriverName
+	 * @param theConnection
+	 * @param theTable
+	 * @param theColumns
+	 * @param theCapacity
+	 * @param maxParameters maximum number of parameters of a request
+	 */
+	public DBMultiRowBulkWriter(String theDriverName, Connection theConnection, String theTable, String[] theColumns, int theCapacity, int maxParameters) {
+		super(theDriverName, theConnection, theTable, theColumns, theCapacity);
+		this.maxRowsPerRequest = Math.max(1, Math.min(theCapacity, maxParameters / theColumns.length));
+	}
+
+	@Override
+	protected int write(List<Object[]> rowsToWrite) throws SQLException {
+		StringBuilder rowValues = new StringBuilder("(");
+		for ( int i = 0 ; i < this.columns.length ; ++i )
+			rowValues.append(i == 0 ? "?" : ", ?");
+		rowValues.append(")");
+
+		int rowCount = 0;
+		for ( int first = 0 ; first < rowsToWrite.size() ; first += this.maxRowsPerRequest ) {
+			int last = Math.min(first + this.maxRowsPerRequest, rowsToWrite.size());
+
+			StringBuilder request = new StringBuilder("INSERT INTO "+this.table+" ("+getColumnList()+") VALUES ");
+			Object[] parameters = new Object[(last - first) * this.columns.length];
+			for ( int row = first ; row < last ; ++row ) {
+				if ( row != first )
+					request.append(", ");
+				request.append(rowValues);
+				System.arraycopy(rowsToWrite.get(row), 0, parameters, (row - first) * this.columns.length, this.columns.length);
+			}
+
+			try ( DBRequest insert = new DBRequest(this.driverName, this.connection, request.toString(), parameters) ) {
+				rowCount += insert.getRowCount();
+			}
+		}
+		return rowCount;
+	}
+}
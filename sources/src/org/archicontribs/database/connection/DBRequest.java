@@ -31,6 +31,12 @@ public class DBRequest extends DBStatement {
 	public <T> DBRequest(String theDriverName, Connection theConnection, String theRequest, T... theParameters) throws SQLException {
 		super(theDriverName, theConnection, theRequest, theParameters);
 		
-		this.rowCount = executeUpdate();
+		try {
+			this.rowCount = executeUpdate();
+		} catch (SQLException err) {
+			// the statement cannot be closed by the caller as the object is not created
+			close();
+			throw err;
+		}
 	}
 }
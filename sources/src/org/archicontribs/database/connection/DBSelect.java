@@ -1,9 +1,13 @@
 package org.archicontribs.database.connection;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Timestamp;
 
 import org.archicontribs.database.DBLogger;
@@ -36,11 +40,37 @@ public class DBSelect extends DBStatement {
 	public <T> DBSelect(String theDriverName, Connection theConnection, String theRequest, T... theParameters) throws SQLException {
         super(theDriverName, theConnection, theRequest, theParameters);
 
+        Savepoint savepoint = null;
         try {
+            DBStatementCache cache = DBStatementCache.getCache(theConnection);
+
+            // the "fetchSize" preference overrides the fetch size that suits the JDBC driver
+            int fetchSize = fetchSizePreference;
+            if ( fetchSize <= 0 )
+                fetchSize = cache.getDriverFetchSize();
+            if ( fetchSize > 0 )
+                setFetchSize(fetchSize);
+            
+            // on PostgreSQL, a failed request aborts the transaction (like the one that streams the rows during an import),
+            // so the request is sent in a savepoint that is rolled back if it fails, to allow the next requests to be sent
+            if ( cache.isFailedRequestAbortingTransaction() && !theConnection.getAutoCommit() )
+                savepoint = theConnection.setSavepoint();
+
             this.result = executeQuery();
+
+            // the cursor of the result set remains open when the savepoint is released
+            if ( savepoint != null )
+                theConnection.releaseSavepoint(savepoint);
         } catch (Exception err) {
             // in case of an SQLException, we log the raw request to ease the debug process
             if ( logger.isTraceEnabled() ) logger.trace("SQL Exception for database request: "+theRequest);
+            if ( savepoint != null ) {
+                try {
+                    theConnection.rollback(savepoint);
+                    if ( logger.isTraceEnabled() ) logger.trace("Rolled back to savepoint");
+                } catch (SQLException e2) { logger.error("Failed to rollback to savepoint", e2); }
+            }
+            close();
             throw err;
         }
 	}
@@ -51,7 +81,10 @@ public class DBSelect extends DBStatement {
 	 * @throws SQLException
 	 */
 	public boolean next() throws SQLException {
-		return this.result.next();
+		long startTime = System.nanoTime();
+		boolean isRowFetched = this.result.next();
+		this.statistics.recordFetch(System.nanoTime() - startTime, isRowFetched);
+		return isRowFetched;
 	}
 	
 	public int getInt(String columnLabel) throws SQLException {
@@ -67,7 +100,52 @@ public class DBSelect extends DBStatement {
 	}
 	
 	public byte[] getBytes(String columnLabel) throws SQLException {
-		return this.result.getBytes(columnLabel);
+		byte[] bytes = this.result.getBytes(columnLabel);
+		if ( bytes != null )
+			this.statistics.recordBlobBytes(bytes.length);
+		return bytes;
+	}
+	
+	/**
+	 * Gets the content of a BLOB column as a stream, so that it can be read by chunks instead of being loaded at once in memory.<br>
+	 * The number of bytes read from the stream is added to the request statistics when the stream is closed.
+	 * @param columnLabel
+	 * @return the stream, or null if the column is null
+	 * @throws SQLException
+	 */
+	public InputStream getBinaryStream(String columnLabel) throws SQLException {
+		InputStream stream = this.result.getBinaryStream(columnLabel);
+		if ( stream == null )
+			return null;
+
+		return new FilterInputStream(stream) {
+			private long byteCount = 0;
+
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if ( b != -1 )
+					++this.byteCount;
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int count = super.read(b, off, len);
+				if ( count > 0 )
+					this.byteCount += count;
+				return count;
+			}
+
+			@Override
+			public void close() throws IOException {
+				super.close();
+				if ( this.byteCount != 0 ) {
+					DBSelect.this.statistics.recordBlobBytes(this.byteCount);
+					this.byteCount = 0;
+				}
+			}
+		};
 	}
 	
 	public Date getDate(String columnLabel) throws SQLException {
@@ -14,7 +14,8 @@ import java.util.Base64;
 
 import org.archicontribs.database.DBLogger;
 import org.archicontribs.database.DBPlugin;
-import org.archicontribs.database.data.DBDatabase;
+
+import lombok.Getter;
 
 /**
  * Helper class that allows to construct a preparedStatement
@@ -27,6 +28,43 @@ public class DBStatement implements AutoCloseable {
 	Statement statement = null;
 	PreparedStatement preparedStatement = null;
 	String request = null;
+	
+	/**
+	 * Cache the preparedStatement has been borrowed from, so that it can be given back on close
+	 */
+	DBStatementCache cache = null;
+	
+	/**
+	 * Number of rows that have been added to the batch and not yet sent to the database
+	 */
+	int batchCount = 0;
+
+	/**
+	 * Statistics of the request's shape
+	 */
+	DBStatementStatistics statistics = null;
+
+	/**
+	 * Parameters that have been set on the preparedStatement, printed in the slow requests log
+	 */
+	Object[] parameters = null;
+
+	/**
+	 * Phase of the plugin that sends the requests (compare, export elements, import views, ...), printed in the slow requests log
+	 */
+	@Getter private static volatile String phase = null;
+
+	/**
+	 * Value of the "slowRequestThreshold" preference, in nanoseconds (0 to disable the slow requests log)<br>
+	 * The preference is read at the beginning of each phase rather than for each request, as it is in the hot path of the export and import processes.
+	 */
+	private static volatile long slowRequestThreshold = getSlowRequestThresholdPreference();
+
+	/**
+	 * Value of the "fetchSize" preference (0 to use the fetch size that suits the JDBC driver)<br>
+	 * Like the slow requests threshold, it is read at the beginning of each phase rather than for each SELECT request.
+	 */
+	static volatile int fetchSizePreference = getFetchSizePreference();
 
 	/**
 	 * HelperMethod to construct the PreparedStatement from the specified request and all its parameters
@@ -42,16 +80,19 @@ public class DBStatement implements AutoCloseable {
 		this.driverName = theDriverName;
 		this.connection = theConnection;
 		this.request = theRequest;
+		this.statistics = DBStatementStatistics.get(theRequest);
 		try {
 			if ( theParameters.length == 0 )
 				this.statement = theConnection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
 			else {
-				this.preparedStatement = theConnection.prepareStatement(theRequest, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				this.cache = DBStatementCache.getCache(theConnection);
+				this.preparedStatement = this.cache.borrow(theRequest);
 				constructStatement(theParameters);
 			}
 		} catch (SQLException err) {
 			// in case of an SQLException, we log the raw request to ease the debug process
 			if ( logger.isTraceEnabled() ) logger.trace("SQL Exception for database request: "+theRequest);
+			close();
 			throw err;
 		}
 
@@ -63,13 +104,34 @@ public class DBStatement implements AutoCloseable {
 	 * @throws SQLException
 	 */
 	public ResultSet executeQuery() throws SQLException {
+		ResultSet resultSet = null;
+		long startTime = System.nanoTime();
+
 		if ( this.statement != null && ! this.statement.isClosed() ) 
-			return this.statement.executeQuery(this.request);
+			resultSet = this.statement.executeQuery(this.request);
+		else if ( this.preparedStatement != null && ! this.preparedStatement.isClosed() ) 
+			resultSet = this.preparedStatement.executeQuery();
 
-		if ( this.preparedStatement != null && ! this.preparedStatement.isClosed() ) 
-			return this.preparedStatement.executeQuery();
+		// the rows are counted when they are fetched
+		if ( resultSet != null ) {
+			long elapsedTime = System.nanoTime() - startTime;
+			this.statistics.recordCall(elapsedTime, 0);
+			logIfSlow(elapsedTime, null);
+		}
 
-		return null;
+		return resultSet;
+	}
+
+	/**
+	 * Sets the number of rows that the JDBC driver fetches at once when the request is executed
+	 * @param fetchSize number of rows, 0 to keep the driver's default
+	 * @throws SQLException
+	 */
+	public void setFetchSize(int fetchSize) throws SQLException {
+		if ( this.statement != null && !this.statement.isClosed() )
+			this.statement.setFetchSize(fetchSize);
+		else if ( this.preparedStatement != null && !this.preparedStatement.isClosed() )
+			this.preparedStatement.setFetchSize(fetchSize);
 	}
 
 	/**
@@ -88,14 +150,18 @@ public class DBStatement implements AutoCloseable {
 
 		try {
 			// on PostGreSQL databases, we can only send new requests if we rollback the transaction that caused the exception
-			if ( DBPlugin.areEqual(this.driverName, DBDatabase.POSTGRESQL.getDriverName()) )
+			if ( isSavepointRequired() )
 				savepoint = this.connection.setSavepoint();
 			
+			long startTime = System.nanoTime();
 			if ( this.statement != null && !this.statement.isClosed() )
 				rowCount = this.statement.executeUpdate(this.request);
 			else
 				if ( this.preparedStatement != null && !this.preparedStatement.isClosed() )
 					rowCount = this.preparedStatement.executeUpdate();
+			long elapsedTime = System.nanoTime() - startTime;
+			this.statistics.recordCall(elapsedTime, rowCount);
+			logIfSlow(elapsedTime, null);
 		} catch (SQLException err) {
 			if ( savepoint != null ) {
 				try {
@@ -112,6 +178,91 @@ public class DBStatement implements AutoCloseable {
 		return rowCount;
 	}
 
+	/**
+	 * Adds the parameters that have been set by the constructor to the preparedStatement's batch
+	 * @throws SQLException
+	 */
+	public void addBatch() throws SQLException {
+		this.preparedStatement.addBatch();
+		++this.batchCount;
+	}
+
+	/**
+	 * Sets new parameters on the preparedStatement and adds them to its batch
+	 * @param <T>
+	 * @param parameters
+	 * @throws SQLException
+	 */
+	@SafeVarargs
+	public final <T> void addBatch(T... parameters) throws SQLException {
+		constructStatement(parameters);
+		addBatch();
+	}
+
+	/**
+	 * @return the number of rows that have been added to the batch and not yet sent to the database
+	 */
+	public int getBatchCount() {
+		return this.batchCount;
+	}
+
+	/**
+	 * Sends all the rows of the preparedStatement's batch to the database
+	 * @return the number of impacted rows
+	 * @throws SQLException
+	 */
+	public int executeBatch() throws SQLException {
+		Savepoint savepoint = null;
+		int rowCount = 0;
+
+		if ( this.batchCount == 0 || this.preparedStatement == null || this.preparedStatement.isClosed() )
+			return 0;
+
+		if ( logger.isTraceSQLEnabled() ) logger.trace("      --> executing batch of "+this.batchCount+" rows: "+this.request);
+
+		try {
+			// on PostGreSQL databases, we can only send new requests if we rollback the transaction that caused the exception
+			if ( isSavepointRequired() )
+				savepoint = this.connection.setSavepoint();
+
+			long startTime = System.nanoTime();
+			for ( int result: this.preparedStatement.executeBatch() ) {
+				// some drivers do not return the number of impacted rows, but only a success status
+				if ( result == Statement.SUCCESS_NO_INFO )
+					++rowCount;
+				else if ( result > 0 )
+					rowCount += result;
+			}
+			long elapsedTime = System.nanoTime() - startTime;
+			this.statistics.recordCall(elapsedTime, rowCount);
+			logIfSlow(elapsedTime, "batch of "+this.batchCount+" rows, last row: ");
+		} catch (SQLException err) {
+			if ( savepoint != null ) {
+				try {
+					rollback(savepoint);
+					if ( logger.isTraceEnabled() ) logger.trace("Rolled back to savepoint");
+				} catch (SQLException e2) { logger.error("Failed to rollback to savepoint", e2); }
+			}
+			throw err;
+		} finally {
+			this.batchCount = 0;
+			if ( savepoint != null )
+				this.connection.releaseSavepoint(savepoint);
+		}
+
+		return rowCount;
+	}
+
+	/**
+	 * Checks if the request must be sent in a savepoint, that is if it is sent in a transaction that a failed request aborts (like on PostgreSQL)
+	 * @return true if a savepoint is required
+	 * @throws SQLException
+	 */
+	boolean isSavepointRequired() throws SQLException {
+		DBStatementCache statementCache = (this.cache != null) ? this.cache : DBStatementCache.getCache(this.connection);
+		return statementCache.isFailedRequestAbortingTransaction() && !this.connection.getAutoCommit();
+	}
+
 	/**
 	 * Rollbacks the current database transactions from a specified savePoint
 	 * @param savepoint 
@@ -137,8 +288,84 @@ public class DBStatement implements AutoCloseable {
 		rollback(null);
 	}
 
+	/**
+	 * Sets the phase of the plugin that sends the requests, and reads again the "slowRequestThreshold" and "fetchSize" preferences
+	 * @param newPhase
+	 */
+	public static void setPhase(String newPhase) {
+		phase = newPhase;
+		slowRequestThreshold = getSlowRequestThresholdPreference();
+		fetchSizePreference = getFetchSizePreference();
+	}
+
+	/**
+	 * @return the "fetchSize" preference
+	 */
+	private static int getFetchSizePreference() {
+		return DBPlugin.INSTANCE.getPreferenceStore().getInt("fetchSize");
+	}
+
+	/**
+	 * @return the "slowRequestThreshold" preference, converted from milliseconds to nanoseconds
+	 */
+	private static long getSlowRequestThresholdPreference() {
+		return Math.max(0, DBPlugin.INSTANCE.getPreferenceStore().getInt("slowRequestThreshold")) * 1000000L;
+	}
+
+	/**
+	 * Logs the request if its execution took longer than the "slowRequestThreshold" preference (in milliseconds, 0 to disable)
+	 * @param elapsedTime execution time of the request, in nanoseconds
+	 * @param prefix text printed before the request
+	 */
+	void logIfSlow(long elapsedTime, String prefix) {
+		long threshold = slowRequestThreshold;
+		if ( (threshold == 0) || (elapsedTime < threshold) )
+			return;
+
+		logger.warn("Slow SQL request ("+(elapsedTime/1000000)+" ms"+(phase == null ? "" : " during \""+phase+"\"")+"): "+(prefix == null ? "" : prefix)+getRequestWithParameters());
+	}
+
+	/**
+	 * @return the request where the question marks are replaced by the values of the parameters
+	 */
+	String getRequestWithParameters() {
+		if ( this.parameters == null )
+			return this.request;
+
+		StringBuilder result = new StringBuilder();
+		String[] splittedRequest = this.request.split("\\?", -1);
+		int requestRank = 0;
+		for ( Object parameter: this.parameters ) {
+			if ( parameter instanceof ArrayList<?> ) {
+				for ( int i = 0; i < ((ArrayList<?>)parameter).size(); ++i ) {
+					if ( requestRank < splittedRequest.length )
+						result.append(splittedRequest[requestRank++]);
+					result.append("'"+((ArrayList<?>)parameter).get(i)+"'");
+				}
+			} else {
+				if ( requestRank < splittedRequest.length )
+					result.append(splittedRequest[requestRank++]);
+				if ( parameter == null )
+					result.append("null");
+				else if ( parameter instanceof String )
+					result.append("'"+parameter+"'");
+				else if ( parameter instanceof byte[] )
+					result.append("["+((byte[])parameter).length+" bytes]");
+				else
+					result.append(parameter);
+			}
+		}
+		while ( requestRank < splittedRequest.length ) {
+			result.append(splittedRequest[requestRank++]);
+			if ( requestRank < splittedRequest.length )
+				result.append("?");
+		}
+		return result.toString();
+	}
+
 	@SuppressWarnings("unchecked")
 	<T> void constructStatement(T... parameters) throws SQLException {
+		this.parameters = parameters;
 		StringBuilder debugRequest = new StringBuilder();
 		String[] splittedRequest = this.request.split("\\?");
 
@@ -176,6 +403,7 @@ public class DBStatement implements AutoCloseable {
 					this.preparedStatement.setString(++requestRank, ((ArrayList<String>)parameters[parameterRank]).get(i));
 				}
 			} else if ( parameters[parameterRank] instanceof byte[] ) {
+				this.statistics.recordBlobBytes(((byte[])parameters[parameterRank]).length);
 				try  {
 					this.preparedStatement.setBinaryStream(++requestRank, new ByteArrayInputStream((byte[])parameters[parameterRank]), ((byte[])parameters[parameterRank]).length);
 					if ( logger.isTraceEnabled() ) debugRequest.append("[image as stream ("+((byte[])parameters[parameterRank]).length+" bytes)]");
@@ -207,13 +435,13 @@ public class DBStatement implements AutoCloseable {
 			logger.error("Cannot close the Statement", err);
 		}
 
-		try {
-			if ( this.preparedStatement != null && !this.preparedStatement.isClosed() ) {
-				this.preparedStatement.close();
-				this.preparedStatement = null;
-			}
-		} catch (SQLException err) {
-			logger.error("Cannot close the PreparedStatement", err);
+		if ( this.preparedStatement != null ) {
+			// the preparedStatement is given back to the cache, that decides if it must be closed or kept for later use
+			if ( this.cache != null )
+				this.cache.giveBack(this.request, this.preparedStatement);
+			else
+				DBStatementCache.closeStatement(this.preparedStatement);
+			this.preparedStatement = null;
 		}
 	}
 }
@@ -0,0 +1,261 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.connection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.archicontribs.database.DBLogger;
+
+import lombok.Getter;
+
+/**
+ * LRU cache of the prepared statements of a database connection, indexed by their SQL request.<br>
+ * <br>
+ * The export and import processes send the same requests again and again with different parameters. Keeping
+ * the prepared statements open avoids the database server to parse and plan the request for every row.<br>
+ * <br>
+ * A prepared statement is lent to a single {@link DBStatement} at a time. If the same request is needed while
+ * the cached prepared statement is still in use (nested loops), a new one is prepared and closed after use.
+ */
+public class DBStatementCache {
+	private static final DBLogger logger = new DBLogger(DBStatementCache.class);
+
+	/**
+	 * Maximum number of prepared statements kept open per connection
+	 */
+	public static final int CACHE_SIZE = 100;
+
+	/**
+	 * Caches indexed by JDBC connection (JDBC connections are compared by reference).<br>
+	 * The keys cannot be weak references as the prepared statements of the caches reference their connection, so the caches
+	 * are released by {@link DBConnectionPool} when it closes a connection, and the caches of connections closed elsewhere
+	 * are purged when a new cache is created.
+	 */
+	private static final Map<Connection, DBStatementCache> caches = new IdentityHashMap<>();
+
+	/**
+	 * Number of requests that have been served by an already prepared statement
+	 */
+	@Getter private long hits = 0;
+
+	/**
+	 * Number of requests that needed a new prepared statement
+	 */
+	@Getter private long misses = 0;
+
+	private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+			if ( size() <= CACHE_SIZE || DBStatementCache.this.inUse.containsKey(eldest.getValue()) )
+				return false;
+			closeStatement(eldest.getValue());
+			return true;
+		}
+	};
+
+	/**
+	 * Prepared statements that are currently lent to a DBStatement
+	 */
+	private final Map<PreparedStatement, Boolean> inUse = new IdentityHashMap<>();
+
+	/**
+	 * Number of rows fetched at once by the JDBC driver for the SELECT requests of this connection, when the "fetchSize" preference is 0
+	 */
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+
+	/**
+	 * Fetch size of the SELECT requests of this connection, depending on its JDBC driver (0 to keep the driver's default)
+	 */
+	@Getter private final int driverFetchSize;
+
+	/**
+	 * True if a failed request aborts the whole transaction of this connection, which is the case on PostgreSQL databases
+	 */
+	@Getter private final boolean failedRequestAbortingTransaction;
+
+	private final Connection connection;
+
+	private DBStatementCache(Connection theConnection) {
+		this.connection = theConnection;
+		String url = getURL(theConnection);
+		this.driverFetchSize = getDriverFetchSize(url);
+		this.failedRequestAbortingTransaction = (url != null) && url.startsWith("jdbc:postgresql:");
+	}
+
+	/**
+	 * @param connection
+	 * @return the JDBC URL of the connection, or null if it cannot be got
+	 */
+	private static String getURL(Connection connection) {
+		try {
+			return connection.getMetaData().getURL();
+		} catch (SQLException err) {
+			logger.error("Cannot get the JDBC URL of the connection, keeping the driver's default fetch size and sending the requests without savepoint", err);
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the fetch size that suits the JDBC driver of a connection:
+	 * <ul>
+	 * <li>the Oracle driver fetches 10 rows per round trip by default, which is far too few to import big models</li>
+	 * <li>the PostgreSQL driver reads the whole result set in memory by default, but uses a cursor when a fetch size is set and the auto-commit mode is off</li>
+	 * <li>the SQL Server driver uses the fetch size when the request is run through a server cursor</li>
+	 * <li>the MySQL driver needs specific connection properties to stream the result sets, and SQLite reads the rows from a local file, so their default is kept</li>
+	 * </ul>
+	 * @param url the JDBC URL of the connection
+	 * @return the fetch size, or 0 to keep the driver's default
+	 */
+	private static int getDriverFetchSize(String url) {
+		if ( url != null && (url.startsWith("jdbc:oracle:") || url.startsWith("jdbc:postgresql:") || url.startsWith("jdbc:sqlserver:")) )
+			return DEFAULT_FETCH_SIZE;
+		return 0;
+	}
+
+	/**
+	 * Gets the cache of a JDBC connection, creating it if it does not exist yet
+	 * @param connection
+	 * @return the cache of the connection
+	 */
+	public static DBStatementCache getCache(Connection connection) {
+		List<DBStatementCache> closedCaches = new ArrayList<>();
+		DBStatementCache cache;
+		synchronized (caches) {
+			cache = caches.get(connection);
+			if ( cache == null ) {
+				Iterator<Map.Entry<Connection, DBStatementCache>> iterator = caches.entrySet().iterator();
+				while ( iterator.hasNext() ) {
+					Map.Entry<Connection, DBStatementCache> entry = iterator.next();
+					if ( isClosed(entry.getKey()) ) {
+						closedCaches.add(entry.getValue());
+						iterator.remove();
+					}
+				}
+				cache = new DBStatementCache(connection);
+				caches.put(connection, cache);
+			}
+		}
+		for ( DBStatementCache closedCache: closedCaches )
+			closedCache.clear();
+		return cache;
+	}
+
+	private static boolean isClosed(Connection connection) {
+		try {
+			return connection.isClosed();
+		} catch (SQLException err) {
+			if ( logger.isDebugEnabled() ) logger.debug("Cannot check if the connection is closed", err);
+			return true;
+		}
+	}
+
+	/**
+	 * Closes all the prepared statements of the cache of a JDBC connection and forgets the cache.<br>
+	 * Must be called when the JDBC connection is closed, or when it is found closed.
+	 * @param connection
+	 */
+	public static void release(Connection connection) {
+		DBStatementCache cache;
+		synchronized (caches) {
+			cache = caches.remove(connection);
+		}
+		if ( cache != null )
+			cache.clear();
+	}
+
+	/**
+	 * Gets a prepared statement for the request, from the cache if available
+	 * @param request
+	 * @return the prepared statement
+	 * @throws SQLException
+	 */
+	synchronized PreparedStatement borrow(String request) throws SQLException {
+		PreparedStatement preparedStatement = this.statements.get(request);
+
+		if ( preparedStatement != null && (preparedStatement.isClosed() || this.inUse.containsKey(preparedStatement)) ) {
+			if ( preparedStatement.isClosed() )
+				this.statements.remove(request);
+			preparedStatement = null;
+		}
+
+		if ( preparedStatement != null ) {
+			++this.hits;
+		} else {
+			++this.misses;
+			preparedStatement = this.connection.prepareStatement(request, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			if ( !this.statements.containsKey(request) )
+				this.statements.put(request, preparedStatement);
+		}
+
+		this.inUse.put(preparedStatement, true);
+		return preparedStatement;
+	}
+
+	/**
+	 * Gives a prepared statement back to the cache.<br>
+	 * The prepared statement is closed if it is not referenced by the cache.
+	 * @param request
+	 * @param preparedStatement
+	 */
+	synchronized void giveBack(String request, PreparedStatement preparedStatement) {
+		this.inUse.remove(preparedStatement);
+
+		if ( this.statements.get(request) != preparedStatement ) {
+			closeStatement(preparedStatement);
+			return;
+		}
+
+		try {
+			preparedStatement.clearBatch();
+			preparedStatement.clearParameters();
+		} catch (SQLException err) {
+			logger.error("Cannot reset the PreparedStatement, removing it from the cache", err);
+			this.statements.remove(request);
+			closeStatement(preparedStatement);
+		}
+	}
+
+	/**
+	 * Closes all the prepared statements of the cache
+	 */
+	public synchronized void clear() {
+		if ( logger.isDebugEnabled() ) logger.debug("Closing prepared statements cache: "+this.statements.size()+" statements, "+this.hits+" hits, "+this.misses+" misses");
+
+		for ( PreparedStatement preparedStatement: this.statements.values() ) {
+			if ( !this.inUse.containsKey(preparedStatement) )
+				closeStatement(preparedStatement);
+		}
+		this.statements.clear();
+	}
+
+	/**
+	 * @return the number of prepared statements in the cache
+	 */
+	public synchronized int size() {
+		return this.statements.size();
+	}
+
+	static void closeStatement(PreparedStatement preparedStatement) {
+		try {
+			if ( !preparedStatement.isClosed() )
+				preparedStatement.close();
+		} catch (SQLException err) {
+			logger.error("Cannot close the PreparedStatement", err);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.connection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.archicontribs.database.DBLogger;
+
+import lombok.Getter;
+
+/**
+ * Statistics of the SQL requests sent to the databases, grouped by request shape.<br>
+ * <br>
+ * The shape of a request is the request itself where the literal values are replaced by a question mark, the lists of
+ * question marks are reduced to a single one and the spaces are collapsed. This way, all the requests that only differ by
+ * their values are counted together.<br>
+ * <br>
+ * For each shape, {@link DBStatement}, {@link DBSelect} and {@link DBRequest} record the number of calls, the total and max
+ * time spent in the database (including the time spent fetching the rows of a select), the number of rows read or impacted
+ * and the number of BLOB bytes sent or received.
+ */
+public class DBStatementStatistics {
+	private static final DBLogger logger = new DBLogger(DBStatementStatistics.class);
+
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+	private static final Pattern QUESTION_MARK_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+	private static final Pattern SPACES = Pattern.compile("\\s+");
+
+	/**
+	 * Maximum number of requests whose shape is kept in cache
+	 */
+	private static final int MAX_CACHED_SHAPES = 10000;
+
+	/**
+	 * Statistics indexed by request shape
+	 */
+	private static final Map<String, DBStatementStatistics> statistics = new ConcurrentHashMap<>();
+
+	/**
+	 * Shapes indexed by request, to avoid normalizing the same request again and again
+	 */
+	private static final Map<String, String> shapes = new ConcurrentHashMap<>();
+
+	@Getter private final String shape;
+	@Getter private long calls = 0;
+	@Getter private long totalNanos = 0;
+	@Getter private long maxNanos = 0;
+	@Getter private long rows = 0;
+	@Getter private long blobBytes = 0;
+
+	private DBStatementStatistics(String requestShape) {
+		this.shape = requestShape;
+	}
+
+	/**
+	 * Gets the statistics of the shape of a request, creating them if they do not exist yet
+	 * @param request the SQL request
+	 * @return the statistics of the request's shape
+	 */
+	public static DBStatementStatistics get(String request) {
+		String requestShape = shapes.get(request);
+		if ( requestShape == null ) {
+			requestShape = getShape(request);
+			if ( shapes.size() >= MAX_CACHED_SHAPES )
+				shapes.clear();
+			shapes.put(request, requestShape);
+		}
+		return statistics.computeIfAbsent(requestShape, DBStatementStatistics::new);
+	}
+
+	/**
+	 * Calculates the shape of a request
+	 * @param request the SQL request
+	 * @return the request with its literal values replaced by a question mark
+	 */
+	public static String getShape(String request) {
+		String requestShape = STRING_LITERAL.matcher(request).replaceAll("?");
+		requestShape = NUMBER_LITERAL.matcher(requestShape).replaceAll("?");
+		requestShape = QUESTION_MARK_LIST.matcher(requestShape).replaceAll("?");
+		return SPACES.matcher(requestShape).replaceAll(" ").trim();
+	}
+
+	/**
+	 * Records a call of the request
+	 * @param nanos time spent in the database, in nanoseconds
+	 * @param rowCount number of rows impacted by the request
+	 */
+	public synchronized void recordCall(long nanos, long rowCount) {
+		++this.calls;
+		this.totalNanos += nanos;
+		if ( nanos > this.maxNanos )
+			this.maxNanos = nanos;
+		this.rows += rowCount;
+	}
+
+	/**
+	 * Records the fetch of a row of a select request
+	 * @param nanos time spent fetching the row, in nanoseconds
+	 * @param isRowFetched true if a row has been read, false if the end of the result set has been reached
+	 */
+	public synchronized void recordFetch(long nanos, boolean isRowFetched) {
+		this.totalNanos += nanos;
+		if ( isRowFetched )
+			++this.rows;
+	}
+
+	/**
+	 * Records BLOB bytes sent to or received from the database
+	 * @param byteCount
+	 */
+	public synchronized void recordBlobBytes(long byteCount) {
+		this.blobBytes += byteCount;
+	}
+
+	/**
+	 * @return the statistics of all the request shapes, sorted by decreasing total time
+	 */
+	public static List<DBStatementStatistics> getAll() {
+		List<DBStatementStatistics> allStatistics = new ArrayList<>(statistics.values());
+		allStatistics.sort(Comparator.comparingLong(DBStatementStatistics::getTotalNanos).reversed());
+		return allStatistics;
+	}
+
+	/**
+	 * Forgets all the statistics
+	 */
+	public static void reset() {
+		statistics.clear();
+	}
+
+	/**
+	 * Writes the statistics of all the request shapes to the log file
+	 * @param title title of the statistics (i.e. the process that sent the requests)
+	 */
+	public static void logStatistics(String title) {
+		List<DBStatementStatistics> allStatistics = getAll();
+		if ( allStatistics.isEmpty() )
+			return;
+
+		StringBuilder report = new StringBuilder();
+		report.append("SQL requests statistics for "+title+" (calls, total ms, max ms, rows, BLOB bytes, request):");
+		for ( DBStatementStatistics stat: allStatistics ) {
+			synchronized (stat) {
+				report.append(String.format("%n   %8d %10.1f %9.1f %10d %12d   %s", stat.calls, stat.totalNanos/1000000.0, stat.maxNanos/1000000.0, stat.rows, stat.blobBytes, stat.shape));
+			}
+		}
+		logger.info(report.toString());
+	}
+}
@@ -6,14 +6,10 @@
 
 package org.archicontribs.database.data;
 
-import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
-import org.apache.log4j.Level;
 import org.archicontribs.database.DBException;
 import org.archicontribs.database.DBLogger;
-import org.archicontribs.database.gui.DBGuiUtils;
 import org.archicontribs.database.model.DBMetadata;
 import org.eclipse.emf.ecore.EObject;
 
@@ -72,48 +68,50 @@ public class DBChecksum {
 	 * Please note that this method is *NOT* recursive: the checksum only considers the information of the model itself.
 	 * @param model 
 	 * @param releaseNote 
+	 * @param algorithm algorithm of the database the checksum is compared to
 	 * @return 
 	 * @throws DBException
 	 */
-	public static String calculateChecksum(IArchimateModel model, String releaseNote) throws DBException {
-		StringBuilder checksumBuilder = new StringBuilder();
+	public static String calculateChecksum(IArchimateModel model, String releaseNote, DBChecksumAlgorithm algorithm) throws DBException {
+		DBChecksumBuilder checksumBuilder = new DBChecksumBuilder(algorithm);
 		
-		append(checksumBuilder, model.getId());
-		append(checksumBuilder, model.getName());
-		append(checksumBuilder, model.getPurpose());
-		append(checksumBuilder, releaseNote);
+		checksumBuilder.append(model.getId());
+		checksumBuilder.append(model.getName());
+		checksumBuilder.append(model.getPurpose());
+		checksumBuilder.append(releaseNote);
 		
 		if ( model.getProperties() != null )
 			for ( IProperty prop: model.getProperties() ) {
-				append(checksumBuilder, prop.getKey());
-				append(checksumBuilder, prop.getValue());
+				checksumBuilder.append(prop.getKey());
+				checksumBuilder.append(prop.getValue());
 			}
 		
 		if ( model.getFeatures() != null )
 			for ( IFeature feature: model.getFeatures() ) {
-				append(checksumBuilder, feature.getName());
-				append(checksumBuilder, feature.getValue());
+				checksumBuilder.append(feature.getName());
+				checksumBuilder.append(feature.getValue());
 			}
 		
 		if ( model.getProfiles() != null )
 			for ( IProfile profile: model.getProfiles() ) {
-				append(checksumBuilder, profile.getId());
-				append(checksumBuilder, profile.getName());
-				append(checksumBuilder, profile.getImagePath());
-				append(checksumBuilder, profile.getConceptType());
+				checksumBuilder.append(profile.getId());
+				checksumBuilder.append(profile.getName());
+				checksumBuilder.append(profile.getImagePath());
+				checksumBuilder.append(profile.getConceptType());
 			}
 		
-		return calculateChecksum(checksumBuilder);
+		return checksumBuilder.getChecksum();
 	}
 	
 	/**
 	 * Calculate the checksum of an object.<br>
 	 * Please note that this method is *NOT* recursive: the recursion should be managed at a higher level for folders and views.
 	 * @param eObject 
+	 * @param algorithm algorithm of the database the checksum is compared to
 	 * @return the eObject's checksum, empty string ("") if the eObject is null
 	 * @throws DBException
 	 */
-	public static String calculateChecksum(EObject eObject) throws DBException {
+	public static String calculateChecksum(EObject eObject, DBChecksumAlgorithm algorithm) throws DBException {
 		if ( eObject == null )
 			return "";
 		
@@ -124,136 +122,186 @@ public class DBChecksum {
 		//	logger.trace("Calculating checksum of "+metadata.getDebugName());
 		//}
 		
-		StringBuilder checksumBuilder = new StringBuilder();
+		DBChecksumBuilder checksumBuilder = new DBChecksumBuilder(algorithm);
 		DBMetadata dbMetadata = DBMetadata.getDBMetadata(eObject);
 		
-		if ( eObject instanceof IIdentifier )						append(checksumBuilder, ((IIdentifier)eObject).getId());
+		if ( eObject instanceof IIdentifier )						checksumBuilder.append(((IIdentifier)eObject).getId());
 		
 		if ( eObject instanceof INameable &&
 		        !(eObject instanceof IDiagramModelArchimateObject) &&
-		        !(eObject instanceof IDiagramModelConnection) )	    append(checksumBuilder, ((INameable)eObject).getName());
+		        !(eObject instanceof IDiagramModelConnection) )	    checksumBuilder.append(((INameable)eObject).getName());
 		
 		if ( eObject instanceof IDocumentable  &&
 		        !(eObject instanceof IDiagramModelArchimateObject) &&
-		        !(eObject instanceof IDiagramModelConnection) )		append(checksumBuilder, ((IDocumentable)eObject).getDocumentation());
+		        !(eObject instanceof IDiagramModelConnection) )		checksumBuilder.append(((IDocumentable)eObject).getDocumentation());
 		
-		if ( eObject instanceof IJunction )							append(checksumBuilder, ((IJunction)eObject).getType());
+		if ( eObject instanceof IJunction )							checksumBuilder.append(((IJunction)eObject).getType());
 		if ( eObject instanceof IArchimateRelationship ) {			IArchimateConcept source = ((IArchimateRelationship)eObject).getSource();
 															        if ( source == null ) {
 															        	logger.error("No source found on "+metadata.getDebugName());
 															        	throw new NullPointerException("The relationship has got no source");
 															        }
-															        append(checksumBuilder, source.getId());
+															        checksumBuilder.append(source.getId());
 															        
 															        IArchimateConcept target = ((IArchimateRelationship)eObject).getTarget();
 															        if ( target == null ) {
 															        	logger.error("No target found on "+metadata.getDebugName());
 															        	throw new NullPointerException("The relationship has got no source");
 															        }
-																	append(checksumBuilder, target.getId());
-			if ( eObject instanceof IInfluenceRelationship )		append(checksumBuilder, ((IInfluenceRelationship)eObject).getStrength());
-			if ( eObject instanceof IAccessRelationship )			append(checksumBuilder, ((IAccessRelationship)eObject).getAccessType());
+																	checksumBuilder.append(target.getId());
+			if ( eObject instanceof IInfluenceRelationship )		checksumBuilder.append(((IInfluenceRelationship)eObject).getStrength());
+			if ( eObject instanceof IAccessRelationship )			checksumBuilder.append(((IAccessRelationship)eObject).getAccessType());
 		}
-		if ( eObject instanceof IFolder )							append(checksumBuilder, ((IFolder)eObject).getType().getLiteral());
-		if ( eObject instanceof IArchimateDiagramModel )			append(checksumBuilder, ((IArchimateDiagramModel)eObject).getViewpoint());
-		if ( eObject instanceof IDiagramModel )	{					append(checksumBuilder, ((IDiagramModel)eObject).getConnectionRouterType());
-																	append(checksumBuilder, dbMetadata.getScreenshot().getBytes());
+		if ( eObject instanceof IFolder )							checksumBuilder.append(((IFolder)eObject).getType().getLiteral());
+		if ( eObject instanceof IArchimateDiagramModel )			checksumBuilder.append(((IArchimateDiagramModel)eObject).getViewpoint());
+		if ( eObject instanceof IDiagramModel )	{					checksumBuilder.append(((IDiagramModel)eObject).getConnectionRouterType());
+																	checksumBuilder.append(dbMetadata.getScreenshot().getBytes());
 		}
 		else if ( eObject instanceof IDiagramModelContainer ) {		EObject container = ((IDiagramModelContainer)eObject).eContainer();
 																	if ( container == null ) {
 																		logger.error("No container found on "+metadata.getDebugName());
 																		throw new NullPointerException("Container not found");
 																	}
-																	append(checksumBuilder, ((IIdentifier)container).getId());
+																	checksumBuilder.append(((IIdentifier)container).getId());
 		}
-		if ( eObject instanceof IBorderObject )						append(checksumBuilder, ((IBorderObject)eObject).getBorderColor());
-		if ( eObject instanceof IDiagramModelNote )					append(checksumBuilder, ((IDiagramModelNote)eObject).getBorderType());
-		if ( eObject instanceof IDiagramModelArchimateObject )		append(checksumBuilder, ((IDiagramModelArchimateObject)eObject).getType());
-		if ( eObject instanceof IDiagramModelConnection ) {			append(checksumBuilder, ((IDiagramModelConnection)eObject).getType());			// we do not use getText as it is deprecated
+		if ( eObject instanceof IBorderObject )						checksumBuilder.append(((IBorderObject)eObject).getBorderColor());
+		if ( eObject instanceof IDiagramModelNote )					checksumBuilder.append(((IDiagramModelNote)eObject).getBorderType());
+		if ( eObject instanceof IDiagramModelArchimateObject )		checksumBuilder.append(((IDiagramModelArchimateObject)eObject).getType());
+		if ( eObject instanceof IDiagramModelConnection ) {			checksumBuilder.append(((IDiagramModelConnection)eObject).getType());			// we do not use getText as it is deprecated
 																	
 																	IConnectable source = ((IDiagramModelConnection)eObject).getSource();
 		                                                            if ( source == null ) {
 		                                                            	logger.error("No source found on "+metadata.getDebugName());
 		                                                            	throw new NullPointerException("The diagram connection has got no source");
 		                                                            }
-																	append(checksumBuilder, source.getId());
+																	checksumBuilder.append(source.getId());
 																	
 																	IConnectable target = ((IDiagramModelConnection)eObject).getTarget();
 																	if ( target == null ) {
 																		logger.error("No target found on "+metadata.getDebugName());
 																		throw new NullPointerException("The diagram connection has got no target");
 																	}
-		                                                            append(checksumBuilder, target.getId());
-																	append(checksumBuilder, ((IDiagramModelConnection)eObject).getTextPosition());
+		                                                            checksumBuilder.append(target.getId());
+																	checksumBuilder.append(((IDiagramModelConnection)eObject).getTextPosition());
 																	if ( ((IDiagramModelConnection)eObject).getBendpoints() != null ) {
 																		for (IDiagramModelBendpoint point: ((IDiagramModelConnection)eObject).getBendpoints()) {
-																			append(checksumBuilder, point.getStartX());
-																			append(checksumBuilder, point.getStartY());
-																			append(checksumBuilder, point.getEndX());
-																			append(checksumBuilder, point.getEndY());
+																			checksumBuilder.append(point.getStartX());
+																			checksumBuilder.append(point.getStartY());
+																			checksumBuilder.append(point.getEndX());
+																			checksumBuilder.append(point.getEndY());
 																		}
 																	}
 		}
-		if ( eObject instanceof IDiagramModelImageProvider )		append(checksumBuilder, ((IDiagramModelImageProvider)eObject).getImagePath());
-		if ( eObject instanceof IDiagramModelObject ) {				append(checksumBuilder, ((IDiagramModelObject)eObject).getFillColor());
-																	append(checksumBuilder, dbMetadata.getAlpha());		// from Archi 4.3
+		if ( eObject instanceof IDiagramModelImageProvider )		checksumBuilder.append(((IDiagramModelImageProvider)eObject).getImagePath());
+		if ( eObject instanceof IDiagramModelObject ) {				checksumBuilder.append(((IDiagramModelObject)eObject).getFillColor());
+																	checksumBuilder.append(dbMetadata.getAlpha());		// from Archi 4.3
 																	IBounds bounds = ((IDiagramModelObject)eObject).getBounds();
-																	append(checksumBuilder, bounds.getX());
-																	append(checksumBuilder, bounds.getY());
-																	append(checksumBuilder, bounds.getWidth());
-																	append(checksumBuilder, bounds.getHeight());
+																	checksumBuilder.append(bounds.getX());
+																	checksumBuilder.append(bounds.getY());
+																	checksumBuilder.append(bounds.getWidth());
+																	checksumBuilder.append(bounds.getHeight());
 		}
 		if ( eObject instanceof IDiagramModelArchimateComponent ) { IArchimateConcept concept = ((IDiagramModelArchimateComponent)eObject).getArchimateConcept();
 																	if ( concept == null ) {
 																		logger.error("No archimate concept linked to "+metadata.getDebugName());
 																		throw new NullPointerException("No archimate concept linked to the diagram object");
 																	}
-																	append(checksumBuilder, concept.getId());
+																	checksumBuilder.append(concept.getId());
 		}
 		if ( eObject instanceof IDiagramModelArchimateConnection ) {IArchimateRelationship relationship = ((IDiagramModelArchimateConnection)eObject).getArchimateConcept();
 																	if ( relationship == null ) {
 																		logger.error("No relationship linked to "+metadata.getDebugName());
 																		throw new NullPointerException("No relationship linked to the diagram connection");
 																	}
-																	append(checksumBuilder, ((IDiagramModelArchimateConnection)eObject).getArchimateConcept().getId());
+																	checksumBuilder.append(((IDiagramModelArchimateConnection)eObject).getArchimateConcept().getId());
 		}
-		if ( eObject instanceof IFontAttribute ) {					append(checksumBuilder, ((IFontAttribute)eObject).getFont());
-																	append(checksumBuilder, ((IFontAttribute)eObject).getFontColor());
+		if ( eObject instanceof IFontAttribute ) {					checksumBuilder.append(((IFontAttribute)eObject).getFont());
+																	checksumBuilder.append(((IFontAttribute)eObject).getFontColor());
 		}
-		if ( eObject instanceof ILineObject ) {						append(checksumBuilder, ((ILineObject)eObject).getLineWidth());
-																	append(checksumBuilder, ((ILineObject)eObject).getLineColor());
+		if ( eObject instanceof ILineObject ) {						checksumBuilder.append(((ILineObject)eObject).getLineWidth());
+																	checksumBuilder.append(((ILineObject)eObject).getLineColor());
 		}
-		if ( eObject instanceof ILockable )							append(checksumBuilder, ((ILockable)eObject).isLocked());
-		if ( eObject instanceof ISketchModel )						append(checksumBuilder, ((ISketchModel)eObject).getBackground());
-		if ( eObject instanceof ITextAlignment )					append(checksumBuilder, ((ITextAlignment)eObject).getTextAlignment());
-        if ( eObject instanceof ITextPosition )						append(checksumBuilder, ((ITextPosition)eObject).getTextPosition());
-		if ( eObject instanceof ITextContent )						append(checksumBuilder, ((ITextContent)eObject).getContent());
-		if ( dbMetadata.getImagePosition() != null ) 				append(checksumBuilder, dbMetadata.getImagePosition());
-		if ( eObject instanceof INotesContent )						append(checksumBuilder, ((INotesContent)eObject).getNotes());
+		if ( eObject instanceof ILockable )							checksumBuilder.append(((ILockable)eObject).isLocked());
+		if ( eObject instanceof ISketchModel )						checksumBuilder.append(((ISketchModel)eObject).getBackground());
+		if ( eObject instanceof ITextAlignment )					checksumBuilder.append(((ITextAlignment)eObject).getTextAlignment());
+        if ( eObject instanceof ITextPosition )						checksumBuilder.append(((ITextPosition)eObject).getTextPosition());
+		if ( eObject instanceof ITextContent )						checksumBuilder.append(((ITextContent)eObject).getContent());
+		if ( dbMetadata.getImagePosition() != null ) 				checksumBuilder.append(dbMetadata.getImagePosition());
+		if ( eObject instanceof INotesContent )						checksumBuilder.append(((INotesContent)eObject).getNotes());
 		if ( eObject instanceof IProperties &&
 		        !(eObject instanceof IDiagramModelArchimateObject) &&
 		        !(eObject instanceof IDiagramModelConnection) &&
 		        (((IProperties)eObject).getProperties() != null)){	for ( IProperty prop: ((IProperties)eObject).getProperties() ) {
-																		append(checksumBuilder, prop.getKey());
-																		append(checksumBuilder, prop.getValue());
+																		checksumBuilder.append(prop.getKey());
+																		checksumBuilder.append(prop.getValue());
 		        													}
 		}
 		if ( (eObject instanceof IFeatures) &&
 				(((IFeatures)eObject).getFeatures() != null) ) {	for ( IFeature feature: ((IFeatures)eObject).getFeatures() ) {
-																		append(checksumBuilder, feature.getName());
-																		append(checksumBuilder, feature.getValue());
+																		checksumBuilder.append(feature.getName());
+																		checksumBuilder.append(feature.getValue());
 		        													}
 		}
-		if ( eObject instanceof IProfile) {							append(checksumBuilder, ((IProfile)eObject).isSpecialization());
-																	append(checksumBuilder, ((IProfile)eObject).getImagePath());
-																	append(checksumBuilder, ((IProfile)eObject).getConceptType());
+		if ( eObject instanceof IProfile) {							checksumBuilder.append(((IProfile)eObject).isSpecialization());
+																	checksumBuilder.append(((IProfile)eObject).getImagePath());
+																	checksumBuilder.append(((IProfile)eObject).getConceptType());
 			
 		}
 		if ( eObject instanceof IProfiles) {						for ( IProfile profile: ((IProfiles)eObject).getProfiles() )
-																		append(checksumBuilder, profile.getId());
+																		checksumBuilder.append(profile.getId());
 		}
 		
-		return calculateChecksum(checksumBuilder);
+		return checksumBuilder.getChecksum();
+	}
+	
+	/**
+	 * Calculate the content ID of the properties of a component, that is the ID of its properties set in the database.<br>
+	 * It is calculated using SHA-256 whatever the checksum algorithm is, as the components that have got the same ID share the same rows.<br>
+	 * The properties whose key or value is null are not exported, so they are not considered.
+	 * @param parent 
+	 * @return the content ID, or null if the component has got no property to export
+	 * @throws DBException
+	 */
+	public static String calculatePropertiesChecksum(IProperties parent) throws DBException {
+		if ( parent.getProperties() == null )
+			return null;
+		
+		DBChecksumBuilder checksumBuilder = DBChecksumBuilder.newContentIdBuilder();
+		int nbProperties = 0;
+		for ( IProperty prop: parent.getProperties() ) {
+			if ( (prop != null) && (prop.getKey() != null) && (prop.getValue() != null) ) {
+				checksumBuilder.append(prop.getKey());
+				checksumBuilder.append(prop.getValue());
+				++nbProperties;
+			}
+		}
+		
+		return (nbProperties == 0) ? null : checksumBuilder.getChecksum();
+	}
+	
+	/**
+	 * Calculate the content ID of the features of a component, that is the ID of its features set in the database.<br>
+	 * It is calculated using SHA-256 whatever the checksum algorithm is, as the components that have got the same ID share the same rows.<br>
+	 * The features whose name or value is null are not exported, so they are not considered.
+	 * @param parent 
+	 * @return the content ID, or null if the component has got no feature to export
+	 * @throws DBException
+	 */
+	public static String calculateFeaturesChecksum(IFeatures parent) throws DBException {
+		if ( parent.getFeatures() == null )
+			return null;
+		
+		DBChecksumBuilder checksumBuilder = DBChecksumBuilder.newContentIdBuilder();
+		int nbFeatures = 0;
+		for ( IFeature feature: parent.getFeatures() ) {
+			if ( (feature != null) && (feature.getName() != null) && (feature.getValue() != null) ) {
+				checksumBuilder.append(feature.getName());
+				checksumBuilder.append(feature.getValue());
+				++nbFeatures;
+			}
+		}
+		
+		return (nbFeatures == 0) ? null : checksumBuilder.getChecksum();
 	}
 	
 	/**
@@ -264,7 +312,7 @@ public class DBChecksum {
 	public static void append(StringBuilder sb, String value) {
 		String sValue = (value == null ? "" : value);
 
-	    sb.append(START_OF_TEXT+sValue+END_OF_TEXT);
+	    sb.append(START_OF_TEXT).append(sValue).append(END_OF_TEXT);
 	}
 	
 	/**
@@ -297,59 +345,56 @@ public class DBChecksum {
 	}
 	
 	/**
-	 * Calculate a MD5 from a StringBuilder
+	 * Calculate a checksum from a StringBuilder
 	 * @param input 
+	 * @param algorithm algorithm of the database the checksum is compared to
 	 * @return 
 	 * @throws DBException
 	 */
-	public static String calculateChecksum(StringBuilder input) throws DBException {
-		return calculateChecksum(input.toString().getBytes(StandardCharsets.UTF_8));
+	public static String calculateChecksum(StringBuilder input, DBChecksumAlgorithm algorithm) throws DBException {
+		return new DBChecksumBuilder(algorithm).appendRaw(input).getChecksum();
 	}
 	
 	/**
-	 * Calculate a MD5 from a String
+	 * Calculate a checksum from a String
 	 * @param input 
+	 * @param algorithm algorithm of the database the checksum is compared to
 	 * @return 
 	 * @throws DBException
 	 */
-	public static String calculateChecksum(String input) throws DBException {
-		return calculateChecksum(input.getBytes(StandardCharsets.UTF_8));
+	public static String calculateChecksum(String input, DBChecksumAlgorithm algorithm) throws DBException {
+		return new DBChecksumBuilder(algorithm).appendRaw(input).getChecksum();
 	}
 	
 	/**
-	 * Calculate a MD5 from a byte array
+	 * Calculate a checksum from a byte array
 	 * @param bytes 
+	 * @param algorithm algorithm of the database the checksum is compared to
 	 * @return 
 	 * @throws DBException 
 	 */
-	public static String calculateChecksum(byte[] bytes) throws DBException {
+	public static String calculateChecksum(byte[] bytes, DBChecksumAlgorithm algorithm) throws DBException {
 	    if ( bytes == null )
 	    	return null;
 	    
-        MessageDigest md;
-        StringBuilder md5 = new StringBuilder();
+	    MessageDigest md = DBChecksumBuilder.getDigest(algorithm);
+	    md.reset();
+	    return DBChecksumBuilder.toHexString(md.digest(bytes));
+	}
+	
+	/**
+	 * Calculate the content ID of a byte array, that is the ID under which an image is stored in the database.<br>
+	 * It is calculated using SHA-256 whatever the checksum algorithm is, as the paths that have got the same ID share the same image.
+	 * @param bytes 
+	 * @return the content ID
+	 * @throws DBException 
+	 */
+	public static String calculateContentId(byte[] bytes) throws DBException {
+	    if ( bytes == null )
+	    	return null;
 	    
-		try {
-
-			md = MessageDigest.getInstance("MD5");
-	    	md.update(bytes);
-	    	
-	    	byte[] digest = md.digest();
-
-	    	for (int i = 0; i < digest.length; i++) {
-	    	    if ((0xff & digest[i]) < 0x10) {
-	    	    	md5.append("0").append(Integer.toHexString((0xFF & digest[i])));
-	    	    } else {
-	    	    	md5.append(Integer.toHexString(0xFF & digest[i]));
-	    	    }
-	    	}
-		} catch (NoSuchAlgorithmException e) {
-			DBGuiUtils.popup(Level.ERROR, "Failed to calculate checksum.", e);
-			DBException exception = new DBException("Failed to calculate checksum");
-			exception.initCause(e);
-			throw exception;
-		}
-
-		return md5.toString();
+	    MessageDigest md = DBChecksumBuilder.getContentIdDigest();
+	    md.reset();
+	    return DBChecksumBuilder.toHexString(DBChecksumBuilder.truncate(md.digest(bytes), DBChecksumBuilder.CONTENT_ID_LENGTH));
 	}
 }
@@ -0,0 +1,87 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.data;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.archicontribs.database.DBException;
+import org.archicontribs.database.DBLogger;
+import org.archicontribs.database.DBPlugin;
+
+/**
+ * Algorithms that can be used to calculate the components checksums.<br>
+ * <br>
+ * The checksums are only used to detect changes, so they do not need to be cryptographically secure. The algorithm is chosen
+ * when the database is created and is stored in the "database_version" table, so that all the plugins that access the same
+ * database calculate the same checksums.
+ */
+public enum DBChecksumAlgorithm {
+	/**
+	 * MD5 algorithm, used by all the databases created before the algorithm became configurable
+	 */
+	MD5 {
+		@Override
+		public MessageDigest newMessageDigest() throws NoSuchAlgorithmException {
+			return MessageDigest.getInstance("MD5");
+		}
+	},
+
+	/**
+	 * xxHash64 non cryptographic algorithm, much faster than MD5
+	 */
+	XXH64 {
+		@Override
+		public MessageDigest newMessageDigest() {
+			return new DBXxHash64Digest();
+		}
+	};
+
+	/**
+	 * Default algorithm, used when the database does not specify one
+	 */
+	public static final DBChecksumAlgorithm DEFAULT = MD5;
+
+	private static final DBLogger logger = new DBLogger(DBChecksumAlgorithm.class);
+
+	/**
+	 * @return a new MessageDigest that implements the algorithm
+	 * @throws NoSuchAlgorithmException if the algorithm is not available in the JVM
+	 */
+	public abstract MessageDigest newMessageDigest() throws NoSuchAlgorithmException;
+
+	/**
+	 * Gets the algorithm from its name
+	 * @param name name of the algorithm, as stored in the database
+	 * @return the corresponding algorithm, or the default algorithm if the name is empty
+	 * @throws DBException if the name is not the name of a known algorithm, as the checksums would not be comparable to the database's ones
+	 */
+	public static DBChecksumAlgorithm fromName(String name) throws DBException {
+		if ( (name == null) || name.trim().isEmpty() )
+			return DEFAULT;
+
+		for ( DBChecksumAlgorithm algorithm: values() ) {
+			if ( algorithm.name().equalsIgnoreCase(name.trim()) )
+				return algorithm;
+		}
+		throw new DBException("Unknown checksum algorithm \""+name+"\".");
+	}
+
+	/**
+	 * Gets the algorithm chosen in the preferences for the new databases
+	 * @return the corresponding algorithm, or the default algorithm if the preference is not the name of a known algorithm
+	 */
+	public static DBChecksumAlgorithm fromPreferences() {
+		String name = DBPlugin.INSTANCE.getPreferenceStore().getString("checksumAlgorithm");
+		try {
+			return fromName(name);
+		} catch (DBException err) {
+			logger.error("The \"checksumAlgorithm\" preference is not valid, using the "+DEFAULT.name()+" checksum algorithm.", err);
+			return DEFAULT;
+		}
+	}
+}
@@ -0,0 +1,291 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.data;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.apache.log4j.Level;
+import org.archicontribs.database.DBException;
+import org.archicontribs.database.gui.DBGuiUtils;
+
+/**
+ * Calculates a checksum by feeding the values directly into a MessageDigest, without concatenating them first.<br>
+ * <br>
+ * The values are encoded in UTF-8 into a small buffer that is sent to the MessageDigest when full. The resulting checksum is
+ * identical to the checksum of the UTF-8 bytes of the concatenated values.<br>
+ * <br>
+ * The MessageDigest and the buffer are reused by all the builders of the same thread, so a builder must be used by a single
+ * thread and its checksum must be got before another builder is created on the same thread.
+ */
+public class DBChecksumBuilder {
+	private static final char START_OF_TEXT = (char)2;
+	private static final char END_OF_TEXT = (char)3;
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * Algorithm of the content IDs, that does not depend on the checksum algorithm
+	 */
+	private static final String CONTENT_ID_ALGORITHM = "SHA-256";
+
+	/**
+	 * Number of bytes of the content IDs, so that their hexadecimal representation fits in the OBJECTID columns
+	 */
+	static final int CONTENT_ID_LENGTH = 24;
+
+	private static final ThreadLocal<MessageDigest[]> threadDigests = ThreadLocal.withInitial(() -> new MessageDigest[DBChecksumAlgorithm.values().length]);
+	private static final ThreadLocal<MessageDigest> threadContentIdDigest = new ThreadLocal<>();
+	private static final ThreadLocal<byte[]> threadBuffer = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+	private final MessageDigest digest;
+	private final int length;
+	private final byte[] buffer;
+	private int position = 0;
+
+	/**
+	 * Creates a new checksum builder, reusing the MessageDigest of the current thread for the checksum algorithm
+	 * @param algorithm algorithm of the database the checksum is compared to
+	 * @throws DBException if the checksum algorithm is not available
+	 */
+	public DBChecksumBuilder(DBChecksumAlgorithm algorithm) throws DBException {
+		this(getDigest(algorithm), 0);
+	}
+
+	/**
+	 * Creates a new builder on a MessageDigest of the current thread
+	 * @param digest
+	 * @param length number of bytes of the digest that are kept, or 0 to keep the whole digest
+	 */
+	private DBChecksumBuilder(MessageDigest digest, int length) {
+		this.digest = digest;
+		this.digest.reset();
+		this.length = length;
+		this.buffer = threadBuffer.get();
+	}
+
+	/**
+	 * Creates a new builder that calculates a content ID instead of a checksum.<br>
+	 * A content ID identifies rows that are shared in the database, like the properties and features sets. It is always calculated
+	 * using SHA-256, whatever the checksum algorithm is, because a collision would make a component reference the rows of another content.
+	 * @return the builder
+	 * @throws DBException if the SHA-256 algorithm is not available
+	 */
+	public static DBChecksumBuilder newContentIdBuilder() throws DBException {
+		return new DBChecksumBuilder(getContentIdDigest(), CONTENT_ID_LENGTH);
+	}
+
+	/**
+	 * Adds a value surrounded by the start of text and end of text characters
+	 * @param value value to add (null is considered as an empty string)
+	 * @return the builder
+	 */
+	public DBChecksumBuilder append(String value) {
+		appendChar(START_OF_TEXT);
+		if ( value != null )
+			appendRaw(value);
+		appendChar(END_OF_TEXT);
+		return this;
+	}
+
+	/**
+	 * Adds a byte array surrounded by the start of text and end of text characters.<br>
+	 * The byte array is decoded using the platform's default charset, like the historical String-based checksum did, but by chunks
+	 * so that large byte arrays like the views screenshots are not copied in a String first.
+	 * @param value value to add (null is considered as an empty array)
+	 * @return the builder
+	 */
+	public DBChecksumBuilder append(byte[] value) {
+		appendChar(START_OF_TEXT);
+		if ( value != null ) {
+			// malformed input is replaced the same way the String constructor does
+			CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			ByteBuffer in = ByteBuffer.wrap(value);
+			CharBuffer out = CharBuffer.allocate(BUFFER_SIZE);
+			while ( decoder.decode(in, out, true).isOverflow() )
+				appendDecoded(out, false);
+			while ( decoder.flush(out).isOverflow() )
+				appendDecoded(out, false);
+			appendDecoded(out, true);
+		}
+		appendChar(END_OF_TEXT);
+		return this;
+	}
+
+	/**
+	 * Adds an integer surrounded by the start of text and end of text characters
+	 * @param value value to add
+	 * @return the builder
+	 */
+	public DBChecksumBuilder append(int value) {
+		return append(String.valueOf(value));
+	}
+
+	/**
+	 * Adds a boolean surrounded by the start of text and end of text characters
+	 * @param value value to add
+	 * @return the builder
+	 */
+	public DBChecksumBuilder append(boolean value) {
+		return append(String.valueOf(value));
+	}
+
+	/**
+	 * Adds characters as they are, without the start of text and end of text characters
+	 * @param chars characters to add
+	 * @return the builder
+	 */
+	public DBChecksumBuilder appendRaw(CharSequence chars) {
+		int length = chars.length();
+		for ( int i = 0; i < length; ++i ) {
+			char c = chars.charAt(i);
+			if ( Character.isHighSurrogate(c) && (i+1 < length) && Character.isLowSurrogate(chars.charAt(i+1)) ) {
+				appendCodePoint(Character.toCodePoint(c, chars.charAt(++i)));
+			} else if ( Character.isSurrogate(c) ) {
+				// unpaired surrogates are replaced by a question mark, as String.getBytes() does
+				appendByte('?');
+			} else {
+				appendChar(c);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @return the checksum, as an hexadecimal string, of all the values that have been added
+	 */
+	public String getChecksum() {
+		flush();
+		return toHexString(truncate(this.digest.digest(), this.length));
+	}
+
+	/**
+	 * Converts a byte array to its lower case hexadecimal representation
+	 * @param bytes
+	 * @return the hexadecimal string
+	 */
+	public static String toHexString(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for ( int i = 0; i < bytes.length; ++i ) {
+			hex[i*2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+			hex[i*2+1] = HEX_DIGITS[bytes[i] & 0x0F];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * @param algorithm
+	 * @return the MessageDigest of the current thread for the checksum algorithm
+	 * @throws DBException if the checksum algorithm is not available
+	 */
+	static MessageDigest getDigest(DBChecksumAlgorithm algorithm) throws DBException {
+		MessageDigest[] digests = threadDigests.get();
+		MessageDigest md = digests[algorithm.ordinal()];
+		if ( md == null ) {
+			try {
+				md = algorithm.newMessageDigest();
+			} catch (NoSuchAlgorithmException e) {
+				DBGuiUtils.popup(Level.ERROR, "Failed to calculate checksum.", e);
+				DBException exception = new DBException("Failed to calculate checksum");
+				exception.initCause(e);
+				throw exception;
+			}
+			digests[algorithm.ordinal()] = md;
+		}
+		return md;
+	}
+
+	/**
+	 * @return the MessageDigest of the current thread for the content IDs
+	 * @throws DBException if the SHA-256 algorithm is not available
+	 */
+	static MessageDigest getContentIdDigest() throws DBException {
+		MessageDigest md = threadContentIdDigest.get();
+		if ( md == null ) {
+			try {
+				md = MessageDigest.getInstance(CONTENT_ID_ALGORITHM);
+			} catch (NoSuchAlgorithmException e) {
+				DBGuiUtils.popup(Level.ERROR, "Failed to calculate content ID.", e);
+				DBException exception = new DBException("Failed to calculate content ID");
+				exception.initCause(e);
+				throw exception;
+			}
+			threadContentIdDigest.set(md);
+		}
+		return md;
+	}
+
+	/**
+	 * Keeps the first bytes of a digest
+	 * @param bytes the digest
+	 * @param length number of bytes to keep, or 0 to keep all of them
+	 * @return the truncated digest
+	 */
+	static byte[] truncate(byte[] bytes, int length) {
+		if ( (length == 0) || (bytes.length <= length) )
+			return bytes;
+		return Arrays.copyOf(bytes, length);
+	}
+
+	/**
+	 * Adds the decoded characters and empties the CharBuffer, except a trailing high surrogate that is kept until its low surrogate is decoded
+	 * @param chars the CharBuffer, in write mode
+	 * @param isLast true if no more characters will be decoded
+	 */
+	private void appendDecoded(CharBuffer chars, boolean isLast) {
+		chars.flip();
+		int count = chars.remaining();
+		if ( !isLast && (count != 0) && Character.isHighSurrogate(chars.get(chars.limit() - 1)) )
+			--count;
+		appendRaw(chars.subSequence(0, count));
+		chars.position(chars.position() + count);
+		chars.compact();
+	}
+
+	private void appendChar(char c) {
+		if ( c < 0x80 ) {
+			appendByte(c);
+		} else if ( c < 0x800 ) {
+			appendByte(0xC0 | (c >> 6));
+			appendByte(0x80 | (c & 0x3F));
+		} else {
+			appendByte(0xE0 | (c >> 12));
+			appendByte(0x80 | ((c >> 6) & 0x3F));
+			appendByte(0x80 | (c & 0x3F));
+		}
+	}
+
+	private void appendCodePoint(int codePoint) {
+		appendByte(0xF0 | (codePoint >> 18));
+		appendByte(0x80 | ((codePoint >> 12) & 0x3F));
+		appendByte(0x80 | ((codePoint >> 6) & 0x3F));
+		appendByte(0x80 | (codePoint & 0x3F));
+	}
+
+	private void appendByte(int b) {
+		if ( this.position == this.buffer.length )
+			flush();
+		this.buffer[this.position++] = (byte)b;
+	}
+
+	private void flush() {
+		if ( this.position != 0 ) {
+			this.digest.update(this.buffer, 0, this.position);
+			this.position = 0;
+		}
+	}
+}
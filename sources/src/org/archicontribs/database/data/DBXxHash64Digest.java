@@ -0,0 +1,176 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.data;
+
+import java.security.MessageDigest;
+
+/**
+ * Streaming implementation of the xxHash64 non cryptographic hash algorithm (seed 0), exposed as a MessageDigest.<br>
+ * <br>
+ * The digest is the 8 bytes hash in big endian order, so its hexadecimal representation is the usual xxHash64 one.
+ */
+public class DBXxHash64Digest extends MessageDigest {
+	private static final long PRIME1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME3 = 0x165667B19E3779F9L;
+	private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+	private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+	private long v1;
+	private long v2;
+	private long v3;
+	private long v4;
+	private long totalLength;
+
+	/**
+	 * Bytes that do not yet fill a 32 bytes stripe
+	 */
+	private final byte[] stripe = new byte[32];
+	private int stripeLength;
+
+	/**
+	 * Creates a new xxHash64 digest
+	 */
+	public DBXxHash64Digest() {
+		super("XXH64");
+		engineReset();
+	}
+
+	@Override
+	protected void engineReset() {
+		this.v1 = PRIME1 + PRIME2;
+		this.v2 = PRIME2;
+		this.v3 = 0;
+		this.v4 = -PRIME1;
+		this.totalLength = 0;
+		this.stripeLength = 0;
+	}
+
+	@Override
+	protected int engineGetDigestLength() {
+		return 8;
+	}
+
+	@Override
+	protected void engineUpdate(byte input) {
+		engineUpdate(new byte[] {input}, 0, 1);
+	}
+
+	@Override
+	protected void engineUpdate(byte[] input, int offset, int length) {
+		int pos = offset;
+		int end = offset + length;
+		this.totalLength += length;
+
+		// we first complete the pending stripe
+		if ( this.stripeLength != 0 ) {
+			int count = Math.min(32 - this.stripeLength, length);
+			System.arraycopy(input, pos, this.stripe, this.stripeLength, count);
+			this.stripeLength += count;
+			pos += count;
+			if ( this.stripeLength < 32 )
+				return;
+			processStripe(this.stripe, 0);
+			this.stripeLength = 0;
+		}
+
+		// then we process the full stripes directly from the input
+		while ( pos + 32 <= end ) {
+			processStripe(input, pos);
+			pos += 32;
+		}
+
+		// and we keep the remaining bytes for later
+		if ( pos < end ) {
+			System.arraycopy(input, pos, this.stripe, 0, end - pos);
+			this.stripeLength = end - pos;
+		}
+	}
+
+	@Override
+	protected byte[] engineDigest() {
+		long hash;
+
+		if ( this.totalLength >= 32 ) {
+			hash = Long.rotateLeft(this.v1, 1) + Long.rotateLeft(this.v2, 7) + Long.rotateLeft(this.v3, 12) + Long.rotateLeft(this.v4, 18);
+			hash = mergeRound(hash, this.v1);
+			hash = mergeRound(hash, this.v2);
+			hash = mergeRound(hash, this.v3);
+			hash = mergeRound(hash, this.v4);
+		} else
+			hash = PRIME5;
+
+		hash += this.totalLength;
+
+		int pos = 0;
+		while ( pos + 8 <= this.stripeLength ) {
+			hash ^= round(0, getLong(this.stripe, pos));
+			hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+			pos += 8;
+		}
+
+		if ( pos + 4 <= this.stripeLength ) {
+			hash ^= (getInt(this.stripe, pos) & 0xFFFFFFFFL) * PRIME1;
+			hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+			pos += 4;
+		}
+
+		while ( pos < this.stripeLength ) {
+			hash ^= (this.stripe[pos] & 0xFFL) * PRIME5;
+			hash = Long.rotateLeft(hash, 11) * PRIME1;
+			++pos;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= PRIME2;
+		hash ^= hash >>> 29;
+		hash *= PRIME3;
+		hash ^= hash >>> 32;
+
+		engineReset();
+
+		byte[] digest = new byte[8];
+		for ( int i = 7; i >= 0; --i ) {
+			digest[i] = (byte)hash;
+			hash >>>= 8;
+		}
+		return digest;
+	}
+
+	private void processStripe(byte[] input, int offset) {
+		this.v1 = round(this.v1, getLong(input, offset));
+		this.v2 = round(this.v2, getLong(input, offset + 8));
+		this.v3 = round(this.v3, getLong(input, offset + 16));
+		this.v4 = round(this.v4, getLong(input, offset + 24));
+	}
+
+	private static long round(long acc, long input) {
+		return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+	}
+
+	private static long mergeRound(long acc, long value) {
+		return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+	}
+
+	private static long getLong(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFFL)
+				| (bytes[offset + 1] & 0xFFL) << 8
+				| (bytes[offset + 2] & 0xFFL) << 16
+				| (bytes[offset + 3] & 0xFFL) << 24
+				| (bytes[offset + 4] & 0xFFL) << 32
+				| (bytes[offset + 5] & 0xFFL) << 40
+				| (bytes[offset + 6] & 0xFFL) << 48
+				| (bytes[offset + 7] & 0xFFL) << 56;
+	}
+
+	private static int getInt(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF)
+				| (bytes[offset + 1] & 0xFF) << 8
+				| (bytes[offset + 2] & 0xFF) << 16
+				| (bytes[offset + 3] & 0xFF) << 24;
+	}
+}
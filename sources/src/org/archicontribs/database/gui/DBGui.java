@@ -18,13 +18,21 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.apache.log4j.Level;
 import org.archicontribs.database.DBDatabaseDriver;
 import org.archicontribs.database.DBDatabaseEntry;
+import org.archicontribs.database.DBException;
 import org.archicontribs.database.DBLogger;
 import org.archicontribs.database.DBPlugin;
 import org.archicontribs.database.connection.DBDatabaseConnection;
 import org.archicontribs.database.connection.DBDatabaseImportConnection;
+import org.archicontribs.database.connection.DBStatement;
 import org.archicontribs.database.data.DBBendpoint;
 import org.archicontribs.database.data.DBProfile;
 import org.archicontribs.database.data.DBProperty;
@@ -110,7 +118,7 @@ import lombok.Setter;
 public class DBGui {
 	protected static final DBLogger logger = new DBLogger(DBGui.class);
 
-	@Getter @Setter private boolean closedByUser = false;
+	@Getter @Setter private volatile boolean closedByUser = false;
 
 	protected List<DBDatabaseEntry> databaseEntries;
 	protected List<DBDatabaseEntry> comboDatabaseEntries;
@@ -118,6 +126,21 @@ public class DBGui {
 	DBDatabaseImportConnection connection;
 
 	protected static final Display display = Display.getCurrent() == null ? Display.getDefault() : Display.getCurrent();
+
+	/**
+	 * Thread that runs the database work of the export and import processes, so that the SWT thread stays responsive
+	 */
+	private static final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "DBGui background task");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * True while a task of this dialog is run by the background thread, that is using the database connection
+	 */
+	private volatile boolean isBackgroundTaskRunning = false;
+
 	protected Shell dialog;
 
 	protected boolean includeNeo4j = true;
@@ -264,21 +287,7 @@ public class DBGui {
 			@Override
 			public void handleEvent(Event event)
 			{
-				boolean doIt = true;
-				if ( DBGui.this.btnClose.getText().equals("Cancel") ) {
-					doIt = DBGuiUtils.question("Are you sure you wish to cancel ?");
-				}
-
-				if ( doIt ) {
-					setClosedByUser(true);
-					try {
-						rollbackAndCloseConnection();
-					} catch (SQLException e) {
-						DBGuiUtils.popup(Level.ERROR, "Failed to rollback and close the database connection.", e);
-					}
-					close();
-					event.doit = true;
-				}
+				event.doit = closeOrCancel();
 			}
 		});
 
@@ -530,21 +539,7 @@ public class DBGui {
 		this.btnClose.addSelectionListener(new SelectionListener() {
 			@Override
 			public void widgetSelected(SelectionEvent event) {
-				boolean doIt = true;
-				if ( DBGui.this.btnClose.getText().equals("Cancel") ) {
-					doIt = DBGuiUtils.question("Are you sure you wish to cancel ?");
-				}
-
-				if ( doIt ) {
-					setClosedByUser(true);
-					try {
-						rollbackAndCloseConnection();
-					} catch (SQLException e) {
-						DBGuiUtils.popup(Level.ERROR, "Failed to rollback and close the database connection.", e);
-					}
-					close();
-					event.doit = true;
-				}
+				closeOrCancel();
 			}
 			@Override
 			public void widgetDefaultSelected(SelectionEvent event) { widgetSelected(event); }
@@ -954,6 +949,14 @@ public class DBGui {
 	 * Creates the progress bar that will allow to follow the export process
 	 */
 	protected void createProgressBar(String label, int min, int max) {
+		// the label describes the phase the next SQL requests belong to
+		DBStatement.setPhase(label);
+
+		if ( !isDisplayThread() ) {
+			display.syncExec(() -> createProgressBar(label, min, max));
+			return;
+		}
+
 		if ( this.grpProgressBar == null ) {
 			this.grpProgressBar = new Group(this.compoRightTop, SWT.NONE);
 			this.grpProgressBar.setBackground(GROUP_BACKGROUND_COLOR);
@@ -1003,6 +1006,11 @@ public class DBGui {
 	}
 
 	public void hideProgressBar() {
+		if ( !isDisplayThread() ) {
+			display.syncExec(() -> hideProgressBar());
+			return;
+		}
+
 		if ( this.progressBar != null ) {
 			this.grpProgressBar.setVisible(false);
 			this.grpProgressBar.setData("visible", false);
@@ -1011,9 +1019,16 @@ public class DBGui {
 	}
 
 	public void setProgressBarLabel(String label) {
+		DBStatement.setPhase(label);
+
+		if ( !isDisplayThread() ) {
+			display.asyncExec(() -> setProgressBarLabel(label));
+			return;
+		}
+
 		if ( this.lblProgressBar == null )
 			createProgressBar(label, 0, 100);
-		else {
+		else if ( !this.lblProgressBar.isDisposed() ) {
 			this.lblProgressBar.setText(label);
 		}
 		logger.info("Setting progress bar label to \""+label+"\"");
@@ -1031,7 +1046,12 @@ public class DBGui {
 	 * Sets the min and max values of the progressBar and reset its selection to zero
 	 */
 	public void setProgressBarMinAndMax(int min, int max) {
-		if ( this.lblProgressBar != null ) {
+		if ( !isDisplayThread() ) {
+			display.syncExec(() -> setProgressBarMinAndMax(min, max));
+			return;
+		}
+
+		if ( (this.lblProgressBar != null) && !this.progressBar.isDisposed() ) {
 			this.progressBar.setMinimum(min);
 			this.progressBar.setMaximum(max);
 		}
@@ -1042,7 +1062,12 @@ public class DBGui {
 	 * Resets the progressBar to zero in the SWT thread (thread safe method)
 	 */
 	public void resetProgressBar() {
-		if ( this.lblProgressBar != null )
+		if ( !isDisplayThread() ) {
+			display.asyncExec(() -> resetProgressBar());
+			return;
+		}
+
+		if ( (this.lblProgressBar != null) && !this.progressBar.isDisposed() )
 			this.progressBar.setSelection(0);
 		refreshDisplay();
 	}
@@ -1058,7 +1083,12 @@ public class DBGui {
 	 * Increases the progressBar selection in the SWT thread (thread safe method)
 	 */
 	public void increaseProgressBar(int nb) {
-		if ( this.lblProgressBar != null )
+		if ( !isDisplayThread() ) {
+			display.asyncExec(() -> increaseProgressBar(nb));
+			return;
+		}
+
+		if ( (this.lblProgressBar != null) && !this.progressBar.isDisposed() )
 			this.progressBar.setSelection(this.progressBar.getSelection()+nb);
 		refreshDisplay();
 	}
@@ -1068,6 +1098,11 @@ public class DBGui {
 	}
 
 	protected void setMessage(String message, Color background) {
+		if ( !isDisplayThread() ) {
+			display.syncExec(() -> setMessage(message, background));
+			return;
+		}
+
 		if ( this.grpMessage == null ) {
 			this.grpMessage = new Group(this.compoRightTop, SWT.NONE);
 			this.grpMessage.setBackground(GROUP_BACKGROUND_COLOR);
@@ -1121,6 +1156,11 @@ public class DBGui {
 
 
 	public void closeMessage() {
+		if ( !isDisplayThread() ) {
+			display.syncExec(() -> closeMessage());
+			return;
+		}
+
 		if ( (this.grpMessage != null) && !this.grpMessage.isDisposed() ) {
 			this.grpMessage.setVisible(false);
 
@@ -1135,6 +1175,44 @@ public class DBGui {
 		}
 	}
 
+	/**
+	 * Called when the user clicks on the close (or cancel) button or closes the dialog window.<br>
+	 * <br>
+	 * While a background task is running, the database connection is used by the background thread, so it cannot be rolled back nor closed
+	 * from the SWT thread: the task is asked to stop and the connection and the dialog are closed by {@link #runInBackground(Callable)}
+	 * once the task is finished.
+	 * @return true if the dialog has been closed
+	 */
+	protected boolean closeOrCancel() {
+		if ( this.btnClose.getText().equals("Cancel") && !DBGuiUtils.question("Are you sure you wish to cancel ?") )
+			return false;
+
+		setClosedByUser(true);
+
+		if ( this.isBackgroundTaskRunning ) {
+			this.btnClose.setEnabled(false);
+			setProgressBarLabel("Cancelling ...");
+			return false;
+		}
+
+		try {
+			rollbackAndCloseConnection();
+		} catch (SQLException e) {
+			DBGuiUtils.popup(Level.ERROR, "Failed to rollback and close the database connection.", e);
+		}
+		close();
+		return true;
+	}
+
+	/**
+	 * Called by the background tasks between their phases, so that they stop as soon as possible when the user cancels the process
+	 * @throws DBException if the user cancelled the process
+	 */
+	protected void checkIfCancelled() throws DBException {
+		if ( isClosedByUser() )
+			throw new DBException("The process has been cancelled by the user.");
+	}
+
 	/**
 	 * Method used to close graphical objects if needed
 	 */
@@ -1592,9 +1670,13 @@ public class DBGui {
 	}
 
 	/**
-	 * Refreshes the display
+	 * Refreshes the display.<br>
+	 * Does nothing when called from a background task as the SWT thread dispatches its events by itself in that case.
 	 */
 	public static void refreshDisplay() {
+		if ( !isDisplayThread() )
+			return;
+
 		while ( DBGui.display.readAndDispatch() ) {
 			// nothing to do
 		}
@@ -1603,9 +1685,97 @@ public class DBGui {
 	public static void incrementText(Text txt) {
 		incrementText(txt, 1);
 	}
+
+	/**
+	 * Sets the text of a Text widget in the SWT thread (thread safe method)
+	 * @param txt
+	 * @param value
+	 */
+	public static void setText(Text txt, String value) {
+		if ( !isDisplayThread() ) {
+			display.asyncExec(() -> setText(txt, value));
+			return;
+		}
+
+		if ( (txt != null) && !txt.isDisposed() )
+			txt.setText(value);
+	}
+
+	/**
+	 * @return true if the current thread is the SWT thread
+	 */
+	public static boolean isDisplayThread() {
+		return display.getThread() == Thread.currentThread();
+	}
+
+	/**
+	 * Runs a task in a background thread while the SWT thread keeps on dispatching its events.<br>
+	 * <br>
+	 * The task must not access the SWT widgets nor modify the model directly: the progress bar, the messages and the counters
+	 * must be updated through the thread safe methods of this class, and the model changes must be sent back to the SWT thread.<br>
+	 * When called outside of the SWT thread, the task is run directly in the current thread.<br>
+	 * <br>
+	 * If the user cancels the process while the task is running, the database connection is rolled back and closed, and the dialog
+	 * is closed, once the task is finished.
+	 * @param task the task to run
+	 * @return the result of the task
+	 * @throws Exception the exception thrown by the task, or a DBException if the user cancelled the process
+	 */
+	protected <T> T runInBackground(Callable<T> task) throws Exception {
+		if ( !isDisplayThread() )
+			return task.call();
+
+		Future<T> future;
+		this.isBackgroundTaskRunning = true;
+		try {
+			future = backgroundExecutor.submit(() -> {
+				try {
+					return task.call();
+				} finally {
+					// wakes up the SWT thread so that it notices the end of the task
+					display.wake();
+				}
+			});
+
+			while ( !future.isDone() ) {
+				if ( !display.readAndDispatch() )
+					display.sleep();
+			}
+		} finally {
+			this.isBackgroundTaskRunning = false;
+		}
+
+		if ( isClosedByUser() ) {
+			// the task does not use the database connection anymore, so it can be rolled back and closed
+			try {
+				rollbackAndCloseConnection();
+			} catch (SQLException e) {
+				DBGuiUtils.popup(Level.ERROR, "Failed to rollback and close the database connection.", e);
+			}
+			if ( !isDisposed() )
+				close();
+			checkIfCancelled();
+		}
+
+		try {
+			return future.get();
+		} catch (ExecutionException err) {
+			Throwable cause = err.getCause();
+			if ( cause instanceof Exception )
+				throw (Exception)cause;
+			if ( cause instanceof Error )
+				throw (Error)cause;
+			throw err;
+		}
+	}
 	
 	public static void incrementText(Text txt, int increment) {
-		if ( txt != null ) {
+		if ( !isDisplayThread() ) {
+			display.asyncExec(() -> incrementText(txt, increment));
+			return;
+		}
+
+		if ( (txt != null) && !txt.isDisposed() ) {
 			try {
 				txt.setText(toString(toInt(txt.getText())+increment));
 			} catch (@SuppressWarnings("unused") Exception ign) {
@@ -1615,7 +1785,12 @@ public class DBGui {
 	}
 
 	public static void decrementText(Text txt) {
-		if ( txt != null ) {
+		if ( !isDisplayThread() ) {
+			display.asyncExec(() -> decrementText(txt));
+			return;
+		}
+
+		if ( (txt != null) && !txt.isDisposed() ) {
 			try {
 				txt.setText(toString(toInt(txt.getText())-1));
 			} catch (@SuppressWarnings("unused") Exception ign) {
@@ -528,6 +528,7 @@ public class DBGuiAdminDatabase extends DBGui {
 		if (DBGuiUtils.question("You are about to delete the model \""+modelName+"\" from the database.\n\nThis will delete the model as a container. However, the model content (elements, relationships, views, ...) will remain in the database so they can be imported from the database into other models.\n\nPlease note that this action cannot be undone.\n\nDo you confirm the deletion ?") ) {
 			try {
 				int deletedRows = this.importConnection.executeRequest("DELETE FROM "+this.importConnection.getDatabaseEntry().getSchemaPrefix()+"models WHERE id = ?", modelId);
+				this.importConnection.executeRequest("DELETE FROM "+this.importConnection.getDatabaseEntry().getSchemaPrefix()+"latest_versions WHERE component_type = 'models' AND component_id = ?", modelId);
 				
 				if (deletedRows == 0)
 					DBGuiUtils.popup(Level.WARN,"That's weird, no model with ID \""+modelId+"\" has been found in the database.");
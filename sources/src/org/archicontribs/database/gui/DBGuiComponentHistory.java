@@ -17,6 +17,7 @@ import org.archicontribs.database.connection.DBDatabaseExportConnection;
 import org.archicontribs.database.connection.DBDatabaseImportConnection;
 import org.archicontribs.database.connection.DBSelect;
 import org.archicontribs.database.data.DBChecksum;
+import org.archicontribs.database.data.DBChecksumAlgorithm;
 import org.archicontribs.database.data.DBImportMode;
 import org.archicontribs.database.model.commands.DBImportElementFromIdCommand;
 import org.archicontribs.database.model.commands.DBImportFolderFromIdCommand;
@@ -87,12 +88,6 @@ public class DBGuiComponentHistory extends DBGui {
 		this.includeNeo4j = false;
 		
 		if ( logger.isDebugEnabled() ) logger.debug("Setting up GUI for showing history of "+DBMetadata.getDBMetadata(component).getDebugName()+" (plugin version "+DBPlugin.PLUGIN_VERSION.toString()+").");		
-		
-		// we calculate the checksum of the component
-		if ( component instanceof ArchimateModel )
-			((DBArchimateModel)this.selectedComponent).getCurrentVersion().setChecksum(DBChecksum.calculateChecksum(this.selectedComponent));
-		else
-			((DBArchimateModel)this.selectedComponent.getArchimateModel()).countObject(component, true);
 
 		
 		setCompoRight();
@@ -267,6 +262,7 @@ public class DBGuiComponentHistory extends DBGui {
 		    	try (DBDatabaseExportConnection exportConnection = new DBDatabaseExportConnection(getDatabaseConnection())) {
 		    		((DBArchimateModel)DBGuiComponentHistory.this.selectedComponent.getArchimateModel()).getCurrentVersion().setTimestamp(new Timestamp(Calendar.getInstance().getTime().getTime()));
 					exportConnection.exportEObject(DBGuiComponentHistory.this.selectedComponent);
+					exportConnection.updateLatestVersions();
 					
 					DBGuiUtils.popup(Level.INFO, "The component has been updated in the database.");
 					connectedToDatabase(true);
@@ -283,6 +279,23 @@ public class DBGuiComponentHistory extends DBGui {
 		this.btnExportModelVersion.setLayoutData(fd);
 	}
 	
+	/**
+	 * Calculates the checksum of the selected component
+	 * @param algorithm algorithm of the database the checksum is compared to
+	 * @throws DBException
+	 */
+	private void calculateChecksum(DBChecksumAlgorithm algorithm) throws DBException {
+		if ( this.selectedComponent instanceof ArchimateModel ) {
+			((DBArchimateModel)this.selectedComponent).getCurrentVersion().setChecksum(DBChecksum.calculateChecksum(this.selectedComponent, algorithm));
+		} else {
+			DBArchimateModel model = (DBArchimateModel)this.selectedComponent.getArchimateModel();
+			// the countObject method uses the algorithm of the last count of the model's components
+			if ( model.getChecksumAlgorithm() != algorithm )
+				model.countAllObjects(algorithm);
+			model.countObject(this.selectedComponent, true);
+		}
+	}
+	
 	/**
 	 * Called when a database is selected in the comboDatabases and that the connection to this database succeeded.<br>
 	 */
@@ -291,6 +304,8 @@ public class DBGuiComponentHistory extends DBGui {
 		this.dialog.setCursor(DBGuiUtils.CURSOR_ARROW);
 		
 		try (DBDatabaseExportConnection exportConnection = new DBDatabaseExportConnection(getDatabaseConnection()) ) {
+			// the checksum of the component is calculated using the algorithm of the database
+			calculateChecksum(exportConnection.getChecksumAlgorithm());
             exportConnection.getVersionFromDatabase(this.selectedComponent);
 		} catch (Exception e) {
 		    DBGuiUtils.popup(Level.FATAL, "Cannot get version of selected component from the database.", e);
@@ -24,7 +24,9 @@ import org.archicontribs.database.DBPlugin;
 import org.archicontribs.database.DBPlugin.CONFLICT_CHOICE;
 import org.archicontribs.database.connection.DBDatabaseExportConnection;
 import org.archicontribs.database.connection.DBDatabaseImportConnection;
+import org.archicontribs.database.connection.DBStatementStatistics;
 import org.archicontribs.database.data.DBChecksum;
+import org.archicontribs.database.data.DBChecksumAlgorithm;
 import org.archicontribs.database.data.DBCompoundCommand;
 import org.archicontribs.database.data.DBImportMode;
 import org.archicontribs.database.model.DBArchimateModel;
@@ -97,7 +99,7 @@ public class DBGuiExportModel extends DBGui {
 	HashMap<String, DBMetadata> newDatabaseComponents;
 
 	private CommandStack stack;
-	DBDatabaseExportConnection exportConnection;
+	@Getter DBDatabaseExportConnection exportConnection;
 
 	private static final String ZERO = toString(0);
 
@@ -1159,6 +1161,17 @@ public class DBGuiExportModel extends DBGui {
 	@Override
 	protected void connectedToDatabase(boolean forceCheckDatabase) {
 		this.exportConnection = new DBDatabaseExportConnection(getDatabaseConnection());
+		
+		// if the model checksums have been calculated with another algorithm than the database's one, we need to calculate them again
+		DBChecksumAlgorithm checksumAlgorithm = this.exportConnection.getChecksumAlgorithm();
+		if ( (this.exportedModel.getChecksumAlgorithm() != null) && (this.exportedModel.getChecksumAlgorithm() != checksumAlgorithm) ) {
+			if ( logger.isDebugEnabled() ) logger.debug("Recalculating the model checksums using the "+checksumAlgorithm.name()+" algorithm");
+			try {
+				this.exportedModel.countAllObjects(checksumAlgorithm);
+			} catch (Exception err) {
+				DBGuiUtils.popup(Level.ERROR, "Failed to count model's components", err);
+			}
+		}
 
 		boolean isNeo4j = (this.selectedDatabase.getDriver().equals(DBDatabaseDriver.NEO4J));
 
@@ -1407,7 +1420,7 @@ public class DBGuiExportModel extends DBGui {
 			return true;
 		
 		// calculating model's checksum
-		this.exportedModel.getCurrentVersion().setChecksum(DBChecksum.calculateChecksum(this.exportedModel, this.txtReleaseNote.getText()));
+		this.exportedModel.getCurrentVersion().setChecksum(DBChecksum.calculateChecksum(this.exportedModel, this.txtReleaseNote.getText(), this.exportConnection.getChecksumAlgorithm()));
 		
 		int progressBarWidth = this.exportedModel.getAllElements().size() + this.exportedModel.getAllRelationships().size() + this.exportedModel.getAllFolders().size() + this.exportedModel.getAllViews().size() + this.exportedModel.getAllViewObjects().size() + this.exportedModel.getAllViewConnections().size();
 		createProgressBar("Comparing the model to the database ...", 1, progressBarWidth);
@@ -1968,6 +1981,9 @@ public class DBGuiExportModel extends DBGui {
 	public int export() {
 		logger.info("Exporting model: ");
 
+		// we collect the statistics of the SQL requests sent during this export
+		DBStatementStatistics.reset();
+
 		// we disable the export button to avoid a second click
 		this.btnDoAction.setEnabled(false);
 		this.btnCompareModelToDatabase.setEnabled(false);
@@ -2003,7 +2019,7 @@ public class DBGuiExportModel extends DBGui {
 			if ( !DBPlugin.areEqual(this.exportedModel.getPurpose(), this.txtPurpose.getText()) )
 				this.exportedModel.setPurpose(this.txtPurpose.getText());
 
-			this.exportedModel.getCurrentVersion().setChecksum(DBChecksum.calculateChecksum(this.exportedModel, this.txtReleaseNote.getText()));
+			this.exportedModel.getCurrentVersion().setChecksum(DBChecksum.calculateChecksum(this.exportedModel, this.txtReleaseNote.getText(), this.exportConnection.getChecksumAlgorithm()));
 
 			// we reset the counters as they will be updated during the import and export process
 			this.txtTotalModelItself.setText(ZERO);      this.txtNewModelItselfInModel.setText(ZERO);      this.txtUpdatedModelItselfInModel.setText(ZERO);                                                                                                                            /* this.txtUpdatedModelItselfInDatabase.setText(ZERO);                                                                       this.txtConflictingModelItself.setText(ZERO); */
@@ -2548,7 +2564,7 @@ public class DBGuiExportModel extends DBGui {
 				errorMessage = "Failed to recalculate checksums.";
 
 				// recalculate the checksum. This does not update the versions, so the database status remains.
-				this.exportedModel.countAllObjects();
+				this.exportedModel.countAllObjects(this.exportConnection.getChecksumAlgorithm());
 			}
 			
 			////////////////////////////PHASE 7 : we re-compare the model to the database as the imports may have been sufficient
@@ -2572,130 +2588,350 @@ public class DBGuiExportModel extends DBGui {
 			// we start a new database transaction
 			this.exportConnection.setAutoCommit(false);
 
-			if ( !isNeo4JDatabase ) {
-				logger.info("Exporting the model itself ...");
+			if ( !isNeo4JDatabase )
 				this.txtTotalModelItself.setText("1");
-				this.exportConnection.exportModel(this.exportedModel, this.txtReleaseNote.getText());
-			} else {
-				if ( this.selectedDatabase.shouldEmptyNeo4jDB() ) {
-					errorMessage = "Failed to empty the Neo4J database.";
-					this.exportConnection.emptyNeo4jDB();
+			else if ( this.selectedDatabase.shouldEmptyNeo4jDB() )
+				errorMessage = "Failed to empty the Neo4J database.";
+
+			// the database requests are run in a background thread so that the dialog remains responsive during the export
+			String releaseNote = this.txtReleaseNote.getText();
+			runInBackground(() -> {
+				exportModelComponents(isNeo4JDatabase, releaseNote);
+				return null;
+			});
+
+			if ( !isNeo4JDatabase ) {
+				// we register the undoableCommands on the model's stack, this way, the user will be able to manually undo them
+				this.stack.execute(undoableCommands);
+			}
+		} catch (Exception exportError) {
+			// if the exception is not raised because the user clicked on the cancel button, then we rollback and close the database connection
+			if ( !isClosedByUser() ) {
+				// TODO: find a better way to manage the cancel button
+				setActiveAction(STATUS.Error);
+
+				// if the user clicked on the "cancel" button, then the database connection is closed, which generates an exception when a SQL request is executed
+				try {
+					rollbackAndCloseConnection();
+
+					doShowResult(STATUS.Error, errorMessage + "\n"+exportError.getMessage());
+					DBGuiUtils.popup(Level.ERROR, errorMessage + "\n\nThe transaction has been rolled back to leave the database in a coherent state. You may solve the issue and export again your components.", exportError);
+				} catch (SQLException closeDBError) {
+					doShowResult(STATUS.Error, "Error while exporting model.\n"+exportError.getMessage()+"\nThe transaction failed to rollback, please check your database carrefully !");
+
+					DBGuiUtils.popup(Level.FATAL, "An error occurred while exporting the components."+exportError);
+					DBGuiUtils.popup(Level.FATAL, "An exception has been detected during the rollback and closure of the database transaction.\n\nThe database is left in an unknown state.\n\nPlease check carrefully your database !", closeDBError);
 				}
 			}
-			
-			// EXPORT SPECIALIZATIONS (ie profiles)
-			int countNew = 0;
-			int countUpdated = 0;
-			int countNotExported = 0;
-			setProgressBarLabel("Exporting specializations ...");
-			Iterator<IProfile> profilesIterator = this.exportedModel.getProfiles().iterator();
-			while ( profilesIterator.hasNext() ) {
-				EObject componentToExport = profilesIterator.next();				
-				if ( isNeo4JDatabase ) {
-					this.exportConnection.exportEObject(componentToExport);
-					if ( this.showRealTimeNumbers )
-						incrementText(this.txtNewProfilesInModel);
-					++countNew;
-				} else {
-					DATABASE_STATUS dbStatus = this.exportedModel.getDBMetadata(componentToExport).getDatabaseStatus();
-					
-					if ( dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL ) {
-						this.exportConnection.exportEObject(componentToExport);
-						if ( this.showRealTimeNumbers ) {
-							incrementText(this.txtNewProfilesInModel);
-							incrementText(this.txtTotalProfiles);
-							increaseProgressBar();
-						}
-						++countNew;
-					} else if ( dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL ) {
-						this.exportConnection.exportEObject(componentToExport);
-						if ( this.showRealTimeNumbers ) {
-							incrementText(this.txtUpdatedProfilesInModel);
-							incrementText(this.txtTotalProfiles);
-							increaseProgressBar();
+
+			// we rollback any update done on the model
+			if ( !undoableCommands.isEmpty() ) {
+				this.stack.undo();
+				// this.undoableCommands.undo();
+				for ( Object cmd: undoableCommands.getCommands() ) {
+					try {
+						Method getException = IDBCommand.class.getMethod("getException()");
+						Exception e = (Exception) getException.invoke(cmd);
+						if ( e != null ) {
+							DBGuiUtils.popup(Level.FATAL, "Failed to restore the model as it was before the export. Please verify it carefully.", e);
+							// a single message is sufficient to alert the user
+							break;
 						}
-						++countUpdated;
-					} else
-						++countNotExported;
-					
-					this.exportConnection.assignEObjectToModel(componentToExport);
+					} catch (@SuppressWarnings("unused") Exception ign) {
+						// nothing to do if the command does not have manage exceptions
+					}
 				}
+			}
+
+			DBStatementStatistics.logStatistics("model export");
+			return -1;
+		}
+
+		// if we're here, it means that no exception has been raised during the export process
+		try  {
+			commitAndCloseConnection();
+			DBStatementStatistics.logStatistics("model export");
+			setActiveAction(STATUS.Ok);
+			// Once the export is finished, we copy the exportedVersion to the currentVersion for all the model's components
+			copyCurrentVersionToInitialVersion();
 
+			doShowResult(STATUS.Ok, "*** Export successful ***");
+			return 1;
+		} catch (Exception err) {
+			setActiveAction(STATUS.Error);
+			doShowResult(STATUS.Error, "Failed to commit the database transaction.\n"+err.getMessage()+"\nPlease check your database carrefully.");
+			DBGuiUtils.popup(Level.FATAL, "The model has been exported to the database, but an exception has been raised during the database connection commit and closure, thus your dabase may be left in an incoherent state.\n\nPlease check carrefully your database !", err);
+			return -1;
+		}
+	}
+	
+	/**
+	 * Exports the model's components to the database.<br>
+	 * This method is run in a background thread: it must not access the SWT widgets directly and must not modify the model.
+	 * @param isNeo4JDatabase true if the components are exported to a Neo4J database
+	 * @param releaseNote release note of the new version of the model
+	 * @throws Exception
+	 */
+	private void exportModelComponents(boolean isNeo4JDatabase, String releaseNote) throws Exception {
+		// the progress bar and the counters are refreshed at a fixed rate rather than for each exported component
+		DBProgressReporter progress = new DBProgressReporter(this);
+
+		if ( !isNeo4JDatabase ) {
+			logger.info("Exporting the model itself ...");
+			this.exportConnection.exportModel(this.exportedModel, releaseNote);
+		} else {
+			if ( this.selectedDatabase.shouldEmptyNeo4jDB() )
+				this.exportConnection.emptyNeo4jDB();
+		}
+		
+		// EXPORT SPECIALIZATIONS (ie profiles)
+		int countNew = 0;
+		int countUpdated = 0;
+		int countNotExported = 0;
+		checkIfCancelled();
+		setProgressBarLabel("Exporting specializations ...");
+		Iterator<IProfile> profilesIterator = this.exportedModel.getProfiles().iterator();
+		while ( profilesIterator.hasNext() ) {
+			EObject componentToExport = profilesIterator.next();				
+			if ( isNeo4JDatabase ) {
+				this.exportConnection.exportEObject(componentToExport);
+				if ( this.showRealTimeNumbers )
+					progress.incrementText(this.txtNewProfilesInModel);
+				++countNew;
+			} else {
+				DATABASE_STATUS dbStatus = this.exportedModel.getDBMetadata(componentToExport).getDatabaseStatus();
+				
+				if ( dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL ) {
+					this.exportConnection.exportEObject(componentToExport);
+					if ( this.showRealTimeNumbers ) {
+						progress.incrementText(this.txtNewProfilesInModel);
+						progress.incrementText(this.txtTotalProfiles);
+						progress.increaseProgressBar();
+					}
+					++countNew;
+				} else if ( dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL ) {
+					this.exportConnection.exportEObject(componentToExport);
+					if ( this.showRealTimeNumbers ) {
+						progress.incrementText(this.txtUpdatedProfilesInModel);
+						progress.incrementText(this.txtTotalProfiles);
+						progress.increaseProgressBar();
+					}
+					++countUpdated;
+				} else
+					++countNotExported;
+				
+				this.exportConnection.assignEObjectToModel(componentToExport);
 			}
+
+		}
             if ( !this.showRealTimeNumbers ) {
-            	incrementText(this.txtNewProfilesInModel, countNew);
-            	incrementText(this.txtUpdatedProfilesInModel, countUpdated);
-            	incrementText(this.txtTotalProfiles, countNew+countUpdated+countNotExported);
-            	increaseProgressBar(countNew+countUpdated+countNotExported);
+            	progress.incrementText(this.txtNewProfilesInModel, countNew);
+            	progress.incrementText(this.txtUpdatedProfilesInModel, countUpdated);
+            	progress.incrementText(this.txtTotalProfiles, countNew+countUpdated+countNotExported);
+            	progress.increaseProgressBar(countNew+countUpdated+countNotExported);
             }
+		
+		// EXPORT ELEMENTS
+		countNew = 0;
+		countUpdated = 0;
+		countNotExported = 0;
+		progress.flush();
+		checkIfCancelled();
+		setProgressBarLabel("Exporting elements ...");
+		Iterator<Entry<String, IArchimateElement>> elementsIterator = this.exportedModel.getAllElements().entrySet().iterator();
+		while ( elementsIterator.hasNext() ) {
+			EObject componentToExport = elementsIterator.next().getValue();
+			if ( isNeo4JDatabase ) {
+				this.exportConnection.exportEObject(componentToExport);
+				if ( this.showRealTimeNumbers )
+					progress.incrementText(this.txtNewElementsInModel);
+				++countNew;
+			} else {
+				DATABASE_STATUS dbStatus = this.exportedModel.getDBMetadata(componentToExport).getDatabaseStatus();
+				if ( dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL ) {
+					this.exportConnection.exportEObject(componentToExport);
+					if ( this.showRealTimeNumbers )
+						progress.incrementText(this.txtNewElementsInModel);
+					++countNew;
+				} else if ( dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL ) {
+					this.exportConnection.exportEObject(componentToExport);
+					if ( this.showRealTimeNumbers )
+						progress.incrementText(this.txtUpdatedElementsInModel);
+					++countUpdated;
+				} else
+					++countNotExported;
+				
+				this.exportConnection.assignEObjectToModel(componentToExport);
+			} 
 			
-			// EXPORT ELEMENTS
+			if ( this.showRealTimeNumbers ) {
+				progress.incrementText(this.txtTotalElements);
+				progress.increaseProgressBar();
+			}
+		}
+            if ( !this.showRealTimeNumbers ) {
+            	progress.incrementText(this.txtNewElementsInModel, countNew);
+            	progress.incrementText(this.txtUpdatedElementsInModel, countUpdated);
+            	progress.incrementText(this.txtTotalElements, countNew+countUpdated+countNotExported);
+            	progress.increaseProgressBar(countNew+countUpdated+countNotExported);
+            }
+
+		// EXPORT RELATIONSHIPS
+		countNew = 0;
+		countUpdated = 0;
+		countNotExported = 0;
+		progress.flush();
+		checkIfCancelled();
+		setProgressBarLabel("Exporting relationships ...");
+		Iterator<Entry<String, IArchimateRelationship>> relationshipsIterator = this.exportedModel.getAllRelationships().entrySet().iterator();
+		while ( relationshipsIterator.hasNext() ) {
+			EObject componentToExport = relationshipsIterator.next().getValue();
+			if ( isNeo4JDatabase ) {
+				this.exportConnection.exportEObject(componentToExport);
+				if ( this.showRealTimeNumbers )
+					progress.incrementText(this.txtNewRelationshipsInModel);
+				++countNew;
+			} else {
+				DATABASE_STATUS dbStatus = this.exportedModel.getDBMetadata(componentToExport).getDatabaseStatus();
+				if ( dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL ) {
+					this.exportConnection.exportEObject(componentToExport);
+					if ( this.showRealTimeNumbers )
+						progress.incrementText(this.txtNewRelationshipsInModel);
+					++countNew;
+				} else if ( dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL ) {
+					this.exportConnection.exportEObject(componentToExport);
+					if ( this.showRealTimeNumbers )
+						progress.incrementText(this.txtUpdatedRelationshipsInModel);
+					++countUpdated;
+				} else
+					++countNotExported;
+				
+				this.exportConnection.assignEObjectToModel(componentToExport);
+			}
+			if ( this.showRealTimeNumbers ) {
+				progress.incrementText(this.txtTotalRelationships);
+				progress.increaseProgressBar();
+			}
+		}
+		if ( !this.showRealTimeNumbers ) {
+            	progress.incrementText(this.txtNewRelationshipsInModel, countNew);
+            	progress.incrementText(this.txtUpdatedRelationshipsInModel, countUpdated);
+            	progress.incrementText(this.txtTotalRelationships, countNew+countUpdated+countNotExported);
+            	progress.increaseProgressBar(countNew+countUpdated+countNotExported);
+            }
+
+		if ( !isNeo4JDatabase ) {
 			countNew = 0;
 			countUpdated = 0;
 			countNotExported = 0;
-			setProgressBarLabel("Exporting elements ...");
-			Iterator<Entry<String, IArchimateElement>> elementsIterator = this.exportedModel.getAllElements().entrySet().iterator();
-			while ( elementsIterator.hasNext() ) {
-				EObject componentToExport = elementsIterator.next().getValue();
-				if ( isNeo4JDatabase ) {
+			progress.flush();
+			checkIfCancelled();
+			setProgressBarLabel("Exporting folders ...");
+			Iterator<Entry<String, IFolder>> foldersIterator = this.exportedModel.getAllFolders().entrySet().iterator();
+			while ( foldersIterator.hasNext() ) {
+				EObject componentToExport = foldersIterator.next().getValue();
+				DATABASE_STATUS dbStatus = this.exportedModel.getDBMetadata(componentToExport).getDatabaseStatus();
+				if ( dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL ) {
 					this.exportConnection.exportEObject(componentToExport);
 					if ( this.showRealTimeNumbers )
-						incrementText(this.txtNewElementsInModel);
+						progress.incrementText(this.txtNewFoldersInModel);
 					++countNew;
-				} else {
-					DATABASE_STATUS dbStatus = this.exportedModel.getDBMetadata(componentToExport).getDatabaseStatus();
-					if ( dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL ) {
-						this.exportConnection.exportEObject(componentToExport);
-						if ( this.showRealTimeNumbers )
-							incrementText(this.txtNewElementsInModel);
-						++countNew;
-					} else if ( dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL ) {
-						this.exportConnection.exportEObject(componentToExport);
-						if ( this.showRealTimeNumbers )
-							incrementText(this.txtUpdatedElementsInModel);
-						++countUpdated;
-					} else
-						++countNotExported;
-					
-					this.exportConnection.assignEObjectToModel(componentToExport);
-				} 
+				} else if ( dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL ) {
+					this.exportConnection.exportEObject(componentToExport);
+					if ( this.showRealTimeNumbers )
+						progress.incrementText(this.txtUpdatedFoldersInModel);
+					++countUpdated;
+				} else
+					++countNotExported;
 				
+				this.exportConnection.assignEObjectToModel(componentToExport);
 				if ( this.showRealTimeNumbers ) {
-					incrementText(this.txtTotalElements);
-					increaseProgressBar();
+					progress.incrementText(this.txtTotalFolders);
+					progress.increaseProgressBar();
 				}
 			}
-            if ( !this.showRealTimeNumbers ) {
-            	incrementText(this.txtNewElementsInModel, countNew);
-            	incrementText(this.txtUpdatedElementsInModel, countUpdated);
-            	incrementText(this.txtTotalElements, countNew+countUpdated+countNotExported);
-            	increaseProgressBar(countNew+countUpdated+countNotExported);
+			if ( !this.showRealTimeNumbers ) {
+            	progress.incrementText(this.txtNewFoldersInModel, countNew);
+            	progress.incrementText(this.txtUpdatedFoldersInModel, countUpdated);
+            	progress.incrementText(this.txtTotalFolders, countNew+countUpdated+countNotExported);
+            	progress.increaseProgressBar(countNew+countUpdated+countNotExported);
             }
 
-			// EXPORT RELATIONSHIPS
+			progress.flush();
+			checkIfCancelled();
+			setProgressBarLabel("Exporting views ...");
 			countNew = 0;
 			countUpdated = 0;
 			countNotExported = 0;
-			setProgressBarLabel("Exporting relationships ...");
-			Iterator<Entry<String, IArchimateRelationship>> relationshipsIterator = this.exportedModel.getAllRelationships().entrySet().iterator();
-			while ( relationshipsIterator.hasNext() ) {
-				EObject componentToExport = relationshipsIterator.next().getValue();
-				if ( isNeo4JDatabase ) {
+			Iterator<Entry<String, IDiagramModel>> viewsIterator = this.exportedModel.getAllViews().entrySet().iterator();
+			while ( viewsIterator.hasNext() ) {
+				EObject componentToExport = viewsIterator.next().getValue();
+				DBMetadata metadata = this.exportedModel.getDBMetadata(componentToExport);
+				DATABASE_STATUS dbStatus = metadata.getDatabaseStatus();
+				Text txtFieldToIncrement = null;
+				if ( dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL )
+					txtFieldToIncrement = this.txtNewViewsInModel;
+				else if ( dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL )
+					txtFieldToIncrement = this.txtUpdatedViewsInModel;
+				
+				if ( txtFieldToIncrement != null ) {
+					if ( metadata.getScreenshot().isScreenshotActive() ) {
+						if ( this.showRealTimeNumbers )
+							setProgressBarLabel("Creating screenshot of view \""+metadata.getName()+"\"");
+						// the screenshot is drawn by SWT, so it must be created in the SWT thread
+						display.syncExec(() -> createImage((IDiagramModel)componentToExport, this.exportConnection.getDatabaseEntry().getViewsImagesScaleFactor(), this.exportConnection.getDatabaseEntry().getViewsImagesBorderWidth()));
+						if ( this.showRealTimeNumbers )
+							setProgressBarLabel("Exporting views ...");
+					}
 					this.exportConnection.exportEObject(componentToExport);
-					if ( this.showRealTimeNumbers )
-						incrementText(this.txtNewRelationshipsInModel);
-					++countNew;
+					metadata.setExported(true);
+					
+					if ( this.showRealTimeNumbers ) {
+						progress.incrementText(txtFieldToIncrement);
+						if ( txtFieldToIncrement == this.txtNewViewsInModel )
+							++countNew;
+						else
+							++countUpdated;
+					}
 				} else {
+					++countNotExported;
+					metadata.setExported(false);
+				}
+
+				this.exportConnection.assignEObjectToModel(componentToExport);
+				if ( this.showRealTimeNumbers ) {
+					progress.incrementText(this.txtTotalViews);
+					progress.increaseProgressBar();
+				}
+			}
+			if ( !this.showRealTimeNumbers ) {
+            	progress.incrementText(this.txtNewViewsInModel, countNew);
+            	progress.incrementText(this.txtUpdatedViewsInModel, countUpdated);
+            	progress.incrementText(this.txtTotalViews, countNew+countUpdated+countNotExported);
+            	progress.increaseProgressBar(countNew+countUpdated+countNotExported);
+            }
+
+			progress.flush();
+			checkIfCancelled();
+			setProgressBarLabel("Exporting view objects ...");
+			countNew = 0;
+			countUpdated = 0;
+			countNotExported = 0;
+			Iterator<Entry<String, IDiagramModelObject>> viewObjectsIterator = this.exportedModel.getAllViewObjects().entrySet().iterator();
+			while ( viewObjectsIterator.hasNext() ) {
+				IDiagramModelObject componentToExport = viewObjectsIterator.next().getValue();
+
+				if ( this.exportedModel.getDBMetadata(componentToExport.getDiagramModel()).isExported() ) {
 					DATABASE_STATUS dbStatus = this.exportedModel.getDBMetadata(componentToExport).getDatabaseStatus();
 					if ( dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL ) {
 						this.exportConnection.exportEObject(componentToExport);
 						if ( this.showRealTimeNumbers )
-							incrementText(this.txtNewRelationshipsInModel);
+							progress.incrementText(this.txtNewViewObjectsInModel);
 						++countNew;
 					} else if ( dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL ) {
 						this.exportConnection.exportEObject(componentToExport);
 						if ( this.showRealTimeNumbers )
-							incrementText(this.txtUpdatedRelationshipsInModel);
+							progress.incrementText(this.txtUpdatedViewObjectsInModel);
 						++countUpdated;
 					} else
 						++countNotExported;
@@ -2703,260 +2939,96 @@ public class DBGuiExportModel extends DBGui {
 					this.exportConnection.assignEObjectToModel(componentToExport);
 				}
 				if ( this.showRealTimeNumbers ) {
-					incrementText(this.txtTotalRelationships);
-					increaseProgressBar();
+					progress.incrementText(this.txtTotalViewObjects);
+					progress.increaseProgressBar();
 				}
 			}
 			if ( !this.showRealTimeNumbers ) {
-            	incrementText(this.txtNewRelationshipsInModel, countNew);
-            	incrementText(this.txtUpdatedRelationshipsInModel, countUpdated);
-            	incrementText(this.txtTotalRelationships, countNew+countUpdated+countNotExported);
-            	increaseProgressBar(countNew+countUpdated+countNotExported);
+            	progress.incrementText(this.txtNewViewObjectsInModel, countNew);
+            	progress.incrementText(this.txtUpdatedViewObjectsInModel, countUpdated);
+            	progress.incrementText(this.txtTotalViewObjects, countNew+countUpdated+countNotExported);
+            	progress.increaseProgressBar(countNew+countUpdated+countNotExported);
             }
 
-			if ( !isNeo4JDatabase ) {
-				countNew = 0;
-				countUpdated = 0;
-				countNotExported = 0;
-				setProgressBarLabel("Exporting folders ...");
-				Iterator<Entry<String, IFolder>> foldersIterator = this.exportedModel.getAllFolders().entrySet().iterator();
-				while ( foldersIterator.hasNext() ) {
-					EObject componentToExport = foldersIterator.next().getValue();
+			progress.flush();
+			checkIfCancelled();
+			setProgressBarLabel("Exporting view connections ...");
+			countNew = 0;
+			countUpdated = 0;
+			countNotExported = 0;
+			Iterator<Entry<String, IDiagramModelConnection>> viewConnectionsIterator = this.exportedModel.getAllViewConnections().entrySet().iterator();
+			while ( viewConnectionsIterator.hasNext() ) {
+				IDiagramModelConnection componentToExport = viewConnectionsIterator.next().getValue();
+				
+				if ( this.exportedModel.getDBMetadata(componentToExport.getDiagramModel()).isExported() ) {
 					DATABASE_STATUS dbStatus = this.exportedModel.getDBMetadata(componentToExport).getDatabaseStatus();
 					if ( dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL ) {
 						this.exportConnection.exportEObject(componentToExport);
 						if ( this.showRealTimeNumbers )
-							incrementText(this.txtNewFoldersInModel);
+							progress.incrementText(this.txtNewViewConnectionsInModel);
 						++countNew;
 					} else if ( dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL ) {
 						this.exportConnection.exportEObject(componentToExport);
 						if ( this.showRealTimeNumbers )
-							incrementText(this.txtUpdatedFoldersInModel);
+							progress.incrementText(this.txtUpdatedViewConnectionsInModel);
 						++countUpdated;
 					} else
 						++countNotExported;
-					
 					this.exportConnection.assignEObjectToModel(componentToExport);
-					if ( this.showRealTimeNumbers ) {
-						incrementText(this.txtTotalFolders);
-						increaseProgressBar();
-					}
-				}
-				if ( !this.showRealTimeNumbers ) {
-	            	incrementText(this.txtNewFoldersInModel, countNew);
-	            	incrementText(this.txtUpdatedFoldersInModel, countUpdated);
-	            	incrementText(this.txtTotalFolders, countNew+countUpdated+countNotExported);
-	            	increaseProgressBar(countNew+countUpdated+countNotExported);
-	            }
-
-				setProgressBarLabel("Exporting views ...");
-				countNew = 0;
-				countUpdated = 0;
-				countNotExported = 0;
-				Iterator<Entry<String, IDiagramModel>> viewsIterator = this.exportedModel.getAllViews().entrySet().iterator();
-				while ( viewsIterator.hasNext() ) {
-					EObject componentToExport = viewsIterator.next().getValue();
-					DBMetadata metadata = this.exportedModel.getDBMetadata(componentToExport);
-					DATABASE_STATUS dbStatus = metadata.getDatabaseStatus();
-					Text txtFieldToIncrement = null;
-					if ( dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL )
-						txtFieldToIncrement = this.txtNewViewsInModel;
-					else if ( dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL )
-						txtFieldToIncrement = this.txtUpdatedViewsInModel;
-					
-					if ( txtFieldToIncrement != null ) {
-						if ( metadata.getScreenshot().isScreenshotActive() ) {
-							if ( this.showRealTimeNumbers )
-								setProgressBarLabel("Creating screenshot of view \""+metadata.getName()+"\"");
-							createImage((IDiagramModel)componentToExport, this.exportConnection.getDatabaseEntry().getViewsImagesScaleFactor(), this.exportConnection.getDatabaseEntry().getViewsImagesBorderWidth());
-							if ( this.showRealTimeNumbers )
-								setProgressBarLabel("Exporting views ...");
-						}
-						this.exportConnection.exportEObject(componentToExport);
-						metadata.setExported(true);
-						
-						if ( this.showRealTimeNumbers ) {
-							incrementText(txtFieldToIncrement);
-							if ( txtFieldToIncrement == this.txtNewViewsInModel )
-								++countNew;
-							else
-								++countUpdated;
-						}
-					} else {
-						++countNotExported;
-						metadata.setExported(false);
-					}
-
-					this.exportConnection.assignEObjectToModel(componentToExport);
-					if ( this.showRealTimeNumbers ) {
-						incrementText(this.txtTotalViews);
-						increaseProgressBar();
-					}
-				}
-				if ( !this.showRealTimeNumbers ) {
-	            	incrementText(this.txtNewViewsInModel, countNew);
-	            	incrementText(this.txtUpdatedViewsInModel, countUpdated);
-	            	incrementText(this.txtTotalViews, countNew+countUpdated+countNotExported);
-	            	increaseProgressBar(countNew+countUpdated+countNotExported);
-	            }
-
-				setProgressBarLabel("Exporting view objects ...");
-				countNew = 0;
-				countUpdated = 0;
-				countNotExported = 0;
-				Iterator<Entry<String, IDiagramModelObject>> viewObjectsIterator = this.exportedModel.getAllViewObjects().entrySet().iterator();
-				while ( viewObjectsIterator.hasNext() ) {
-					IDiagramModelObject componentToExport = viewObjectsIterator.next().getValue();
-
-					if ( this.exportedModel.getDBMetadata(componentToExport.getDiagramModel()).isExported() ) {
-						DATABASE_STATUS dbStatus = this.exportedModel.getDBMetadata(componentToExport).getDatabaseStatus();
-						if ( dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL ) {
-							this.exportConnection.exportEObject(componentToExport);
-							if ( this.showRealTimeNumbers )
-								incrementText(this.txtNewViewObjectsInModel);
-							++countNew;
-						} else if ( dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL ) {
-							this.exportConnection.exportEObject(componentToExport);
-							if ( this.showRealTimeNumbers )
-								incrementText(this.txtUpdatedViewObjectsInModel);
-							++countUpdated;
-						} else
-							++countNotExported;
-						
-						this.exportConnection.assignEObjectToModel(componentToExport);
-					}
-					if ( this.showRealTimeNumbers ) {
-						incrementText(this.txtTotalViewObjects);
-						increaseProgressBar();
-					}
-				}
-				if ( !this.showRealTimeNumbers ) {
-	            	incrementText(this.txtNewViewObjectsInModel, countNew);
-	            	incrementText(this.txtUpdatedViewObjectsInModel, countUpdated);
-	            	incrementText(this.txtTotalViewObjects, countNew+countUpdated+countNotExported);
-	            	increaseProgressBar(countNew+countUpdated+countNotExported);
-	            }
-
-				setProgressBarLabel("Exporting view connections ...");
-				countNew = 0;
-				countUpdated = 0;
-				countNotExported = 0;
-				Iterator<Entry<String, IDiagramModelConnection>> viewConnectionsIterator = this.exportedModel.getAllViewConnections().entrySet().iterator();
-				while ( viewConnectionsIterator.hasNext() ) {
-					IDiagramModelConnection componentToExport = viewConnectionsIterator.next().getValue();
-					
-					if ( this.exportedModel.getDBMetadata(componentToExport.getDiagramModel()).isExported() ) {
-						DATABASE_STATUS dbStatus = this.exportedModel.getDBMetadata(componentToExport).getDatabaseStatus();
-						if ( dbStatus == DATABASE_STATUS.IS_NEW_IN_MODEL ) {
-							this.exportConnection.exportEObject(componentToExport);
-							if ( this.showRealTimeNumbers )
-								incrementText(this.txtNewViewConnectionsInModel);
-							++countNew;
-						} else if ( dbStatus == DATABASE_STATUS.IS_UPDATED_IN_MODEL ) {
-							this.exportConnection.exportEObject(componentToExport);
-							if ( this.showRealTimeNumbers )
-								incrementText(this.txtUpdatedViewConnectionsInModel);
-							++countUpdated;
-						} else
-							++countNotExported;
-						this.exportConnection.assignEObjectToModel(componentToExport);
-					}
-					if ( this.showRealTimeNumbers ) {
-						incrementText(this.txtTotalViewConnections);
-						increaseProgressBar();
-					}
 				}
-				if ( !this.showRealTimeNumbers ) {
-	            	incrementText(this.txtNewViewConnectionsInModel, countNew);
-	            	incrementText(this.txtUpdatedViewConnectionsInModel, countUpdated);
-	            	incrementText(this.txtTotalViewConnections, countNew+countUpdated+countNotExported);
-	            	increaseProgressBar(countNew+countUpdated+countNotExported);
-	            }
-
-				setProgressBarLabel("Exporting images ...");
-				countNew = 0;
-				countNotExported = 0;
-				// no need to use imagesNotInModel as the requested images have been imported at the same time as their view object
-				IArchiveManager archiveMgr = (IArchiveManager)this.exportedModel.getAdapter(IArchiveManager.class);
-				for ( String path: this.exportedModel.getAllImagePaths() ) {
-					if ( this.exportConnection.exportImage(path, archiveMgr.getBytesFromEntry(path)) ) {
-						if ( this.showRealTimeNumbers )
-							incrementText(this.txtNewImagesInModel);
-						++countNew;
-					} else
-						++countNotExported;
-					
-					if ( this.showRealTimeNumbers ) {
-						incrementText(this.txtTotalImages);
-						increaseProgressBar();
-					}
+				if ( this.showRealTimeNumbers ) {
+					progress.incrementText(this.txtTotalViewConnections);
+					progress.increaseProgressBar();
 				}
-				if ( !this.showRealTimeNumbers ) {
-					incrementText(this.txtNewImagesInModel, countNew);
-					incrementText(this.txtTotalImages, countNew+countNotExported);
-	            	increaseProgressBar(countNew+countNotExported);
-	            }
-
-				// we register the undoableCommands on the model's stack, this way, the user will be able to manually undo them
-				this.stack.execute(undoableCommands);
 			}
-		} catch (Exception exportError) {
-			// if the exception is not raised because the user clicked on the cancel button, then we rollback and close the database connection
-			if ( !isClosedByUser() ) {
-				// TODO: find a better way to manage the cancel button
-				setActiveAction(STATUS.Error);
-
-				// if the user clicked on the "cancel" button, then the database connection is closed, which generates an exception when a SQL request is executed
-				try {
-					rollbackAndCloseConnection();
-
-					doShowResult(STATUS.Error, errorMessage + "\n"+exportError.getMessage());
-					DBGuiUtils.popup(Level.ERROR, errorMessage + "\n\nThe transaction has been rolled back to leave the database in a coherent state. You may solve the issue and export again your components.", exportError);
-				} catch (SQLException closeDBError) {
-					doShowResult(STATUS.Error, "Error while exporting model.\n"+exportError.getMessage()+"\nThe transaction failed to rollback, please check your database carrefully !");
+			if ( !this.showRealTimeNumbers ) {
+            	progress.incrementText(this.txtNewViewConnectionsInModel, countNew);
+            	progress.incrementText(this.txtUpdatedViewConnectionsInModel, countUpdated);
+            	progress.incrementText(this.txtTotalViewConnections, countNew+countUpdated+countNotExported);
+            	progress.increaseProgressBar(countNew+countUpdated+countNotExported);
+            }
 
-					DBGuiUtils.popup(Level.FATAL, "An error occurred while exporting the components."+exportError);
-					DBGuiUtils.popup(Level.FATAL, "An exception has been detected during the rollback and closure of the database transaction.\n\nThe database is left in an unknown state.\n\nPlease check carrefully your database !", closeDBError);
+			progress.flush();
+			checkIfCancelled();
+			setProgressBarLabel("Exporting images ...");
+			countNew = 0;
+			countNotExported = 0;
+			// no need to use imagesNotInModel as the requested images have been imported at the same time as their view object
+			IArchiveManager archiveMgr = (IArchiveManager)this.exportedModel.getAdapter(IArchiveManager.class);
+			for ( String path: this.exportedModel.getAllImagePaths() ) {
+				if ( this.exportConnection.exportImage(path, archiveMgr.getBytesFromEntry(path)) ) {
+					if ( this.showRealTimeNumbers )
+						progress.incrementText(this.txtNewImagesInModel);
+					++countNew;
+				} else
+					++countNotExported;
+				
+				if ( this.showRealTimeNumbers ) {
+					progress.incrementText(this.txtTotalImages);
+					progress.increaseProgressBar();
 				}
 			}
+			if ( !this.showRealTimeNumbers ) {
+				progress.incrementText(this.txtNewImagesInModel, countNew);
+				progress.incrementText(this.txtTotalImages, countNew+countNotExported);
+            	progress.increaseProgressBar(countNew+countNotExported);
+            }
 
-			// we rollback any update done on the model
-			if ( !undoableCommands.isEmpty() ) {
-				this.stack.undo();
-				// this.undoableCommands.undo();
-				for ( Object cmd: undoableCommands.getCommands() ) {
-					try {
-						Method getException = IDBCommand.class.getMethod("getException()");
-						Exception e = (Exception) getException.invoke(cmd);
-						if ( e != null ) {
-							DBGuiUtils.popup(Level.FATAL, "Failed to restore the model as it was before the export. Please verify it carefully.", e);
-							// a single message is sufficient to alert the user
-							break;
-						}
-					} catch (@SuppressWarnings("unused") Exception ign) {
-						// nothing to do if the command does not have manage exceptions
-					}
-				}
-			}
+			progress.flush();
 
-			return -1;
-		}
+			checkIfCancelled();
 
-		// if we're here, it means that no exception has been raised during the export process
-		try  {
-			commitAndCloseConnection();
-			setActiveAction(STATUS.Ok);
-			// Once the export is finished, we copy the exportedVersion to the currentVersion for all the model's components
-			copyCurrentVersionToInitialVersion();
+			// we complete the membership of the components to the new model version
+			this.exportConnection.updateModelMemberships();
 
-			doShowResult(STATUS.Ok, "*** Export successful ***");
-			return 1;
-		} catch (Exception err) {
-			setActiveAction(STATUS.Error);
-			doShowResult(STATUS.Error, "Failed to commit the database transaction.\n"+err.getMessage()+"\nPlease check your database carrefully.");
-			DBGuiUtils.popup(Level.FATAL, "The model has been exported to the database, but an exception has been raised during the database connection commit and closure, thus your dabase may be left in an incoherent state.\n\nPlease check carrefully your database !", err);
-			return -1;
+			// we send the rows that are still pending in the export batches before the transaction is committed
+			this.exportConnection.flushBatches();
+
+			// and we update the latest version of the exported components in the same transaction
+			this.exportConnection.updateLatestVersions();
 		}
+
+		progress.flush();
 	}
 	
 	//private void doExport(EObject objToExport, Text txtFieldToIncrement) throws Exception {
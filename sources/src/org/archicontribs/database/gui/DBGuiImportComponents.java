@@ -6,7 +6,8 @@
 
 package org.archicontribs.database.gui;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.text.Collator;
 import java.util.ArrayList;
@@ -21,6 +22,7 @@ import org.archicontribs.database.DBDatabaseDriver;
 import org.archicontribs.database.DBException;
 import org.archicontribs.database.DBLogger;
 import org.archicontribs.database.DBPlugin;
+import org.archicontribs.database.connection.DBDatabaseConnection;
 import org.archicontribs.database.connection.DBDatabaseImportConnection;
 import org.archicontribs.database.connection.DBSelect;
 import org.archicontribs.database.data.DBImportMode;
@@ -39,6 +41,7 @@ import org.eclipse.gef.commands.CommandStack;
 import org.eclipse.gef.commands.CompoundCommand;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
 import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.events.ModifyEvent;
@@ -1660,12 +1663,17 @@ public class DBGuiImportComponents extends DBGui {
 				} else {
 					DBGuiImportComponents.this.lblComponents.setText(DBGuiImportComponents.this.lblComponents.getText()+" ("+DBGuiImportComponents.this.tblComponents.getSelectionCount()+" selected).");
 
-					byte[] screenshot = null;
+					// the screenshot is decoded while it is read from the database, and only its image data is kept to draw the preview
+					ImageData screenshot = null;
 					if ( DBGuiImportComponents.this.compoViews.isVisible() && (DBGuiImportComponents.this.tblComponents.getSelectionCount() == 1) ) {
-						try ( DBSelect resultViewScreenshot = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT screenshot FROM "+DBGuiImportComponents.this.selectedDatabase.getSchemaPrefix()+"views WHERE id = ? AND version = (SELECT MAX(version) FROM "+DBGuiImportComponents.this.selectedDatabase.getSchemaPrefix()+"views WHERE id = ?)", DBGuiImportComponents.this.tblComponents.getSelection()[0].getData("id"), DBGuiImportComponents.this.tblComponents.getSelection()[0].getData("id")) ) {
-							if ( resultViewScreenshot.next() )
-								screenshot = resultViewScreenshot.getBytes("screenshot");
-						} catch (SQLException e) {
+						try ( DBSelect resultViewScreenshot = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT screenshot FROM "+DBGuiImportComponents.this.selectedDatabase.getSchemaPrefix()+"views v"+DBGuiImportComponents.this.importConnection.getLatestVersionJoin("views", "v.id")+" AND latest_versions.latest_version = v.version WHERE id = ?", DBGuiImportComponents.this.tblComponents.getSelection()[0].getData("id")) ) {
+							if ( resultViewScreenshot.next() ) {
+								try ( InputStream screenshotStream = resultViewScreenshot.getBinaryStream("screenshot") ) {
+									if ( screenshotStream != null )
+										screenshot = new ImageData(screenshotStream);
+								}
+							}
+						} catch (SQLException | IOException | SWTException e) {
 							logger.error("Failed to get the view screenshot from the database",e);
 						}
 					}
@@ -1699,11 +1707,8 @@ public class DBGuiImportComponents extends DBGui {
 					screenshot.dispose();
 				}
 
-				byte[] screenshotBytes = (byte[]) DBGuiImportComponents.this.lblPreview.getData("screenshot");
-				if ( screenshotBytes != null ) {
-					screenshot = new Image(DBGuiImportComponents.this.lblPreview.getDisplay(), new ByteArrayInputStream(screenshotBytes));
-					ImageData data = screenshot.getImageData();
-
+				ImageData data = (ImageData) DBGuiImportComponents.this.lblPreview.getData("screenshot");
+				if ( data != null ) {
 					double scaleWidth = DBGuiImportComponents.this.lblPreview.getSize().x / (double)data.width;
 					double scaleHeight = DBGuiImportComponents.this.lblPreview.getSize().y / (double)data.height;
 					double scale = (scaleWidth < scaleHeight) ? scaleWidth : scaleHeight;
@@ -1712,7 +1717,6 @@ public class DBGuiImportComponents extends DBGui {
 					int height = (int) (data.height * scale);
 
 					DBGuiImportComponents.this.lblPreview.setImage(new Image(DBGuiImportComponents.this.lblPreview.getDisplay(), data.scaledTo(width, height)));
-					screenshot.dispose();
 				}
 			}
 		});
@@ -1782,15 +1786,15 @@ public class DBGuiImportComponents extends DBGui {
 		
 		String filterRequest = "";
 		if ( this.filterName.getText().length() != 0 )
-			filterRequest = " AND UPPER(name) like '%"+this.filterName.getText().toUpperCase()+"%'";
+			filterRequest = " WHERE UPPER(name) like '%"+this.filterName.getText().toUpperCase()+"%'";
 			
-		try (DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT id, version, name, purpose FROM "+this.selectedDatabase.getSchemaPrefix()+"models m WHERE version = (SELECT MAX(version) FROM "+this.selectedDatabase.getSchemaPrefix()+"models WHERE id = m.id)" + filterRequest) ) {
+		try (DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT id, version, name, purpose, properties_set FROM "+this.selectedDatabase.getSchemaPrefix()+"models m"+DBGuiImportComponents.this.importConnection.getLatestVersionJoin("models", "m.id")+" AND latest_versions.latest_version = m.version" + filterRequest) ) {
 			while (result.next()) {
 				if ( !DBPlugin.areEqual(result.getString("id"), this.importedModel.getId()) ) {
 					StringBuilder tooltipBuilder = new StringBuilder();
 					TableItem item = createTableItem(this.tblComponents, result.getString("id"), "model", result.getString("name"), result.getString("purpose"));
 					logger.trace("Found model "+result.getString("name"));
-					try ( DBSelect resultProperties = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT name, value FROM "+this.selectedDatabase.getSchemaPrefix()+"properties WHERE parent_id = ? AND parent_version = ?", result.getString("id"), result.getInt("version")) ) {
+					try ( DBSelect resultProperties = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT name, value FROM "+this.selectedDatabase.getSchemaPrefix()+"properties WHERE parent_id = ? AND parent_version = ?", DBDatabaseConnection.getSetParent(result.getString("id"), result.getInt("version"), result.getString("properties_set"))) ) {
 						while ( resultProperties.next() ) {
 							if ( tooltipBuilder.length() != 0 )
 								tooltipBuilder.append("\n");
@@ -1865,7 +1869,6 @@ public class DBGuiImportComponents extends DBGui {
 				}
 			}
 
-			addOn += " AND version = (SELECT MAX(version) FROM "+this.selectedDatabase.getSchemaPrefix()+"elements WHERE id = e.id)";
 			addOn += " ORDER BY name";
 
 			if ( inList.length() != 0 ) {
@@ -1873,13 +1876,13 @@ public class DBGuiImportComponents extends DBGui {
 				if ( this.filterName.getText().length() != 0 )
 					filterRequest = " AND UPPER(name) like '%"+this.filterName.getText().toUpperCase()+"%'";
 				
-				try (DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT id, version, class, name, documentation FROM "+this.selectedDatabase.getSchemaPrefix()+"elements e WHERE class IN ("+inList.toString()+")" + filterRequest + addOn, classList) ) {
+				try (DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT id, version, class, name, documentation, properties_set FROM "+this.selectedDatabase.getSchemaPrefix()+"elements e"+DBGuiImportComponents.this.importConnection.getLatestVersionJoin("elements", "e.id")+" AND latest_versions.latest_version = e.version WHERE class IN ("+inList.toString()+")" + filterRequest + addOn, classList) ) {
 					while (result.next()) {
 						if ( !this.hideAlreadyInModel.getSelection() || (this.importedModel.getAllElements().get(result.getString("id"))==null)) {
 							StringBuilder tooltipBuilder = new StringBuilder();
 							TableItem item = createTableItem(this.tblComponents, result.getString("id"), result.getString("Class"), result.getString("name"), result.getString("documentation"));
 
-							try ( DBSelect resultProperties = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT name, value FROM "+this.selectedDatabase.getSchemaPrefix()+"properties WHERE parent_id = ? AND parent_version = ?", result.getString("id"), result.getInt("version")) ) {
+							try ( DBSelect resultProperties = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT name, value FROM "+this.selectedDatabase.getSchemaPrefix()+"properties WHERE parent_id = ? AND parent_version = ?", DBDatabaseConnection.getSetParent(result.getString("id"), result.getInt("version"), result.getString("properties_set"))) ) {
 								while ( resultProperties.next() ) {
 									if ( tooltipBuilder.length() != 0 )
 										tooltipBuilder.append("\n");
@@ -2035,7 +2038,6 @@ public class DBGuiImportComponents extends DBGui {
 			if ( this.hideOption.getSelection() )
 				addOn = " AND name <> 'Default View'";
 
-			addOn += " AND version = (SELECT MAX(version) FROM "+this.selectedDatabase.getSchemaPrefix()+"views WHERE id = v.id)";
 			addOn += " ORDER BY name";
 
 			if ( inList.length() != 0 ) {
@@ -2043,13 +2045,13 @@ public class DBGuiImportComponents extends DBGui {
 				if ( this.filterName.getText().length() != 0 )
 					filterRequest = " AND UPPER(name) like '%"+this.filterName.getText().toUpperCase()+"%'";
 				
-				try (DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT id, version, class, name, documentation FROM "+this.selectedDatabase.getSchemaPrefix()+"views v WHERE class IN ("+inList.toString()+")" + filterRequest + addOn, classList)) {
+				try (DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT id, version, class, name, documentation, properties_set FROM "+this.selectedDatabase.getSchemaPrefix()+"views v"+DBGuiImportComponents.this.importConnection.getLatestVersionJoin("views", "v.id")+" AND latest_versions.latest_version = v.version WHERE class IN ("+inList.toString()+")" + filterRequest + addOn, classList)) {
 					while (result.next()) {
 						if ( !this.hideAlreadyInModel.getSelection() || (this.importedModel.getAllViews().get(result.getString("id"))==null)) {
 							StringBuilder tooltipBuilder = new StringBuilder();
 							TableItem item = createTableItem(this.tblComponents, result.getString("id"), result.getString("Class"), result.getString("name"), result.getString("documentation"));
 
-							try ( DBSelect resultProperties = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT name, value FROM "+this.selectedDatabase.getSchemaPrefix()+"properties WHERE parent_id = ? AND parent_version = ?", result.getString("id"), result.getInt("version")) ) {
+							try ( DBSelect resultProperties = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT name, value FROM "+this.selectedDatabase.getSchemaPrefix()+"properties WHERE parent_id = ? AND parent_version = ?", DBDatabaseConnection.getSetParent(result.getString("id"), result.getInt("version"), result.getString("properties_set"))) ) {
 								while ( resultProperties.next() ) {
 									if ( tooltipBuilder.length() != 0 )
 										tooltipBuilder.append("\n");
@@ -2217,7 +2219,7 @@ public class DBGuiImportComponents extends DBGui {
 					
 					Map<String, String> translatedFolders = new HashMap<>();
 					
-					try ( DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT fim.folder_id, fim.folder_version, fim.parent_folder_id, f.type, f.root_type, f.name FROM "+this.selectedDatabase.getSchemaPrefix()+"folders_in_model fim JOIN "+this.selectedDatabase.getSchemaPrefix()+"folders f ON fim.folder_id = f.id and fim.folder_version = f.version WHERE fim.model_id = ? AND fim.model_version = (SELECT MAX(model_version) FROM "+this.selectedDatabase.getSchemaPrefix()+"folders_in_model WHERE model_id = ?) ORDER BY fim.pos", mergedModelId, mergedModelId) ) {
+					try ( DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT fim.folder_id, fim.folder_version, fim.parent_folder_id, f.type, f.root_type, f.name FROM "+this.selectedDatabase.getSchemaPrefix()+"folders_in_model fim JOIN "+this.selectedDatabase.getSchemaPrefix()+"folders f ON fim.folder_id = f.id and fim.folder_version = f.version WHERE fim.model_id = ? AND (SELECT MAX(version) FROM "+this.selectedDatabase.getSchemaPrefix()+"models WHERE id = ?) BETWEEN fim.model_version AND fim.model_version_to ORDER BY fim.pos", mergedModelId, mergedModelId) ) {
 						while ( result.next() ) {
 							// we check if we already know how to convert this folder
 							String convertedFolderId = translatedFolders.get(result.getString("folder_id"));
@@ -2236,7 +2238,7 @@ public class DBGuiImportComponents extends DBGui {
 									// for other folders, we recursively get the name of the parent folders until a root folder is found
 									StringBuilder folderPathBuilder = new StringBuilder();
 									while ( !isRootFolder ) {
-										try (DBSelect subResult = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT fim.folder_id, fim.folder_version, fim.parent_folder_id, f.type, f.root_type, f.name FROM "+this.selectedDatabase.getSchemaPrefix()+"folders_in_model fim JOIN "+this.selectedDatabase.getSchemaPrefix()+"folders f ON fim.folder_id = f.id and fim.folder_version = f.version WHERE fim.model_id = ? AND fim.model_version = (SELECT MAX(model_version) FROM "+this.selectedDatabase.getSchemaPrefix()+"folders_in_model WHERE model_id = ?) AND fim.folder_id = ?", mergedModelId, mergedModelId, folderId) ) {
+										try (DBSelect subResult = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT fim.folder_id, fim.folder_version, fim.parent_folder_id, f.type, f.root_type, f.name FROM "+this.selectedDatabase.getSchemaPrefix()+"folders_in_model fim JOIN "+this.selectedDatabase.getSchemaPrefix()+"folders f ON fim.folder_id = f.id and fim.folder_version = f.version WHERE fim.model_id = ? AND (SELECT MAX(version) FROM "+this.selectedDatabase.getSchemaPrefix()+"models WHERE id = ?) BETWEEN fim.model_version AND fim.model_version_to AND fim.folder_id = ?", mergedModelId, mergedModelId, folderId) ) {
 											subResult.next();
 											if ( folderPathBuilder.length() == 0 )
 												folderPathBuilder.append(subResult.getString("name"));
@@ -2296,7 +2298,7 @@ public class DBGuiImportComponents extends DBGui {
 					
 					// import elements
 					setMessage("("+done+"/"+this.tblComponents.getSelectionCount()+") Importing elements from model \""+mergedModelName+"\".");
-					try ( DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT element_id, element_version, parent_folder_id FROM "+this.selectedDatabase.getSchemaPrefix()+"elements_in_model WHERE model_id = ? AND model_version = (SELECT MAX(model_version) FROM "+this.selectedDatabase.getSchemaPrefix()+"elements_in_model WHERE model_id = ?) ORDER BY pos", mergedModelId, mergedModelId) ) {
+					try ( DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT element_id, element_version, parent_folder_id FROM "+this.selectedDatabase.getSchemaPrefix()+"elements_in_model WHERE model_id = ? AND (SELECT MAX(version) FROM "+this.selectedDatabase.getSchemaPrefix()+"models WHERE id = ?) BETWEEN model_version AND model_version_to ORDER BY pos", mergedModelId, mergedModelId) ) {
 						while ( result.next() ) {
 							// we check if the parent folder needs to be translated
 							IFolder parentFolder = foldersConversionMap.get(result.getString("parent_folder_id"));
@@ -2316,7 +2318,7 @@ public class DBGuiImportComponents extends DBGui {
 					
 					// import relationships
 					setMessage("("+done+"/"+this.tblComponents.getSelectionCount()+") Importing relationships from model \""+mergedModelName+"\".");
-					try ( DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT relationship_id, relationship_version, parent_folder_id FROM "+this.selectedDatabase.getSchemaPrefix()+"relationships_in_model WHERE model_id = ? AND model_version = (SELECT MAX(model_version) FROM "+this.selectedDatabase.getSchemaPrefix()+"relationships_in_model WHERE model_id = ?) ORDER BY pos", mergedModelId, mergedModelId) ) {
+					try ( DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT relationship_id, relationship_version, parent_folder_id FROM "+this.selectedDatabase.getSchemaPrefix()+"relationships_in_model WHERE model_id = ? AND (SELECT MAX(version) FROM "+this.selectedDatabase.getSchemaPrefix()+"models WHERE id = ?) BETWEEN model_version AND model_version_to ORDER BY pos", mergedModelId, mergedModelId) ) {
 						while ( result.next() ) {
 							// we check if the parent folder needs to be translated
 							IFolder parentFolder = foldersConversionMap.get(result.getString("parent_folder_id"));
@@ -2345,7 +2347,7 @@ public class DBGuiImportComponents extends DBGui {
 					
 					// import views
 					setMessage("("+done+"/"+this.tblComponents.getSelectionCount()+") Importing views from model \""+mergedModelName+"\".");
-					try ( DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT view_id, view_version, parent_folder_id FROM "+this.selectedDatabase.getSchemaPrefix()+"views_in_model WHERE model_id = ? AND model_version = (SELECT MAX(model_version) FROM "+this.selectedDatabase.getSchemaPrefix()+"views_in_model WHERE model_id = ?) ORDER BY pos", mergedModelId, mergedModelId) ) {
+					try ( DBSelect result = new DBSelect(DBGuiImportComponents.this.importConnection.getDatabaseEntry().getName(), DBGuiImportComponents.this.importConnection.getConnection(), "SELECT view_id, view_version, parent_folder_id FROM "+this.selectedDatabase.getSchemaPrefix()+"views_in_model WHERE model_id = ? AND (SELECT MAX(version) FROM "+this.selectedDatabase.getSchemaPrefix()+"models WHERE id = ?) BETWEEN model_version AND model_version_to ORDER BY pos", mergedModelId, mergedModelId) ) {
 						while ( result.next() ) {
 							// we check if the parent folder needs to be translated
 							IFolder parentFolder = foldersConversionMap.get(result.getString("parent_folder_id"));
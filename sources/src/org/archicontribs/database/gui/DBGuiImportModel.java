@@ -20,6 +20,8 @@ import org.apache.log4j.Level;
 import org.archicontribs.database.DBLogger;
 import org.archicontribs.database.DBPlugin;
 import org.archicontribs.database.connection.DBDatabaseImportConnection;
+import org.archicontribs.database.connection.DBStatement;
+import org.archicontribs.database.connection.DBStatementStatistics;
 import org.archicontribs.database.model.DBArchimateFactory;
 import org.archicontribs.database.model.DBArchimateModel;
 import org.eclipse.gef.commands.CommandStack;
@@ -42,6 +44,7 @@ import org.eclipse.swt.widgets.TableColumn;
 import org.eclipse.swt.widgets.TableItem;
 import org.eclipse.swt.widgets.Text;
 
+import com.archimatetool.editor.model.IArchiveManager;
 import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.editor.ui.services.EditorManager;
 import com.archimatetool.editor.ui.services.ViewManager;
@@ -855,184 +858,40 @@ public class DBGuiImportModel extends DBGui {
         // we create the model (but do not create standard folder as they will be imported from the database)
         this.modelToImport = (DBArchimateModel)DBArchimateFactory.eINSTANCE.createArchimateModel();
         this.modelToImport.setId(modelId);
-        
+
+        // the model is filled in a background thread and registered in the model manager only once imported,
+        // so we create its archive manager and command stack ourselves
+        this.modelToImport.setAdapter(IArchiveManager.class, IArchiveManager.FACTORY.createArchiveManager(this.modelToImport));
+        this.modelToImport.setAdapter(CommandStack.class, new CommandStack());
+
+        // we collect the statistics of the SQL requests sent during this import
+        DBStatementStatistics.reset();
+
+        boolean isModelRegistered = false;
         try {
-        	// import properties, features and profiles from the database
-        	this.importConnection.importModel(this.modelToImport);
-        
 	        // we get the selected model version to import
 	        // if the value is empty, this means that the user selected the "Now" line, so we must load the latest version of the views
-	        if ( !this.tblModelVersions.getSelection()[0].getText(0).isEmpty() ) {
-	        	this.modelToImport.getInitialVersion().setVersion(Integer.valueOf(this.tblModelVersions.getSelection()[0].getText(0)));
-	        	this.modelToImport.setLatestVersionImported(false);
-	        } else {
-	        	this.modelToImport.getInitialVersion().setVersion(Integer.valueOf(this.tblModelVersions.getItem(1).getText(0)));
-	        	this.modelToImport.setLatestVersionImported(true);
-	        }
-	
-	        // we add the new model in the manager
-	        IEditorModelManager.INSTANCE.registerModel(this.modelToImport);
-	
-        	// count components to be imported from the database 
-            int importSize = this.importConnection.countModelComponents(this.modelToImport);
-            
-            setProgressBarMinAndMax(0, importSize);
-
-            this.txtTotalModelItself.setText("1");
-            this.txtTotalProfiles.setText(toString(this.importConnection.getCountProfilesToImport()));
-            this.txtTotalElements.setText(toString(this.importConnection.getCountElementsToImport()));
-            this.txtTotalRelationships.setText(toString(this.importConnection.getCountRelationshipsToImport()));
-            this.txtTotalFolders.setText(toString(this.importConnection.getCountFoldersToImport()));
-            this.txtTotalViews.setText(toString(this.importConnection.getCountViewsToImport()));
-            this.txtTotalViewObjects.setText(toString(this.importConnection.getCountViewObjectsToImport()));
-            this.txtTotalViewConnections.setText(toString(this.importConnection.getCountViewConnectionsToImport()));
-            this.txtTotalImages.setText(toString(this.importConnection.getCountImagesToImport()));
-
-            this.txtImportedModelItself.setText("1");
-            this.txtImportedProfiles.setText(toString(0));
-            this.txtImportedElements.setText(toString(0));
-            this.txtImportedRelationships.setText(toString(0));
-            this.txtImportedFolders.setText(toString(0));
-            this.txtImportedViews.setText(toString(0));
-            this.txtImportedViewObjects.setText(toString(0));
-            this.txtImportedViewConnections.setText(toString(0));
-            this.txtImportedImages.setText(toString(0));
-            
-	        // Import the model components from the database
+	        boolean isLatestVersion = this.tblModelVersions.getSelection()[0].getText(0).isEmpty();
+	        int versionToImport = Integer.valueOf(isLatestVersion ? this.tblModelVersions.getItem(1).getText(0) : this.tblModelVersions.getSelection()[0].getText(0));
 
-            logger.info("Importing specializations ...");
-            int count = 0;
-            this.importConnection.prepareImportProfiles(this.modelToImport);
-            while ( this.importConnection.importProfiles(this.modelToImport) ) {
-            	if ( this.showRealTimeNumbers ) {
-            		this.txtImportedProfiles.setText(toString(this.importConnection.getCountProfilesImported()));
-            		 increaseProgressBar();
-            	}
-            	++count;
-            }
-            if ( !this.showRealTimeNumbers ) {
-            	this.txtImportedProfiles.setText(toString(count));
-            	increaseProgressBar(count);
-            }
-            
-            logger.info("Importing folders ...");
-            count = 0;
-            this.importConnection.prepareImportFolders(this.modelToImport);
-            while ( this.importConnection.importFolders(this.modelToImport) ) {
-            	if ( this.showRealTimeNumbers ) {
-            		this.txtImportedFolders.setText(toString(this.importConnection.getCountFoldersImported()));
-                    increaseProgressBar();
-            	}
-            	++count;
-            }
-            if ( !this.showRealTimeNumbers ) {
-            	this.txtImportedFolders.setText(toString(count));
-            	increaseProgressBar(count);
-            }
-
-            logger.info("Importing elements ...");
-            count = 0;
-            this.importConnection.prepareImportElements(this.modelToImport);
-            while ( this.importConnection.importElements(this.modelToImport) ) {
-            	if ( this.showRealTimeNumbers ) {
-            		this.txtImportedElements.setText(toString(this.importConnection.getCountElementsImported()));
-                	increaseProgressBar();
-            	}
-            	++count;
-            }
-            if ( !this.showRealTimeNumbers ) {
-            	this.txtImportedElements.setText(toString(count));
-            	increaseProgressBar(count);
-            }
+	        // the database requests are run in a background thread so that the dialog remains responsive during the import
+	        runInBackground(() -> {
+	        	// on PostgreSQL, the rows are streamed from the database only in a transaction
+	        	this.importConnection.setStreamingMode(true);
+	        	try {
+	        		importModelComponents(versionToImport, isLatestVersion);
+	        	} finally {
+	        		this.importConnection.setStreamingMode(false);
+	        	}
+	        	return null;
+	        });
 
-            logger.info("Importing relationships ...");
-            count = 0;
-            this.importConnection.prepareImportRelationships(this.modelToImport);
-            while ( this.importConnection.importRelationships(this.modelToImport) ) {
-            	if ( this.showRealTimeNumbers ) {
-            		this.txtImportedRelationships.setText(toString(this.importConnection.getCountRelationshipsImported()));
-                	increaseProgressBar();
-            	}
-            	++count;
-            }
-            this.modelToImport.resolveSourceAndTargetRelationships();
-            if ( !this.showRealTimeNumbers ) {
-            	this.txtImportedRelationships.setText(toString(count));
-            	increaseProgressBar(count);
-            }
+	        DBStatementStatistics.logStatistics("model import");
 
-            logger.info("Importing views ...");
-            count = 0;
-            this.importConnection.prepareImportViews(this.modelToImport);
-            while ( this.importConnection.importViews(this.modelToImport) ) {
-            	if ( this.showRealTimeNumbers ) {
-            		this.txtImportedViews.setText(toString(this.importConnection.getCountViewsImported()));
-                    increaseProgressBar();
-            	}
-            	++count;
-            }
-            if ( !this.showRealTimeNumbers ) {
-            	this.txtImportedViews.setText(toString(count));
-            	increaseProgressBar(count);
-            }
+	        // we add the new model in the manager
+	        IEditorModelManager.INSTANCE.registerModel(this.modelToImport);
+	        isModelRegistered = true;
 
-            logger.info("Importing view objects ...");
-            count = 0;
-            for (IDiagramModel view: this.modelToImport.getAllViews().values()) {
-                this.importConnection.prepareImportViewsObjects(view.getId(), this.modelToImport.getDBMetadata(view).getInitialVersion().getVersion());
-                while ( this.importConnection.importViewsObjects(this.modelToImport, view) ) {
-                	if ( this.showRealTimeNumbers ) {
-                		this.txtImportedViewObjects.setText(toString(this.importConnection.getCountViewObjectsImported()));
-                        increaseProgressBar(); 
-                	}
-                	++count;
-                }
-                this.txtImportedViewObjects.setText(toString(this.importConnection.getCountViewObjectsImported()));
-            }
-            if ( !this.showRealTimeNumbers ) {
-            	this.txtImportedViewObjects.setText(toString(count));
-            	increaseProgressBar(count);
-            }
-            // we refresh the numbers of elements imported as some may have been imported as part of view objects
-            this.txtImportedElements.setText(toString(this.importConnection.getCountElementsImported()));
-
-            logger.info("Importing view connections ...");
-            count = 0;
-            for (IDiagramModel view: this.modelToImport.getAllViews().values()) {
-                this.importConnection.prepareImportViewsConnections(view.getId(), this.modelToImport.getDBMetadata(view).getInitialVersion().getVersion());
-                while ( this.importConnection.importViewsConnections(this.modelToImport) ) {
-                	if ( this.showRealTimeNumbers ) {
-                		this.txtImportedViewConnections.setText(toString(this.importConnection.getCountViewConnectionsImported()));
-                        increaseProgressBar();
-                	}
-                	++count;
-                }
-            }
-            this.modelToImport.resolveSourceAndTargetConnections();
-            if ( !this.showRealTimeNumbers ) {
-            	this.txtImportedViewConnections.setText(toString(count));
-            	increaseProgressBar(count);
-            }
-            // we refresh the numbers of elements imported as some may have been imported as part of view objects
-            this.txtImportedRelationships.setText(toString(this.importConnection.getCountRelationshipsImported()));
-
-            closeMessage();
-
-            logger.info("Importing images ...");
-            count = 0;
-            for (String path: this.importConnection.getAllImagePaths()) {
-                this.importConnection.importImage(this.modelToImport, path);
-                if ( this.showRealTimeNumbers ) {
-                	this.txtImportedImages.setText(toString(this.importConnection.getCountImagesImported()));
-                    increaseProgressBar();
-                }
-                ++count;
-            }
-            if ( !this.showRealTimeNumbers ) {
-            	this.txtImportedImages.setText(toString(count));
-            	increaseProgressBar(count);
-            }
-            
             // If the model contains a view called "default view", we open it.
             for ( IDiagramModel view: this.modelToImport.getDiagramModels() ) {
                 if ( DBPlugin.areEqual(view.getName().toLowerCase(), "default view") ) {
@@ -1043,18 +902,24 @@ public class DBGuiImportModel extends DBGui {
                 }
             }
         } catch (Exception err) {
+        	DBStatementStatistics.logStatistics("model import");
         	closeMessage();
             if ( isClosedByUser() ) {
                 // we close the partially imported model
-                CommandStack stack = (CommandStack)this.modelToImport.getAdapter(CommandStack.class);
-                stack.markSaveLocation();
-                try {
-                    IEditorModelManager.INSTANCE.closeModel(this.modelToImport);
-                } catch (@SuppressWarnings("unused") IOException ign) {
-                    // there is nothing we can do
+                if ( isModelRegistered ) {
+	                CommandStack stack = (CommandStack)this.modelToImport.getAdapter(CommandStack.class);
+	                stack.markSaveLocation();
+	                try {
+	                    IEditorModelManager.INSTANCE.closeModel(this.modelToImport);
+	                } catch (@SuppressWarnings("unused") IOException ign) {
+	                    // there is nothing we can do
+	                }
                 }
                 DBGuiUtils.popup(Level.WARN, "The import has been cancelled.");
             } else {
+            	// the partially imported model is registered in the manager so that it can be kept or closed depending on the preferences
+            	if ( !isModelRegistered )
+            		IEditorModelManager.INSTANCE.registerModel(this.modelToImport);
                 DBGuiUtils.popup(Level.ERROR, "Failed to import model from database.", err);
                 setActiveAction(STATUS.Error);
                 doShowResult(err);
@@ -1068,6 +933,209 @@ public class DBGuiImportModel extends DBGui {
         }
     }
 
+    /**
+     * Imports the model's components from the database.<br>
+     * This method is run in a background thread: the model is not yet registered in the model manager, so no editor
+     * listens to it, but the SWT widgets must be updated through the thread safe methods.
+     * @param versionToImport version of the model to import
+     * @param isLatestVersion true if the latest version of the views must be imported
+     * @throws Exception
+     */
+    private void importModelComponents(int versionToImport, boolean isLatestVersion) throws Exception {
+        // import properties, features and profiles from the database
+        DBStatement.setPhase("Importing model");
+        this.importConnection.importModel(this.modelToImport);
+
+        this.modelToImport.getInitialVersion().setVersion(versionToImport);
+        this.modelToImport.setLatestVersionImported(isLatestVersion);
+
+        // the progress bar and the counters are refreshed at a fixed rate rather than for each imported component
+        DBProgressReporter progress = new DBProgressReporter(this);
+
+        // count components to be imported from the database 
+        int importSize = this.importConnection.countModelComponents(this.modelToImport);
+        
+        setProgressBarMinAndMax(0, importSize);
+
+        progress.setText(this.txtTotalModelItself, "1");
+        progress.setText(this.txtTotalProfiles, toString(this.importConnection.getCountProfilesToImport()));
+        progress.setText(this.txtTotalElements, toString(this.importConnection.getCountElementsToImport()));
+        progress.setText(this.txtTotalRelationships, toString(this.importConnection.getCountRelationshipsToImport()));
+        progress.setText(this.txtTotalFolders, toString(this.importConnection.getCountFoldersToImport()));
+        progress.setText(this.txtTotalViews, toString(this.importConnection.getCountViewsToImport()));
+        progress.setText(this.txtTotalViewObjects, toString(this.importConnection.getCountViewObjectsToImport()));
+        progress.setText(this.txtTotalViewConnections, toString(this.importConnection.getCountViewConnectionsToImport()));
+        progress.setText(this.txtTotalImages, toString(this.importConnection.getCountImagesToImport()));
+
+        progress.setText(this.txtImportedModelItself, "1");
+        progress.setText(this.txtImportedProfiles, toString(0));
+        progress.setText(this.txtImportedElements, toString(0));
+        progress.setText(this.txtImportedRelationships, toString(0));
+        progress.setText(this.txtImportedFolders, toString(0));
+        progress.setText(this.txtImportedViews, toString(0));
+        progress.setText(this.txtImportedViewObjects, toString(0));
+        progress.setText(this.txtImportedViewConnections, toString(0));
+        progress.setText(this.txtImportedImages, toString(0));
+        
+        // Import the model components from the database
+
+        logger.info("Importing specializations ...");
+        checkIfCancelled();
+        DBStatement.setPhase("Importing specializations");
+        int count = 0;
+        this.importConnection.prepareImportProfiles(this.modelToImport);
+        while ( this.importConnection.importProfiles(this.modelToImport) ) {
+        	if ( this.showRealTimeNumbers ) {
+        		progress.setText(this.txtImportedProfiles, toString(this.importConnection.getCountProfilesImported()));
+        		 progress.increaseProgressBar();
+        	}
+        	++count;
+        }
+        if ( !this.showRealTimeNumbers ) {
+        	progress.setText(this.txtImportedProfiles, toString(count));
+        	progress.increaseProgressBar(count);
+        }
+        
+        progress.flush();
+        logger.info("Importing folders ...");
+        checkIfCancelled();
+        DBStatement.setPhase("Importing folders");
+        count = 0;
+        this.importConnection.prepareImportFolders(this.modelToImport);
+        while ( this.importConnection.importFolders(this.modelToImport) ) {
+        	if ( this.showRealTimeNumbers ) {
+        		progress.setText(this.txtImportedFolders, toString(this.importConnection.getCountFoldersImported()));
+                progress.increaseProgressBar();
+        	}
+        	++count;
+        }
+        if ( !this.showRealTimeNumbers ) {
+        	progress.setText(this.txtImportedFolders, toString(count));
+        	progress.increaseProgressBar(count);
+        }
+
+        progress.flush();
+        logger.info("Importing elements ...");
+        checkIfCancelled();
+        DBStatement.setPhase("Importing elements");
+        count = 0;
+        this.importConnection.prepareImportElements(this.modelToImport);
+        while ( this.importConnection.importElements(this.modelToImport) ) {
+        	if ( this.showRealTimeNumbers ) {
+        		progress.setText(this.txtImportedElements, toString(this.importConnection.getCountElementsImported()));
+            	progress.increaseProgressBar();
+        	}
+        	++count;
+        }
+        if ( !this.showRealTimeNumbers ) {
+        	progress.setText(this.txtImportedElements, toString(count));
+        	progress.increaseProgressBar(count);
+        }
+
+        progress.flush();
+        logger.info("Importing relationships ...");
+        checkIfCancelled();
+        DBStatement.setPhase("Importing relationships");
+        count = 0;
+        this.importConnection.prepareImportRelationships(this.modelToImport);
+        while ( this.importConnection.importRelationships(this.modelToImport) ) {
+        	if ( this.showRealTimeNumbers ) {
+        		progress.setText(this.txtImportedRelationships, toString(this.importConnection.getCountRelationshipsImported()));
+            	progress.increaseProgressBar();
+        	}
+        	++count;
+        }
+        this.modelToImport.resolveSourceAndTargetRelationships();
+        if ( !this.showRealTimeNumbers ) {
+        	progress.setText(this.txtImportedRelationships, toString(count));
+        	progress.increaseProgressBar(count);
+        }
+
+        progress.flush();
+        logger.info("Importing views ...");
+        checkIfCancelled();
+        DBStatement.setPhase("Importing views");
+        count = 0;
+        this.importConnection.prepareImportViews(this.modelToImport);
+        while ( this.importConnection.importViews(this.modelToImport) ) {
+        	if ( this.showRealTimeNumbers ) {
+        		progress.setText(this.txtImportedViews, toString(this.importConnection.getCountViewsImported()));
+                progress.increaseProgressBar();
+        	}
+        	++count;
+        }
+        if ( !this.showRealTimeNumbers ) {
+        	progress.setText(this.txtImportedViews, toString(count));
+        	progress.increaseProgressBar(count);
+        }
+
+        progress.flush();
+        logger.info("Importing view objects ...");
+        checkIfCancelled();
+        DBStatement.setPhase("Importing view objects");
+        count = 0;
+        for (IDiagramModel view: this.modelToImport.getAllViews().values()) {
+            this.importConnection.prepareImportViewsObjects(view.getId(), this.modelToImport.getDBMetadata(view).getInitialVersion().getVersion());
+            while ( this.importConnection.importViewsObjects(this.modelToImport, view) ) {
+            	if ( this.showRealTimeNumbers ) {
+            		progress.setText(this.txtImportedViewObjects, toString(this.importConnection.getCountViewObjectsImported()));
+                    progress.increaseProgressBar(); 
+            	}
+            	++count;
+            }
+            progress.setText(this.txtImportedViewObjects, toString(this.importConnection.getCountViewObjectsImported()));
+        }
+        if ( !this.showRealTimeNumbers ) {
+        	progress.setText(this.txtImportedViewObjects, toString(count));
+        	progress.increaseProgressBar(count);
+        }
+        // we refresh the numbers of elements imported as some may have been imported as part of view objects
+        progress.setText(this.txtImportedElements, toString(this.importConnection.getCountElementsImported()));
+
+        progress.flush();
+        logger.info("Importing view connections ...");
+        checkIfCancelled();
+        DBStatement.setPhase("Importing view connections");
+        count = 0;
+        for (IDiagramModel view: this.modelToImport.getAllViews().values()) {
+            this.importConnection.prepareImportViewsConnections(view.getId(), this.modelToImport.getDBMetadata(view).getInitialVersion().getVersion());
+            while ( this.importConnection.importViewsConnections(this.modelToImport) ) {
+            	if ( this.showRealTimeNumbers ) {
+            		progress.setText(this.txtImportedViewConnections, toString(this.importConnection.getCountViewConnectionsImported()));
+                    progress.increaseProgressBar();
+            	}
+            	++count;
+            }
+        }
+        this.modelToImport.resolveSourceAndTargetConnections();
+        if ( !this.showRealTimeNumbers ) {
+        	progress.setText(this.txtImportedViewConnections, toString(count));
+        	progress.increaseProgressBar(count);
+        }
+        // we refresh the numbers of elements imported as some may have been imported as part of view objects
+        progress.setText(this.txtImportedRelationships, toString(this.importConnection.getCountRelationshipsImported()));
+
+        closeMessage();
+
+        progress.flush();
+        logger.info("Importing images ...");
+        checkIfCancelled();
+        DBStatement.setPhase("Importing images");
+        count = 0;
+        for (String path: this.importConnection.getAllImagePaths()) {
+            this.importConnection.importImage(this.modelToImport, path);
+            if ( this.showRealTimeNumbers ) {
+            	progress.setText(this.txtImportedImages, toString(this.importConnection.getCountImagesImported()));
+                progress.increaseProgressBar();
+            }
+            ++count;
+        }
+        if ( !this.showRealTimeNumbers ) {
+        	progress.setText(this.txtImportedImages, toString(count));
+        	progress.increaseProgressBar(count);
+        }
+}
+
     protected void doShowResult(Exception err) {
         logger.debug("Showing result.");
         if ( this.grpProgressBar != null ) this.grpProgressBar.setVisible(false);
@@ -1157,5 +1225,7 @@ public class DBGuiImportModel extends DBGui {
 	            DBGuiUtils.popup(Level.ERROR, "Please be warn that the model you just imported is not concistent.\n\nYou choosed to keep it in the preferences, but should you export it back to the database, you may loose data.\n\nDo it at your own risk !");
 	        }
         }
+
+        progress.flush();
     }
 }
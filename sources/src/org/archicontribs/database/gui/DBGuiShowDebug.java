@@ -9,6 +9,7 @@ import java.sql.SQLException;
 
 import org.apache.log4j.Level;
 import org.archicontribs.database.connection.DBDatabaseExportConnection;
+import org.archicontribs.database.connection.DBStatementStatistics;
 import org.archicontribs.database.data.DBVersion;
 import org.archicontribs.database.model.DBArchimateModel;
 import org.archicontribs.database.model.DBMetadata;
@@ -67,6 +68,8 @@ public class DBGuiShowDebug extends DBGui {
     private Label correspondingConceptDatabaseStatusLbl;
     private Label correspondingConceptDatabaseStatusValueLbl;
     private Table correspondingConceptDebugTable;
+    
+    private Table sqlStatisticsTable;
 
     /**
      * Creates the GUI that shows the debug information
@@ -229,7 +232,7 @@ public class DBGuiShowDebug extends DBGui {
         fd.top = new FormAttachment(this.selectedComponentDatabaseStatusValueLbl, 10);
         fd.left = new FormAttachment(0, 20);
         fd.right = new FormAttachment(100, -20);
-        fd.bottom = new FormAttachment(50, -10);
+        fd.bottom = new FormAttachment(35, -10);
         this.selectedComponentDebugTable.setLayoutData(fd);
         
         TableColumn column = new TableColumn(this.selectedComponentDebugTable, SWT.NONE);
@@ -252,7 +255,7 @@ public class DBGuiShowDebug extends DBGui {
         this.correspondingConceptLbl.setBackground(GROUP_BACKGROUND_COLOR);
         this.correspondingConceptLbl.setText("It is related to the following Archimate concept:");
         fd = new FormData();
-        fd.top = new FormAttachment(50, 10);
+        fd.top = new FormAttachment(35, 10);
         fd.left = new FormAttachment(0, 20);
         this.correspondingConceptLbl.setLayoutData(fd);
         
@@ -338,7 +341,7 @@ public class DBGuiShowDebug extends DBGui {
         fd.top = new FormAttachment(this.correspondingConceptDatabaseStatusValueLbl, 10);
         fd.left = new FormAttachment(0, 20);
         fd.right = new FormAttachment(100, -20);
-        fd.bottom = new FormAttachment(100, -10);
+        fd.bottom = new FormAttachment(70, -10);
         this.correspondingConceptDebugTable.setLayoutData(fd);
         
         column = new TableColumn(this.correspondingConceptDebugTable, SWT.NONE);
@@ -355,6 +358,63 @@ public class DBGuiShowDebug extends DBGui {
         column = new TableColumn(this.correspondingConceptDebugTable, SWT.CENTER);
         column.setText("Created on");
         column.setWidth(220);
+        
+        // SQL requests statistics
+        Label sqlStatisticsLbl = new Label(this.grpDebug, SWT.NONE);
+        sqlStatisticsLbl.setBackground(GROUP_BACKGROUND_COLOR);
+        sqlStatisticsLbl.setText("SQL requests sent to the database during the last import or export:");
+        fd = new FormData();
+        fd.top = new FormAttachment(70, 10);
+        fd.left = new FormAttachment(0, 20);
+        sqlStatisticsLbl.setLayoutData(fd);
+        
+        // Table
+        this.sqlStatisticsTable = new Table(this.grpDebug, SWT.BORDER | SWT.FULL_SELECTION);
+        this.sqlStatisticsTable.setLinesVisible(true);
+        this.sqlStatisticsTable.setHeaderVisible(true);
+        this.sqlStatisticsTable.setBackground(TABLE_BACKGROUND_COLOR);
+        this.sqlStatisticsTable.setHeaderBackground(COMPO_LEFT_COLOR);
+        fd = new FormData();
+        fd.top = new FormAttachment(sqlStatisticsLbl, 10);
+        fd.left = new FormAttachment(0, 20);
+        fd.right = new FormAttachment(100, -20);
+        fd.bottom = new FormAttachment(100, -10);
+        this.sqlStatisticsTable.setLayoutData(fd);
+        
+        column = new TableColumn(this.sqlStatisticsTable, SWT.RIGHT);
+        column.setText("Calls");
+        column.setWidth(60);
+        column = new TableColumn(this.sqlStatisticsTable, SWT.RIGHT);
+        column.setText("Total (ms)");
+        column.setWidth(80);
+        column = new TableColumn(this.sqlStatisticsTable, SWT.RIGHT);
+        column.setText("Max (ms)");
+        column.setWidth(80);
+        column = new TableColumn(this.sqlStatisticsTable, SWT.RIGHT);
+        column.setText("Rows");
+        column.setWidth(70);
+        column = new TableColumn(this.sqlStatisticsTable, SWT.RIGHT);
+        column.setText("BLOB bytes");
+        column.setWidth(90);
+        column = new TableColumn(this.sqlStatisticsTable, SWT.NONE);
+        column.setText("Request");
+        column.setWidth(700);
+    }
+    
+    /**
+     * Fills in the SQL requests statistics table, the slowest requests first
+     */
+    private void showSqlStatistics() {
+        this.sqlStatisticsTable.removeAll();
+        for ( DBStatementStatistics stat: DBStatementStatistics.getAll() ) {
+            TableItem item = new TableItem(this.sqlStatisticsTable, SWT.NONE);
+            item.setText(0, String.valueOf(stat.getCalls()));
+            item.setText(1, String.format("%.1f", stat.getTotalNanos()/1000000.0));
+            item.setText(2, String.format("%.1f", stat.getMaxNanos()/1000000.0));
+            item.setText(3, String.valueOf(stat.getRows()));
+            item.setText(4, String.valueOf(stat.getBlobBytes()));
+            item.setText(5, stat.getShape());
+        }
     }
     
     @Override
@@ -396,6 +456,8 @@ public class DBGuiShowDebug extends DBGui {
         
         this.grpDebug.layout();
         
+        showSqlStatistics();
+        
         this.selectedComponentDebugTable.removeAll();
         this.correspondingConceptDebugTable.removeAll();
         
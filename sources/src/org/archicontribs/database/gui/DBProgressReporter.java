@@ -0,0 +1,161 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+
+package org.archicontribs.database.gui;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.swt.widgets.Text;
+
+/**
+ * Aggregates the progress bar and counters updates of the export and import loops and refreshes the widgets at a fixed rate.<br>
+ * <br>
+ * Repainting the widgets once per exported or imported component takes a noticeable part of the time on big models. The updates
+ * are therefore summed up and sent to the widgets at most every {@link #REFRESH_INTERVAL} milliseconds, and when {@link #flush()}
+ * is called at the end of each loop.<br>
+ * <br>
+ * The reporter can be used from the SWT thread as well as from a background task.
+ */
+public class DBProgressReporter {
+	/**
+	 * Minimum number of milliseconds between two refreshes of the widgets (i.e. 10 refreshes per second)
+	 */
+	public static final long REFRESH_INTERVAL = 100;
+
+	private final DBGui gui;
+
+	private final Map<Text, PendingText> pendingTexts = new LinkedHashMap<>();
+	private int pendingProgressBarIncrement = 0;
+	private long lastRefresh = 0;
+	private boolean isFlushScheduled = false;
+
+	private static class PendingText {
+		String value = null;
+		int increment = 0;
+	}
+
+	/**
+	 * Creates a progress reporter for the progress bar and counters of a dialog
+	 * @param dbGui the dialog that owns the progress bar
+	 */
+	public DBProgressReporter(DBGui dbGui) {
+		this.gui = dbGui;
+	}
+
+	/**
+	 * Increments a counter by one
+	 * @param txt
+	 */
+	public void incrementText(Text txt) {
+		incrementText(txt, 1);
+	}
+
+	/**
+	 * Increments a counter
+	 * @param txt
+	 * @param increment
+	 */
+	public void incrementText(Text txt, int increment) {
+		if ( txt == null )
+			return;
+
+		synchronized (this) {
+			this.pendingTexts.computeIfAbsent(txt, k -> new PendingText()).increment += increment;
+		}
+		refreshIfDue();
+	}
+
+	/**
+	 * Sets the value of a counter, replacing the increments that have not been sent to the widget yet
+	 * @param txt
+	 * @param value
+	 */
+	public void setText(Text txt, String value) {
+		if ( txt == null )
+			return;
+
+		synchronized (this) {
+			PendingText pendingText = this.pendingTexts.computeIfAbsent(txt, k -> new PendingText());
+			pendingText.value = value;
+			pendingText.increment = 0;
+		}
+		refreshIfDue();
+	}
+
+	/**
+	 * Increases the progress bar selection by one
+	 */
+	public void increaseProgressBar() {
+		increaseProgressBar(1);
+	}
+
+	/**
+	 * Increases the progress bar selection
+	 * @param nb
+	 */
+	public void increaseProgressBar(int nb) {
+		synchronized (this) {
+			this.pendingProgressBarIncrement += nb;
+		}
+		refreshIfDue();
+	}
+
+	/**
+	 * Sends all the pending updates to the widgets.<br>
+	 * Must be called at the end of each loop so that the widgets show the final numbers.
+	 */
+	public void flush() {
+		if ( !DBGui.isDisplayThread() ) {
+			DBGui.display.syncExec(() -> flush());
+			return;
+		}
+
+		Map<Text, PendingText> texts;
+		int progressBarIncrement;
+		synchronized (this) {
+			texts = new LinkedHashMap<>(this.pendingTexts);
+			this.pendingTexts.clear();
+			progressBarIncrement = this.pendingProgressBarIncrement;
+			this.pendingProgressBarIncrement = 0;
+			this.isFlushScheduled = false;
+			this.lastRefresh = System.currentTimeMillis();
+		}
+
+		for ( Entry<Text, PendingText> entry: texts.entrySet() ) {
+			Text txt = entry.getKey();
+			if ( txt.isDisposed() )
+				continue;
+			if ( entry.getValue().value != null )
+				DBGui.setText(txt, entry.getValue().value);
+			if ( entry.getValue().increment != 0 )
+				DBGui.incrementText(txt, entry.getValue().increment);
+		}
+
+		// increaseProgressBar() also refreshes the display
+		if ( (progressBarIncrement != 0) && !this.gui.isDisposed() )
+			this.gui.increaseProgressBar(progressBarIncrement);
+		else
+			DBGui.refreshDisplay();
+	}
+
+	/**
+	 * Sends the pending updates to the widgets if the last refresh is older than {@link #REFRESH_INTERVAL}
+	 */
+	private void refreshIfDue() {
+		synchronized (this) {
+			if ( this.isFlushScheduled || (System.currentTimeMillis() - this.lastRefresh < REFRESH_INTERVAL) )
+				return;
+			this.isFlushScheduled = true;
+		}
+
+		if ( DBGui.isDisplayThread() )
+			flush();
+		else
+			DBGui.display.asyncExec(() -> flush());
+	}
+}
@@ -10,21 +10,25 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import org.apache.log4j.Level;
 import org.archicontribs.database.DBException;
 import org.archicontribs.database.DBLogger;
 import org.archicontribs.database.DBPlugin.CONFLICT_CHOICE;
 import org.archicontribs.database.data.DBChecksum;
+import org.archicontribs.database.data.DBChecksumAlgorithm;
 import org.archicontribs.database.data.DBVersion;
 import org.archicontribs.database.gui.DBGuiUtils;
 import org.archicontribs.database.model.commands.DBDeleteDiagramConnectionCommand;
 import org.archicontribs.database.model.commands.DBDeleteDiagramObjectCommand;
+import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.gef.commands.CompoundCommand;
 
@@ -332,22 +336,34 @@ public class DBArchimateModel extends com.archimatetool.model.impl.ArchimateMode
     
     /**
      * Counts the number of objects in the model.<br>
-     * At the same time, we calculate the current checksums
+     * At the same time, we calculate the current checksums, using the algorithm of the last calculation (or the default algorithm) as the database is not known yet
      * @throws DBException
      * @return true if all components have been counted, or false if inconstancy has been detected
      */
     public boolean countAllObjects() throws DBException {
-    	return countAllObjects(true);
+    	return countAllObjects(getChecksumAlgorithmOrDefault(), true);
+    }
+
+    /**
+     * Counts the number of objects in the model.<br>
+     * At the same time, we calculate the current checksums
+     * @param algorithm algorithm of the database the checksums are compared to
+     * @throws DBException
+     * @return true if all components have been counted, or false if inconstancy has been detected
+     */
+    public boolean countAllObjects(DBChecksumAlgorithm algorithm) throws DBException {
+    	return countAllObjects(algorithm, true);
     }
 
     /**
      * Counts the number of objects in the model.<br>
      * At the same time, we calculate the current checksums
+     * @param algorithm algorithm of the database the checksums are compared to
      * @param deleteFaultyComponents true if the method should ask the user which faulty component he wishes to delete, false if the faulty components are all kept
      * @throws DBException
      * @return true if all components have been counted, or false if inconstancy has been detected
      */
-    public boolean countAllObjects(boolean deleteFaultyComponents) throws DBException {
+    public boolean countAllObjects(DBChecksumAlgorithm algorithm, boolean deleteFaultyComponents) throws DBException {
         // First, we reset all the counters as they can be be re-populated
     	resetCounters();
 
@@ -365,10 +381,18 @@ public class DBArchimateModel extends com.archimatetool.model.impl.ArchimateMode
             this.allFolders.put(folder.getId(), folder);
         }
 
-       	for (IFolder folder: getFolders())
-        	countObject(folder, true);
-        for ( IProfile profile: getProfiles() )
-        	countObject(profile, true);
+        // the checksums of the components are calculated in parallel before the traversal
+        this.checksumAlgorithm = algorithm;
+        precalculateChecksums();
+
+        try {
+	       	for (IFolder folder: getFolders())
+	        	countObject(folder, true);
+	        for ( IProfile profile: getProfiles() )
+	        	countObject(profile, true);
+        } finally {
+        	this.precalculatedChecksums.clear();
+        }
         
         if ( !this.allFaultyObjects.isEmpty() ) {
         	if ( !deleteFaultyComponents )
@@ -415,13 +439,85 @@ public class DBArchimateModel extends com.archimatetool.model.impl.ArchimateMode
         	DBGuiUtils.popup(Level.INFO, "The inconsitant components have been removed from your model.\n\nYou may use Archi's \"undo\" functionality to restore them if needed.");
         	
         	// we re-count components, without asking again if some faulty components remain
-        	return countAllObjects(false);
+        	return countAllObjects(algorithm, false);
         }
         
         // we return true to indicate that all model components have been counted correctly
         return true;
     }
 
+    /**
+     * Algorithm that has been used to calculate the checksums by the {@link #countAllObjects()} method (null if not yet calculated)
+     */
+    @Getter private DBChecksumAlgorithm checksumAlgorithm = null;
+
+    /**
+     * @return the algorithm used by the {@link #countObject(EObject, boolean)} method, that is the algorithm of the last {@link #countAllObjects()} call or the default algorithm
+     */
+    private DBChecksumAlgorithm getChecksumAlgorithmOrDefault() {
+        return (this.checksumAlgorithm != null) ? this.checksumAlgorithm : DBChecksumAlgorithm.DEFAULT;
+    }
+
+    /**
+     * Checksums of the model components that have been calculated in advance by the {@link #precalculateChecksums()} method
+     */
+    private Map<EObject, String> precalculatedChecksums = new IdentityHashMap<>();
+
+    /**
+     * Calculates the checksums of all the model components, except folders, on the ForkJoin common pool.<br>
+     * <br>
+     * The components are then traversed sequentially by the {@link #countObject(EObject, boolean)} method to keep the order of the
+     * allElements, allRelationships, allViews, ... maps, using the checksums calculated here instead of calculating them again.<br>
+     * <br>
+     * Folders are excluded as their type may be fixed during the traversal. Components whose checksum calculation fails are not stored,
+     * so that the error is raised and managed as usual by the countObject method.
+     */
+    private void precalculateChecksums() {
+        this.precalculatedChecksums.clear();
+
+        // the components list and their metadata are created on the current thread as the metadata creation is not atomic
+        List<EObject> components = new ArrayList<>();
+        TreeIterator<EObject> iterator = eAllContents();
+        while ( iterator.hasNext() ) {
+            EObject eObject = iterator.next();
+            if ( (eObject instanceof IArchimateConcept) || (eObject instanceof IDiagramModel) || (eObject instanceof IDiagramModelObject) || (eObject instanceof IDiagramModelConnection) || (eObject instanceof IProfile) ) {
+                DBMetadata metadata = getDBMetadata(eObject);
+                // the screenshot is emptied before the checksum is calculated, as done by the countObject method
+                if ( eObject instanceof IDiagramModel )
+                    metadata.getScreenshot().dispose();
+                components.add(eObject);
+            }
+        }
+
+        String[] checksums = new String[components.size()];
+        long[] durations = new long[components.size()];
+        long startTime = System.nanoTime();
+
+        IntStream.range(0, components.size()).parallel().forEach(i -> {
+            long componentStartTime = System.nanoTime();
+            try {
+                checksums[i] = DBChecksum.calculateChecksum(components.get(i), this.checksumAlgorithm);
+            } catch (@SuppressWarnings("unused") Exception ign) {
+                // the checksum will be calculated again by the countObject method that manages the faulty components
+            }
+            durations[i] = System.nanoTime() - componentStartTime;
+        });
+
+        long elapsedTime = System.nanoTime() - startTime;
+
+        for ( int i = 0; i < checksums.length; ++i ) {
+            if ( checksums[i] != null )
+                this.precalculatedChecksums.put(components.get(i), checksums[i]);
+        }
+
+        if ( logger.isDebugEnabled() ) {
+            long cumulatedTime = 0;
+            for ( long duration: durations )
+                cumulatedTime += duration;
+            logger.debug("Calculated "+components.size()+" checksums in "+(elapsedTime/1000000)+" ms instead of "+(cumulatedTime/1000000)+" ms (speedup "+String.format("%.2f", elapsedTime == 0 ? 1.0 : (double)cumulatedTime/elapsedTime)+")");
+        }
+    }
+
     /**
      * The viewChecksum variable is a trick to include the connections checksums in the view checksum
     */
@@ -447,7 +543,8 @@ public class DBArchimateModel extends com.archimatetool.model.impl.ArchimateMode
         	if ( eObject instanceof IDiagramModel && (this.allViews.get(((IIdentifier)eObject).getId()) == null) )
         		objectMetadata.getScreenshot().dispose();
             try {
-            	checksumBuilder = new StringBuilder(DBChecksum.calculateChecksum(eObject));
+            	String precalculatedChecksum = this.precalculatedChecksums.remove(eObject);
+            	checksumBuilder = new StringBuilder(precalculatedChecksum != null ? precalculatedChecksum : DBChecksum.calculateChecksum(eObject, getChecksumAlgorithmOrDefault()));
             } catch (Exception err)  {
             	this.allFaultyObjects.put(eObject, err.getMessage());
             	checksumBuilder = new StringBuilder();
@@ -593,7 +690,7 @@ public class DBArchimateModel extends com.archimatetool.model.impl.ArchimateMode
             // else, we calculate a new checksum from the list of checksums
             String checksum = null;
             try {
-            	checksum = (checksumBuilder.length() != len) ? DBChecksum.calculateChecksum(checksumBuilder) : checksumBuilder.toString();
+            	checksum = (checksumBuilder.length() != len) ? DBChecksum.calculateChecksum(checksumBuilder, getChecksumAlgorithmOrDefault()) : checksumBuilder.toString();
             } catch (@SuppressWarnings("unused") Exception e) {
             	// nothing to do
             }
@@ -6,6 +6,7 @@
 
 package org.archicontribs.database.model.commands;
 
+import java.io.InputStream;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -135,9 +136,12 @@ public class DBImportViewObjectFromIdCommand extends CompoundCommand implements
             if ( this.newValues.get("image_path") != null ) {
                 IArchiveManager archiveMgr = (IArchiveManager)archimateModel.getAdapter(IArchiveManager.class);
                 if ( !archiveMgr.getLoadedImagePaths().contains((String)this.newValues.get("image_path")) ) {
-                    try ( DBSelect imageResult = new DBSelect(importConnection.getDatabaseEntry().getName(), importConnection.getConnection(), "SELECT image FROM "+importConnection.getSchemaPrefix()+"images WHERE path = ?", (String)this.newValues.get("image_path")) ) {
+                    try ( DBSelect imageResult = new DBSelect(importConnection.getDatabaseEntry().getName(), importConnection.getConnection(), importConnection.getImageContentRequest(), (String)this.newValues.get("image_path"), (String)this.newValues.get("image_path")) ) {
                         if ( imageResult.next() ) {
-                            this.newImageContent = imageResult.getBytes("image");
+                            // the archive manager only accepts the image content as a byte array
+                            try ( InputStream imageStream = imageResult.getBinaryStream("image") ) {
+                                this.newImageContent = (imageStream == null) ? new byte[0] : imageStream.readAllBytes();
+                            }
                             logger.debug("   Importing image "+this.newValues.get("image_path")+" (size = "+this.newImageContent.length+")");
                             // TODO: the image content should be part of a cross instance array in order to be store only once in memory
                         }
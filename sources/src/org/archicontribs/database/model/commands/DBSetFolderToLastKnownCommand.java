@@ -46,7 +46,7 @@ public class DBSetFolderToLastKnownCommand extends Command  implements IDBComman
             try ( DBSelect result = new DBSelect(importConnection.getDatabaseEntry().getName(), importConnection.getConnection(), "SELECT m2.element_id AS element_id, m2.parent_folder_id AS parent_folder_id"
                     + " FROM "+importConnection.getSchemaPrefix()+"elements_in_model m1"
                     + " JOIN "+importConnection.getSchemaPrefix()+"elements_in_model m2 ON m1.element_id = m2.element_id AND m1.model_id = m2.model_id"
-                    + " WHERE m1.model_id = ? AND m1.model_version = ? AND m2.model_version = ? AND m1.parent_folder_id <> m2.parent_folder_id"
+                    + " WHERE m1.model_id = ? AND ? BETWEEN m1.model_version AND m1.model_version_to AND ? BETWEEN m2.model_version AND m2.model_version_to AND m1.parent_folder_id <> m2.parent_folder_id"
                     , model.getId()
                     , model.getInitialVersion().getVersion()
                     , model.getDatabaseVersion().getVersion()
@@ -68,7 +68,7 @@ public class DBSetFolderToLastKnownCommand extends Command  implements IDBComman
             try ( DBSelect result = new DBSelect(importConnection.getDatabaseEntry().getName(), importConnection.getConnection(), "SELECT m2.relationship_id AS relationship_id, m2.parent_folder_id AS parent_folder_id"
                     + " FROM "+importConnection.getSchemaPrefix()+"relationships_in_model m1"
                     + " JOIN "+importConnection.getSchemaPrefix()+"relationships_in_model m2 ON m1.relationship_id = m2.relationship_id AND m1.model_id = m2.model_id"
-                    + " WHERE m1.model_id = ? AND m1.model_version = ? AND m2.model_version = ? AND m1.parent_folder_id <> m2.parent_folder_id"
+                    + " WHERE m1.model_id = ? AND ? BETWEEN m1.model_version AND m1.model_version_to AND ? BETWEEN m2.model_version AND m2.model_version_to AND m1.parent_folder_id <> m2.parent_folder_id"
                     , model.getId()
                     , model.getInitialVersion().getVersion()
                     , model.getDatabaseVersion().getVersion()
@@ -90,7 +90,7 @@ public class DBSetFolderToLastKnownCommand extends Command  implements IDBComman
             try ( DBSelect result = new DBSelect(importConnection.getDatabaseEntry().getName(), importConnection.getConnection(), "SELECT m2.folder_id AS folder_id, m2.parent_folder_id AS parent_folder_id"
                     + " FROM "+importConnection.getSchemaPrefix()+"folders_in_model m1"
                     + " JOIN "+importConnection.getSchemaPrefix()+"folders_in_model m2 ON m1.folder_id = m2.folder_id AND m1.model_id = m2.model_id"
-                    + " WHERE m1.model_id = ? AND m1.model_version = ? AND m2.model_version = ? AND m1.parent_folder_id <> m2.parent_folder_id"
+                    + " WHERE m1.model_id = ? AND ? BETWEEN m1.model_version AND m1.model_version_to AND ? BETWEEN m2.model_version AND m2.model_version_to AND m1.parent_folder_id <> m2.parent_folder_id"
                     , model.getId()
                     , model.getInitialVersion().getVersion()
                     , model.getDatabaseVersion().getVersion()
@@ -112,7 +112,7 @@ public class DBSetFolderToLastKnownCommand extends Command  implements IDBComman
             try ( DBSelect result = new DBSelect(importConnection.getDatabaseEntry().getName(), importConnection.getConnection(), "SELECT m2.view_id AS view_id, m2.parent_folder_id AS parent_folder_id"
                     + " FROM "+importConnection.getSchemaPrefix()+"views_in_model m1"
                     + " JOIN "+importConnection.getSchemaPrefix()+"views_in_model m2 ON m1.view_id = m2.view_id AND m1.model_id = m2.model_id"
-                    + " WHERE m1.model_id = ? AND m1.model_version = ? AND m2.model_version = ? AND m1.parent_folder_id <> m2.parent_folder_id"
+                    + " WHERE m1.model_id = ? AND ? BETWEEN m1.model_version AND m1.model_version_to AND ? BETWEEN m2.model_version AND m2.model_version_to AND m1.parent_folder_id <> m2.parent_folder_id"
                     , model.getId()
                     , model.getInitialVersion().getVersion()
                     , model.getDatabaseVersion().getVersion()
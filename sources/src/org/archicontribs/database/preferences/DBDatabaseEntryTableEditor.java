@@ -16,6 +16,7 @@ import org.archicontribs.database.DBDatabaseDriver;
 import org.archicontribs.database.DBDatabaseEntry;
 import org.archicontribs.database.DBException;
 import org.archicontribs.database.DBPlugin;
+import org.archicontribs.database.connection.DBConnectionPool;
 import org.archicontribs.database.connection.DBDatabaseImportConnection;
 import org.archicontribs.database.data.DBDatabase;
 import org.archicontribs.database.gui.DBGui;
@@ -1312,6 +1313,9 @@ public class DBDatabaseEntryTableEditor extends FieldEditor {
 			return;
 		}
 
+		// we do not reuse the pooled connections, so that the connection details are really checked
+		DBConnectionPool.getPool(databaseEntry).clear();
+
 		try ( DBDatabaseImportConnection connection = new DBDatabaseImportConnection(databaseEntry) ) {
 			connection.checkDatabase(null);
 			DBGuiUtils.popup(Level.INFO, "Database successfully checked.");
@@ -13,6 +13,7 @@ import org.apache.log4j.Level;
 import org.archicontribs.database.DBCheckAndUpdatePlugin;
 import org.archicontribs.database.DBLogger;
 import org.archicontribs.database.DBPlugin;
+import org.archicontribs.database.data.DBChecksumAlgorithm;
 import org.archicontribs.database.gui.DBGui;
 import org.archicontribs.database.gui.DBGuiUtils;
 import org.eclipse.jface.preference.*;
@@ -63,6 +64,8 @@ public class DBPreferencePage extends FieldEditorPreferencePage	implements IWork
 	private RadioGroupFieldEditor loggerModeRadioGroupEditor;
 	private Composite traceSQLFieldComposite;
 	private BooleanFieldEditor traceSQLFieldEditor;
+	private Composite slowRequestThresholdFieldComposite;
+	private IntegerFieldEditor slowRequestThresholdFieldEditor;
 	private FileFieldEditor filenameFileFieldEditor;
 	private RadioGroupFieldEditor loggerLevelRadioGroupEditor;
 	private DBTextFieldEditor expertTextFieldEditor;
@@ -76,10 +79,15 @@ public class DBPreferencePage extends FieldEditorPreferencePage	implements IWork
 	private Button btnCheckNotNullConstraintInDatabase;
 	private Button btnRemoveDirtyFlag;
 	private Button btnCompareToDatabaseBeforeExport;
+	private Button btnIncrementalCompare;
+	private Button btnExportMembershipRanges;
 	private Button btnKeepPartiallyImportedModel;
 	private Button btnShowIdInContextMenu;
 	private Button btnShowRealTimeNumbers;
 	private Text txtCopySuffix;
+	private Text txtExportBatchSize;
+	private Text txtFetchSize;
+	private Button btnXxh64ChecksumAlgorithm;
 	private Button btnTemplateImportMode;
 	private Button btnSharedImportMode;
 	
@@ -321,12 +329,30 @@ public class DBPreferencePage extends FieldEditorPreferencePage	implements IWork
         fd.left = new FormAttachment(0, 10);
         this.btnCompareToDatabaseBeforeExport.setLayoutData(fd);
 		
+		this.btnIncrementalCompare = new Button(grpMiscellaneous, SWT.CHECK);
+		this.btnIncrementalCompare.setBackground(DBGui.GROUP_BACKGROUND_COLOR);
+		this.btnIncrementalCompare.setText("Compare only the components that changed since the last comparison");
+		this.btnIncrementalCompare.setSelection(preferenceStore.getBoolean("incrementalCompare"));
+		fd = new FormData();
+		fd.top = new FormAttachment(this.btnCompareToDatabaseBeforeExport, 5);
+		fd.left = new FormAttachment(0, 10);
+		this.btnIncrementalCompare.setLayoutData(fd);
+		
+		this.btnExportMembershipRanges = new Button(grpMiscellaneous, SWT.CHECK);
+		this.btnExportMembershipRanges.setBackground(DBGui.GROUP_BACKGROUND_COLOR);
+		this.btnExportMembershipRanges.setText("Export only the changes of the components membership to the model");
+		this.btnExportMembershipRanges.setSelection(preferenceStore.getBoolean("exportMembershipRanges"));
+		fd = new FormData();
+		fd.top = new FormAttachment(this.btnIncrementalCompare, 5);
+		fd.left = new FormAttachment(0, 10);
+		this.btnExportMembershipRanges.setLayoutData(fd);
+		
 		this.btnKeepPartiallyImportedModel = new Button(grpMiscellaneous, SWT.CHECK);
 		this.btnKeepPartiallyImportedModel.setBackground(DBGui.GROUP_BACKGROUND_COLOR);
 		this.btnKeepPartiallyImportedModel.setText("Keep partially imported model in case of error");
 		this.btnKeepPartiallyImportedModel.setSelection(!preferenceStore.getBoolean("deleteIfImportError"));
 		fd = new FormData();
-		fd.top = new FormAttachment(this.btnCompareToDatabaseBeforeExport, 5);
+		fd.top = new FormAttachment(this.btnExportMembershipRanges, 5);
 		fd.left = new FormAttachment(0, 10);
 		this.btnKeepPartiallyImportedModel.setLayoutData(fd);
 		
@@ -400,6 +426,90 @@ public class DBPreferencePage extends FieldEditorPreferencePage	implements IWork
 		fd.left = new FormAttachment(this.btnSharedImportMode, 10);
 		btnCopyImportMode.setLayoutData(fd);
 		
+		Label lblExportBatchSize = new Label(grpMiscellaneous, SWT.NONE);
+		lblExportBatchSize.setBackground(DBGui.GROUP_BACKGROUND_COLOR);
+		lblExportBatchSize.setText("Number of rows sent at once to the database during export (1 to disable):");
+		fd = new FormData();
+		fd.top = new FormAttachment(lblDefaultImportMode, 10);
+		fd.left = new FormAttachment(0, 10);
+		lblExportBatchSize.setLayoutData(fd);
+		
+		this.txtExportBatchSize = new Text(grpMiscellaneous, SWT.BORDER);
+		this.txtExportBatchSize.setText(String.valueOf(preferenceStore.getInt("exportBatchSize")));
+		this.txtExportBatchSize.addListener(SWT.Verify, new Listener() {
+			@Override public void handleEvent(Event event) {
+				// we accept digits only
+				for ( char c: event.text.toCharArray() ) {
+					if ( !Character.isDigit(c) ) {
+						event.doit = false;
+						return;
+					}
+				}
+			}
+		});
+		fd = new FormData();
+		fd.top = new FormAttachment(lblExportBatchSize, -3, SWT.TOP);
+		fd.bottom = new FormAttachment(lblExportBatchSize, 3, SWT.BOTTOM);
+		fd.left = new FormAttachment(lblExportBatchSize, 10);
+		fd.right = new FormAttachment(lblExportBatchSize, 60, SWT.RIGHT);
+		this.txtExportBatchSize.setLayoutData(fd);
+		
+		Label lblFetchSize = new Label(grpMiscellaneous, SWT.NONE);
+		lblFetchSize.setBackground(DBGui.GROUP_BACKGROUND_COLOR);
+		lblFetchSize.setText("Number of rows read at once from the database during import (0 for the database default):");
+		fd = new FormData();
+		fd.top = new FormAttachment(lblExportBatchSize, 10);
+		fd.left = new FormAttachment(0, 10);
+		lblFetchSize.setLayoutData(fd);
+		
+		this.txtFetchSize = new Text(grpMiscellaneous, SWT.BORDER);
+		this.txtFetchSize.setText(String.valueOf(preferenceStore.getInt("fetchSize")));
+		this.txtFetchSize.addListener(SWT.Verify, new Listener() {
+			@Override public void handleEvent(Event event) {
+				// we accept digits only
+				for ( char c: event.text.toCharArray() ) {
+					if ( !Character.isDigit(c) ) {
+						event.doit = false;
+						return;
+					}
+				}
+			}
+		});
+		fd = new FormData();
+		fd.top = new FormAttachment(lblFetchSize, -3, SWT.TOP);
+		fd.bottom = new FormAttachment(lblFetchSize, 3, SWT.BOTTOM);
+		fd.left = new FormAttachment(lblFetchSize, 10);
+		fd.right = new FormAttachment(lblFetchSize, 60, SWT.RIGHT);
+		this.txtFetchSize.setLayoutData(fd);
+		
+		Label lblChecksumAlgorithm = new Label(grpMiscellaneous, SWT.NONE);
+		lblChecksumAlgorithm.setBackground(DBGui.GROUP_BACKGROUND_COLOR);
+		lblChecksumAlgorithm.setText("Checksum algorithm of new databases:");
+		fd = new FormData();
+		fd.top = new FormAttachment(lblFetchSize, 10);
+		fd.left = new FormAttachment(0, 10);
+		lblChecksumAlgorithm.setLayoutData(fd);
+		
+		boolean isXxh64 = DBChecksumAlgorithm.fromPreferences() == DBChecksumAlgorithm.XXH64;
+		
+		Button btnMd5ChecksumAlgorithm = new Button(grpMiscellaneous, SWT.RADIO);
+		btnMd5ChecksumAlgorithm.setBackground(DBGui.GROUP_BACKGROUND_COLOR);
+		btnMd5ChecksumAlgorithm.setText("MD5");
+		btnMd5ChecksumAlgorithm.setSelection(!isXxh64);
+		fd = new FormData();
+		fd.top = new FormAttachment(lblChecksumAlgorithm, 0, SWT.CENTER);
+		fd.left = new FormAttachment(lblChecksumAlgorithm, 30);
+		btnMd5ChecksumAlgorithm.setLayoutData(fd);
+		
+		this.btnXxh64ChecksumAlgorithm = new Button(grpMiscellaneous, SWT.RADIO);
+		this.btnXxh64ChecksumAlgorithm.setBackground(DBGui.GROUP_BACKGROUND_COLOR);
+		this.btnXxh64ChecksumAlgorithm.setText("xxHash64 (faster)");
+		this.btnXxh64ChecksumAlgorithm.setSelection(isXxh64);
+		fd = new FormData();
+		fd.top = new FormAttachment(btnMd5ChecksumAlgorithm, 0, SWT.CENTER);
+		fd.left = new FormAttachment(btnMd5ChecksumAlgorithm, 10);
+		this.btnXxh64ChecksumAlgorithm.setLayoutData(fd);
+		
 		grpMiscellaneous.layout(true);
 		
 		// ********************************* */
@@ -431,6 +541,11 @@ public class DBPreferencePage extends FieldEditorPreferencePage	implements IWork
       	this.traceSQLFieldComposite = new Composite(this.loggerComposite, SWT.NONE);
       	this.traceSQLFieldEditor = new BooleanFieldEditor("traceSQL", "Include SQL requests in trace mode", this.traceSQLFieldComposite);
       	addField(this.traceSQLFieldEditor);
+      	
+      	this.slowRequestThresholdFieldComposite = new Composite(this.loggerComposite, SWT.NONE);
+      	this.slowRequestThresholdFieldEditor = new IntegerFieldEditor("slowRequestThreshold", "Log the SQL requests that take longer than (ms, 0 to disable):", this.slowRequestThresholdFieldComposite, 6);
+      	this.slowRequestThresholdFieldEditor.setValidRange(0, Integer.MAX_VALUE);
+      	addField(this.slowRequestThresholdFieldEditor);
     	
     	this.simpleModeGroup = new Group(this.loggerComposite, SWT.NONE);
     	this.simpleModeGroup.setLayout(new GridLayout());
@@ -507,16 +622,19 @@ public class DBPreferencePage extends FieldEditorPreferencePage	implements IWork
 			this.expertModeGroup.setVisible(false);
 			this.simpleModeGroup.setVisible(false);
 			this.traceSQLFieldComposite.setVisible(false);
+			this.slowRequestThresholdFieldComposite.setVisible(false);
 			break;
 		case "simple":
 			this.expertModeGroup.setVisible(false);
 			this.simpleModeGroup.setVisible(true);
 			this.traceSQLFieldComposite.setVisible(true);
+			this.slowRequestThresholdFieldComposite.setVisible(true);
 			break;
 		case "expert":
 			this.expertModeGroup.setVisible(true);
 			this.simpleModeGroup.setVisible(false);
 			this.traceSQLFieldComposite.setVisible(true);
+			this.slowRequestThresholdFieldComposite.setVisible(true);
 			break;
 		default: 
 			this.expertModeGroup.setVisible(false);
@@ -540,11 +658,24 @@ public class DBPreferencePage extends FieldEditorPreferencePage	implements IWork
     	preferenceStore.setValue("checkNotNullConstraints", this.btnCheckNotNullConstraintInDatabase.getSelection());
     	preferenceStore.setValue("removeDirtyFlag", this.btnRemoveDirtyFlag.getSelection());
     	preferenceStore.setValue("compareBeforeExport", this.btnCompareToDatabaseBeforeExport.getSelection());
+    	preferenceStore.setValue("incrementalCompare", this.btnIncrementalCompare.getSelection());
+    	preferenceStore.setValue("exportMembershipRanges", this.btnExportMembershipRanges.getSelection());
     	preferenceStore.setValue("deleteIfImportError", !this.btnKeepPartiallyImportedModel.getSelection());
     	preferenceStore.setValue("showIdInContextMenu", this.btnShowIdInContextMenu.getSelection());
     	preferenceStore.setValue("showRealTimeNumbers", this.btnShowRealTimeNumbers.getSelection());
     	preferenceStore.setValue("copySuffix", this.txtCopySuffix.getText());
     	preferenceStore.setValue("defaultImportMode", this.btnTemplateImportMode.getSelection() ? "template" : (this.btnSharedImportMode.getSelection() ? "shared" : "copy"));
+    	try {
+    		preferenceStore.setValue("exportBatchSize", Integer.parseInt(this.txtExportBatchSize.getText()));
+    	} catch (@SuppressWarnings("unused") NumberFormatException ign) {
+    		preferenceStore.setToDefault("exportBatchSize");
+    	}
+    	try {
+    		preferenceStore.setValue("fetchSize", Integer.parseInt(this.txtFetchSize.getText()));
+    	} catch (@SuppressWarnings("unused") NumberFormatException ign) {
+    		preferenceStore.setToDefault("fetchSize");
+    	}
+    	preferenceStore.setValue("checksumAlgorithm", this.btnXxh64ChecksumAlgorithm.getSelection() ? DBChecksumAlgorithm.XXH64.name() : DBChecksumAlgorithm.MD5.name());
     	
     	if ( this.table != null )
     	    this.table.store();